@@ -175,4 +175,42 @@ public interface ODataJPAContext {
    */
   public JPAEdmExtension getJPAEdmExtension();
 
+  /**
+   * The method sets the page size for server-side paging of entity sets.
+   * Entity sets are then read in pages of at most the given number of
+   * entities; the response of a page contains a next link with an opaque
+   * $skiptoken to read the following page. A page size of zero (the
+   * default) disables server-side paging.
+   * 
+   * @param pageSize
+   *            is the maximum number of entities returned for an entity set
+   */
+  public void setPageSize(int pageSize);
+
+  /**
+   * The method returns the page size for server-side paging of entity sets.
+   * 
+   * @return the page size or zero if server-side paging is disabled
+   */
+  public int getPageSize();
+
+  /**
+   * The method sets whether feeds are written directly into the response
+   * output stream while the JPA entities are converted instead of being
+   * buffered completely. Errors during writing can then no longer be
+   * reported as error document. Streaming is disabled by default.
+   * 
+   * @param streaming
+   *            <code>true</code> to enable streaming of feeds
+   */
+  public void setStreaming(boolean streaming);
+
+  /**
+   * The method returns whether feeds are written directly into the response
+   * output stream.
+   * 
+   * @return <code>true</code> if streaming of feeds is enabled
+   */
+  public boolean isStreaming();
+
 }
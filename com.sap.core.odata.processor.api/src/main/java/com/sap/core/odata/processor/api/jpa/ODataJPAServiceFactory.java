@@ -15,12 +15,20 @@
  ******************************************************************************/
 package com.sap.core.odata.processor.api.jpa;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.persistence.EntityManagerFactory;
+
 import com.sap.core.odata.api.ODataService;
 import com.sap.core.odata.api.ODataServiceFactory;
+import com.sap.core.odata.api.edm.Edm;
 import com.sap.core.odata.api.edm.provider.EdmProvider;
 import com.sap.core.odata.api.exception.ODataException;
 import com.sap.core.odata.api.processor.ODataContext;
 import com.sap.core.odata.api.processor.ODataSingleProcessor;
+import com.sap.core.odata.api.rt.RuntimeDelegate;
 import com.sap.core.odata.processor.api.jpa.exception.ODataJPARuntimeException;
 import com.sap.core.odata.processor.api.jpa.factory.ODataJPAAccessFactory;
 import com.sap.core.odata.processor.api.jpa.factory.ODataJPAFactory;
@@ -70,12 +78,28 @@ import com.sap.core.odata.processor.api.jpa.factory.ODataJPAFactory;
  * </servlet>
  * }
  * </pre>
+ * 
+ * <p>
+ * The entity data model derived from the Java Persistence Model is built once
+ * per {@link javax.persistence.EntityManagerFactory}, persistence unit,
+ * mapping model and JPA EDM extension and is reused for subsequent requests,
+ * also by factory instances created per request.
+ * Use {@link #invalidateEdm(EntityManagerFactory)} after the persistence model
+ * or the mapping model has changed, or override {@link #isEdmCached()} to
+ * build the model for every request.
+ * </p>
  */
 
 public abstract class ODataJPAServiceFactory extends ODataServiceFactory {
 
-  private ODataJPAContext oDataJPAContext;
-  private ODataContext oDataContext;
+  /* the cached models do not reference the entity manager factory, so the
+   * weak keys allow it to be collected once it is closed and replaced */
+  private static final Map<EntityManagerFactory, Map<String, Edm>> edmCache =
+      new WeakHashMap<EntityManagerFactory, Map<String, Edm>>();
+
+  /* the context of the request being set up by the calling thread, handed
+   * to initializeODataJPAContext through getODataJPAContext */
+  private final ThreadLocal<ODataJPAContext> requestContext = new ThreadLocal<ODataJPAContext>();
 
   /**
    * Creates an OData Service based on the values set in
@@ -86,17 +110,22 @@ public abstract class ODataJPAServiceFactory extends ODataServiceFactory {
   public final ODataService createService(final ODataContext ctx)
       throws ODataException {
 
-    oDataContext = ctx;
-
-    // Initialize OData JPA Context
-    oDataJPAContext = initializeODataJPAContext();
-
-    validatePreConditions();
-
     ODataJPAFactory factory = ODataJPAFactory.createFactory();
     ODataJPAAccessFactory accessFactory = factory
         .getODataJPAAccessFactory();
 
+    // Initialize OData JPA Context
+    ODataJPAContext oDataJPAContext = accessFactory.createODataJPAContext();
+    oDataJPAContext.setODataContext(ctx);
+    requestContext.set(oDataJPAContext);
+    try {
+      oDataJPAContext = initializeODataJPAContext();
+    } finally {
+      requestContext.remove();
+    }
+
+    validatePreConditions(oDataJPAContext);
+
     // OData JPA Processor
     if (oDataJPAContext.getODataContext() == null)
       oDataJPAContext.setODataContext(ctx);
@@ -104,14 +133,91 @@ public abstract class ODataJPAServiceFactory extends ODataServiceFactory {
     ODataSingleProcessor odataJPAProcessor = accessFactory
         .createODataProcessor(oDataJPAContext);
 
-    // OData Entity Data Model Provider based on JPA
-    EdmProvider edmProvider = accessFactory
-        .createJPAEdmProvider(oDataJPAContext);
+    if (!isEdmCached()) {
+      // OData Entity Data Model Provider based on JPA
+      EdmProvider edmProvider = accessFactory
+          .createJPAEdmProvider(oDataJPAContext);
+
+      return createODataSingleProcessorService(edmProvider, odataJPAProcessor);
+    }
+
+    return createODataSingleProcessorService(getEdm(accessFactory, oDataJPAContext), odataJPAProcessor);
+  }
+
+  private static Edm getEdm(final ODataJPAAccessFactory accessFactory, final ODataJPAContext oDataJPAContext)
+      throws ODataException {
+    final EntityManagerFactory emf = oDataJPAContext.getEntityManagerFactory();
+    final String key = oDataJPAContext.getPersistenceUnitName() + '|'
+        + oDataJPAContext.getJPAEdmMappingModel() + '|'
+        + (oDataJPAContext.getJPAEdmExtension() == null ? null : oDataJPAContext.getJPAEdmExtension().getClass().getName());
+    synchronized (edmCache) {
+      Map<String, Edm> edms = edmCache.get(emf);
+      if (edms == null) {
+        edms = new HashMap<String, Edm>();
+        edmCache.put(emf, edms);
+      }
+      Edm edm = edms.get(key);
+      if (edm == null) {
+        edm = createEdm(accessFactory, oDataJPAContext);
+        edms.put(key, edm);
+      }
+      return edm;
+    }
+  }
+
+  /*
+   * Builds the model from a context which carries only the request-independent
+   * values. The schema is built right away, then the entity manager factory is
+   * removed from that context so that the cached model does not keep it (or any
+   * request state) reachable.
+   */
+  private static Edm createEdm(final ODataJPAAccessFactory accessFactory, final ODataJPAContext oDataJPAContext)
+      throws ODataException {
+    ODataJPAContext buildContext = accessFactory.createODataJPAContext();
+    buildContext.setEntityManagerFactory(oDataJPAContext.getEntityManagerFactory());
+    buildContext.setPersistenceUnitName(oDataJPAContext.getPersistenceUnitName());
+    buildContext.setJPAEdmMappingModel(oDataJPAContext.getJPAEdmMappingModel());
+    buildContext.setJPAEdmExtension(oDataJPAContext.getJPAEdmExtension());
+
+    EdmProvider edmProvider = accessFactory.createJPAEdmProvider(buildContext);
+    edmProvider.getSchemas();
+    buildContext.setEntityManagerFactory(null);
+
+    return RuntimeDelegate.createEdm(edmProvider);
+  }
+
+  /**
+   * Removes the cached entity data models derived for the given
+   * {@link javax.persistence.EntityManagerFactory}; the next request builds
+   * the model again.
+   * 
+   * @param emf
+   *          an instance of type {@link javax.persistence.EntityManagerFactory}
+   *          or <code>null</code> to remove all cached models
+   */
+  public static void invalidateEdm(final EntityManagerFactory emf) {
+    synchronized (edmCache) {
+      if (emf == null) {
+        edmCache.clear();
+      } else {
+        edmCache.remove(emf);
+      }
+    }
+  }
 
-    return createODataSingleProcessorService(edmProvider, odataJPAProcessor);
+  /**
+   * Override this method and return <code>false</code> if the entity data
+   * model must be derived from the Java Persistence Model for every request,
+   * e.g. if a {@link com.sap.core.odata.processor.api.jpa.model.JPAEdmExtension}
+   * changes the model depending on the request.
+   * 
+   * @return <code>true</code> (default) if the entity data model is cached
+   */
+  protected boolean isEdmCached() {
+    return true;
   }
 
-  private void validatePreConditions() throws ODataJPARuntimeException {
+  private static void validatePreConditions(final ODataJPAContext oDataJPAContext) throws ODataJPARuntimeException {
 
     if (oDataJPAContext.getEntityManagerFactory() == null) {
       throw ODataJPARuntimeException.throwException(
@@ -153,18 +259,17 @@ public abstract class ODataJPAServiceFactory extends ODataServiceFactory {
       throws ODataJPARuntimeException;
 
   /**
+   * Returns the context of the request being set up while
+   * {@link #initializeODataJPAContext()} is called, a new context otherwise.
+   * 
    * @return an instance of type {@link ODataJPAContext}
    * @throws ODataJPARuntimeException
    */
   public final ODataJPAContext getODataJPAContext()
       throws ODataJPARuntimeException {
-    if (oDataJPAContext == null) {
-      oDataJPAContext = ODataJPAFactory.createFactory()
-          .getODataJPAAccessFactory().createODataJPAContext();
-    }
-    if (oDataContext != null)
-      oDataJPAContext.setODataContext(oDataContext);
-    return oDataJPAContext;
-
+    final ODataJPAContext oDataJPAContext = requestContext.get();
+    return oDataJPAContext == null ?
+        ODataJPAFactory.createFactory().getODataJPAAccessFactory().createODataJPAContext() :
+        oDataJPAContext;
   }
 }
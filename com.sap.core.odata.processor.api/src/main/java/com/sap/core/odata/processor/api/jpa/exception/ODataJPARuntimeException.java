@@ -64,6 +64,8 @@ public class ODataJPARuntimeException extends ODataJPAException {
       ODataJPARuntimeException.class, "RELATIONSHIP_INVALID");
   public static final MessageReference RESOURCE_X_NOT_FOUND = createMessageReference(
       ODataJPARuntimeException.class, "RESOURCE_X_NOT_FOUND");
+  public static final MessageReference ERROR_ODATA_SKIPTOKEN = createMessageReference(
+      ODataJPARuntimeException.class, "ERROR_ODATA_SKIPTOKEN");
 
   private ODataJPARuntimeException(final String localizedMessage, final Throwable e,
       final MessageReference msgRef) {
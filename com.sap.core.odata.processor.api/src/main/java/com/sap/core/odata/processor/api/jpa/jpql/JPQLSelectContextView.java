@@ -16,6 +16,7 @@
 package com.sap.core.odata.processor.api.jpa.jpql;
 
 import java.util.HashMap;
+import java.util.Map;
 
 /**
  * The interface provide a view on JPQL select context.The interface provides
@@ -56,4 +57,13 @@ public interface JPQLSelectContextView extends JPQLContextView {
    * @return a String representing a WHERE condition in JPQL
    */
   public String getWhereExpression();
+
+  /**
+   * The method returns the values of the positional parameters used in the
+   * WHERE condition. Literals of the $filter OData System Query Option are
+   * not part of the condition but passed as parameters.
+   * 
+   * @return a map of (parameter position, parameter value)
+   */
+  public Map<Integer, Object> getParameters();
 }
@@ -15,6 +15,9 @@
  ******************************************************************************/
 package com.sap.core.odata.processor.api.jpa.jpql;
 
+import java.util.Collections;
+import java.util.Map;
+
 import com.sap.core.odata.processor.api.jpa.exception.ODataJPARuntimeException;
 import com.sap.core.odata.processor.api.jpa.factory.ODataJPAFactory;
 
@@ -34,6 +37,7 @@ import com.sap.core.odata.processor.api.jpa.factory.ODataJPAFactory;
 public class JPQLStatement {
 
   protected String statement;
+  protected Map<Integer, Object> parameters;
 
   /**
    * The method is used for creating an instance of JPQL Statement Builder for
@@ -53,8 +57,9 @@ public class JPQLStatement {
     return JPQLStatementBuilder.create(context);
   }
 
-  private JPQLStatement(final String statement) {
+  private JPQLStatement(final String statement, final Map<Integer, Object> parameters) {
     this.statement = statement;
+    this.parameters = parameters;
   }
 
   /**
@@ -65,6 +70,18 @@ public class JPQLStatement {
     return statement;
   }
 
+  /**
+   * The method returns the values of the positional parameters used in the
+   * statement. The values have to be bound to the JPA query created from the
+   * statement.
+   * 
+   * @return a map of (parameter position, parameter value); empty if the
+   *         statement has no parameters
+   */
+  public Map<Integer, Object> getParameters() {
+    return parameters;
+  }
+
   /**
    * The abstract class is extended by specific JPQL statement builders for
    * building JPQL statements like
@@ -92,7 +109,12 @@ public class JPQLStatement {
     }
 
     protected final JPQLStatement createStatement(final String statement) {
-      return new JPQLStatement(statement);
+      return createStatement(statement, null);
+    }
+
+    protected final JPQLStatement createStatement(final String statement, final Map<Integer, Object> parameters) {
+      return new JPQLStatement(statement, parameters == null ?
+          Collections.<Integer, Object> emptyMap() : Collections.unmodifiableMap(parameters));
     }
 
     /**
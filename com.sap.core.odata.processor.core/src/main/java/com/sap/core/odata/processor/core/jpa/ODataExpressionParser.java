@@ -19,7 +19,9 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.sap.core.odata.api.edm.EdmException;
 import com.sap.core.odata.api.edm.EdmLiteralKind;
@@ -28,6 +30,8 @@ import com.sap.core.odata.api.edm.EdmProperty;
 import com.sap.core.odata.api.edm.EdmSimpleType;
 import com.sap.core.odata.api.edm.EdmSimpleTypeException;
 import com.sap.core.odata.api.edm.EdmSimpleTypeKind;
+import com.sap.core.odata.api.edm.EdmType;
+import com.sap.core.odata.api.edm.EdmTyped;
 import com.sap.core.odata.api.exception.ODataException;
 import com.sap.core.odata.api.exception.ODataNotImplementedException;
 import com.sap.core.odata.api.uri.KeyPredicate;
@@ -47,6 +51,7 @@ import com.sap.core.odata.api.uri.expression.SortOrder;
 import com.sap.core.odata.api.uri.expression.UnaryExpression;
 import com.sap.core.odata.processor.api.jpa.exception.ODataJPARuntimeException;
 import com.sap.core.odata.processor.api.jpa.jpql.JPQLStatement;
+import com.sap.core.odata.processor.api.jpa.model.JPAEdmMapping;
 
 /**
  * This class contains utility methods for parsing the filter expressions built by core library from user OData Query.
@@ -69,10 +74,28 @@ public class ODataExpressionParser {
    */
 
   public static String parseToJPAWhereExpression(final CommonExpression whereExpression, final String tableAlias) throws ODataException {
+    return parseToJPAWhereExpression(whereExpression, tableAlias, null);
+  }
+
+  /**
+   * This method returns the parsed where condition corresponding to the filter input in the user query.
+   * Literals are not inlined into the condition but replaced by positional parameters
+   * whose values are added to the given parameter map.
+   * 
+   * @param whereExpression
+   * @param tableAlias
+   * @param parameters
+   *          map of (parameter position, parameter value) the parameters of the condition are added to;
+   *          if <code>null</code>, literals are inlined
+   * 
+   * @return Parsed where condition String
+   * @throws ODataException
+   */
+  public static String parseToJPAWhereExpression(final CommonExpression whereExpression, final String tableAlias, final Map<Integer, Object> parameters) throws ODataException {
     switch (whereExpression.getKind()) {
     case UNARY:
       final UnaryExpression unaryExpression = (UnaryExpression) whereExpression;
-      final String operand = parseToJPAWhereExpression(unaryExpression.getOperand(), tableAlias);
+      final String operand = parseToJPAWhereExpression(unaryExpression.getOperand(), tableAlias, parameters);
 
       switch (unaryExpression.getOperator()) {
       case NOT:
@@ -89,14 +112,14 @@ public class ODataExpressionParser {
       }
 
     case FILTER:
-      return parseToJPAWhereExpression(((FilterExpression) whereExpression).getExpression(), tableAlias);
+      return parseToJPAWhereExpression(((FilterExpression) whereExpression).getExpression(), tableAlias, parameters);
     case BINARY:
       final BinaryExpression binaryExpression = (BinaryExpression) whereExpression;
       if ((binaryExpression.getLeftOperand().getKind() == ExpressionKind.METHOD) && ((binaryExpression.getOperator() == BinaryOperator.EQ) || (binaryExpression.getOperator() == BinaryOperator.NE)) && (((MethodExpression) binaryExpression.getLeftOperand()).getMethod() == MethodOperator.SUBSTRINGOF)) {
         methodFlag = 1;
       }
-      final String left = parseToJPAWhereExpression(binaryExpression.getLeftOperand(), tableAlias);
-      final String right = parseToJPAWhereExpression(binaryExpression.getRightOperand(), tableAlias);
+      final String left = parseOperand(binaryExpression.getLeftOperand(), binaryExpression.getRightOperand(), tableAlias, parameters);
+      final String right = parseOperand(binaryExpression.getRightOperand(), binaryExpression.getLeftOperand(), tableAlias, parameters);
 
       switch (binaryExpression.getOperator()) {
       case AND:
@@ -143,18 +166,21 @@ public class ODataExpressionParser {
       return tableAlias + JPQLStatement.DELIMITER.PERIOD + memberExpStr;
 
     case LITERAL:
-      final LiteralExpression literal = (LiteralExpression) whereExpression;
-      final EdmSimpleType literalType = (EdmSimpleType) literal.getEdmType();
-      String value = literalType.valueToString(literalType.valueOfString(literal.getUriLiteral(), EdmLiteralKind.URI, null, literalType.getDefaultType()), EdmLiteralKind.DEFAULT, null);
-      return evaluateComparingExpression(value, literalType);
+      return parseLiteral((LiteralExpression) whereExpression, null, parameters);
 
     case METHOD:
       final MethodExpression methodExpression = (MethodExpression) whereExpression;
-      String first = parseToJPAWhereExpression(methodExpression.getParameters().get(0), tableAlias);
+      if (methodExpression.getMethod() == MethodOperator.SUBSTRINGOF && parameters != null
+          && methodExpression.getParameters().get(0).getKind() == ExpressionKind.LITERAL) {
+        final String pattern = addParameter(parameters,
+            "%" + getLiteralValue((LiteralExpression) methodExpression.getParameters().get(0)) + "%");
+        return parseSubstringOf(parseToJPAWhereExpression(methodExpression.getParameters().get(1), tableAlias, parameters), pattern);
+      }
+      String first = parseToJPAWhereExpression(methodExpression.getParameters().get(0), tableAlias, parameters);
       final String second = methodExpression.getParameterCount() > 1 ?
-          parseToJPAWhereExpression(methodExpression.getParameters().get(1), tableAlias) : null;
+          parseToJPAWhereExpression(methodExpression.getParameters().get(1), tableAlias, parameters) : null;
       String third = methodExpression.getParameterCount() > 2 ?
-          parseToJPAWhereExpression(methodExpression.getParameters().get(2), tableAlias) : null;
+          parseToJPAWhereExpression(methodExpression.getParameters().get(2), tableAlias, parameters) : null;
 
       switch (methodExpression.getMethod()) {
       case SUBSTRING:
@@ -162,13 +188,7 @@ public class ODataExpressionParser {
         return String.format("SUBSTRING(%s, %s + 1 %s)", first, second, third);
       case SUBSTRINGOF:
         first = first.substring(1, first.length() - 1);
-        if (methodFlag == 1) {
-          methodFlag = 0;
-          return String.format("(CASE WHEN %s LIKE '%%%s%%' THEN TRUE ELSE FALSE END)", second, first);
-        }
-        else {
-          return String.format("(CASE WHEN %s LIKE '%%%s%%' THEN TRUE ELSE FALSE END) = true", second, first);
-        }
+        return parseSubstringOf(second, "'%" + first + "%'");
       case TOLOWER:
         return String.format("LOWER(%s)", first);
       default:
@@ -180,6 +200,113 @@ public class ODataExpressionParser {
     }
   }
 
+  private static String parseSubstringOf(final String string, final String pattern) {
+    if (methodFlag == 1) {
+      methodFlag = 0;
+      return String.format("(CASE WHEN %s LIKE %s THEN TRUE ELSE FALSE END)", string, pattern);
+    }
+    else {
+      return String.format("(CASE WHEN %s LIKE %s THEN TRUE ELSE FALSE END) = true", string, pattern);
+    }
+  }
+
+  /*
+   * A literal compared with a property is converted into the Java type of the
+   * property so that it can be passed as parameter.
+   */
+  private static String parseOperand(final CommonExpression operand, final CommonExpression otherOperand, final String tableAlias, final Map<Integer, Object> parameters) throws ODataException {
+    if (operand.getKind() == ExpressionKind.LITERAL) {
+      return parseLiteral((LiteralExpression) operand, getProperty(otherOperand), parameters);
+    }
+    return parseToJPAWhereExpression(operand, tableAlias, parameters);
+  }
+
+  private static EdmProperty getProperty(final CommonExpression expression) {
+    switch (expression.getKind()) {
+    case PROPERTY:
+      final EdmTyped property = ((PropertyExpression) expression).getEdmProperty();
+      return property instanceof EdmProperty ? (EdmProperty) property : null;
+    case MEMBER:
+      return getProperty(((MemberExpression) expression).getProperty());
+    default:
+      return null;
+    }
+  }
+
+  private static String getLiteralValue(final LiteralExpression literal) throws EdmSimpleTypeException {
+    final EdmSimpleType literalType = (EdmSimpleType) literal.getEdmType();
+    return literalType.valueToString(literalType.valueOfString(literal.getUriLiteral(), EdmLiteralKind.URI, null, literalType.getDefaultType()), EdmLiteralKind.DEFAULT, null);
+  }
+
+  private static String parseLiteral(final LiteralExpression literal, final EdmProperty property, final Map<Integer, Object> parameters) throws ODataException {
+    final EdmSimpleType literalType = (EdmSimpleType) literal.getEdmType();
+    final String value = getLiteralValue(literal);
+    if (parameters != null) {
+      final Object parameterValue = literalType == EdmSimpleTypeKind.String.getEdmSimpleTypeInstance() ?
+          value : getParameterValue(value, property);
+      if (parameterValue != null) {
+        return addParameter(parameters, parameterValue);
+      }
+    }
+    return evaluateComparingExpression(value, literalType);
+  }
+
+  /*
+   * Returns the value converted into the Java type of the JPA attribute or null
+   * if the type is not known or the value cannot be converted; the literal is
+   * inlined then.
+   */
+  private static Object getParameterValue(final String value, final EdmProperty property) throws EdmException {
+    if (property == null || !(property.getMapping() instanceof JPAEdmMapping)) {
+      return null;
+    }
+    final Class<?> jpaType = ((JPAEdmMapping) property.getMapping()).getJPAType();
+    final EdmType type = property.getType();
+    if (jpaType == null || !(type instanceof EdmSimpleType)) {
+      return null;
+    }
+    try {
+      return ((EdmSimpleType) type).valueOfString(value, EdmLiteralKind.DEFAULT, null, getWrapperType(jpaType));
+    } catch (final EdmSimpleTypeException e) {
+      return null;
+    }
+  }
+
+  /**
+   * This method returns the wrapper class of a primitive Java type; other types are returned unchanged.
+   * 
+   * @param type
+   * @return the wrapper class
+   */
+  public static Class<?> getWrapperType(final Class<?> type) {
+    if (!type.isPrimitive()) {
+      return type;
+    } else if (type == int.class) {
+      return Integer.class;
+    } else if (type == long.class) {
+      return Long.class;
+    } else if (type == short.class) {
+      return Short.class;
+    } else if (type == byte.class) {
+      return Byte.class;
+    } else if (type == double.class) {
+      return Double.class;
+    } else if (type == float.class) {
+      return Float.class;
+    } else if (type == boolean.class) {
+      return Boolean.class;
+    } else if (type == char.class) {
+      return Character.class;
+    }
+    return type;
+  }
+
+  private static String addParameter(final Map<Integer, Object> parameters, final Object value) {
+    final int position = parameters.size() + 1;
+    parameters.put(position, value);
+    return "?" + position;
+  }
+
   /**
    * This method parses the select clause
    * 
@@ -216,7 +343,7 @@ public class ODataExpressionParser {
    * @throws ODataJPARuntimeException
    */
   public static HashMap<String, String> parseToJPAOrderByExpression(final OrderByExpression orderByExpression, final String tableAlias) throws ODataJPARuntimeException {
-    HashMap<String, String> orderByMap = new HashMap<String, String>();
+    HashMap<String, String> orderByMap = new LinkedHashMap<String, String>();
     if (orderByExpression != null && orderByExpression.getOrders() != null) {
       List<OrderExpression> orderBys = orderByExpression.getOrders();
       String orderByField = null;
@@ -245,6 +372,22 @@ public class ODataExpressionParser {
    */
 
   public static String parseKeyPredicates(final List<KeyPredicate> keyPredicates, final String tableAlias) throws ODataJPARuntimeException {
+    return parseKeyPredicates(keyPredicates, tableAlias, null);
+  }
+
+  /**
+   * This method evaluated the where expression for read of an entity based on the keys specified in the query.
+   * The key values are not inlined into the condition but replaced by positional parameters
+   * whose values are added to the given parameter map, if the Java type of the key attribute is known.
+   * 
+   * @param keyPredicates
+   * @param tableAlias
+   * @param parameters
+   *          map of (parameter position, parameter value) the parameters of the condition are added to;
+   *          if <code>null</code>, the key values are inlined
+   * @return the evaluated where expression
+   */
+  public static String parseKeyPredicates(final List<KeyPredicate> keyPredicates, final String tableAlias, final Map<Integer, Object> parameters) throws ODataJPARuntimeException {
     String literal = null;
     String propertyName = null;
     EdmSimpleType edmSimpleType = null;
@@ -256,20 +399,28 @@ public class ODataExpressionParser {
       }
       i++;
       literal = keyPredicate.getLiteral();
+      Object parameterValue = null;
       try {
         propertyName = keyPredicate.getProperty().getMapping().getInternalName();
         edmSimpleType = (EdmSimpleType) keyPredicate.getProperty().getType();
+        if (parameters != null) {
+          parameterValue = getParameterValue(literal, keyPredicate.getProperty());
+        }
       } catch (EdmException e) {
         throw ODataJPARuntimeException.throwException(
             ODataJPARuntimeException.GENERAL.addContent(e
                 .getMessage()), e);
       }
 
-      literal = evaluateComparingExpression(literal, edmSimpleType);
+      if (parameterValue != null) {
+        literal = addParameter(parameters, parameterValue);
+      } else {
+        literal = evaluateComparingExpression(literal, edmSimpleType);
 
-      if (edmSimpleType == EdmSimpleTypeKind.DateTime.getEdmSimpleTypeInstance()
-          || edmSimpleType == EdmSimpleTypeKind.DateTimeOffset.getEdmSimpleTypeInstance()) {
-        literal = literal.substring(literal.indexOf('\''), literal.indexOf('}'));
+        if (edmSimpleType == EdmSimpleTypeKind.DateTime.getEdmSimpleTypeInstance()
+            || edmSimpleType == EdmSimpleTypeKind.DateTimeOffset.getEdmSimpleTypeInstance()) {
+          literal = literal.substring(literal.indexOf('\''), literal.indexOf('}'));
+        }
       }
 
       keyFilters.append(tableAlias + JPQLStatement.DELIMITER.PERIOD + propertyName + JPQLStatement.DELIMITER.SPACE + JPQLStatement.Operator.EQ + JPQLStatement.DELIMITER.SPACE + literal);
@@ -294,7 +445,7 @@ public class ODataExpressionParser {
     if (edmSimpleType == EdmSimpleTypeKind.String.getEdmSimpleTypeInstance()
         || edmSimpleType == EdmSimpleTypeKind.Guid.getEdmSimpleTypeInstance())
     {
-      value = "\'" + value + "\'"; //$NON-NLS-1$	//$NON-NLS-2$
+      value = "\'" + value.replace("\'", "\'\'") + "\'"; //$NON-NLS-1$	//$NON-NLS-2$
     } else if (edmSimpleType == EdmSimpleTypeKind.DateTime.getEdmSimpleTypeInstance()
         || edmSimpleType == EdmSimpleTypeKind.DateTimeOffset.getEdmSimpleTypeInstance())
     {
@@ -338,7 +489,7 @@ public class ODataExpressionParser {
   }
 
   public static HashMap<String, String> parseKeyPropertiesToJPAOrderByExpression(final List<EdmProperty> edmPropertylist, final String tableAlias) throws ODataJPARuntimeException {
-    HashMap<String, String> orderByMap = new HashMap<String, String>();
+    HashMap<String, String> orderByMap = new LinkedHashMap<String, String>();
     String propertyName = null;
     for (EdmProperty edmProperty : edmPropertylist) {
       try {
@@ -34,6 +34,8 @@ public class ODataJPAContextImpl implements ODataJPAContext {
   private EdmProvider edmProvider;
   private String jpaEdmMappingModelName;
   private JPAEdmExtension jpaEdmExtension;
+  private int pageSize;
+  private boolean streaming;
   private static final ThreadLocal<ODataContext> oDataContextThreadLocal = new ThreadLocal<ODataContext>();
 
   @Override
@@ -129,4 +131,24 @@ public class ODataJPAContextImpl implements ODataJPAContext {
   public JPAEdmExtension getJPAEdmExtension() {
     return jpaEdmExtension;
   }
+
+  @Override
+  public void setPageSize(final int pageSize) {
+    this.pageSize = pageSize;
+  }
+
+  @Override
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  @Override
+  public void setStreaming(final boolean streaming) {
+    this.streaming = streaming;
+  }
+
+  @Override
+  public boolean isStreaming() {
+    return streaming;
+  }
 }
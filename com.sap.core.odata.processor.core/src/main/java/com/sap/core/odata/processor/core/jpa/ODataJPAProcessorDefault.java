@@ -18,6 +18,7 @@ package com.sap.core.odata.processor.core.jpa;
 import java.io.InputStream;
 import java.util.List;
 
+import com.sap.core.odata.api.commons.InlineCount;
 import com.sap.core.odata.api.exception.ODataException;
 import com.sap.core.odata.api.processor.ODataResponse;
 import com.sap.core.odata.api.uri.info.DeleteUriInfo;
@@ -50,12 +51,26 @@ public class ODataJPAProcessorDefault extends ODataJPAProcessor {
 
     List<?> jpaEntities = jpaProcessor.process(uriParserResultView);
 
+    Integer count = null;
+    if (uriParserResultView.getInlineCount() == InlineCount.ALLPAGES
+        && uriParserResultView.getFunctionImport() == null) {
+      count = countEntitySet((GetEntitySetCountUriInfo) uriParserResultView);
+    }
+
     ODataResponse oDataResponse = ODataJPAResponseBuilder.build(
-        jpaEntities, uriParserResultView, contentType, oDataJPAContext);
+        jpaEntities, uriParserResultView, contentType, oDataJPAContext, count);
 
     return oDataResponse;
   }
 
+  /*
+   * $inlinecount=allpages is answered with a separate count query so that
+   * $skip and $top can be applied to the query selecting the entities.
+   */
+  private Integer countEntitySet(final GetEntitySetCountUriInfo uriParserResultView) throws ODataException {
+    return Integer.valueOf((int) jpaProcessor.process(uriParserResultView));
+  }
+
   @Override
   public ODataResponse readEntity(final GetEntityUriInfo uriParserResultView,
       final String contentType) throws ODataException {
@@ -180,8 +195,13 @@ public class ODataJPAProcessorDefault extends ODataJPAProcessor {
 
     List<Object> jpaEntity = jpaProcessor.process(uriParserResultView);
 
+    Integer count = null;
+    if (uriParserResultView.getInlineCount() == InlineCount.ALLPAGES) {
+      count = countEntitySet((GetEntitySetCountUriInfo) uriParserResultView);
+    }
+
     ODataResponse oDataResponse = ODataJPAResponseBuilder.build(jpaEntity,
-        uriParserResultView, contentType, oDataJPAContext);
+        uriParserResultView, contentType, oDataJPAContext, count);
 
     return oDataResponse;
   }
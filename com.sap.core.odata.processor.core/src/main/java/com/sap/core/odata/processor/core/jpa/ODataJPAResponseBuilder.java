@@ -15,8 +15,10 @@
  ******************************************************************************/
 package com.sap.core.odata.processor.core.jpa;
 
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -45,6 +47,7 @@ import com.sap.core.odata.api.processor.ODataContext;
 import com.sap.core.odata.api.processor.ODataResponse;
 import com.sap.core.odata.api.uri.ExpandSelectTreeNode;
 import com.sap.core.odata.api.uri.NavigationPropertySegment;
+import com.sap.core.odata.api.uri.PathInfo;
 import com.sap.core.odata.api.uri.SelectItem;
 import com.sap.core.odata.api.uri.UriParser;
 import com.sap.core.odata.api.uri.info.DeleteUriInfo;
@@ -55,10 +58,13 @@ import com.sap.core.odata.api.uri.info.GetEntityUriInfo;
 import com.sap.core.odata.api.uri.info.GetFunctionImportUriInfo;
 import com.sap.core.odata.api.uri.info.PostUriInfo;
 import com.sap.core.odata.api.uri.info.PutMergePatchUriInfo;
+import com.sap.core.odata.core.commons.Decoder;
+import com.sap.core.odata.core.commons.Encoder;
 import com.sap.core.odata.processor.api.jpa.ODataJPAContext;
 import com.sap.core.odata.processor.api.jpa.exception.ODataJPARuntimeException;
 import com.sap.core.odata.processor.core.jpa.access.data.JPAEntityParser;
 import com.sap.core.odata.processor.core.jpa.access.data.JPAExpandCallBack;
+import com.sap.core.odata.processor.core.jpa.jpql.JPQLSkipToken;
 
 public final class ODataJPAResponseBuilder {
 
@@ -66,6 +72,17 @@ public final class ODataJPAResponseBuilder {
   public static <T> ODataResponse build(final List<T> jpaEntities,
       final GetEntitySetUriInfo resultsView, final String contentType,
       final ODataJPAContext odataJPAContext) throws ODataJPARuntimeException {
+    return build(jpaEntities, resultsView, contentType, odataJPAContext, null);
+  }
+
+  /*
+   * Response for Read Entity Set; inlineCount is the result of a separate count
+   * query for $inlinecount=allpages. If it is null, the count is taken from
+   * jpaEntities and $skip/$top are applied to them.
+   */
+  public static <T> ODataResponse build(final List<T> jpaEntities,
+      final GetEntitySetUriInfo resultsView, final String contentType,
+      final ODataJPAContext odataJPAContext, final Integer inlineCount) throws ODataJPARuntimeException {
 
     EdmEntityType edmEntityType = null;
     ODataResponse odataResponse = null;
@@ -73,45 +90,39 @@ public final class ODataJPAResponseBuilder {
 
     try {
       edmEntityType = resultsView.getTargetEntitySet().getEntityType();
-      List<Map<String, Object>> edmEntityList = new ArrayList<Map<String, Object>>();
-      Map<String, Object> edmPropertyValueMap = null;
-      JPAEntityParser jpaResultParser = JPAEntityParser.create();
       final List<SelectItem> selectedItems = resultsView.getSelect();
-      if (selectedItems != null && selectedItems.size() > 0) {
-        for (T jpaEntity : jpaEntities) {
-          edmPropertyValueMap = jpaResultParser
-              .parse2EdmPropertyValueMap(
-                  jpaEntity,
-                  buildSelectItemList(selectedItems,
-                      edmEntityType));
-          edmEntityList.add(edmPropertyValueMap);
-        }
-      } else {
-        for (T jpaEntity : jpaEntities) {
-          edmPropertyValueMap = jpaResultParser
-              .parse2EdmPropertyValueMap(jpaEntity, edmEntityType);
-          edmEntityList.add(edmPropertyValueMap);
-        }
-      }
+      final List<EdmProperty> selectPropertyList = selectedItems != null && selectedItems.size() > 0 ?
+          buildSelectItemList(selectedItems, edmEntityType) : null;
       expandList = resultsView.getExpand();
-      if (expandList != null && expandList.size() != 0) {
-        int count = 0;
-        for (T jpaEntity : jpaEntities) {
-          Map<String, Object> relationShipMap = edmEntityList.get(count);
-          HashMap<String, Object> navigationMap = jpaResultParser.parse2EdmNavigationValueMap(
-              jpaEntity, constructListofNavProperty(expandList));
-          relationShipMap.putAll(navigationMap);
-          count++;
-        }
+      final List<EdmNavigationProperty> navigationPropertyList = expandList != null && expandList.size() != 0 ?
+          constructListofNavProperty(expandList) : null;
+
+      final Integer count = inlineCount != null ? inlineCount : getInlineCount(resultsView, jpaEntities.size());
+      List<T> entities = inlineCount != null ? jpaEntities : applyInlineCountPaging(jpaEntities, resultsView);
+
+      // With server-side paging one entity more than the page size has been selected if there is a next page.
+      String nextLink = null;
+      final JPQLSkipToken skipToken = JPQLSkipToken.create(resultsView, odataJPAContext.getPageSize());
+      if (skipToken != null && entities.size() > skipToken.getPageSize()) {
+        entities = entities.subList(0, skipToken.getPageSize());
+        nextLink = getNextLink(odataJPAContext, skipToken, entities.get(entities.size() - 1));
       }
 
-      EntityProviderWriteProperties feedProperties = null;
-
-      feedProperties = getEntityProviderProperties(odataJPAContext,
-          resultsView, edmEntityList);
-      odataResponse = EntityProvider.writeFeed(contentType,
-          resultsView.getTargetEntitySet(), edmEntityList,
-          feedProperties);
+      EntityProviderWriteProperties feedProperties = getEntityProviderProperties(odataJPAContext, resultsView, count,
+          nextLink);
+      try {
+        odataResponse = EntityProvider.writeFeed(contentType,
+            resultsView.getTargetEntitySet(),
+            new EdmEntryIterator<T>(entities.iterator(), edmEntityType, selectPropertyList, navigationPropertyList),
+            feedProperties);
+      } catch (EntryConversionException e) {
+        throw e.getJPACause();
+      } catch (EntityProviderException e) {
+        if (e.getCause() instanceof EntryConversionException) {
+          throw ((EntryConversionException) e.getCause()).getJPACause();
+        }
+        throw e;
+      }
       odataResponse = ODataResponse.fromResponse(odataResponse)
           .status(HttpStatusCodes.OK).build();
 
@@ -128,6 +139,58 @@ public final class ODataJPAResponseBuilder {
     return odataResponse;
   }
 
+  /*
+   * Converts the JPA entities into EDM entry data one by one while the feed is written
+   * so that the data of an entry is no longer referenced once it is serialized.
+   */
+  private static final class EdmEntryIterator<T> implements Iterator<Map<String, Object>> {
+
+    private final Iterator<T> jpaEntities;
+    private final JPAEntityParser.EntityConverter converter;
+
+    private EdmEntryIterator(final Iterator<T> jpaEntities, final EdmEntityType edmEntityType,
+        final List<EdmProperty> selectPropertyList, final List<EdmNavigationProperty> navigationPropertyList) {
+      this.jpaEntities = jpaEntities;
+      converter = JPAEntityParser.create().createConverter(edmEntityType, selectPropertyList, navigationPropertyList);
+    }
+
+    @Override
+    public boolean hasNext() {
+      return jpaEntities.hasNext();
+    }
+
+    @Override
+    public Map<String, Object> next() {
+      final T jpaEntity = jpaEntities.next();
+      try {
+        return converter.convert(jpaEntity);
+      } catch (ODataJPARuntimeException e) {
+        throw new EntryConversionException(e);
+      }
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /*
+   * Transports a conversion error through the iterator used by the entity provider.
+   */
+  private static final class EntryConversionException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private EntryConversionException(final ODataJPARuntimeException cause) {
+      super(cause);
+    }
+
+    private ODataJPARuntimeException getJPACause() {
+      return (ODataJPARuntimeException) getCause();
+    }
+  }
+
   /* Response for Read Entity */
   public static ODataResponse build(final Object jpaEntity,
       final GetEntityUriInfo resultsView, final String contentType,
@@ -351,10 +414,10 @@ public final class ODataJPAResponseBuilder {
           if (functionImport.getReturnType().getMultiplicity()
               .equals(EdmMultiplicity.MANY)) {
             edmEntityList = new ArrayList<Map<String, Object>>();
+            JPAEntityParser.EntityConverter converter = jpaResultParser
+                .createConverter((EdmStructuralType) edmType, null, null);
             for (Object jpaEntity : resultList) {
-              edmPropertyValueMap = jpaResultParser
-                  .parse2EdmPropertyValueMap(jpaEntity,
-                      (EdmStructuralType) edmType);
+              edmPropertyValueMap = converter.convert(jpaEntity);
               edmEntityList.add(edmPropertyValueMap);
             }
             result = edmEntityList;
@@ -444,6 +507,17 @@ public final class ODataJPAResponseBuilder {
       final GetEntitySetLinksUriInfo resultsView, final String contentType,
       final ODataJPAContext oDataJPAContext)
       throws ODataJPARuntimeException {
+    return build(jpaEntities, resultsView, contentType, oDataJPAContext, null);
+  }
+
+  /*
+   * Response for Read Entity Links; inlineCount is the result of a separate count
+   * query for $inlinecount=allpages. If it is null, the count is taken from jpaEntities.
+   */
+  public static <T> ODataResponse build(final List<T> jpaEntities,
+      final GetEntitySetLinksUriInfo resultsView, final String contentType,
+      final ODataJPAContext oDataJPAContext, final Integer inlineCount)
+      throws ODataJPARuntimeException {
     EdmEntityType edmEntityType = null;
     ODataResponse odataResponse = null;
 
@@ -455,18 +529,16 @@ public final class ODataJPAResponseBuilder {
 
       List<Map<String, Object>> edmEntityList = new ArrayList<Map<String, Object>>();
       Map<String, Object> edmPropertyValueMap = null;
-      JPAEntityParser jpaResultParser = JPAEntityParser.create();
+      JPAEntityParser.EntityConverter converter = JPAEntityParser.create()
+          .createConverter(edmEntityType, keyProperties, null);
 
       for (Object jpaEntity : jpaEntities) {
-        edmPropertyValueMap = jpaResultParser
-            .parse2EdmPropertyValueMap(
-                jpaEntity,
-                keyProperties);
+        edmPropertyValueMap = converter.convert(jpaEntity);
         edmEntityList.add(edmPropertyValueMap);
       }
 
-      Integer count = null;
-      if (resultsView.getInlineCount() != null) {
+      Integer count = inlineCount;
+      if (count == null && resultsView.getInlineCount() != null) {
         if ((resultsView.getSkip() != null || resultsView.getTop() != null)) {
           // when $skip and/or $top is present with $inlinecount
           count = getInlineCountForNonFilterQueryLinks(edmEntityList, resultsView);
@@ -536,22 +608,10 @@ public final class ODataJPAResponseBuilder {
    */
   private static EntityProviderWriteProperties getEntityProviderProperties(
       final ODataJPAContext odataJPAContext, final GetEntitySetUriInfo resultsView,
-      final List<Map<String, Object>> edmEntityList)
+      final Integer count, final String nextLink)
       throws ODataJPARuntimeException {
     ODataEntityProviderPropertiesBuilder entityFeedPropertiesBuilder = null;
 
-    Integer count = null;
-    if (resultsView.getInlineCount() != null) {
-      if ((resultsView.getSkip() != null || resultsView.getTop() != null)) {
-        // when $skip and/or $top is present with $inlinecount
-        count = getInlineCountForNonFilterQueryEntitySet(edmEntityList, resultsView);
-      } else {
-        // In all other cases
-        count = resultsView.getInlineCount() == InlineCount.ALLPAGES ? edmEntityList
-            .size() : null;
-      }
-    }
-
     try {
       entityFeedPropertiesBuilder = EntityProviderWriteProperties
           .serviceRoot(odataJPAContext.getODataContext()
@@ -559,6 +619,8 @@ public final class ODataJPAResponseBuilder {
       entityFeedPropertiesBuilder.inlineCount(count);
       entityFeedPropertiesBuilder.inlineCountType(resultsView
           .getInlineCount());
+      entityFeedPropertiesBuilder.nextLink(nextLink);
+      entityFeedPropertiesBuilder.streaming(odataJPAContext.isStreaming());
       ExpandSelectTreeNode expandSelectTree = UriParser
           .createExpandSelectTree(resultsView.getSelect(),
               resultsView.getExpand());
@@ -577,31 +639,64 @@ public final class ODataJPAResponseBuilder {
   }
 
   /*
-   * This method handles $inlinecount request. It also modifies the list of results in case of 
-   * $inlinecount and $top/$skip combinations. Specific to Entity Set. //TODO
-   * 
+   * The next link repeats the request relative to the service root with the
+   * skip token of the following page instead of $skip and with $top reduced
+   * by the page size.
    */
-  private static Integer getInlineCountForNonFilterQueryEntitySet(final List<Map<String, Object>> edmEntityList, final GetEntitySetUriInfo resultsView) {
-    // when $skip and/or $top is present with $inlinecount, first get the total count
-    Integer count = null;
-    if (resultsView.getInlineCount() == InlineCount.ALLPAGES) {
-      if (resultsView.getSkip() != null || resultsView.getTop() != null) {
-        count = edmEntityList.size();
-        // Now update the list
-        if (resultsView.getSkip() != null) {
-          // Index checks to avoid IndexOutOfBoundsException
-          if (resultsView.getSkip() > edmEntityList.size()) {
-            edmEntityList.clear();
-            return count;
-          }
-          edmEntityList.subList(0, resultsView.getSkip()).clear();
-        }
-        if (resultsView.getTop() != null && resultsView.getTop() >= 0 && resultsView.getTop() < edmEntityList.size()) {
-          edmEntityList.retainAll(edmEntityList.subList(0, resultsView.getTop()));
+  private static String getNextLink(final ODataJPAContext odataJPAContext, final JPQLSkipToken skipToken,
+      final Object lastEntity) throws ODataJPARuntimeException {
+    PathInfo pathInfo = null;
+    try {
+      pathInfo = odataJPAContext.getODataContext().getPathInfo();
+    } catch (ODataException e) {
+      throw ODataJPARuntimeException.throwException(
+          ODataJPARuntimeException.INNER_EXCEPTION, e);
+    }
+    final URI requestUri = pathInfo.getRequestUri();
+    StringBuilder nextLink = new StringBuilder(pathInfo.getServiceRoot().relativize(requestUri).getRawPath());
+    char separator = '?';
+    if (requestUri.getRawQuery() != null) {
+      for (String option : requestUri.getRawQuery().split("&")) {
+        final String name = Decoder.decode(option.split("=", 2)[0]);
+        if (name.length() > 0 && !"$skip".equals(name) && !"$skiptoken".equals(name) && !"$top".equals(name)) {
+          nextLink.append(separator).append(option);
+          separator = '&';
         }
       }
-    }// Inlinecount of None is handled by default - null
-    return count;
+    }
+    if (skipToken.getNextTop() != null) {
+      nextLink.append(separator).append("$top=").append(skipToken.getNextTop());
+      separator = '&';
+    }
+    return nextLink.append(separator).append("$skiptoken=")
+        .append(Encoder.encode(skipToken.getNextSkipToken(lastEntity))).toString();
+  }
+
+  /*
+   * This method handles $inlinecount request. The count is the number of
+   * all selected entities. Inline count of None is handled by default - null
+   */
+  private static Integer getInlineCount(final GetEntitySetUriInfo resultsView, final int size) {
+    return resultsView.getInlineCount() == InlineCount.ALLPAGES ? size : null;
+  }
+
+  /*
+   * In case of $inlinecount=allpages without a separate count query all entities
+   * are selected; $skip and $top are then applied to the result list. Specific to Entity Set.
+   */
+  private static <T> List<T> applyInlineCountPaging(final List<T> jpaEntities, final GetEntitySetUriInfo resultsView) {
+    if (resultsView.getInlineCount() != InlineCount.ALLPAGES) {
+      return jpaEntities;
+    }
+    int from = 0;
+    int to = jpaEntities.size();
+    if (resultsView.getSkip() != null) {
+      from = Math.min(resultsView.getSkip(), to);
+    }
+    if (resultsView.getTop() != null && resultsView.getTop() >= 0) {
+      to = Math.min(from + resultsView.getTop(), to);
+    }
+    return jpaEntities.subList(from, to);
   }
 
   private static EntityProviderWriteProperties getEntityProviderProperties(
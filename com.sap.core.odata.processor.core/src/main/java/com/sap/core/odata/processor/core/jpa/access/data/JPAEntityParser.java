@@ -17,8 +17,11 @@ package com.sap.core.odata.processor.core.jpa.access.data;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import com.sap.core.odata.api.edm.EdmAssociationEnd;
 import com.sap.core.odata.api.edm.EdmException;
@@ -27,28 +30,31 @@ import com.sap.core.odata.api.edm.EdmNavigationProperty;
 import com.sap.core.odata.api.edm.EdmProperty;
 import com.sap.core.odata.api.edm.EdmStructuralType;
 import com.sap.core.odata.api.edm.EdmTypeKind;
+import com.sap.core.odata.api.edm.EdmTyped;
 import com.sap.core.odata.processor.api.jpa.exception.ODataJPARuntimeException;
 import com.sap.core.odata.processor.api.jpa.model.JPAEdmMapping;
 
 public final class JPAEntityParser {
 
-  /*
-   * List of buffers used by the Parser
-   */
-  private static short MAX_SIZE = 10;
   public static final String ACCESS_MODIFIER_GET = "get";
   public static final String ACCESS_MODIFIER_SET = "set";
 
-  private HashMap<String, HashMap<String, Method>> jpaEntityAccessMap = null;
-  private HashMap<String, HashMap<String, String>> jpaEmbeddableKeyMap = null;
+  /*
+   * Accessor tables are built once per EDM type (or property) and JPA entity
+   * class; converting a row is a loop over the resolved getter methods then.
+   * The EDM objects are weak keys, so the tables live as long as the Edm they
+   * belong to, which refers to the JPA classes through its mappings anyway,
+   * and do not pin JPA classes or their class loader beyond it. The tables
+   * refer to JPA classes and their methods only, never to EDM objects.
+   */
+  private static final Map<EdmStructuralType, Map<Class<?>, PropertyAccessor[]>> accessorTables =
+      new WeakHashMap<EdmStructuralType, Map<Class<?>, PropertyAccessor[]>>();
+  private static final Map<EdmTyped, Map<Class<?>, PropertyAccessor>> accessors =
+      new WeakHashMap<EdmTyped, Map<Class<?>, PropertyAccessor>>();
 
   private static JPAEntityParser jpaEntityParser;
 
-  private JPAEntityParser() {
-    jpaEntityAccessMap = new HashMap<String, HashMap<String, Method>>(
-        MAX_SIZE);
-    jpaEmbeddableKeyMap = new HashMap<String, HashMap<String, String>>();
-  };
+  private JPAEntityParser() {};
 
   public static final JPAEntityParser create() {
     if (jpaEntityParser == null) {
@@ -71,75 +77,7 @@ public final class JPAEntityParser {
   public final HashMap<String, Object> parse2EdmPropertyValueMap(
       final Object jpaEntity, final List<EdmProperty> selectPropertyList)
       throws ODataJPARuntimeException {
-    HashMap<String, Object> edmEntity = new HashMap<String, Object>();
-    String methodName = null;
-    Method method = null;
-    for (int i = 0; i < selectPropertyList.size(); i++) {
-      String key = null;
-      Object propertyValue = null;
-      EdmProperty property = null;
-      property = selectPropertyList.get(i);
-
-      try {
-        methodName = getAccessModifierName(property.getName(),
-            property.getMapping(), ACCESS_MODIFIER_GET);
-        String[] nameParts = methodName.split("\\.");
-        if (nameParts.length > 1) {
-          Object propertyVal = new Object();
-          propertyVal = jpaEntity;
-          for (String namePart : nameParts) {
-            method = propertyVal.getClass().getMethod(
-                namePart, (Class<?>[]) null);
-            method.setAccessible(true);
-            propertyVal = method.invoke(propertyVal);
-          }
-          edmEntity.put(property.getName(), propertyVal);
-        } else {
-          method = jpaEntity.getClass().getMethod(methodName,
-              (Class<?>[]) null);
-          method.setAccessible(true);
-          propertyValue = method.invoke(jpaEntity);
-          key = property.getName();
-          if (property.getType().getKind()
-              .equals(EdmTypeKind.COMPLEX)) {
-            try {
-              propertyValue = parse2EdmPropertyValueMap(
-                  propertyValue,
-                  (EdmStructuralType) property.getType());
-            } catch (ODataJPARuntimeException e) {
-              throw e;
-            }
-          }
-          edmEntity.put(key, propertyValue);
-        }
-      } catch (EdmException e) {
-        throw ODataJPARuntimeException.throwException(
-            ODataJPARuntimeException.GENERAL.addContent(e
-                .getMessage()), e);
-      } catch (SecurityException e) {
-        throw ODataJPARuntimeException.throwException(
-            ODataJPARuntimeException.GENERAL.addContent(e
-                .getMessage()), e);
-      } catch (NoSuchMethodException e) {
-        throw ODataJPARuntimeException.throwException(
-            ODataJPARuntimeException.GENERAL.addContent(e
-                .getMessage()), e);
-      } catch (IllegalArgumentException e) {
-        throw ODataJPARuntimeException.throwException(
-            ODataJPARuntimeException.GENERAL.addContent(e
-                .getMessage()), e);
-      } catch (IllegalAccessException e) {
-        throw ODataJPARuntimeException.throwException(
-            ODataJPARuntimeException.GENERAL.addContent(e
-                .getMessage()), e);
-      } catch (InvocationTargetException e) {
-        throw ODataJPARuntimeException.throwException(
-            ODataJPARuntimeException.GENERAL.addContent(e
-                .getMessage()), e);
-      }
-    }
-
-    return edmEntity;
+    return toMap(jpaEntity, getAccessorTable(jpaEntity.getClass(), selectPropertyList));
   }
 
   /**
@@ -161,83 +99,7 @@ public final class JPAEntityParser {
       return null;
     }
 
-    String jpaEntityAccessKey = jpaEntity.getClass().getName();
-
-    if (!jpaEntityAccessMap.containsKey(jpaEntityAccessKey)) {
-      jpaEntityAccessMap.put(jpaEntityAccessKey,
-          getAccessModifier(jpaEntity, structuralType, ACCESS_MODIFIER_GET));
-    }
-
-    HashMap<String, Object> edmEntity = new HashMap<String, Object>();
-    HashMap<String, Method> getters = jpaEntityAccessMap
-        .get(jpaEntityAccessKey);
-    HashMap<String, String> embeddableKeys = jpaEmbeddableKeyMap
-        .get(jpaEntityAccessKey);
-
-    try {
-      for (String key : getters.keySet()) {
-
-        EdmProperty property = (EdmProperty) structuralType
-            .getProperty(key);
-
-        Method method = getters.get(key);
-        Object propertyValue = null;
-
-        if (method != null) {
-          getters.get(key).setAccessible(true);
-          propertyValue = getters.get(key).invoke(jpaEntity);
-        }
-
-        if (property.getType().getKind().equals(EdmTypeKind.COMPLEX)) {
-          propertyValue = parse2EdmPropertyValueMap(propertyValue,
-              (EdmStructuralType) property.getType());
-        }
-
-        edmEntity.put(key, propertyValue);
-
-      }
-
-      if (embeddableKeys != null) {
-        for (String key : embeddableKeys.keySet()) {
-          String name = embeddableKeys.get(key);
-          String[] nameParts = name.split("\\.");
-          Object propertyValue = jpaEntity;
-          Method method = null;
-          for (String namePart : nameParts) {
-            method = propertyValue.getClass().getMethod(
-                namePart, (Class<?>[]) null);
-            method.setAccessible(true);
-            propertyValue = method.invoke(propertyValue);
-          }
-          edmEntity.put(key, propertyValue);
-        }
-      }
-    } catch (EdmException e) {
-      throw ODataJPARuntimeException
-          .throwException(ODataJPARuntimeException.GENERAL
-              .addContent(e.getMessage()), e);
-    } catch (SecurityException e) {
-      throw ODataJPARuntimeException
-          .throwException(ODataJPARuntimeException.GENERAL
-              .addContent(e.getMessage()), e);
-    } catch (NoSuchMethodException e) {
-      throw ODataJPARuntimeException
-          .throwException(ODataJPARuntimeException.GENERAL
-              .addContent(e.getMessage()), e);
-    } catch (IllegalArgumentException e) {
-      throw ODataJPARuntimeException
-          .throwException(ODataJPARuntimeException.GENERAL
-              .addContent(e.getMessage()), e);
-    } catch (IllegalAccessException e) {
-      throw ODataJPARuntimeException
-          .throwException(ODataJPARuntimeException.GENERAL
-              .addContent(e.getMessage()), e);
-    } catch (InvocationTargetException e) {
-      throw ODataJPARuntimeException
-          .throwException(ODataJPARuntimeException.GENERAL
-              .addContent(e.getMessage()), e);
-    }
-    return edmEntity;
+    return toMap(jpaEntity, getAccessorTable(jpaEntity.getClass(), structuralType));
   }
 
   // This method appends the associated entities as a java list to an expanded
@@ -245,56 +107,50 @@ public final class JPAEntityParser {
   public final HashMap<String, Object> parse2EdmNavigationValueMap(
       final Object jpaEntity, final List<EdmNavigationProperty> navigationPropertyList)
       throws ODataJPARuntimeException {
-    Object result = null;
-    String methodName = null;
     HashMap<String, Object> navigationMap = new HashMap<String, Object>();
     if (navigationPropertyList != null
         && navigationPropertyList.size() != 0) {
-
-      try {
-        for (EdmNavigationProperty navigationProperty : navigationPropertyList) {
-          methodName = getAccessModifierName(navigationProperty.getName(),
-              navigationProperty.getMapping(), ACCESS_MODIFIER_GET);
-          Method getterMethod = jpaEntity.getClass()
-              .getDeclaredMethod(methodName, (Class<?>[]) null);
-          getterMethod.setAccessible(true);
-          result = getterMethod.invoke(jpaEntity);
-          navigationMap.put(navigationProperty.getName(), result);
-        }
-      } catch (IllegalArgumentException e) {
-        throw ODataJPARuntimeException.throwException(
-            ODataJPARuntimeException.GENERAL.addContent(e
-                .getMessage()), e);
-      } catch (IllegalAccessException e) {
-        throw ODataJPARuntimeException.throwException(
-            ODataJPARuntimeException.GENERAL.addContent(e
-                .getMessage()), e);
-      } catch (InvocationTargetException e) {
-        throw ODataJPARuntimeException.throwException(
-            ODataJPARuntimeException.GENERAL.addContent(e
-                .getMessage()), e);
-      } catch (EdmException e) {
-        throw ODataJPARuntimeException.throwException(
-            ODataJPARuntimeException.GENERAL.addContent(e
-                .getMessage()), e);
-      } catch (SecurityException e) {
-        throw ODataJPARuntimeException.throwException(
-            ODataJPARuntimeException.GENERAL.addContent(e
-                .getMessage()), e);
-      } catch (NoSuchMethodException e) {
-        throw ODataJPARuntimeException.throwException(
-            ODataJPARuntimeException.GENERAL.addContent(e
-                .getMessage()), e);
+      for (EdmNavigationProperty navigationProperty : navigationPropertyList) {
+        PropertyAccessor accessor = getNavigationAccessor(jpaEntity.getClass(), navigationProperty);
+        navigationMap.put(accessor.name, accessor.getValue(jpaEntity));
       }
     }
     return navigationMap;
   }
 
+  /**
+   * Returns a converter of JPA entities into maps of property values and
+   * navigation values, e.g., for the entities of a feed. The accessors are
+   * resolved for the first entity and reused for all following entities of
+   * the same JPA class. A converter must not be used concurrently.
+   * 
+   * @param structuralType
+   *          the EDM type of the entities
+   * @param selectPropertyList
+   *          the properties to convert or <code>null</code> for all
+   *          properties of the EDM type
+   * @param navigationPropertyList
+   *          the navigation properties to convert or <code>null</code>
+   * @return a converter
+   */
+  public final EntityConverter createConverter(final EdmStructuralType structuralType,
+      final List<EdmProperty> selectPropertyList, final List<EdmNavigationProperty> navigationPropertyList) {
+    return new EntityConverter(structuralType, selectPropertyList, navigationPropertyList);
+  }
+
+  private static HashMap<String, Object> toMap(final Object jpaEntity, final PropertyAccessor[] accessorTable)
+      throws ODataJPARuntimeException {
+    HashMap<String, Object> edmEntity = new HashMap<String, Object>(accessorTable.length * 4 / 3 + 1);
+    for (PropertyAccessor accessor : accessorTable) {
+      edmEntity.put(accessor.name, accessor.getValue(jpaEntity));
+    }
+    return edmEntity;
+  }
+
   public HashMap<String, Method> getAccessModifier(final Object jpaEntity,
       final EdmStructuralType structuralType, final String accessModifier) throws ODataJPARuntimeException {
 
     HashMap<String, Method> accessModifierMap = new HashMap<String, Method>();
-    HashMap<String, String> embeddableKey = new HashMap<String, String>();
     try {
       for (String propertyName : structuralType.getPropertyNames()) {
 
@@ -304,9 +160,7 @@ public final class JPAEntityParser {
         String name = getAccessModifierName(property.getName(),
             property.getMapping(), accessModifier);
         String[] nameParts = name.split("\\.");
-        if (nameParts.length > 1) {
-          embeddableKey.put(propertyName, name);
-        } else {
+        if (nameParts.length == 1) {
           accessModifierMap.put(
               propertyName,
               jpaEntity.getClass().getMethod(name,
@@ -327,10 +181,6 @@ public final class JPAEntityParser {
               .addContent(e.getMessage()), e);
     }
 
-    if (!embeddableKey.isEmpty()) {
-      jpaEmbeddableKeyMap.put(jpaEntity.getClass().getName(),
-          embeddableKey);
-    }
     return accessModifierMap;
   }
 
@@ -417,4 +267,210 @@ public final class JPAEntityParser {
     }
 
   }
+
+  private static PropertyAccessor[] getAccessorTable(final Class<?> jpaEntityClass,
+      final EdmStructuralType structuralType) throws ODataJPARuntimeException {
+    PropertyAccessor[] accessorTable;
+    synchronized (accessorTables) {
+      final Map<Class<?>, PropertyAccessor[]> tables = accessorTables.get(structuralType);
+      accessorTable = tables == null ? null : tables.get(jpaEntityClass);
+    }
+    if (accessorTable == null) {
+      try {
+        List<EdmProperty> properties = new ArrayList<EdmProperty>();
+        for (String propertyName : structuralType.getPropertyNames()) {
+          properties.add((EdmProperty) structuralType.getProperty(propertyName));
+        }
+        accessorTable = getAccessorTable(jpaEntityClass, properties);
+      } catch (EdmException e) {
+        throw ODataJPARuntimeException.throwException(
+            ODataJPARuntimeException.GENERAL.addContent(e.getMessage()), e);
+      }
+      synchronized (accessorTables) {
+        Map<Class<?>, PropertyAccessor[]> tables = accessorTables.get(structuralType);
+        if (tables == null) {
+          tables = new HashMap<Class<?>, PropertyAccessor[]>();
+          accessorTables.put(structuralType, tables);
+        }
+        tables.put(jpaEntityClass, accessorTable);
+      }
+    }
+    return accessorTable;
+  }
+
+  private static PropertyAccessor[] getAccessorTable(final Class<?> jpaEntityClass,
+      final List<EdmProperty> properties) throws ODataJPARuntimeException {
+    PropertyAccessor[] accessorTable = new PropertyAccessor[properties.size()];
+    for (int i = 0; i < accessorTable.length; i++) {
+      accessorTable[i] = getPropertyAccessor(jpaEntityClass, properties.get(i));
+    }
+    return accessorTable;
+  }
+
+  private static PropertyAccessor getPropertyAccessor(final Class<?> jpaEntityClass, final EdmProperty property)
+      throws ODataJPARuntimeException {
+    PropertyAccessor accessor = getCachedAccessor(jpaEntityClass, property);
+    if (accessor == null) {
+      accessor = createPropertyAccessor(jpaEntityClass, property);
+      putCachedAccessor(jpaEntityClass, property, accessor);
+    }
+    return accessor;
+  }
+
+  private static PropertyAccessor getNavigationAccessor(final Class<?> jpaEntityClass,
+      final EdmNavigationProperty navigationProperty) throws ODataJPARuntimeException {
+    PropertyAccessor accessor = getCachedAccessor(jpaEntityClass, navigationProperty);
+    if (accessor == null) {
+      try {
+        Method getter = jpaEntityClass.getDeclaredMethod(getAccessModifierName(navigationProperty.getName(),
+            navigationProperty.getMapping(), ACCESS_MODIFIER_GET), (Class<?>[]) null);
+        getter.setAccessible(true);
+        accessor = new PropertyAccessor(navigationProperty.getName(), new Method[] { getter }, null);
+      } catch (EdmException e) {
+        throw ODataJPARuntimeException.throwException(
+            ODataJPARuntimeException.GENERAL.addContent(e.getMessage()), e);
+      } catch (SecurityException e) {
+        throw ODataJPARuntimeException.throwException(
+            ODataJPARuntimeException.GENERAL.addContent(e.getMessage()), e);
+      } catch (NoSuchMethodException e) {
+        throw ODataJPARuntimeException.throwException(
+            ODataJPARuntimeException.GENERAL.addContent(e.getMessage()), e);
+      }
+      putCachedAccessor(jpaEntityClass, navigationProperty, accessor);
+    }
+    return accessor;
+  }
+
+  private static PropertyAccessor getCachedAccessor(final Class<?> jpaEntityClass, final EdmTyped edmProperty) {
+    synchronized (accessors) {
+      final Map<Class<?>, PropertyAccessor> classAccessors = accessors.get(edmProperty);
+      return classAccessors == null ? null : classAccessors.get(jpaEntityClass);
+    }
+  }
+
+  private static void putCachedAccessor(final Class<?> jpaEntityClass, final EdmTyped edmProperty,
+      final PropertyAccessor accessor) {
+    synchronized (accessors) {
+      Map<Class<?>, PropertyAccessor> classAccessors = accessors.get(edmProperty);
+      if (classAccessors == null) {
+        classAccessors = new HashMap<Class<?>, PropertyAccessor>();
+        accessors.put(edmProperty, classAccessors);
+      }
+      classAccessors.put(jpaEntityClass, accessor);
+    }
+  }
+
+  /*
+   * Resolves the getter (or the chain of getters for a property mapped to an
+   * attribute of an embeddable) of the property in the JPA entity class; for
+   * a property mapped to an embeddable as a whole, the accessor table of the
+   * embeddable is resolved as well.
+   */
+  private static PropertyAccessor createPropertyAccessor(final Class<?> jpaEntityClass, final EdmProperty property)
+      throws ODataJPARuntimeException {
+    try {
+      String[] nameParts = getAccessModifierName(property.getName(),
+          property.getMapping(), ACCESS_MODIFIER_GET).split("\\.");
+      Method[] getters = new Method[nameParts.length];
+      Class<?> type = jpaEntityClass;
+      for (int i = 0; i < nameParts.length; i++) {
+        getters[i] = type.getMethod(nameParts[i], (Class<?>[]) null);
+        getters[i].setAccessible(true);
+        type = getters[i].getReturnType();
+      }
+      PropertyAccessor[] complexAccessors = null;
+      if (getters.length == 1 && property.getType().getKind().equals(EdmTypeKind.COMPLEX)) {
+        complexAccessors = getAccessorTable(type, (EdmStructuralType) property.getType());
+      }
+      return new PropertyAccessor(property.getName(), getters, complexAccessors);
+    } catch (EdmException e) {
+      throw ODataJPARuntimeException.throwException(
+          ODataJPARuntimeException.GENERAL.addContent(e.getMessage()), e);
+    } catch (SecurityException e) {
+      throw ODataJPARuntimeException.throwException(
+          ODataJPARuntimeException.GENERAL.addContent(e.getMessage()), e);
+    } catch (NoSuchMethodException e) {
+      throw ODataJPARuntimeException.throwException(
+          ODataJPARuntimeException.GENERAL.addContent(e.getMessage()), e);
+    }
+  }
+
+  /**
+   * Converts JPA entities of one EDM type into maps of property values and
+   * navigation values with accessors resolved once per JPA class.
+   */
+  public static final class EntityConverter {
+    private final EdmStructuralType structuralType;
+    private final List<EdmProperty> selectPropertyList;
+    private final List<EdmNavigationProperty> navigationPropertyList;
+    private Class<?> jpaEntityClass;
+    private PropertyAccessor[] accessorTable;
+    private PropertyAccessor[] navigationAccessors;
+
+    private EntityConverter(final EdmStructuralType structuralType, final List<EdmProperty> selectPropertyList,
+        final List<EdmNavigationProperty> navigationPropertyList) {
+      this.structuralType = structuralType;
+      this.selectPropertyList = selectPropertyList;
+      this.navigationPropertyList = navigationPropertyList;
+    }
+
+    public HashMap<String, Object> convert(final Object jpaEntity) throws ODataJPARuntimeException {
+      if (jpaEntity.getClass() != jpaEntityClass) {
+        resolve(jpaEntity.getClass());
+      }
+      HashMap<String, Object> edmEntity = toMap(jpaEntity, accessorTable);
+      for (PropertyAccessor accessor : navigationAccessors) {
+        edmEntity.put(accessor.name, accessor.getValue(jpaEntity));
+      }
+      return edmEntity;
+    }
+
+    private void resolve(final Class<?> entityClass) throws ODataJPARuntimeException {
+      accessorTable = selectPropertyList == null ?
+          getAccessorTable(entityClass, structuralType) : getAccessorTable(entityClass, selectPropertyList);
+      navigationAccessors = new PropertyAccessor[navigationPropertyList == null ? 0 : navigationPropertyList.size()];
+      for (int i = 0; i < navigationAccessors.length; i++) {
+        navigationAccessors[i] = getNavigationAccessor(entityClass, navigationPropertyList.get(i));
+      }
+      jpaEntityClass = entityClass;
+    }
+  }
+
+  /*
+   * Reads one property of a JPA entity; values of complex properties are
+   * converted into maps as well.
+   */
+  private static final class PropertyAccessor {
+    private final String name;
+    private final Method[] getters;
+    private final PropertyAccessor[] complexAccessors;
+
+    private PropertyAccessor(final String name, final Method[] getters, final PropertyAccessor[] complexAccessors) {
+      this.name = name;
+      this.getters = getters;
+      this.complexAccessors = complexAccessors;
+    }
+
+    private Object getValue(final Object jpaEntity) throws ODataJPARuntimeException {
+      Object value = jpaEntity;
+      try {
+        for (int i = 0; i < getters.length && value != null; i++) {
+          value = getters[i].invoke(value);
+        }
+      } catch (IllegalArgumentException e) {
+        throw ODataJPARuntimeException.throwException(
+            ODataJPARuntimeException.GENERAL.addContent(e.getMessage()), e);
+      } catch (IllegalAccessException e) {
+        throw ODataJPARuntimeException.throwException(
+            ODataJPARuntimeException.GENERAL.addContent(e.getMessage()), e);
+      } catch (InvocationTargetException e) {
+        throw ODataJPARuntimeException.throwException(
+            ODataJPARuntimeException.GENERAL.addContent(e.getMessage()), e);
+      }
+      if (complexAccessors != null) {
+        return value == null ? null : toMap(value, complexAccessors);
+      }
+      return value;
+    }
+  }
 }
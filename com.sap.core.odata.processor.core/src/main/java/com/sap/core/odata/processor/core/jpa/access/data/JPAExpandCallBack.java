@@ -17,6 +17,7 @@ package com.sap.core.odata.processor.core.jpa.access.data;
 
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,6 +27,7 @@ import com.sap.core.odata.api.edm.EdmEntitySet;
 import com.sap.core.odata.api.edm.EdmEntityType;
 import com.sap.core.odata.api.edm.EdmException;
 import com.sap.core.odata.api.edm.EdmNavigationProperty;
+import com.sap.core.odata.api.edm.EdmProperty;
 import com.sap.core.odata.api.ep.EntityProviderWriteProperties;
 import com.sap.core.odata.api.ep.EntityProviderWriteProperties.ODataEntityProviderPropertiesBuilder;
 import com.sap.core.odata.api.ep.callback.OnWriteEntryContent;
@@ -103,9 +105,11 @@ public class JPAExpandCallBack implements OnWriteFeedContent, OnWriteEntryConten
       if (nextEntitySet == null) {
         nextEntitySet = context.getSourceEntitySet().getRelatedEntitySet(currentNavigationProperty);
       }
+      JPAEntityParser.EntityConverter converter = jpaResultParser.createConverter(nextEntitySet.getEntityType(),
+          null, null);
       for (Object object : listOfItems)
       {
-        edmPropertyValueMap = jpaResultParser.parse2EdmPropertyValueMap(object, nextEntitySet.getEntityType());
+        edmPropertyValueMap = converter.convert(object);
         edmEntityList.add(edmPropertyValueMap);
       }
       result.setFeedData(edmEntityList);
@@ -113,10 +117,12 @@ public class JPAExpandCallBack implements OnWriteFeedContent, OnWriteEntryConten
       {
         currentNavPropertyList = new ArrayList<EdmNavigationProperty>();
         currentNavPropertyList.add(getNextNavigationProperty(context.getSourceEntitySet().getEntityType(), context.getNavigationProperty()));
+        JPAEntityParser.EntityConverter navigationConverter = jpaResultParser.createConverter(
+            nextEntitySet.getEntityType(), Collections.<EdmProperty> emptyList(), currentNavPropertyList);
         int count = 0;
         for (Object object : listOfItems)
         {
-          HashMap<String, Object> navigationMap = jpaResultParser.parse2EdmNavigationValueMap(object, currentNavPropertyList);
+          HashMap<String, Object> navigationMap = navigationConverter.convert(object);
           edmEntityList.get(count).putAll(navigationMap);
           count++;
         }
@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.processor.core.jpa.access.data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import javax.persistence.Query;
+
+import com.sap.core.odata.api.edm.EdmEntitySet;
+import com.sap.core.odata.api.edm.EdmEntityType;
+import com.sap.core.odata.api.edm.EdmException;
+import com.sap.core.odata.api.edm.EdmMapping;
+import com.sap.core.odata.api.edm.EdmNavigationProperty;
+import com.sap.core.odata.api.uri.NavigationPropertySegment;
+import com.sap.core.odata.processor.api.jpa.exception.ODataJPARuntimeException;
+
+/**
+ * Loads the navigation properties of an $expand for all entities of a result
+ * at once. For every navigation path one fetch join query is issued per level
+ * (and per {@link #MAX_IN_LIST_SIZE} parents) instead of resolving the
+ * association lazily entry by entry while the expand callbacks write the
+ * response. The fetched children are attached to the managed parent
+ * instances, so {@link JPAExpandCallBack} reads them without further round
+ * trips.
+ * 
+ * @author SAP AG
+ */
+public final class JPAExpandLoader {
+
+  public static final int MAX_IN_LIST_SIZE = 500;
+
+  private static final String ALIAS = "E1";
+
+  private final EntityManager em;
+  private final JPAEntityParser jpaEntityParser = JPAEntityParser.create();
+  private final Set<String> loadedSegments = new HashSet<String>();
+
+  public JPAExpandLoader(final EntityManager em) {
+    this.em = em;
+  }
+
+  /**
+   * Loads all navigation paths of the $expand for the given entities.
+   * 
+   * @param entities
+   * the JPA entities of the result
+   * @param entitySet
+   * the entity set the entities belong to
+   * @param expandList
+   * the navigation paths of the $expand system query option
+   * @throws ODataJPARuntimeException
+   */
+  public void load(final List<?> entities, final EdmEntitySet entitySet,
+      final List<ArrayList<NavigationPropertySegment>> expandList) throws ODataJPARuntimeException {
+    if (entities == null || entities.isEmpty() || expandList == null || expandList.isEmpty()) {
+      return;
+    }
+    try {
+      for (List<NavigationPropertySegment> navigationPath : expandList) {
+        Collection<Object> sources = distinct(entities);
+        EdmEntityType sourceType = entitySet.getEntityType();
+        StringBuilder path = new StringBuilder();
+        for (NavigationPropertySegment segment : navigationPath) {
+          if (sources.isEmpty()) {
+            break;
+          }
+          final EdmNavigationProperty navigationProperty = segment.getNavigationProperty();
+          path.append('/').append(navigationProperty.getName());
+          // paths sharing a prefix, e.g. Items and Items/Product, fetch the prefix once
+          if (loadedSegments.add(path.toString())) {
+            fetch(sources, sourceType, navigationProperty);
+          }
+          sources = getTargets(sources, navigationProperty);
+          sourceType = segment.getTargetEntitySet().getEntityType();
+        }
+      }
+    } catch (EdmException e) {
+      throw ODataJPARuntimeException.throwException(
+          ODataJPARuntimeException.GENERAL.addContent(e.getMessage()), e);
+    }
+  }
+
+  private void fetch(final Collection<Object> sources, final EdmEntityType sourceType,
+      final EdmNavigationProperty navigationProperty) throws EdmException, ODataJPARuntimeException {
+    final String statement = "SELECT DISTINCT " + ALIAS + " FROM " + getInternalName(sourceType.getMapping(), sourceType.getName())
+        + " " + ALIAS + " LEFT JOIN FETCH " + ALIAS + "."
+        + getInternalName(navigationProperty.getMapping(), navigationProperty.getName())
+        + " WHERE " + ALIAS + " IN ?1";
+    List<Object> chunk = new ArrayList<Object>(Math.min(sources.size(), MAX_IN_LIST_SIZE));
+    for (Object source : sources) {
+      chunk.add(source);
+      if (chunk.size() == MAX_IN_LIST_SIZE) {
+        fetch(statement, chunk);
+        chunk = new ArrayList<Object>(MAX_IN_LIST_SIZE);
+      }
+    }
+    if (!chunk.isEmpty()) {
+      fetch(statement, chunk);
+    }
+  }
+
+  /*
+   * The result is not needed; executing the query initializes the association
+   * of the managed parents.
+   */
+  private void fetch(final String statement, final List<Object> parents) throws ODataJPARuntimeException {
+    try {
+      Query query = em.createQuery(statement);
+      query.setParameter(1, parents);
+      query.getResultList();
+    } catch (IllegalArgumentException e) {
+      throw ODataJPARuntimeException.throwException(
+          ODataJPARuntimeException.ERROR_JPQL_QUERY_CREATE, e);
+    } catch (PersistenceException e) {
+      throw ODataJPARuntimeException.throwException(
+          ODataJPARuntimeException.INNER_EXCEPTION, e);
+    }
+  }
+
+  private Collection<Object> getTargets(final Collection<Object> sources, final EdmNavigationProperty navigationProperty)
+      throws ODataJPARuntimeException, EdmException {
+    final List<EdmNavigationProperty> navigationPropertyList = Collections.singletonList(navigationProperty);
+    Map<Object, Object> targets = new IdentityHashMap<Object, Object>();
+    for (Object source : sources) {
+      final Object target = jpaEntityParser.parse2EdmNavigationValueMap(source, navigationPropertyList)
+          .get(navigationProperty.getName());
+      if (target instanceof Collection<?>) {
+        for (Object item : (Collection<?>) target) {
+          targets.put(item, item);
+        }
+      } else if (target != null) {
+        targets.put(target, target);
+      }
+    }
+    return targets.values();
+  }
+
+  private static Collection<Object> distinct(final List<?> entities) {
+    Map<Object, Object> distinctEntities = new IdentityHashMap<Object, Object>();
+    for (Object entity : entities) {
+      if (entity != null) {
+        distinctEntities.put(entity, entity);
+      }
+    }
+    return distinctEntities.values();
+  }
+
+  private static String getInternalName(final EdmMapping mapping, final String name) {
+    return mapping != null && mapping.getInternalName() != null ? mapping.getInternalName() : name;
+  }
+}
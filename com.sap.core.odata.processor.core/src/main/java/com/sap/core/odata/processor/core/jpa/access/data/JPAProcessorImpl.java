@@ -19,13 +19,22 @@ import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
+import javax.persistence.TemporalType;
 
 import com.sap.core.odata.api.edm.EdmException;
+import com.sap.core.odata.api.edm.EdmEntitySet;
 import com.sap.core.odata.api.edm.EdmMultiplicity;
+import com.sap.core.odata.api.uri.NavigationSegment;
+import com.sap.core.odata.api.uri.expression.OrderByExpression;
 import com.sap.core.odata.api.uri.info.DeleteUriInfo;
 import com.sap.core.odata.api.uri.info.GetEntityCountUriInfo;
 import com.sap.core.odata.api.uri.info.GetEntityLinkUriInfo;
@@ -43,11 +52,15 @@ import com.sap.core.odata.processor.api.jpa.access.JPAProcessor;
 import com.sap.core.odata.processor.api.jpa.exception.ODataJPAModelException;
 import com.sap.core.odata.processor.api.jpa.exception.ODataJPARuntimeException;
 import com.sap.core.odata.processor.api.jpa.jpql.JPQLContext;
+import com.sap.core.odata.processor.api.jpa.jpql.JPQLContext.JPQLContextBuilder;
 import com.sap.core.odata.processor.api.jpa.jpql.JPQLContextType;
 import com.sap.core.odata.processor.api.jpa.jpql.JPQLStatement;
 import com.sap.core.odata.processor.core.jpa.cud.JPACreateRequest;
 import com.sap.core.odata.processor.core.jpa.cud.JPALink;
 import com.sap.core.odata.processor.core.jpa.cud.JPAUpdateRequest;
+import com.sap.core.odata.processor.core.jpa.jpql.JPQLSelectContext.JPQLSelectContextBuilder;
+import com.sap.core.odata.processor.core.jpa.jpql.JPQLSkipToken;
+import com.sap.core.odata.processor.core.jpa.jpql.JPQLStatementCache;
 
 public class JPAProcessorImpl implements JPAProcessor {
 
@@ -133,34 +146,121 @@ public class JPAProcessorImpl implements JPAProcessor {
           ODataJPARuntimeException.GENERAL, e);
     }
 
-    JPQLContext jpqlContext = JPQLContext.createBuilder(contextType,
-        uriParserResultView).build();
-
-    JPQLStatement jpqlStatement = JPQLStatement.createBuilder(jpqlContext)
-        .build();
     Query query = null;
     try {
-      query = em.createQuery(jpqlStatement.toString());
-      // $top/$skip with $inlinecount case handled in response builder to avoid multiple DB call
-      if (uriParserResultView.getSkip() != null && uriParserResultView.getInlineCount() == null) {
-        query.setFirstResult(uriParserResultView.getSkip());
+      if (uriParserResultView.getTop() != null && uriParserResultView.getTop() == 0) {
+        List<T> resultList = new ArrayList<T>();
+        return resultList;
       }
-
-      if (uriParserResultView.getTop() != null && uriParserResultView.getInlineCount() == null) {
-        if (uriParserResultView.getTop() == 0) {
-          List<T> resultList = new ArrayList<T>();
-          return resultList;
-        } else {
+      final JPQLSkipToken skipToken = JPQLSkipToken.create(uriParserResultView, oDataJPAContext.getPageSize());
+      query = createQuery(contextType, uriParserResultView, uriParserResultView.getStartEntitySet(),
+          contextType == JPQLContextType.JOIN ? uriParserResultView.getNavigationSegments() : null,
+          uriParserResultView.getOrderBy(),
+          uriParserResultView.getTop() != null || uriParserResultView.getSkip() != null, skipToken);
+      // $inlinecount is selected with a separate count query, see process(GetEntitySetCountUriInfo)
+      if (skipToken != null) {
+        // One entity more than the page size is selected to decide about the next link.
+        if (skipToken.getFirstResult() > 0) {
+          query.setFirstResult(skipToken.getFirstResult());
+        }
+        query.setMaxResults(skipToken.getMaxResults());
+      } else {
+        if (uriParserResultView.getSkip() != null) {
+          query.setFirstResult(uriParserResultView.getSkip());
+        }
+        if (uriParserResultView.getTop() != null) {
           query.setMaxResults(uriParserResultView.getTop());
         }
       }
-      return query.getResultList();
+      List<T> resultList = query.getResultList();
+      new JPAExpandLoader(em).load(resultList, uriParserResultView.getTargetEntitySet(), uriParserResultView.getExpand());
+      return resultList;
     } catch (IllegalArgumentException e) {
       throw ODataJPARuntimeException.throwException(
           ODataJPARuntimeException.ERROR_JPQL_QUERY_CREATE, e);
     }
   }
 
+  /*
+   * Creates the query for an entity set. Requests with the same entity set, navigation,
+   * filter shape and ordering share one JPQL statement from the statement cache;
+   * the literals of the filter and of the key predicates are bound as parameters.
+   * The request is parsed once, for the cache key and the parameters; the statement
+   * is built from the parsed parts only if it is not yet cached.
+   */
+  private Query createQuery(final JPQLContextType contextType, final Object uriInfo,
+      final EdmEntitySet startEntitySet, final List<NavigationSegment> navigationSegments,
+      final OrderByExpression orderBy, final boolean isPaged, final JPQLSkipToken skipToken)
+      throws ODataJPAModelException, ODataJPARuntimeException {
+    JPQLContextBuilder contextBuilder = JPQLContext.createBuilder(contextType, uriInfo);
+    if (!(contextBuilder instanceof JPQLSelectContextBuilder)) {
+      JPQLStatement jpqlStatement = JPQLStatement.createBuilder(contextBuilder.build()).build();
+      Query query = em.createQuery(jpqlStatement.toString());
+      setParameters(query, jpqlStatement.getParameters());
+      return query;
+    }
+
+    final JPQLSelectContextBuilder selectContextBuilder = (JPQLSelectContextBuilder) contextBuilder;
+    selectContextBuilder.setSkipToken(skipToken);
+    final String statementKey = getStatementKey(contextType, startEntitySet, navigationSegments,
+        selectContextBuilder.prepare(), orderBy, isPaged, skipToken != null);
+
+    final JPQLStatementCache cache = JPQLStatementCache.getInstance();
+    String statement = cache.get(statementKey);
+    if (statement == null) {
+      statement = JPQLStatement.createBuilder(selectContextBuilder.build()).build().toString();
+      cache.put(statementKey, statement);
+    }
+
+    Query query = em.createQuery(statement);
+    setParameters(query, selectContextBuilder.getParameters());
+    return query;
+  }
+
+  /*
+   * The key describes the shape of the statement; the parsed parts contain
+   * parameters instead of the literals of the request. Navigation segments
+   * are relevant for join statements only.
+   */
+  private String getStatementKey(final JPQLContextType contextType, final EdmEntitySet startEntitySet,
+      final List<NavigationSegment> navigationSegments, final String parsedParts,
+      final OrderByExpression orderBy, final boolean isPaged, final boolean isServerPaged)
+      throws ODataJPARuntimeException {
+    StringBuilder key = new StringBuilder();
+    key.append(oDataJPAContext.getPersistenceUnitName()).append('|')
+        .append(oDataJPAContext.getJPAEdmMappingModel()).append('|')
+        .append(contextType).append('|');
+    try {
+      key.append(startEntitySet.getName());
+      if (navigationSegments != null) {
+        for (NavigationSegment navigationSegment : navigationSegments) {
+          key.append('/').append(navigationSegment.getNavigationProperty().getName());
+        }
+      }
+    } catch (EdmException e) {
+      throw ODataJPARuntimeException.throwException(ODataJPARuntimeException.INNER_EXCEPTION, e);
+    }
+    key.append('|').append(parsedParts).append('|');
+    if (orderBy != null) {
+      key.append(orderBy.getExpressionString());
+    }
+    // Server-side paging orders by the key, too.
+    return key.append('|').append(isPaged).append('|').append(isServerPaged).toString();
+  }
+
+  private static void setParameters(final Query query, final Map<Integer, Object> parameters) {
+    for (Entry<Integer, Object> parameter : parameters.entrySet()) {
+      final Object value = parameter.getValue();
+      if (value instanceof Calendar) {
+        query.setParameter(parameter.getKey(), (Calendar) value, TemporalType.TIMESTAMP);
+      } else if (value instanceof Date) {
+        query.setParameter(parameter.getKey(), (Date) value, TemporalType.TIMESTAMP);
+      } else {
+        query.setParameter(parameter.getKey(), value);
+      }
+    }
+  }
+
   /* Process Get Entity Request (Read) */
   @Override
   public <T> Object process(GetEntityUriInfo uriParserResultView)
@@ -182,7 +282,12 @@ public class JPAProcessorImpl implements JPAProcessor {
           ODataJPARuntimeException.GENERAL, e);
     }
 
-    return readEntity(uriParserResultView, contextType);
+    Object selectedObject = readEntity(uriParserResultView, contextType);
+    if (selectedObject != null) {
+      new JPAExpandLoader(em).load(Collections.singletonList(selectedObject),
+          uriParserResultView.getTargetEntitySet(), uriParserResultView.getExpand());
+    }
+    return selectedObject;
   }
 
   /* Process $count for Get Entity Set Request */
@@ -203,15 +308,12 @@ public class JPAProcessorImpl implements JPAProcessor {
           ODataJPARuntimeException.GENERAL, e);
     }
 
-    JPQLContext jpqlContext = JPQLContext.createBuilder(contextType,
-        resultsView).build();
-
-    JPQLStatement jpqlStatement = JPQLStatement.createBuilder(jpqlContext)
-        .build();
     Query query = null;
     try {
 
-      query = em.createQuery(jpqlStatement.toString());
+      query = createQuery(contextType, resultsView, resultsView.getStartEntitySet(),
+          contextType == JPQLContextType.JOIN_COUNT ? resultsView.getNavigationSegments() : null,
+          null, false, null);
       List<?> resultList = query.getResultList();
       if (resultList != null && resultList.size() == 1) {
         return Long.valueOf(resultList.get(0).toString());
@@ -249,6 +351,7 @@ public class JPAProcessorImpl implements JPAProcessor {
     try {
 
       query = em.createQuery(jpqlStatement.toString());
+      setParameters(query, jpqlStatement.getParameters());
       List<?> resultList = query.getResultList();
       if (resultList != null && resultList.size() == 1) {
         return Long.valueOf(resultList.get(0).toString());
@@ -16,8 +16,9 @@
 package com.sap.core.odata.processor.core.jpa.edm;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.sap.core.odata.api.edm.FullQualifiedName;
 import com.sap.core.odata.api.edm.provider.Association;
@@ -38,24 +39,35 @@ import com.sap.core.odata.processor.api.jpa.exception.ODataJPAModelException;
 import com.sap.core.odata.processor.api.jpa.factory.ODataJPAFactory;
 import com.sap.core.odata.processor.api.jpa.model.JPAEdmModelView;
 
+/**
+ * Entity data model provider derived from the Java Persistence Model. The
+ * schema is built on first access; the provider is thread-safe afterwards, so
+ * one instance (and the {@link com.sap.core.odata.api.edm.Edm} based on it)
+ * can serve all requests.
+ * 
+ * @author SAP AG
+ */
 public class ODataJPAEdmProvider extends EdmProvider {
 
+  /* key of the default entity container, which is requested with name null */
+  private static final String DEFAULT_CONTAINER = "";
+
   private ODataJPAContext oDataJPAContext;
   private JPAEdmModelView jpaEdmModel;
 
-  private List<Schema> schemas;
-  private HashMap<String, EntityType> entityTypes;
-  private HashMap<String, EntityContainerInfo> entityContainerInfos;
-  private HashMap<String, ComplexType> complexTypes;
-  private HashMap<String, Association> associations;
-  private HashMap<String, FunctionImport> functionImports;
+  private volatile List<Schema> schemas;
+  private Map<String, EntityType> entityTypes;
+  private Map<String, EntityContainerInfo> entityContainerInfos;
+  private Map<String, ComplexType> complexTypes;
+  private Map<String, Association> associations;
+  private Map<String, FunctionImport> functionImports;
 
   public ODataJPAEdmProvider() {
-    entityTypes = new HashMap<String, EntityType>();
-    entityContainerInfos = new HashMap<String, EntityContainerInfo>();
-    complexTypes = new HashMap<String, ComplexType>();
-    associations = new HashMap<String, Association>();
-    functionImports = new HashMap<String, FunctionImport>();
+    entityTypes = new ConcurrentHashMap<String, EntityType>();
+    entityContainerInfos = new ConcurrentHashMap<String, EntityContainerInfo>();
+    complexTypes = new ConcurrentHashMap<String, ComplexType>();
+    associations = new ConcurrentHashMap<String, Association>();
+    functionImports = new ConcurrentHashMap<String, FunctionImport>();
   }
 
   public ODataJPAEdmProvider(final ODataJPAContext oDataJPAContext) {
@@ -63,11 +75,12 @@ public class ODataJPAEdmProvider extends EdmProvider {
       throw new IllegalArgumentException(
           ODataJPAException.ODATA_JPACTX_NULL);
     }
-    entityTypes = new HashMap<String, EntityType>();
-    entityContainerInfos = new HashMap<String, EntityContainerInfo>();
-    complexTypes = new HashMap<String, ComplexType>();
-    associations = new HashMap<String, Association>();
-    functionImports = new HashMap<String, FunctionImport>();
+    this.oDataJPAContext = oDataJPAContext;
+    entityTypes = new ConcurrentHashMap<String, EntityType>();
+    entityContainerInfos = new ConcurrentHashMap<String, EntityContainerInfo>();
+    complexTypes = new ConcurrentHashMap<String, ComplexType>();
+    associations = new ConcurrentHashMap<String, Association>();
+    functionImports = new ConcurrentHashMap<String, FunctionImport>();
     jpaEdmModel = ODataJPAFactory.createFactory().getJPAAccessFactory()
         .getJPAEdmModelView(oDataJPAContext);
   }
@@ -84,8 +97,8 @@ public class ODataJPAEdmProvider extends EdmProvider {
   public EntityContainerInfo getEntityContainerInfo(final String name)
       throws ODataException {
 
-    if (entityContainerInfos.containsKey(name)) {
-      return entityContainerInfos.get(name);
+    if (entityContainerInfos.containsKey(getContainerKey(name))) {
+      return entityContainerInfos.get(getContainerKey(name));
     } else {
 
       if (schemas == null) {
@@ -95,7 +108,7 @@ public class ODataJPAEdmProvider extends EdmProvider {
       if (containerList == null) return null;
       for (EntityContainer container : containerList) {
         if (name == null && container.isDefaultEntityContainer()) {
-          entityContainerInfos.put(name, container);
+          entityContainerInfos.put(DEFAULT_CONTAINER, container);
           return container;
         } else if (name != null && name.equals(container.getName())) {
           return container;
@@ -199,11 +212,11 @@ public class ODataJPAEdmProvider extends EdmProvider {
 
     EntitySet returnedSet = null;
     EntityContainer container = null;
-    if (!entityContainerInfos.containsKey(entityContainer)) {
+    if (!entityContainerInfos.containsKey(getContainerKey(entityContainer))) {
       container = (EntityContainer) getEntityContainerInfo(entityContainer);
     } else {
       container = (EntityContainer) entityContainerInfos
-          .get(entityContainer);
+          .get(getContainerKey(entityContainer));
     }
 
     if (container != null && name != null) {
@@ -224,11 +237,11 @@ public class ODataJPAEdmProvider extends EdmProvider {
       final String sourceEntitySetRole) throws ODataException {
 
     EntityContainer container = null;
-    if (!entityContainerInfos.containsKey(entityContainer)) {
+    if (!entityContainerInfos.containsKey(getContainerKey(entityContainer))) {
       container = (EntityContainer) getEntityContainerInfo(entityContainer);
     } else {
       container = (EntityContainer) entityContainerInfos
-          .get(entityContainer);
+          .get(getContainerKey(entityContainer));
     }
 
     if (container != null && association != null && container.getAssociationSets() != null) {
@@ -260,11 +273,11 @@ public class ODataJPAEdmProvider extends EdmProvider {
     }
 
     EntityContainer container = null;
-    if (!entityContainerInfos.containsKey(entityContainer)) {
+    if (!entityContainerInfos.containsKey(getContainerKey(entityContainer))) {
       container = (EntityContainer) getEntityContainerInfo(entityContainer);
     } else {
       container = (EntityContainer) entityContainerInfos
-          .get(entityContainer);
+          .get(getContainerKey(entityContainer));
     }
 
     if (container != null && name != null) {
@@ -279,21 +292,36 @@ public class ODataJPAEdmProvider extends EdmProvider {
     return null;
   }
 
+  /**
+   * Builds the schema on first access. The view on the Java Persistence Model
+   * is released afterwards, so that a cached provider does not keep the
+   * {@link javax.persistence.metamodel.Metamodel} (and with it the
+   * {@link javax.persistence.EntityManagerFactory}) reachable.
+   */
   @Override
   public List<Schema> getSchemas() throws ODataException {
-    if (schemas == null && jpaEdmModel != null) {
-      jpaEdmModel.getBuilder().build();
-      schemas = new ArrayList<Schema>();
-      schemas.add(jpaEdmModel.getEdmSchemaView().getEdmSchema());
-    }
-    if (jpaEdmModel == null) {
-
-      throw ODataJPAModelException.throwException(
-          ODataJPAModelException.BUILDER_NULL, null);
+    if (schemas == null) {
+      synchronized (this) {
+        if (schemas == null) {
+          if (jpaEdmModel == null) {
+            throw ODataJPAModelException.throwException(
+                ODataJPAModelException.BUILDER_NULL, null);
+          }
+          jpaEdmModel.getBuilder().build();
+          List<Schema> builtSchemas = new ArrayList<Schema>();
+          builtSchemas.add(jpaEdmModel.getEdmSchemaView().getEdmSchema());
+          schemas = builtSchemas;
+          jpaEdmModel = null;
+        }
+      }
     }
 
     return schemas;
 
   }
 
+  private static String getContainerKey(final String name) {
+    return name == null ? DEFAULT_CONTAINER : name;
+  }
+
 }
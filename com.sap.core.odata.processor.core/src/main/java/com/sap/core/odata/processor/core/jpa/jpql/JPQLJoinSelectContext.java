@@ -61,31 +61,57 @@ public class JPQLJoinSelectContext extends JPQLSelectContext implements
           setType(JPQLContextType.JOIN);
         }
 
-        setJPAOuterJoinClause(generateJoinClauses());
-
-        if (!jpaJoinClauses.isEmpty()) {
-          JPAJoinClause joinClause = jpaJoinClauses
-              .get(jpaJoinClauses.size() - 1);
-          setJPAEntityName(joinClause
-              .getEntityName());
-          setJPAEntityAlias(joinClause
-              .getEntityRelationShipAlias());
-        }
+        prepare();
 
-        setOrderByCollection(generateOrderByFileds());
+        if (!JPQLJoinSelectContext.this.isCountOnly) {
+          setOrderByCollection(generateOrderByFileds());
+        }
 
         setSelectExpression(generateSelectExpression());
 
-        setWhereExpression(generateWhereExpression());
-
       } catch (ODataException e) {
         throw ODataJPARuntimeException.throwException(
             ODataJPARuntimeException.INNER_EXCEPTION, e);
       }
+      isPrepared = false;
 
       return JPQLJoinSelectContext.this;
     }
 
+    /**
+     * Parses the key predicates of the navigation path in addition to the filter;
+     * see {@link JPQLSelectContextBuilder#prepare()}.
+     */
+    @Override
+    public String prepare() throws ODataJPARuntimeException {
+      if (!isPrepared) {
+        try {
+          setJPAOuterJoinClause(generateJoinClauses());
+
+          if (!jpaJoinClauses.isEmpty()) {
+            JPAJoinClause joinClause = jpaJoinClauses
+                .get(jpaJoinClauses.size() - 1);
+            setJPAEntityName(joinClause
+                .getEntityName());
+            setJPAEntityAlias(joinClause
+                .getEntityRelationShipAlias());
+          }
+
+          setWhereExpression(generateWhereExpression());
+        } catch (ODataException e) {
+          throw ODataJPARuntimeException.throwException(
+              ODataJPARuntimeException.INNER_EXCEPTION, e);
+        }
+        isPrepared = true;
+      }
+
+      StringBuilder shape = new StringBuilder();
+      for (JPAJoinClause joinClause : jpaJoinClauses) {
+        shape.append(joinClause.getJoinCondition()).append('|');
+      }
+      return shape.append(getWhereExpression()).toString();
+    }
+
     protected List<JPAJoinClause> generateJoinClauses()
         throws ODataJPARuntimeException, EdmException {
 
@@ -95,7 +121,7 @@ public class JPQLJoinSelectContext extends JPQLSelectContext implements
       String entityAlias = generateJPAEntityAlias();
       joinCondition = ODataExpressionParser.parseKeyPredicates(
           entitySetView.getKeyPredicates(),
-          entityAlias);
+          entityAlias, parameters);
 
       EdmEntityType entityType = entitySetView.getStartEntitySet()
           .getEntityType();
@@ -126,7 +152,7 @@ public class JPQLJoinSelectContext extends JPQLSelectContext implements
 
         joinCondition = ODataExpressionParser.parseKeyPredicates(
             navigationSegment.getKeyPredicates(),
-            relationShipAlias);
+            relationShipAlias, parameters);
 
         jpaOuterJoinClause = new JPAJoinClause(
             getFromEntityName(navigationProperty),
@@ -38,7 +38,7 @@ public class JPQLJoinStatementBuilder extends JPQLStatementBuilder {
 
   @Override
   public JPQLStatement build() throws ODataJPARuntimeException {
-    jpqlStatement = createStatement(createJPQLQuery());
+    jpqlStatement = createStatement(createJPQLQuery(), context.getParameters());
     return jpqlStatement;
 
   }
@@ -16,6 +16,8 @@
 package com.sap.core.odata.processor.core.jpa.jpql;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import com.sap.core.odata.api.edm.EdmEntityType;
 import com.sap.core.odata.api.edm.EdmException;
@@ -27,6 +29,7 @@ import com.sap.core.odata.processor.api.jpa.exception.ODataJPARuntimeException;
 import com.sap.core.odata.processor.api.jpa.jpql.JPQLContext;
 import com.sap.core.odata.processor.api.jpa.jpql.JPQLContextType;
 import com.sap.core.odata.processor.api.jpa.jpql.JPQLSelectContextView;
+import com.sap.core.odata.processor.api.jpa.jpql.JPQLStatement;
 import com.sap.core.odata.processor.core.jpa.ODataExpressionParser;
 
 public class JPQLSelectContext extends JPQLContext implements
@@ -35,6 +38,7 @@ public class JPQLSelectContext extends JPQLContext implements
   protected String selectExpression;
   protected HashMap<String, String> orderByCollection;
   protected String whereCondition;
+  protected Map<Integer, Object> parameters = new LinkedHashMap<Integer, Object>();
 
   protected boolean isCountOnly = false;//Support for $count
 
@@ -70,11 +74,18 @@ public class JPQLSelectContext extends JPQLContext implements
     return whereCondition;
   }
 
+  @Override
+  public Map<Integer, Object> getParameters() {
+    return parameters;
+  }
+
   public class JPQLSelectContextBuilder
       extends
       com.sap.core.odata.processor.api.jpa.jpql.JPQLContext.JPQLContextBuilder {
 
     protected GetEntitySetUriInfo entitySetView;
+    protected JPQLSkipToken skipToken;
+    protected boolean isPrepared = false;
 
     @Override
     public JPQLContext build() throws ODataJPAModelException,
@@ -97,16 +108,17 @@ public class JPQLSelectContext extends JPQLContext implements
             setJPAEntityName(entityType.getName());
           }
 
-          setJPAEntityAlias(generateJPAEntityAlias());
+          prepare();
 
-          setOrderByCollection(generateOrderByFileds());
+          if (!isCountOnly) {
+            setOrderByCollection(generateOrderByFileds());
+          }
 
           setSelectExpression(generateSelectExpression());
-
-          setWhereExpression(generateWhereExpression());
         } catch (ODataException e) {
           throw ODataJPARuntimeException.throwException(ODataJPARuntimeException.INNER_EXCEPTION, e);
         }
+        isPrepared = false;
       }
 
       return JPQLSelectContext.this;
@@ -121,6 +133,42 @@ public class JPQLSelectContext extends JPQLContext implements
 
     }
 
+    /*
+     * Sets the paging of the request; the entities are then ordered by the
+     * ordering of the skip token and the keyset predicate of the token is added
+     * to the where clause.
+     */
+    public void setSkipToken(final JPQLSkipToken skipToken) {
+      this.skipToken = skipToken;
+    }
+
+    /**
+     * Parses the parts of the request that contain literals, i.e., the filter and the
+     * keyset predicate of the skip token; the literals are added to the parameters.
+     * The next context built uses the parsed parts, so they are parsed only once.
+     * @return the parsed parts with parameters instead of literals, which identify
+     * the statements of the same shape
+     */
+    public String prepare() throws ODataJPARuntimeException {
+      if (!isPrepared) {
+        setJPAEntityAlias(generateJPAEntityAlias());
+        try {
+          setWhereExpression(generateWhereExpression());
+        } catch (ODataException e) {
+          throw ODataJPARuntimeException.throwException(ODataJPARuntimeException.INNER_EXCEPTION, e);
+        }
+        isPrepared = true;
+      }
+      return String.valueOf(whereCondition);
+    }
+
+    /**
+     * Returns the parameters of the context, filled by {@link #prepare()}.
+     */
+    public Map<Integer, Object> getParameters() {
+      return parameters;
+    }
+
     /*
      * Generate Select Clause 
      */
@@ -134,7 +182,11 @@ public class JPQLSelectContext extends JPQLContext implements
     protected HashMap<String, String> generateOrderByFileds()
         throws ODataJPARuntimeException, EdmException {
 
-      if (entitySetView.getOrderBy() != null) {
+      if (skipToken != null) {
+
+        return skipToken.getOrderByFields(getJPAEntityAlias());
+
+      } else if (entitySetView.getOrderBy() != null) {
 
         return ODataExpressionParser
             .parseToJPAOrderByExpression(entitySetView.getOrderBy(), getJPAEntityAlias());
@@ -155,11 +207,21 @@ public class JPQLSelectContext extends JPQLContext implements
      * Generate Where Clause Expression
      */
     protected String generateWhereExpression() throws ODataException {
+      String whereExpression = null;
       if (entitySetView.getFilter() != null) {
-        return ODataExpressionParser
-            .parseToJPAWhereExpression(entitySetView.getFilter(), getJPAEntityAlias());
+        whereExpression = ODataExpressionParser
+            .parseToJPAWhereExpression(entitySetView.getFilter(), getJPAEntityAlias(), parameters);
+      }
+      final String keysetExpression = skipToken == null ? null :
+          skipToken.getWhereExpression(getJPAEntityAlias(), parameters);
+      if (keysetExpression == null) {
+        return whereExpression;
+      } else if (whereExpression == null) {
+        return keysetExpression;
       }
-      return null;
+      return JPQLStatement.DELIMITER.PARENTHESIS_LEFT + whereExpression + JPQLStatement.DELIMITER.PARENTHESIS_RIGHT
+          + JPQLStatement.DELIMITER.SPACE + JPQLStatement.Operator.AND + JPQLStatement.DELIMITER.SPACE
+          + JPQLStatement.DELIMITER.PARENTHESIS_LEFT + keysetExpression + JPQLStatement.DELIMITER.PARENTHESIS_RIGHT;
     }
   }
 
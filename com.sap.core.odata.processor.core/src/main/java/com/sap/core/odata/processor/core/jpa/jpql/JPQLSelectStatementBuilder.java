@@ -36,7 +36,7 @@ public class JPQLSelectStatementBuilder extends JPQLStatementBuilder {
 
   @Override
   public JPQLStatement build() throws ODataJPARuntimeException {
-    jpqlStatement = createStatement(createJPQLQuery());
+    jpqlStatement = createStatement(createJPQLQuery(), context.getParameters());
     return jpqlStatement;
 
   }
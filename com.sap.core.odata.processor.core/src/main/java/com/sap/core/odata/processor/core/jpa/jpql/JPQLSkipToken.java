@@ -0,0 +1,321 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.processor.core.jpa.jpql;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.sap.core.odata.api.edm.EdmException;
+import com.sap.core.odata.api.edm.EdmLiteralKind;
+import com.sap.core.odata.api.edm.EdmMapping;
+import com.sap.core.odata.api.edm.EdmProperty;
+import com.sap.core.odata.api.edm.EdmSimpleType;
+import com.sap.core.odata.api.edm.EdmSimpleTypeException;
+import com.sap.core.odata.api.edm.EdmTyped;
+import com.sap.core.odata.api.uri.UriSyntaxException;
+import com.sap.core.odata.api.uri.expression.OrderExpression;
+import com.sap.core.odata.api.uri.expression.PropertyExpression;
+import com.sap.core.odata.api.uri.expression.SortOrder;
+import com.sap.core.odata.api.uri.info.GetEntitySetUriInfo;
+import com.sap.core.odata.core.commons.Decoder;
+import com.sap.core.odata.core.commons.Encoder;
+import com.sap.core.odata.processor.api.jpa.exception.ODataJPARuntimeException;
+import com.sap.core.odata.processor.api.jpa.jpql.JPQLStatement;
+import com.sap.core.odata.processor.api.jpa.model.JPAEdmMapping;
+import com.sap.core.odata.processor.core.jpa.ODataExpressionParser;
+import com.sap.core.odata.processor.core.jpa.access.data.JPAEntityParser;
+
+/**
+ * Server-side paging of an entity set with an opaque $skiptoken. The entities
+ * are ordered by the $orderby properties followed by the key properties, so
+ * the order is total. The token of a page consists of the number of entities
+ * before the page and the URI literals of the ordering values of the last
+ * entity read. The following page is selected with a keyset predicate on
+ * these values, e.g. <code>E1.a > ?1 OR (E1.a = ?1 AND E1.id > ?2)</code>,
+ * instead of an offset, so that the database can seek on an index. Such a
+ * predicate never selects entities with a null ordering value, so it is used
+ * only if all $orderby properties are key properties or not nullable;
+ * otherwise, or if an ordering value of the last entity is null, the token
+ * holds the number of entities only and the following page is selected with
+ * an offset.
+ * 
+ * @author SAP AG
+ */
+public final class JPQLSkipToken {
+
+  private static final String SEPARATOR = ",";
+
+  private final List<EdmProperty> properties = new ArrayList<EdmProperty>();
+  private final List<Boolean> descending = new ArrayList<Boolean>();
+  private final int pageSize;
+  private final Integer top;
+  private final String token;
+  private boolean keysetAllowed = true;
+  private int offset;
+  private List<Object> values;
+
+  private JPQLSkipToken(final int pageSize, final Integer top, final String token) {
+    this.pageSize = pageSize;
+    this.top = top;
+    this.token = token;
+  }
+
+  /**
+   * Returns the paging of an entity set request or <code>null</code> if the
+   * request is not paged; only entity sets read without navigation are paged
+   * and only if $top does not already limit the result to one page.
+   * 
+   * @param uriInfo
+   * @param pageSize
+   *          the page size of the JPA context
+   * @return the paging or <code>null</code>
+   * @throws ODataJPARuntimeException
+   *           if the $skiptoken of the request is not valid
+   */
+  public static JPQLSkipToken create(final GetEntitySetUriInfo uriInfo, final int pageSize)
+      throws ODataJPARuntimeException {
+    if (pageSize <= 0 || uriInfo.getFunctionImport() != null
+        || uriInfo.getSkipToken() == null && uriInfo.getTop() != null && uriInfo.getTop() <= pageSize) {
+      return null;
+    }
+    try {
+      if (!uriInfo.getStartEntitySet().getName().equals(uriInfo.getTargetEntitySet().getName())) {
+        return null;
+      }
+      JPQLSkipToken skipToken = new JPQLSkipToken(pageSize, uriInfo.getTop(), uriInfo.getSkipToken());
+      final List<EdmProperty> keyProperties = uriInfo.getTargetEntitySet().getEntityType().getKeyProperties();
+      if (uriInfo.getOrderBy() != null) {
+        for (OrderExpression order : uriInfo.getOrderBy().getOrders()) {
+          final EdmTyped property = order.getExpression() instanceof PropertyExpression ?
+              ((PropertyExpression) order.getExpression()).getEdmProperty() : null;
+          if (!(property instanceof EdmProperty)) {
+            return null;
+          }
+          if (!isNotNullable((EdmProperty) property, keyProperties)) {
+            skipToken.keysetAllowed = false;
+          }
+          skipToken.addOrdering((EdmProperty) property, order.getSortOrder() == SortOrder.desc);
+        }
+      }
+      for (EdmProperty keyProperty : keyProperties) {
+        skipToken.addOrdering(keyProperty, false);
+      }
+      if (uriInfo.getSkipToken() == null) {
+        skipToken.offset = uriInfo.getSkip() == null ? 0 : uriInfo.getSkip();
+      } else {
+        skipToken.parse();
+      }
+      return skipToken;
+    } catch (EdmException e) {
+      throw ODataJPARuntimeException.throwException(
+          ODataJPARuntimeException.GENERAL.addContent(e.getMessage()), e);
+    }
+  }
+
+  private static boolean isNotNullable(final EdmProperty property, final List<EdmProperty> keyProperties)
+      throws EdmException {
+    for (EdmProperty keyProperty : keyProperties) {
+      if (keyProperty.getName().equals(property.getName())) {
+        return true;
+      }
+    }
+    return property.getFacets() != null && Boolean.FALSE.equals(property.getFacets().isNullable());
+  }
+
+  private void addOrdering(final EdmProperty property, final boolean isDescending) throws EdmException {
+    for (EdmProperty orderingProperty : properties) {
+      if (orderingProperty.getName().equals(property.getName())) {
+        return;
+      }
+    }
+    properties.add(property);
+    descending.add(isDescending);
+  }
+
+  private void parse() throws ODataJPARuntimeException {
+    final String[] parts = token.split(SEPARATOR, -1);
+    try {
+      offset = Integer.parseInt(parts[0]);
+      if (offset < 0 || parts.length > 1 && parts.length != properties.size() + 1) {
+        throw invalidToken(null);
+      }
+      if (parts.length > 1 && keysetAllowed) {
+        values = new ArrayList<Object>(properties.size());
+        for (int i = 0; i < properties.size(); i++) {
+          final EdmProperty property = properties.get(i);
+          final EdmSimpleType type = getSimpleType(property);
+          if (type == null) {
+            throw invalidToken(null);
+          }
+          values.add(type.valueOfString(Decoder.decode(parts[i + 1]), EdmLiteralKind.URI, null,
+              getJavaType(property, type)));
+        }
+      }
+    } catch (IllegalArgumentException e) {
+      throw invalidToken(e);
+    } catch (EdmException e) {
+      throw invalidToken(e);
+    }
+  }
+
+  private ODataJPARuntimeException invalidToken(final Exception e) {
+    return ODataJPARuntimeException.throwException(
+        ODataJPARuntimeException.ERROR_ODATA_SKIPTOKEN.addContent(token),
+        new UriSyntaxException(UriSyntaxException.INVALIDVALUE.addContent(token), e));
+  }
+
+  private static EdmSimpleType getSimpleType(final EdmProperty property) throws EdmException {
+    return property.getType() instanceof EdmSimpleType ? (EdmSimpleType) property.getType() : null;
+  }
+
+  private static Class<?> getJavaType(final EdmProperty property, final EdmSimpleType type) throws EdmException {
+    if (property.getMapping() instanceof JPAEdmMapping
+        && ((JPAEdmMapping) property.getMapping()).getJPAType() != null) {
+      return ODataExpressionParser.getWrapperType(((JPAEdmMapping) property.getMapping()).getJPAType());
+    }
+    return type.getDefaultType();
+  }
+
+  private static String getFieldName(final EdmProperty property, final String tableAlias) throws EdmException {
+    final EdmMapping mapping = property.getMapping();
+    return tableAlias + JPQLStatement.DELIMITER.PERIOD
+        + (mapping != null && mapping.getInternalName() != null ? mapping.getInternalName() : property.getName());
+  }
+
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  /**
+   * Returns whether the page is selected with a keyset predicate.
+   */
+  public boolean isKeyset() {
+    return values != null;
+  }
+
+  /**
+   * Returns the position of the first entity of the page if the page is
+   * selected with an offset, zero otherwise.
+   */
+  public int getFirstResult() {
+    return values == null ? offset : 0;
+  }
+
+  /**
+   * Returns the number of entities to select; one entity more than the page
+   * size is selected to find out whether a following page exists.
+   */
+  public int getMaxResults() {
+    return top != null && top <= pageSize ? top : pageSize + 1;
+  }
+
+  /**
+   * Returns the $top of the following page or <code>null</code> if the
+   * request has no $top.
+   */
+  public Integer getNextTop() {
+    return top == null ? null : top - pageSize;
+  }
+
+  /**
+   * Returns the ordering of the entities: the $orderby fields followed by the
+   * key fields.
+   */
+  public HashMap<String, String> getOrderByFields(final String tableAlias) throws ODataJPARuntimeException {
+    HashMap<String, String> orderByMap = new LinkedHashMap<String, String>();
+    try {
+      for (int i = 0; i < properties.size(); i++) {
+        orderByMap.put(getFieldName(properties.get(i), tableAlias), descending.get(i) ? "DESC" : ODataExpressionParser.EMPTY); //$NON-NLS-1$
+      }
+    } catch (EdmException e) {
+      throw ODataJPARuntimeException.throwException(
+          ODataJPARuntimeException.GENERAL.addContent(e.getMessage()), e);
+    }
+    return orderByMap;
+  }
+
+  /**
+   * Returns the keyset predicate selecting the entities after the last entity
+   * of the previous page or <code>null</code> if the page is not selected with
+   * a keyset predicate. The ordering values are added to the parameters.
+   */
+  public String getWhereExpression(final String tableAlias, final Map<Integer, Object> parameters)
+      throws ODataJPARuntimeException {
+    if (values == null) {
+      return null;
+    }
+    String[] fields = new String[properties.size()];
+    String[] placeholders = new String[properties.size()];
+    try {
+      for (int i = 0; i < properties.size(); i++) {
+        fields[i] = getFieldName(properties.get(i), tableAlias);
+        placeholders[i] = "?" + (parameters.size() + 1);
+        parameters.put(parameters.size() + 1, values.get(i));
+      }
+    } catch (EdmException e) {
+      throw ODataJPARuntimeException.throwException(
+          ODataJPARuntimeException.GENERAL.addContent(e.getMessage()), e);
+    }
+    // JPQL has no row value comparison, so (a, b) > (?1, ?2) is expanded.
+    String expression = null;
+    for (int i = properties.size() - 1; i >= 0; i--) {
+      final String comparison = fields[i] + JPQLStatement.DELIMITER.SPACE
+          + (descending.get(i) ? JPQLStatement.Operator.LT : JPQLStatement.Operator.GT)
+          + JPQLStatement.DELIMITER.SPACE + placeholders[i];
+      expression = expression == null ? comparison :
+          comparison + JPQLStatement.DELIMITER.SPACE + JPQLStatement.Operator.OR + JPQLStatement.DELIMITER.SPACE
+              + JPQLStatement.DELIMITER.PARENTHESIS_LEFT
+              + fields[i] + JPQLStatement.DELIMITER.SPACE + JPQLStatement.Operator.EQ
+              + JPQLStatement.DELIMITER.SPACE + placeholders[i]
+              + JPQLStatement.DELIMITER.SPACE + JPQLStatement.Operator.AND + JPQLStatement.DELIMITER.SPACE
+              + JPQLStatement.DELIMITER.PARENTHESIS_LEFT + expression + JPQLStatement.DELIMITER.PARENTHESIS_RIGHT
+              + JPQLStatement.DELIMITER.PARENTHESIS_RIGHT;
+    }
+    return expression;
+  }
+
+  /**
+   * Returns the token of the page following the page ending with the given
+   * entity.
+   */
+  public String getNextSkipToken(final Object lastEntity) throws ODataJPARuntimeException {
+    final String nextOffset = Integer.toString(offset + pageSize);
+    if (!keysetAllowed) {
+      return nextOffset;
+    }
+    final Map<String, Object> valueMap = JPAEntityParser.create().parse2EdmPropertyValueMap(lastEntity, properties);
+    StringBuilder nextToken = new StringBuilder(nextOffset);
+    try {
+      for (EdmProperty property : properties) {
+        final Object value = valueMap.get(property.getName());
+        final EdmSimpleType type = getSimpleType(property);
+        if (value == null || type == null) {
+          return nextOffset;
+        }
+        nextToken.append(SEPARATOR).append(Encoder.encode(type.valueToString(value, EdmLiteralKind.URI, null)));
+      }
+    } catch (EdmSimpleTypeException e) {
+      return nextOffset;
+    } catch (EdmException e) {
+      throw ODataJPARuntimeException.throwException(
+          ODataJPARuntimeException.GENERAL.addContent(e.getMessage()), e);
+    }
+    return nextToken.toString();
+  }
+}
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.processor.core.jpa.jpql;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of JPQL statements built for entity set requests. Literals of
+ * $filter are passed as parameters, so requests of the same shape (entity set,
+ * navigation, filter, orderby) share one statement and only the parameter values differ.
+ * The least recently used statement is removed if the cache is full.
+ * 
+ * @author SAP AG
+ */
+public final class JPQLStatementCache {
+
+  public static final int DEFAULT_CAPACITY = 256;
+
+  private static final JPQLStatementCache INSTANCE = new JPQLStatementCache(DEFAULT_CAPACITY);
+
+  private final Map<String, String> statements;
+
+  public JPQLStatementCache(final int capacity) {
+    statements = new LinkedHashMap<String, String>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<String, String> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  /**
+   * Returns the cache shared by all JPA processors.
+   */
+  public static JPQLStatementCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns the statement cached for the given statement shape or <code>null</code>.
+   */
+  public synchronized String get(final String key) {
+    return statements.get(key);
+  }
+
+  public synchronized void put(final String key, final String statement) {
+    statements.put(key, statement);
+  }
+
+  public synchronized int size() {
+    return statements.size();
+  }
+
+  public synchronized void clear() {
+    statements.clear();
+  }
+}
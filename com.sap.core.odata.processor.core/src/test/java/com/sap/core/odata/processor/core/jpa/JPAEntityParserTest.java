@@ -20,9 +20,11 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,6 +32,7 @@ import java.util.Map;
 import org.easymock.EasyMock;
 import org.junit.Test;
 
+import com.sap.core.odata.api.edm.EdmComplexType;
 import com.sap.core.odata.api.edm.EdmException;
 import com.sap.core.odata.api.edm.EdmMapping;
 import com.sap.core.odata.api.edm.EdmNavigationProperty;
@@ -116,6 +119,125 @@ public class JPAEntityParserTest {
 
   }
 
+  @Test
+  public void testAccessorTablesDoNotKeepEdmTypes() throws Exception {
+    // the accessor of a complex property must not refer to the complex type
+    WeakReference<EdmComplexType> typeReference = new WeakReference<EdmComplexType>(parseWithNewComplexType());
+    for (int i = 0; i < 20 && typeReference.get() != null; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertNull(typeReference.get());
+  }
+
+  private EdmComplexType parseWithNewComplexType() throws Exception {
+    EdmType edmType = EasyMock.createMock(EdmType.class);
+    EasyMock.expect(edmType.getKind()).andStubReturn(EdmTypeKind.SIMPLE);
+    EasyMock.replay(edmType);
+    EdmProperty orderProperty = EasyMock.createMock(EdmProperty.class);
+    EasyMock.expect(orderProperty.getName()).andStubReturn("Order");
+    EasyMock.expect(orderProperty.getMapping()).andStubReturn(null);
+    EasyMock.expect(orderProperty.getType()).andStubReturn(edmType);
+    EasyMock.replay(orderProperty);
+    EdmComplexType complexType = EasyMock.createMock(EdmComplexType.class);
+    EasyMock.expect(complexType.getKind()).andStubReturn(EdmTypeKind.COMPLEX);
+    EasyMock.expect(complexType.getPropertyNames()).andStubReturn(Arrays.asList("Order"));
+    EasyMock.expect(complexType.getProperty("Order")).andStubReturn(orderProperty);
+    EasyMock.replay(complexType);
+    EdmProperty relatedProperty = EasyMock.createMock(EdmProperty.class);
+    EasyMock.expect(relatedProperty.getName()).andStubReturn("RelatedEntity");
+    EasyMock.expect(relatedProperty.getMapping()).andStubReturn(null);
+    EasyMock.expect(relatedProperty.getType()).andStubReturn(complexType);
+    EasyMock.replay(relatedProperty);
+    EdmStructuralType structuralType = EasyMock.createMock(EdmStructuralType.class);
+    EasyMock.expect(structuralType.getPropertyNames()).andStubReturn(Arrays.asList("RelatedEntity"));
+    EasyMock.expect(structuralType.getProperty("RelatedEntity")).andStubReturn(relatedProperty);
+    EasyMock.replay(structuralType);
+
+    demoItem item = new demoItem("weak", 1);
+    item.setRelatedEntity(new DemoRelatedEntity("WeakOrder"));
+    Map<String, Object> result = JPAEntityParser.create().parse2EdmPropertyValueMap(item, structuralType);
+    assertEquals("WeakOrder", ((Map<?, ?>) result.get("RelatedEntity")).get("Order"));
+    return complexType;
+  }
+
+  @Test
+  public void testparse2EdmPropertyValueMapReusesAccessors() throws Exception {
+    JPAEntityParser resultParser = JPAEntityParser.create();
+    EdmType edmType = EasyMock.createMock(EdmType.class);
+    EasyMock.expect(edmType.getKind()).andStubReturn(EdmTypeKind.SIMPLE);
+    EasyMock.replay(edmType);
+    EdmProperty idProperty = EasyMock.createMock(EdmProperty.class);
+    EasyMock.expect(idProperty.getName()).andStubReturn("Id");
+    EasyMock.expect(idProperty.getMapping()).andStubReturn(null);
+    EasyMock.expect(idProperty.getType()).andStubReturn(edmType);
+    EasyMock.replay(idProperty);
+    EdmProperty orderProperty = EasyMock.createMock(EdmProperty.class);
+    EdmMapping orderMapping = EasyMock.createMock(EdmMapping.class);
+    EasyMock.expect(orderMapping.getInternalName()).andStubReturn("relatedEntity.order");
+    EasyMock.replay(orderMapping);
+    EasyMock.expect(orderProperty.getName()).andStubReturn("Order");
+    EasyMock.expect(orderProperty.getMapping()).andStubReturn(orderMapping);
+    EasyMock.replay(orderProperty);
+
+    // the accessor table is built once, so the property names are read only once
+    EdmStructuralType structuralType = EasyMock.createMock(EdmStructuralType.class);
+    EasyMock.expect(structuralType.getPropertyNames()).andReturn(Arrays.asList("Id", "Order")).once();
+    EasyMock.expect(structuralType.getProperty("Id")).andReturn(idProperty).once();
+    EasyMock.expect(structuralType.getProperty("Order")).andReturn(orderProperty).once();
+    EasyMock.replay(structuralType);
+
+    demoItem first = new demoItem("first", 1);
+    first.setRelatedEntity(new DemoRelatedEntity("FirstOrder"));
+    Map<String, Object> result = resultParser.parse2EdmPropertyValueMap(first, structuralType);
+    assertEquals("first", result.get("Id"));
+    assertEquals("FirstOrder", result.get("Order"));
+
+    // a missing embeddable yields a null value
+    result = resultParser.parse2EdmPropertyValueMap(new demoItem("second", 2), structuralType);
+    assertEquals("second", result.get("Id"));
+    assertNull(result.get("Order"));
+    assertTrue(result.containsKey("Order"));
+    EasyMock.verify(structuralType);
+  }
+
+  @Test
+  public void testEntityConverter() throws Exception {
+    EdmType edmType = EasyMock.createMock(EdmType.class);
+    EasyMock.expect(edmType.getKind()).andStubReturn(EdmTypeKind.SIMPLE);
+    EasyMock.replay(edmType);
+    EdmProperty idProperty = EasyMock.createMock(EdmProperty.class);
+    EasyMock.expect(idProperty.getName()).andStubReturn("Id");
+    EasyMock.expect(idProperty.getMapping()).andStubReturn(null);
+    EasyMock.expect(idProperty.getType()).andStubReturn(edmType);
+    EasyMock.replay(idProperty);
+    EdmMapping navigationMapping = EasyMock.createMock(EdmMapping.class);
+    EasyMock.expect(navigationMapping.getInternalName()).andStubReturn("relatedEntity");
+    EasyMock.replay(navigationMapping);
+    // the accessors are resolved for the first entity only
+    EdmNavigationProperty navigationProperty = EasyMock.createMock(EdmNavigationProperty.class);
+    EasyMock.expect(navigationProperty.getName()).andStubReturn("RelatedEntities");
+    EasyMock.expect(navigationProperty.getMapping()).andReturn(navigationMapping).once();
+    EasyMock.replay(navigationProperty);
+    EdmStructuralType structuralType = EasyMock.createMock(EdmStructuralType.class);
+    EasyMock.expect(structuralType.getPropertyNames()).andReturn(Arrays.asList("Id")).once();
+    EasyMock.expect(structuralType.getProperty("Id")).andReturn(idProperty).once();
+    EasyMock.replay(structuralType);
+
+    JPAEntityParser.EntityConverter converter = JPAEntityParser.create()
+        .createConverter(structuralType, null, Arrays.asList(navigationProperty));
+    for (int i = 0; i < 3; i++) {
+      demoItem item = new demoItem("item" + i, i);
+      DemoRelatedEntity relatedEntity = new DemoRelatedEntity("Order" + i);
+      item.setRelatedEntity(relatedEntity);
+      Map<String, Object> result = converter.convert(item);
+      assertEquals(2, result.size());
+      assertEquals("item" + i, result.get("Id"));
+      assertEquals(relatedEntity, result.get("RelatedEntities"));
+    }
+    EasyMock.verify(structuralType, navigationProperty);
+  }
+
   @Test
   public void testparse2EdmPropertyValueMapEdmExcep() {
     JPAEntityParser resultParser = JPAEntityParser.create();
@@ -137,6 +259,7 @@ public class JPAEntityParserTest {
       EasyMock.replay(edmType);
       EasyMock.expect(edmMapping.getInternalName()).andStubReturn("id");
       EasyMock.replay(edmMapping);
+      EasyMock.expect(edmTyped.getName()).andStubReturn("identifier");
       EasyMock.expect(edmTyped.getType()).andStubThrow(
           new EdmException(null));
       EasyMock.expect(edmTyped.getMapping()).andStubReturn(edmMapping);
@@ -316,9 +316,12 @@ public class ODataJPAProcessorDefaultTest extends JPAEdmTestModelView {
   private ODataJPAContext getLocalmockODataJPAContext() {
     ODataJPAContext odataJPAContext = EasyMock.createMock(ODataJPAContext.class);
     EasyMock.expect(odataJPAContext.getPersistenceUnitName()).andStubReturn("salesorderprocessing");
+    EasyMock.expect(odataJPAContext.getJPAEdmMappingModel()).andStubReturn(null);
     EasyMock.expect(odataJPAContext.getEntityManagerFactory()).andStubReturn(mockEntityManagerFactory());
     EasyMock.expect(odataJPAContext.getODataContext()).andStubReturn(getLocalODataContext());
     EasyMock.expect(odataJPAContext.getEntityManager()).andStubReturn(getLocalEntityManager());
+    EasyMock.expect(odataJPAContext.getPageSize()).andStubReturn(0);
+    EasyMock.expect(odataJPAContext.isStreaming()).andStubReturn(false);
     EasyMock.replay(odataJPAContext);
     return odataJPAContext;
   }
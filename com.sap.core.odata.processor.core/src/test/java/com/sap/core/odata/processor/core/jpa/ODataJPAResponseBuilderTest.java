@@ -25,9 +25,7 @@ import java.lang.reflect.Method;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import org.easymock.EasyMock;
 import org.junit.Test;
@@ -71,16 +69,11 @@ public class ODataJPAResponseBuilderTest extends JPAEdmTestModelView {
   public void testGetEntityProviderPropertiesQuery() {
     GetEntitySetUriInfo getEntitySetUriInfo = mockEntitySetUriInfoForExpand();
     ODataJPAContext oDataJPAContext = getODataJPAContext();
-    // Building the edm entity
-    List<Map<String, Object>> edmEntityList = new ArrayList<Map<String, Object>>();
-    Map<String, Object> edmEntity = new HashMap<String, Object>();
-    edmEntity.put("ID", 1);
-    edmEntityList.add(edmEntity);
     // Invoking the private static method using reflection
     Class<?> clazz = ODataJPAResponseBuilder.class;
-    Object[] actualParameters = { oDataJPAContext, getEntitySetUriInfo, edmEntityList };
+    Object[] actualParameters = { oDataJPAContext, getEntitySetUriInfo, Integer.valueOf(1), null };
     Class<?>[] formalParameters = { ODataJPAContext.class,
-        GetEntitySetUriInfo.class, List.class };
+        GetEntitySetUriInfo.class, Integer.class, String.class };
     EntityProviderWriteProperties providerProperties = null;
     try {
       ODataJPAResponseBuilder responseBuilder = (ODataJPAResponseBuilder) clazz
@@ -290,6 +283,8 @@ public class ODataJPAResponseBuilderTest extends JPAEdmTestModelView {
         .createMock(ODataJPAContext.class);
     EasyMock.expect(objODataJPAContext.getODataContext()).andStubReturn(
         getLocalODataContext());
+    EasyMock.expect(objODataJPAContext.getPageSize()).andStubReturn(0);
+    EasyMock.expect(objODataJPAContext.isStreaming()).andStubReturn(false);
     EasyMock.replay(objODataJPAContext);
     return objODataJPAContext;
   }
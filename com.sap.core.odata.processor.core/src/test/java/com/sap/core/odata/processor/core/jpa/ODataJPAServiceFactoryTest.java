@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.processor.core.jpa;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.metamodel.EmbeddableType;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.Metamodel;
+
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sap.core.odata.api.edm.Edm;
+import com.sap.core.odata.api.processor.ODataContext;
+import com.sap.core.odata.processor.api.jpa.ODataJPAContext;
+import com.sap.core.odata.processor.api.jpa.ODataJPAServiceFactory;
+import com.sap.core.odata.processor.api.jpa.exception.ODataJPARuntimeException;
+import com.sap.core.odata.processor.core.jpa.mock.ODataJPAContextMock;
+
+public class ODataJPAServiceFactoryTest {
+
+  private EntityManagerFactory emf;
+  private ODataContext odataContext;
+
+  @Before
+  public void setup() {
+    emf = EasyMock.createMock(EntityManagerFactory.class);
+    EasyMock.expect(emf.createEntityManager()).andStubReturn(EasyMock.createNiceMock(EntityManager.class));
+    Metamodel metamodel = EasyMock.createNiceMock(Metamodel.class);
+    EasyMock.expect(metamodel.getEntities()).andStubReturn(Collections.<EntityType<?>> emptySet());
+    EasyMock.expect(metamodel.getEmbeddables()).andStubReturn(Collections.<EmbeddableType<?>> emptySet());
+    EasyMock.replay(metamodel);
+    EasyMock.expect(emf.getMetamodel()).andStubReturn(metamodel);
+    EasyMock.replay(emf);
+    odataContext = EasyMock.createNiceMock(ODataContext.class);
+    EasyMock.replay(odataContext);
+  }
+
+  @Test
+  public void testEdmIsCachedPerEntityManagerFactory() throws Exception {
+    ServiceFactory factory = new ServiceFactory(emf, true);
+    Edm edm = factory.createService(odataContext).getEntityDataModel();
+    assertSame(edm, factory.createService(odataContext).getEntityDataModel());
+    // a factory instance per request reuses the model
+    assertSame(edm, new ServiceFactory(emf, true).createService(odataContext).getEntityDataModel());
+
+    ODataJPAServiceFactory.invalidateEdm(emf);
+    Edm rebuiltEdm = factory.createService(odataContext).getEntityDataModel();
+    assertNotSame(edm, rebuiltEdm);
+    assertSame(rebuiltEdm, new ServiceFactory(emf, true).createService(odataContext).getEntityDataModel());
+  }
+
+  @Test
+  public void testRequestContextNotShared() throws Exception {
+    ServiceFactory factory = new ServiceFactory(emf, true);
+    factory.createService(odataContext);
+    assertSame(odataContext, factory.lastContext.getODataContext());
+    final ODataJPAContext firstContext = factory.lastContext;
+
+    ODataContext otherContext = EasyMock.createNiceMock(ODataContext.class);
+    EasyMock.replay(otherContext);
+    factory.createService(otherContext);
+    assertNotSame(firstContext, factory.lastContext);
+    assertSame(otherContext, factory.lastContext.getODataContext());
+    assertSame(odataContext, firstContext.getODataContext());
+    assertNull(factory.getODataJPAContext().getODataContext());
+  }
+
+  @Test
+  public void testCachedEdmDoesNotKeepEntityManagerFactory() throws Exception {
+    ServiceFactory factory = new ServiceFactory(emf, true);
+    Edm edm = factory.createService(odataContext).getEntityDataModel();
+    edm.getDefaultEntityContainer();
+
+    WeakReference<EntityManagerFactory> reference = new WeakReference<EntityManagerFactory>(emf);
+    setup();
+    factory.emf = emf;
+    factory.createService(odataContext);
+
+    for (int i = 0; i < 10 && reference.get() != null; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertNull(reference.get());
+    assertSame(edm.getDefaultEntityContainer(), edm.getDefaultEntityContainer());
+  }
+
+  @Test
+  public void testEdmNotCached() throws Exception {
+    assertNotSame(new ServiceFactory(emf, false).createService(odataContext).getEntityDataModel(),
+        new ServiceFactory(emf, false).createService(odataContext).getEntityDataModel());
+  }
+
+  private static class ServiceFactory extends ODataJPAServiceFactory {
+    private EntityManagerFactory emf;
+    private final boolean isEdmCached;
+    private ODataJPAContext lastContext;
+
+    ServiceFactory(final EntityManagerFactory emf, final boolean isEdmCached) {
+      this.emf = emf;
+      this.isEdmCached = isEdmCached;
+    }
+
+    @Override
+    public ODataJPAContext initializeODataJPAContext() throws ODataJPARuntimeException {
+      ODataJPAContext oDataJPAContext = getODataJPAContext();
+      oDataJPAContext.setEntityManagerFactory(emf);
+      oDataJPAContext.setPersistenceUnitName(ODataJPAContextMock.PERSISTENCE_UNIT_NAME);
+      lastContext = oDataJPAContext;
+      return oDataJPAContext;
+    }
+
+    @Override
+    protected boolean isEdmCached() {
+      return isEdmCached;
+    }
+  }
+}
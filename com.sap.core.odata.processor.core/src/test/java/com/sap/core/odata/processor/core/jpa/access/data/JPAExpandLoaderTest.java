@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.processor.core.jpa.access.data;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import javax.persistence.Query;
+
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+import com.sap.core.odata.api.edm.EdmEntitySet;
+import com.sap.core.odata.api.edm.EdmEntityType;
+import com.sap.core.odata.api.edm.EdmException;
+import com.sap.core.odata.api.edm.EdmNavigationProperty;
+import com.sap.core.odata.api.uri.NavigationPropertySegment;
+import com.sap.core.odata.processor.api.jpa.exception.ODataJPARuntimeException;
+
+public class JPAExpandLoaderTest {
+
+  private static final String STATEMENT_ITEMS = "SELECT DISTINCT E1 FROM SalesOrderHeader E1 LEFT JOIN FETCH E1.items WHERE E1 IN ?1";
+  private static final String STATEMENT_MATERIAL = "SELECT DISTINCT E1 FROM SalesOrderItem E1 LEFT JOIN FETCH E1.material WHERE E1 IN ?1";
+
+  @Test
+  public void testLoadOneQueryPerNavigationPath() throws Exception {
+    List<SalesOrderHeader> headers = new ArrayList<SalesOrderHeader>();
+    for (int i = 0; i < 3; i++) {
+      headers.add(new SalesOrderHeader());
+    }
+
+    Capture<Object> itemsParents = new Capture<Object>();
+    Capture<Object> materialParents = new Capture<Object>();
+    EntityManager em = EasyMock.createMock(EntityManager.class);
+    EasyMock.expect(em.createQuery(STATEMENT_ITEMS)).andReturn(getQuery(itemsParents));
+    EasyMock.expect(em.createQuery(STATEMENT_MATERIAL)).andReturn(getQuery(materialParents));
+    EasyMock.replay(em);
+
+    EdmEntityType itemType = getEntityType("SalesOrderItem");
+    NavigationPropertySegment items = getSegment("items", itemType);
+    NavigationPropertySegment material = getSegment("material", getEntityType("Material"));
+    List<ArrayList<NavigationPropertySegment>> expandList = new ArrayList<ArrayList<NavigationPropertySegment>>();
+    ArrayList<NavigationPropertySegment> itemsPath = new ArrayList<NavigationPropertySegment>();
+    itemsPath.add(items);
+    expandList.add(itemsPath);
+    ArrayList<NavigationPropertySegment> materialPath = new ArrayList<NavigationPropertySegment>();
+    materialPath.add(items);
+    materialPath.add(material);
+    expandList.add(materialPath);
+
+    new JPAExpandLoader(em).load(headers, getEntitySet(getEntityType("SalesOrderHeader")), expandList);
+
+    EasyMock.verify(em);
+    assertEquals(3, ((List<?>) itemsParents.getValue()).size());
+    assertEquals(6, ((List<?>) materialParents.getValue()).size());
+  }
+
+  @Test
+  public void testLoadWithoutExpand() throws Exception {
+    EntityManager em = EasyMock.createMock(EntityManager.class);
+    EasyMock.replay(em);
+    List<SalesOrderHeader> headers = new ArrayList<SalesOrderHeader>();
+    headers.add(new SalesOrderHeader());
+    new JPAExpandLoader(em).load(headers, null, null);
+    new JPAExpandLoader(em).load(headers, null, new ArrayList<ArrayList<NavigationPropertySegment>>());
+    EasyMock.verify(em);
+    assertEquals(2, headers.get(0).getItems().size());
+  }
+
+  @Test(expected = ODataJPARuntimeException.class)
+  public void testLoadPropagatesQueryCreationError() throws Exception {
+    EntityManager em = EasyMock.createMock(EntityManager.class);
+    EasyMock.expect(em.createQuery(STATEMENT_ITEMS)).andThrow(new IllegalArgumentException());
+    EasyMock.replay(em);
+    load(em);
+  }
+
+  @Test(expected = ODataJPARuntimeException.class)
+  public void testLoadPropagatesPersistenceError() throws Exception {
+    Query query = EasyMock.createMock(Query.class);
+    EasyMock.expect(query.setParameter(EasyMock.eq(1), EasyMock.anyObject())).andReturn(query);
+    EasyMock.expect(query.getResultList()).andThrow(new PersistenceException());
+    EasyMock.replay(query);
+    EntityManager em = EasyMock.createMock(EntityManager.class);
+    EasyMock.expect(em.createQuery(STATEMENT_ITEMS)).andReturn(query);
+    EasyMock.replay(em);
+    load(em);
+  }
+
+  private void load(final EntityManager em) throws Exception {
+    List<SalesOrderHeader> headers = new ArrayList<SalesOrderHeader>();
+    headers.add(new SalesOrderHeader());
+    List<ArrayList<NavigationPropertySegment>> expandList = new ArrayList<ArrayList<NavigationPropertySegment>>();
+    ArrayList<NavigationPropertySegment> itemsPath = new ArrayList<NavigationPropertySegment>();
+    itemsPath.add(getSegment("items", getEntityType("SalesOrderItem")));
+    expandList.add(itemsPath);
+    new JPAExpandLoader(em).load(headers, getEntitySet(getEntityType("SalesOrderHeader")), expandList);
+  }
+
+  private Query getQuery(final Capture<Object> parents) {
+    Query query = EasyMock.createMock(Query.class);
+    EasyMock.expect(query.setParameter(EasyMock.eq(1), EasyMock.capture(parents))).andReturn(query);
+    EasyMock.expect(query.getResultList()).andReturn(new ArrayList<Object>());
+    EasyMock.replay(query);
+    return query;
+  }
+
+  private NavigationPropertySegment getSegment(final String name, final EdmEntityType targetType) throws EdmException {
+    EdmNavigationProperty navigationProperty = EasyMock.createMock(EdmNavigationProperty.class);
+    EasyMock.expect(navigationProperty.getName()).andStubReturn(name);
+    EasyMock.expect(navigationProperty.getMapping()).andStubReturn(null);
+    EasyMock.replay(navigationProperty);
+    NavigationPropertySegment segment = EasyMock.createMock(NavigationPropertySegment.class);
+    EasyMock.expect(segment.getNavigationProperty()).andStubReturn(navigationProperty);
+    EasyMock.expect(segment.getTargetEntitySet()).andStubReturn(getEntitySet(targetType));
+    EasyMock.replay(segment);
+    return segment;
+  }
+
+  private EdmEntitySet getEntitySet(final EdmEntityType entityType) throws EdmException {
+    EdmEntitySet entitySet = EasyMock.createMock(EdmEntitySet.class);
+    EasyMock.expect(entitySet.getEntityType()).andStubReturn(entityType);
+    EasyMock.replay(entitySet);
+    return entitySet;
+  }
+
+  private EdmEntityType getEntityType(final String name) throws EdmException {
+    EdmEntityType entityType = EasyMock.createMock(EdmEntityType.class);
+    EasyMock.expect(entityType.getName()).andStubReturn(name);
+    EasyMock.expect(entityType.getMapping()).andStubReturn(null);
+    EasyMock.replay(entityType);
+    return entityType;
+  }
+
+  private static class SalesOrderHeader {
+    private List<SalesOrderItem> items = new ArrayList<SalesOrderItem>();
+
+    SalesOrderHeader() {
+      items.add(new SalesOrderItem());
+      items.add(new SalesOrderItem());
+    }
+
+    @SuppressWarnings("unused")
+    public List<SalesOrderItem> getItems() {
+      return items;
+    }
+  }
+
+  private static class SalesOrderItem {
+    private Object material = new Object();
+
+    @SuppressWarnings("unused")
+    public Object getMaterial() {
+      return material;
+    }
+  }
+}
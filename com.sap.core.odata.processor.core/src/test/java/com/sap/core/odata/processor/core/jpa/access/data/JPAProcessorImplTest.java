@@ -118,6 +118,40 @@ public class JPAProcessorImplTest {
     }
   }
 
+  @Test
+  public void testProcessGetEntitySetUriInfoWithInlineCount() throws Exception {
+    // $skip and $top are applied to the query although $inlinecount=allpages is requested
+    Query query = EasyMock.createMock(Query.class);
+    EasyMock.expect(query.setFirstResult(2)).andReturn(query);
+    EasyMock.expect(query.setMaxResults(5)).andReturn(query);
+    EasyMock.expect(query.getResultList()).andReturn(getResultList());
+    EasyMock.replay(query);
+    EntityManager em = EasyMock.createMock(EntityManager.class);
+    EasyMock.expect(em.createQuery("SELECT E1 FROM SalesOrderHeaders E1")).andReturn(query);
+    EasyMock.replay(em);
+    ODataJPAContext odataJPAContext = EasyMock.createMock(ODataJPAContext.class);
+    EasyMock.expect(odataJPAContext.getEntityManager()).andStubReturn(em);
+    EasyMock.expect(odataJPAContext.getPersistenceUnitName()).andStubReturn("salesorderprocessing");
+    EasyMock.expect(odataJPAContext.getJPAEdmMappingModel()).andStubReturn(null);
+    EasyMock.expect(odataJPAContext.getPageSize()).andStubReturn(0);
+    EasyMock.replay(odataJPAContext);
+
+    UriInfo objUriInfo = EasyMock.createMock(UriInfo.class);
+    EasyMock.expect(objUriInfo.getStartEntitySet()).andStubReturn(getLocalEdmEntitySet());
+    EasyMock.expect(objUriInfo.getTargetEntitySet()).andStubReturn(getLocalEdmEntitySet());
+    EasyMock.expect(objUriInfo.getOrderBy()).andStubReturn(getOrderByExpression());
+    EasyMock.expect(objUriInfo.getTop()).andStubReturn(5);
+    EasyMock.expect(objUriInfo.getSkip()).andStubReturn(2);
+    EasyMock.expect(objUriInfo.getInlineCount()).andStubReturn(InlineCount.ALLPAGES);
+    EasyMock.expect(objUriInfo.getFilter()).andStubReturn(getFilter());
+    EasyMock.expect(objUriInfo.getFunctionImport()).andStubReturn(null);
+    EasyMock.expect(objUriInfo.getExpand()).andStubReturn(null);
+    EasyMock.replay(objUriInfo);
+
+    Assert.assertEquals(1, new JPAProcessorImpl(odataJPAContext).process((GetEntitySetUriInfo) objUriInfo).size());
+    EasyMock.verify(query, em);
+  }
+
   @Test
   public void testProcessDeleteUriInfo() {
     try {
@@ -189,6 +223,7 @@ public class JPAProcessorImplTest {
     EasyMock.expect(objUriInfo.getFilter()).andStubReturn(getFilter());
     //EasyMock.expect(objUriInfo.getFunctionImport()).andStubReturn(getFunctionImport());
     EasyMock.expect(objUriInfo.getFunctionImport()).andStubReturn(null);
+    EasyMock.expect(objUriInfo.getExpand()).andStubReturn(null);
     EasyMock.replay(objUriInfo);
     return objUriInfo;
   }
@@ -276,9 +311,11 @@ public class JPAProcessorImplTest {
   private ODataJPAContext getLocalmockODataJPAContext() {
     ODataJPAContext odataJPAContext = EasyMock.createMock(ODataJPAContext.class);
     EasyMock.expect(odataJPAContext.getPersistenceUnitName()).andStubReturn("salesorderprocessing");
+    EasyMock.expect(odataJPAContext.getJPAEdmMappingModel()).andStubReturn(null);
     EasyMock.expect(odataJPAContext.getEntityManagerFactory()).andStubReturn(mockEntityManagerFactory());
     EasyMock.expect(odataJPAContext.getODataContext()).andStubReturn(getLocalODataContext());
     EasyMock.expect(odataJPAContext.getEntityManager()).andStubReturn(getLocalEntityManager());
+    EasyMock.expect(odataJPAContext.getPageSize()).andStubReturn(0);
     EasyMock.replay(odataJPAContext);
     return odataJPAContext;
   }
@@ -19,7 +19,9 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.easymock.EasyMock;
 import org.junit.Test;
@@ -50,6 +52,7 @@ import com.sap.core.odata.api.uri.expression.UnaryOperator;
 import com.sap.core.odata.processor.api.jpa.exception.ODataJPARuntimeException;
 import com.sap.core.odata.processor.core.jpa.ODataExpressionParser;
 import com.sap.core.odata.processor.core.jpa.common.ODataJPATestConstants;
+import com.sap.core.odata.processor.core.jpa.model.JPAEdmMappingImpl;
 
 public class ODataExpressionParserTest {
 
@@ -268,6 +271,62 @@ public class ODataExpressionParserTest {
     }
   }
 
+  @Test
+  public void testParseWithParameters() {
+    try {
+      Map<Integer, Object> parameters = new LinkedHashMap<Integer, Object>();
+      assertEquals("gwt1.currencyCode = ?1",
+          ODataExpressionParser.parseToJPAWhereExpression(
+              getBinaryExpression(
+                  getPropertyExpressionMockedObj(ExpressionKind.PROPERTY, "currencyCode"),
+                  BinaryOperator.EQ,
+                  getStringLiteralExpressionMockedObj("'O''Neil'")),
+              TABLE_ALIAS, parameters));
+      assertEquals(1, parameters.size());
+      assertEquals("O'Neil", parameters.get(1));
+
+      parameters = new LinkedHashMap<Integer, Object>();
+      final MethodExpression substringOf = EasyMock.createMock(MethodExpression.class);
+      EasyMock.expect(substringOf.getKind()).andStubReturn(ExpressionKind.METHOD);
+      EasyMock.expect(substringOf.getMethod()).andStubReturn(MethodOperator.SUBSTRINGOF);
+      EasyMock.expect(substringOf.getParameterCount()).andStubReturn(2);
+      final List<CommonExpression> methodParameters = new ArrayList<CommonExpression>();
+      methodParameters.add(getStringLiteralExpressionMockedObj("'Ru'"));
+      methodParameters.add(getPropertyExpressionMockedObj(ExpressionKind.PROPERTY, "currencyCode"));
+      EasyMock.expect(substringOf.getParameters()).andStubReturn(methodParameters);
+      EasyMock.replay(substringOf);
+      assertEquals("(CASE WHEN gwt1.currencyCode LIKE ?1 THEN TRUE ELSE FALSE END) = true",
+          ODataExpressionParser.parseToJPAWhereExpression(substringOf, TABLE_ALIAS, parameters));
+      assertEquals("%Ru%", parameters.get(1));
+    } catch (ODataException e) {
+      fail(ODataJPATestConstants.EXCEPTION_MSG_PART_1 + e.getMessage() + ODataJPATestConstants.EXCEPTION_MSG_PART_2);
+    }
+  }
+
+  @Test
+  public void testParseStringLiteralWithQuote() {
+    try {
+      assertEquals("gwt1.currencyCode = 'O''Neil'",
+          ODataExpressionParser.parseToJPAWhereExpression(
+              getBinaryExpression(
+                  getPropertyExpressionMockedObj(ExpressionKind.PROPERTY, "currencyCode"),
+                  BinaryOperator.EQ,
+                  getStringLiteralExpressionMockedObj("'O''Neil'")),
+              TABLE_ALIAS));
+    } catch (ODataException e) {
+      fail(ODataJPATestConstants.EXCEPTION_MSG_PART_1 + e.getMessage() + ODataJPATestConstants.EXCEPTION_MSG_PART_2);
+    }
+  }
+
+  private LiteralExpression getStringLiteralExpressionMockedObj(final String uriLiteral) {
+    LiteralExpression literalExpression = EasyMock.createMock(LiteralExpression.class);
+    EasyMock.expect(literalExpression.getKind()).andStubReturn(ExpressionKind.LITERAL);
+    EasyMock.expect(literalExpression.getUriLiteral()).andStubReturn(uriLiteral);
+    EasyMock.expect(literalExpression.getEdmType()).andStubReturn(EdmSimpleTypeKind.String.getEdmSimpleTypeInstance());
+    EasyMock.replay(literalExpression);
+    return literalExpression;
+  }
+
   private CommonExpression getMethodExpressionMockedObj(final MethodOperator methodOperator, final String firstName, final String secondName, final String thirdName, final Integer parameterCount) {
 
     List<CommonExpression> parameters = new ArrayList<CommonExpression>();
@@ -562,6 +621,38 @@ public class ODataExpressionParserTest {
     assertEquals(EXPECTED_STR_8, str);
   }
 
+  @Test
+  public void testParseKeyPredicatesWithParameters() throws Exception {
+    JPAEdmMappingImpl mapping1 = new JPAEdmMappingImpl();
+    mapping1.setInternalName(SAMPLE_DATA_FIELD1);
+    mapping1.setJPAType(int.class);
+    EdmProperty kpProperty1 = EasyMock.createMock(EdmProperty.class);
+    EasyMock.expect(kpProperty1.getType()).andStubReturn(EdmSimpleTypeKind.Int32.getEdmSimpleTypeInstance());
+    EasyMock.expect(kpProperty1.getMapping()).andStubReturn(mapping1);
+    KeyPredicate keyPredicate1 = EasyMock.createMock(KeyPredicate.class);
+    EasyMock.expect(keyPredicate1.getLiteral()).andStubReturn("1");
+    EasyMock.expect(keyPredicate1.getProperty()).andStubReturn(kpProperty1);
+    // The Java type of the second key is unknown, so its value stays inlined.
+    JPAEdmMappingImpl mapping2 = new JPAEdmMappingImpl();
+    mapping2.setInternalName(SAMPLE_DATA_FIELD2);
+    EdmProperty kpProperty2 = EasyMock.createMock(EdmProperty.class);
+    EasyMock.expect(kpProperty2.getType()).andStubReturn(EdmSimpleTypeKind.String.getEdmSimpleTypeInstance());
+    EasyMock.expect(kpProperty2.getMapping()).andStubReturn(mapping2);
+    KeyPredicate keyPredicate2 = EasyMock.createMock(KeyPredicate.class);
+    EasyMock.expect(keyPredicate2.getLiteral()).andStubReturn("abc");
+    EasyMock.expect(keyPredicate2.getProperty()).andStubReturn(kpProperty2);
+    EasyMock.replay(kpProperty1, keyPredicate1, kpProperty2, keyPredicate2);
+
+    ArrayList<KeyPredicate> keyPredicates = new ArrayList<KeyPredicate>();
+    keyPredicates.add(keyPredicate1);
+    keyPredicates.add(keyPredicate2);
+    Map<Integer, Object> parameters = new LinkedHashMap<Integer, Object>();
+    assertEquals("gwt1.field1 = ?1 AND gwt1.field2 = 'abc'",
+        ODataExpressionParser.parseKeyPredicates(keyPredicates, TABLE_ALIAS, parameters));
+    assertEquals(1, parameters.size());
+    assertEquals(Integer.valueOf(1), parameters.get(1));
+  }
+
   @Test
   public void testParseToJPASelectExpression() {
 
@@ -56,6 +56,7 @@ public class JPQLJoinStatementBuilderTest {
     orderByMap.put("mat.city", "desc");
     EasyMock.expect(context.getOrderByCollection()).andStubReturn(orderByMap);
     EasyMock.expect(context.getJPAJoinClauses()).andStubReturn(joinClauseList);
+    EasyMock.expect(context.getParameters()).andStubReturn(new HashMap<Integer, Object>());
     EasyMock.replay(context);
   }
 
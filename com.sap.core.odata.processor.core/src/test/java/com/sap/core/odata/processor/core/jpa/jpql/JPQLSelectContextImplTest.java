@@ -69,6 +69,22 @@ public class JPQLSelectContextImplTest {
       final boolean isTopNull, final boolean isSkipNull) {
     builder = null;
     selectContext = null;
+    GetEntitySetUriInfo resultsView = getResultsView(orderByIsNull, selectFieldsIsNull, filterIsNull, isTopNull, isSkipNull);
+    try {
+      builder = (JPQLSelectContextBuilder) JPQLContext.createBuilder(
+          JPQLContextType.SELECT, resultsView);
+
+      selectContext = (JPQLSelectContext) builder.build();
+    } catch (ODataJPAModelException e) {
+      fail("Exception not Expected");
+    } catch (ODataJPARuntimeException e) {
+      fail("Runtime Exception thrown");
+    }
+  }
+
+  private GetEntitySetUriInfo getResultsView(final boolean orderByIsNull,
+      final boolean selectFieldsIsNull, final boolean filterIsNull,
+      final boolean isTopNull, final boolean isSkipNull) {
     keyPredicates = new ArrayList<KeyPredicate>();
     GetEntitySetUriInfo resultsView = EasyMock
         .createMock(GetEntitySetUriInfo.class);
@@ -208,16 +224,7 @@ public class JPQLSelectContextImplTest {
     } catch (EdmException e1) {
       fail("Exception not Expected");
     }
-    try {
-      builder = (JPQLSelectContextBuilder) JPQLContext.createBuilder(
-          JPQLContextType.SELECT, resultsView);
-
-      selectContext = (JPQLSelectContext) builder.build();
-    } catch (ODataJPAModelException e) {
-      fail("Exception not Expected");
-    } catch (ODataJPARuntimeException e) {
-      fail("Runtime Exception thrown");
-    }
+    return resultsView;
   }
 
   private List<EdmProperty> getLocalKeyProperties() {
@@ -275,6 +282,20 @@ public class JPQLSelectContextImplTest {
     }
   }
 
+  @Test
+  public void testPrepareBeforeBuild() throws Exception {
+    // The mocked filter can be parsed only once.
+    builder = (JPQLSelectContextBuilder) JPQLContext.createBuilder(JPQLContextType.SELECT,
+        getResultsView(false, false, false, true, true));
+    final String parsedParts = builder.prepare();
+    assertEquals(parsedParts, builder.prepare());
+
+    selectContext = (JPQLSelectContext) builder.build();
+    assertEquals("E1", selectContext.getJPAEntityAlias());
+    assertEquals(parsedParts, selectContext.getWhereExpression());
+    assertEquals(builder.getParameters(), selectContext.getParameters());
+  }
+
   @Test
   public void testSelectFieldsAsNull() {
     buildSelectContext(false, true, true, true, true);
@@ -0,0 +1,204 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.processor.core.jpa.jpql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+import com.sap.core.odata.api.edm.EdmEntitySet;
+import com.sap.core.odata.api.edm.EdmEntityType;
+import com.sap.core.odata.api.edm.EdmException;
+import com.sap.core.odata.api.edm.EdmFacets;
+import com.sap.core.odata.api.edm.EdmMapping;
+import com.sap.core.odata.api.edm.EdmProperty;
+import com.sap.core.odata.api.edm.EdmSimpleTypeKind;
+import com.sap.core.odata.api.uri.expression.OrderByExpression;
+import com.sap.core.odata.api.uri.expression.OrderExpression;
+import com.sap.core.odata.api.uri.expression.PropertyExpression;
+import com.sap.core.odata.api.uri.expression.SortOrder;
+import com.sap.core.odata.api.uri.info.GetEntitySetUriInfo;
+import com.sap.core.odata.core.commons.Encoder;
+import com.sap.core.odata.processor.api.jpa.exception.ODataJPARuntimeException;
+
+public class JPQLSkipTokenTest {
+
+  private static final int PAGE_SIZE = 10;
+
+  public static class SalesOrder {
+    private final String buyerName;
+    private final Integer soId;
+
+    public SalesOrder(final String buyerName, final Integer soId) {
+      this.buyerName = buyerName;
+      this.soId = soId;
+    }
+
+    public String getBuyerName() {
+      return buyerName;
+    }
+
+    public Integer getSoId() {
+      return soId;
+    }
+  }
+
+  @Test
+  public void notPaged() throws Exception {
+    assertNull(JPQLSkipToken.create(mockUriInfo(null, null, null), 0));
+    assertNull(JPQLSkipToken.create(mockUriInfo(PAGE_SIZE, null, null), PAGE_SIZE));
+  }
+
+  @Test
+  public void firstPage() throws Exception {
+    JPQLSkipToken skipToken = JPQLSkipToken.create(mockUriInfo(25, 3, null), PAGE_SIZE);
+    assertEquals(3, skipToken.getFirstResult());
+    assertEquals(PAGE_SIZE + 1, skipToken.getMaxResults());
+    assertEquals(Integer.valueOf(15), skipToken.getNextTop());
+
+    Map<String, String> orderBy = new LinkedHashMap<String, String>();
+    orderBy.put("E1.buyerName", "DESC");
+    orderBy.put("E1.soId", "");
+    assertEquals(orderBy, skipToken.getOrderByFields("E1"));
+    assertEquals(Arrays.asList("E1.buyerName", "E1.soId"),
+        Arrays.asList(skipToken.getOrderByFields("E1").keySet().toArray()));
+    assertNull(skipToken.getWhereExpression("E1", new HashMap<Integer, Object>()));
+
+    assertEquals("13," + Encoder.encode("'a,b'") + ",5",
+        skipToken.getNextSkipToken(new SalesOrder("a,b", 5)));
+    assertEquals("13", skipToken.getNextSkipToken(new SalesOrder(null, 5)));
+  }
+
+  @Test
+  public void keysetPage() throws Exception {
+    JPQLSkipToken skipToken = JPQLSkipToken.create(
+        mockUriInfo(null, null, "13," + Encoder.encode("'a,b'") + ",5"), PAGE_SIZE);
+    assertTrue(skipToken.isKeyset());
+    assertEquals(0, skipToken.getFirstResult());
+    assertNull(skipToken.getNextTop());
+
+    Map<Integer, Object> parameters = new LinkedHashMap<Integer, Object>();
+    parameters.put(1, "filter");
+    assertEquals("E1.buyerName < ?2 OR (E1.buyerName = ?2 AND (E1.soId > ?3))",
+        skipToken.getWhereExpression("E1", parameters));
+    assertEquals("a,b", parameters.get(2));
+    assertEquals(Integer.valueOf(5), parameters.get(3));
+
+    assertEquals("23,'c',1", skipToken.getNextSkipToken(new SalesOrder("c", 1)));
+  }
+
+  @Test
+  public void offsetPage() throws Exception {
+    JPQLSkipToken skipToken = JPQLSkipToken.create(mockUriInfo(5, null, "13"), PAGE_SIZE);
+    assertEquals(13, skipToken.getFirstResult());
+    assertEquals(5, skipToken.getMaxResults());
+    assertNull(skipToken.getWhereExpression("E1", new HashMap<Integer, Object>()));
+  }
+
+  @Test
+  public void nullableOrderBy() throws Exception {
+    for (Boolean nullable : new Boolean[] { null, true }) {
+      JPQLSkipToken skipToken = JPQLSkipToken.create(mockUriInfo(null, null, null, nullable), PAGE_SIZE);
+      assertEquals("10", skipToken.getNextSkipToken(new SalesOrder("c", 1)));
+
+      skipToken = JPQLSkipToken.create(
+          mockUriInfo(null, null, "13," + Encoder.encode("'a,b'") + ",5", nullable), PAGE_SIZE);
+      assertFalse(skipToken.isKeyset());
+      assertEquals(13, skipToken.getFirstResult());
+      assertNull(skipToken.getWhereExpression("E1", new HashMap<Integer, Object>()));
+      assertEquals("23", skipToken.getNextSkipToken(new SalesOrder("c", 1)));
+    }
+  }
+
+  @Test
+  public void invalidToken() throws Exception {
+    for (String token : new String[] { "x", "-1", "1,'a'", "1,'a',x" }) {
+      try {
+        JPQLSkipToken.create(mockUriInfo(null, null, token), PAGE_SIZE);
+        fail("Expected exception for " + token);
+      } catch (ODataJPARuntimeException e) {
+        assertTrue(e.isCausedByHttpException());
+      }
+    }
+  }
+
+  private GetEntitySetUriInfo mockUriInfo(final Integer top, final Integer skip, final String skipToken)
+      throws EdmException {
+    return mockUriInfo(top, skip, skipToken, false);
+  }
+
+  private GetEntitySetUriInfo mockUriInfo(final Integer top, final Integer skip, final String skipToken,
+      final Boolean buyerNameNullable) throws EdmException {
+    EdmProperty buyerName = mockProperty("BuyerName", "buyerName", EdmSimpleTypeKind.String, buyerNameNullable);
+    EdmProperty soId = mockProperty("SoId", "soId", EdmSimpleTypeKind.Int32, null);
+
+    EdmEntityType entityType = EasyMock.createMock(EdmEntityType.class);
+    EasyMock.expect(entityType.getKeyProperties()).andStubReturn(Arrays.asList(soId));
+    EdmEntitySet entitySet = EasyMock.createMock(EdmEntitySet.class);
+    EasyMock.expect(entitySet.getName()).andStubReturn("SalesOrders");
+    EasyMock.expect(entitySet.getEntityType()).andStubReturn(entityType);
+
+    PropertyExpression expression = EasyMock.createMock(PropertyExpression.class);
+    EasyMock.expect(expression.getEdmProperty()).andStubReturn(buyerName);
+    OrderExpression order = EasyMock.createMock(OrderExpression.class);
+    EasyMock.expect(order.getExpression()).andStubReturn(expression);
+    EasyMock.expect(order.getSortOrder()).andStubReturn(SortOrder.desc);
+    OrderByExpression orderBy = EasyMock.createMock(OrderByExpression.class);
+    List<OrderExpression> orders = Arrays.asList(order);
+    EasyMock.expect(orderBy.getOrders()).andStubReturn(orders);
+
+    GetEntitySetUriInfo uriInfo = EasyMock.createMock(GetEntitySetUriInfo.class);
+    EasyMock.expect(uriInfo.getFunctionImport()).andStubReturn(null);
+    EasyMock.expect(uriInfo.getStartEntitySet()).andStubReturn(entitySet);
+    EasyMock.expect(uriInfo.getTargetEntitySet()).andStubReturn(entitySet);
+    EasyMock.expect(uriInfo.getOrderBy()).andStubReturn(orderBy);
+    EasyMock.expect(uriInfo.getTop()).andStubReturn(top);
+    EasyMock.expect(uriInfo.getSkip()).andStubReturn(skip);
+    EasyMock.expect(uriInfo.getSkipToken()).andStubReturn(skipToken);
+    EasyMock.replay(entityType, entitySet, expression, order, orderBy, uriInfo);
+    return uriInfo;
+  }
+
+  private EdmProperty mockProperty(final String name, final String internalName, final EdmSimpleTypeKind type,
+      final Boolean nullable) throws EdmException {
+    EdmMapping mapping = EasyMock.createMock(EdmMapping.class);
+    EasyMock.expect(mapping.getInternalName()).andStubReturn(internalName);
+    EdmFacets facets = null;
+    if (nullable != null) {
+      facets = EasyMock.createMock(EdmFacets.class);
+      EasyMock.expect(facets.isNullable()).andStubReturn(nullable);
+      EasyMock.replay(facets);
+    }
+    EdmProperty property = EasyMock.createMock(EdmProperty.class);
+    EasyMock.expect(property.getName()).andStubReturn(name);
+    EasyMock.expect(property.getMapping()).andStubReturn(mapping);
+    EasyMock.expect(property.getType()).andStubReturn(type.getEdmSimpleTypeInstance());
+    EasyMock.expect(property.getFacets()).andStubReturn(facets);
+    EasyMock.replay(mapping, property);
+    return property;
+  }
+}
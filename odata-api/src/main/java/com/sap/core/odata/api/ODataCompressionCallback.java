@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.api;
+
+/**
+ * Enables the compression of response bodies and the decompression of request bodies.
+ * <p>If the service factory returns an implementation of this callback,
+ * response bodies are compressed with the content coding <code>gzip</code>
+ * or <code>deflate</code> if the client accepts one of them according to its
+ * <code>Accept-Encoding</code> header. This includes the responses to batch
+ * requests as a whole but not their single parts. Only bodies of textual media
+ * types (text, XML, JSON, and multipart) are compressed; media resources of other
+ * types are usually compressed already. Request bodies with a
+ * <code>Content-Encoding</code> header of <code>gzip</code> or <code>deflate</code>
+ * are decompressed before they are handed to the processor; reading more than
+ * {@link #getMaximumDecodedSize()} bytes from such a body fails with status
+ * 413 Request Entity Too Large.</p>
+ * @author SAP AG
+ */
+public interface ODataCompressionCallback extends ODataCallback {
+
+  /**
+   * Returns the size a response body must reach to be compressed.
+   * Smaller bodies are sent as they are, because compressing them does not pay off.
+   * Bodies written by an {@link com.sap.core.odata.api.processor.ODataStreamingEntity}
+   * are compressed regardless of their size because it is not known in advance.
+   * @return the minimum size in bytes
+   */
+  int getMinimumSize();
+
+  /**
+   * Returns the compression level, trading speed for size.
+   * @return a level from 1 (fastest) to 9 (best compression) as defined by
+   *         {@link java.util.zip.Deflater}, or -1 for the default level
+   */
+  int getCompressionLevel();
+
+  /**
+   * Returns the maximum size of a decompressed request body.
+   * A small compressed body can expand to a huge amount of data,
+   * so the size should be limited to what the service expects to receive.
+   * @return the maximum size in bytes, or a negative value for no limit
+   */
+  long getMaximumDecodedSize();
+}
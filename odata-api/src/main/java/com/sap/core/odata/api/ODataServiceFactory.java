@@ -15,6 +15,7 @@
  ******************************************************************************/
 package com.sap.core.odata.api;
 
+import com.sap.core.odata.api.edm.Edm;
 import com.sap.core.odata.api.edm.provider.EdmProvider;
 import com.sap.core.odata.api.exception.ODataException;
 import com.sap.core.odata.api.processor.ODataContext;
@@ -43,6 +44,15 @@ public abstract class ODataServiceFactory {
    */
   public static final String PATH_SPLIT_LABEL = "com.sap.core.odata.path.split";
 
+  /**
+   * Label used in web.xml to assign servlet init parameter for a shared factory instance.
+   * If set to <code>true</code> only one factory instance is created per servlet and used
+   * for all requests, so the factory implementation has to be thread-safe.
+   * Such a factory can keep an {@link Edm} which is built once and handed to
+   * {@link #createODataSingleProcessorService(Edm, ODataSingleProcessor)} for every request.
+   */
+  public static final String SHARED_FACTORY_LABEL = "com.sap.core.odata.service.factory.shared";
+
   /**
    * Create instance of custom {@link ODataService}.
    * @param ctx OData context object
@@ -61,6 +71,16 @@ public abstract class ODataServiceFactory {
     return RuntimeDelegate.createODataSingleProcessorService(provider, processor);
   }
 
+  /**
+   * Create a default service instance based on <code>ODataSingleProcessor</code> for an already created entity data model.
+   * @param edm An entity data model, see {@link RuntimeDelegate#createEdm(EdmProvider)}; it is thread-safe and can be reused for all requests.
+   * @param processor A custom processor implementation derived from <code>ODataSingleProcessor</code> .
+   * @return A new default <code>ODataSingleProcessorService</code> instance.
+   */
+  public ODataService createODataSingleProcessorService(final Edm edm, final ODataSingleProcessor processor) {
+    return RuntimeDelegate.createODataSingleProcessorService(edm, processor);
+  }
+
   /**
    * A service can return implementation classes for various callback interfaces.
    * @param callbackInterface a interface type to query for implementation
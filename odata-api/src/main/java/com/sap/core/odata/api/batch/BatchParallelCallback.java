@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.api.batch;
+
+import com.sap.core.odata.api.ODataCallback;
+import com.sap.core.odata.api.ODataServiceFactory;
+
+/**
+ * Enables the parallel execution of query operations in a batch request.
+ * <p>If the service factory returns an implementation of this callback,
+ * consecutive query operations between change sets are executed concurrently
+ * by {@link BatchPartsHandler#handleBatchParts(java.util.List)}. Each of them is
+ * handled by its own service instance with its own context, created by
+ * {@link ODataServiceFactory#createService(com.sap.core.odata.api.processor.ODataContext)};
+ * so a service factory should only provide this callback if it returns a new,
+ * independent processor for every call. Change sets are still executed one
+ * after another, and the responses are returned in request order.</p>
+ * @author SAP AG
+ */
+public interface BatchParallelCallback extends ODataCallback {
+
+  /**
+   * Returns the maximum number of query operations of a batch request
+   * which are executed at the same time.
+   * @return the maximum number of concurrent query operations;
+   *         a value less than 2 disables parallel execution
+   */
+  int getMaxParallelism();
+}
@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.api.batch;
+
+import java.util.List;
+
+import com.sap.core.odata.api.exception.ODataException;
+
+/**
+ * <p>A {@link BatchHandler} which can handle all parts of a batch request at once.</p>
+ * <p>The batch handler provided by the library implements this interface; a batch processor
+ * should check for it and otherwise call {@link BatchHandler#handleBatchPart(BatchPart)} for each part.</p>
+ * @author SAP AG
+ */
+public interface BatchPartsHandler extends BatchHandler {
+  /**
+   * <p>Handles all {@link BatchPart}s of a batch request and provides the corresponding {@link BatchResponsePart}s in request order.</p>
+   * <p>Query operations between change sets are executed in parallel if the service factory provides a {@link BatchParallelCallback};
+   * otherwise all parts are handled one after another as by {@link #handleBatchPart(BatchPart)}.</p>
+   * @param batchParts the incoming batch parts
+   * @return the corresponding results
+   * @throws ODataException
+   */
+  public List<BatchResponsePart> handleBatchParts(List<BatchPart> batchParts) throws ODataException;
+}
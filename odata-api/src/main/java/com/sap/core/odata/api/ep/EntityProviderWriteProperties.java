@@ -37,6 +37,7 @@ public class EntityProviderWriteProperties {
   private ExpandSelectTreeNode expandSelectTree;
   private Map<String, ODataCallback> callbacks = Collections.emptyMap();
   private URI selfLink;
+  private boolean streaming;
 
   private EntityProviderWriteProperties() {}
 
@@ -101,6 +102,15 @@ public class EntityProviderWriteProperties {
     return nextLink;
   }
 
+  /**
+   * Determines whether a feed is written directly into the response output stream.
+   * @return <code>true</code> if the response entity is an {@link com.sap.core.odata.api.processor.ODataStreamingEntity}
+   * which is not buffered
+   */
+  public final boolean isStreaming() {
+    return streaming;
+  }
+
   public static ODataEntityProviderPropertiesBuilder serviceRoot(final URI serviceRoot) {
     return new ODataEntityProviderPropertiesBuilder().serviceRoot(serviceRoot);
   }
@@ -177,6 +187,17 @@ public class EntityProviderWriteProperties {
       return this;
     }
 
+    /**
+     * Write feeds directly into the response output stream instead of buffering the complete content.
+     * Errors which occur during writing can then no longer be reported as error document.
+     * @param streaming <code>true</code> to enable streaming
+     * @return properties builder
+     */
+    public ODataEntityProviderPropertiesBuilder streaming(final boolean streaming) {
+      properties.streaming = streaming;
+      return this;
+    }
+
     public ODataEntityProviderPropertiesBuilder fromProperties(final EntityProviderWriteProperties properties) {
       this.properties.mediaResourceMimeType = properties.getMediaResourceMimeType();
       this.properties.inlineCountType = properties.getInlineCountType();
@@ -185,6 +206,7 @@ public class EntityProviderWriteProperties {
       this.properties.expandSelectTree = properties.getExpandSelectTree();
       this.properties.callbacks = properties.getCallbacks();
       this.properties.selfLink = properties.getSelfLink();
+      this.properties.streaming = properties.isStreaming();
       return this;
     }
 
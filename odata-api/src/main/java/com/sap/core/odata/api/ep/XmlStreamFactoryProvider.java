@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.api.ep;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+
+/**
+ * Service provider interface for the StAX factories used to read and write
+ * XML-based formats (Atom, service document, metadata, error documents).
+ * <p>The library creates the factories once and shares them across all threads;
+ * an implementation is therefore called only once and must return factories
+ * whose <code>createXMLStreamReader</code> and <code>createXMLStreamWriter</code>
+ * methods are thread-safe, which is the case for the JDK, Woodstox, and Aalto
+ * implementations.</p>
+ * <p>An implementation is registered with the standard {@link java.util.ServiceLoader}
+ * mechanism, i.e., with a resource
+ * <code>META-INF/services/com.sap.core.odata.api.ep.XmlStreamFactoryProvider</code>
+ * containing its fully qualified class name. Without a registered implementation
+ * the factories found by {@link XMLInputFactory#newInstance()} and
+ * {@link XMLOutputFactory#newInstance()} are used.</p>
+ * <p>The library sets the properties it relies on, namely {@link XMLInputFactory#IS_NAMESPACE_AWARE}
+ * and {@link XMLInputFactory#IS_VALIDATING}, on the returned input factory.</p>
+ * 
+ * @author SAP AG
+ */
+public interface XmlStreamFactoryProvider {
+
+  /**
+   * Creates the factory used for all XML stream readers.
+   * @return a new {@link XMLInputFactory}
+   */
+  XMLInputFactory createInputFactory();
+
+  /**
+   * Creates the factory used for all XML stream writers.
+   * @return a new {@link XMLOutputFactory}
+   */
+  XMLOutputFactory createOutputFactory();
+}
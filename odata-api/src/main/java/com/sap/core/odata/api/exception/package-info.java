@@ -31,6 +31,7 @@
  * <br> *** {@link com.sap.core.odata.api.exception.ODataNotImplementedException}
  * <br> *** {@link com.sap.core.odata.api.exception.ODataPreconditionFailedException}
  * <br> *** {@link com.sap.core.odata.api.exception.ODataPreconditionRequiredException}
+ * <br> *** {@link com.sap.core.odata.api.exception.ODataRequestEntityTooLargeException}
  * <br> *** {@link com.sap.core.odata.api.exception.ODataServiceUnavailableException}
  * <br> *** {@link com.sap.core.odata.api.exception.ODataUnsupportedMediaTypeException}
  * <br> *** {@link com.sap.core.odata.api.exception.ODataNotFoundException}
@@ -27,6 +27,7 @@ import com.sap.core.odata.api.commons.HttpStatusCodes;
 import com.sap.core.odata.api.commons.ODataHttpHeaders;
 import com.sap.core.odata.api.edm.Edm;
 import com.sap.core.odata.api.edm.EdmServiceMetadata;
+import com.sap.core.odata.api.edm.EdmServiceMetadataETag;
 import com.sap.core.odata.api.ep.EntityProvider;
 import com.sap.core.odata.api.exception.ODataException;
 import com.sap.core.odata.api.exception.ODataNotImplementedException;
@@ -331,6 +332,10 @@ public abstract class ODataSingleProcessor implements MetadataProcessor, Service
     final String serviceRoot = getContext().getPathInfo().getServiceRoot().toASCIIString();
 
     final ODataResponse response = EntityProvider.writeServiceDocument(contentType, entityDataModel, serviceRoot);
+    final String notModifiedETag = getNotModifiedETag(response.getETag());
+    if (notModifiedETag != null) {
+      return ODataResponse.status(HttpStatusCodes.NOT_MODIFIED).eTag(notModifiedETag).build();
+    }
     final ODataResponseBuilder odataResponseBuilder = ODataResponse.fromResponse(response).header(ODataHttpHeaders.DATASERVICEVERSION, ODataServiceVersion.V10);
     if (isContentTypeUpdateNecessary(contentType, response)) {
       odataResponseBuilder.contentHeader(contentType);
@@ -358,8 +363,50 @@ public abstract class ODataSingleProcessor implements MetadataProcessor, Service
   @Override
   public ODataResponse readMetadata(final GetMetadataUriInfo uriInfo, final String contentType) throws ODataException {
     final EdmServiceMetadata edmServiceMetadata = getContext().getService().getEntityDataModel().getServiceMetadata();
+    final String eTag = edmServiceMetadata instanceof EdmServiceMetadataETag ?
+        ((EdmServiceMetadataETag) edmServiceMetadata).getMetadataETag() : null;
+    final String notModifiedETag = getNotModifiedETag(eTag);
+    if (notModifiedETag != null) {
+      return ODataResponse.status(HttpStatusCodes.NOT_MODIFIED).eTag(notModifiedETag).build();
+    }
+
+    return ODataResponse.status(HttpStatusCodes.OK).header(HttpHeaders.CONTENT_TYPE, contentType).header(ODataHttpHeaders.DATASERVICEVERSION, edmServiceMetadata.getDataServiceVersion()).eTag(eTag).entity(edmServiceMetadata.getMetadata()).build();
+  }
+
+  /**
+   * Checks whether the client already has the current representation, i.e., whether one of the
+   * entity tags in the <code>If-None-Match</code> request header matches the given entity tag.
+   * The entity tag of a representation compressed by the runtime carries the content coding
+   * as suffix, e.g., <code>"1a2b-gzip"</code>; such an entity tag matches as well.
+   * 
+   * @param eTag entity tag of the current representation, may be <code>null</code>
+   * @return the matching entity tag for the <code>304 Not Modified</code> response
+   *         or <code>null</code> if the response cannot be answered with <code>304 Not Modified</code>
+   */
+  private String getNotModifiedETag(final String eTag) {
+    final String ifNoneMatch = eTag == null ? null : getContext().getRequestHeader(HttpHeaders.IF_NONE_MATCH);
+    if (ifNoneMatch != null) {
+      for (String requestETag : ifNoneMatch.split(",")) {
+        requestETag = requestETag.trim();
+        // weak comparison as required for If-None-Match
+        final String opaqueTag = requestETag.startsWith("W/") ? requestETag.substring(2) : requestETag;
+        if ("*".equals(opaqueTag)) {
+          return eTag;
+        }
+        if (eTag.equals(opaqueTag) || isContentCodingETag(eTag, opaqueTag)) {
+          return requestETag;
+        }
+      }
+    }
+    return null;
+  }
 
-    return ODataResponse.status(HttpStatusCodes.OK).header(HttpHeaders.CONTENT_TYPE, contentType).header(ODataHttpHeaders.DATASERVICEVERSION, edmServiceMetadata.getDataServiceVersion()).entity(edmServiceMetadata.getMetadata()).build();
+  private static boolean isContentCodingETag(final String eTag, final String requestETag) {
+    if (eTag.startsWith("W/") || eTag.length() < 2) {
+      return false;
+    }
+    final String prefix = eTag.substring(0, eTag.length() - 1) + '-';
+    return requestETag.equals(prefix + "gzip\"") || requestETag.equals(prefix + "deflate\"");
   }
 
   /**
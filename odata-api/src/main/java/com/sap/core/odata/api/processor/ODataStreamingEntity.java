@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.api.processor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A response entity which is not buffered but written directly into the
+ * output stream of the HTTP response when the response is sent.
+ * <p>Because the status line and the headers are already sent at that point,
+ * an error during writing can no longer be reported as OData error document;
+ * the response is then incomplete.</p>
+ * @author SAP AG
+ */
+public interface ODataStreamingEntity {
+
+  /**
+   * Writes the complete entity content.
+   * @param out the output stream of the response; it must not be closed by the implementation
+   * @throws IOException if writing fails
+   */
+  void write(OutputStream out) throws IOException;
+}
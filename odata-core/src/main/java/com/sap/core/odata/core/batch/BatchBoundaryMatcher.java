@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.core.batch;
+
+import java.util.Arrays;
+
+/**
+ * Finds a multipart boundary delimiter in a byte array.
+ * The skip table of the Boyer-Moore-Horspool algorithm is computed once per
+ * boundary so that the request body never has to be decoded into characters
+ * while looking for the next part.
+ * @author SAP AG
+ */
+final class BatchBoundaryMatcher {
+
+  private final byte[] delimiter;
+  private final int[] shift = new int[256];
+
+  BatchBoundaryMatcher(final byte[] delimiter) {
+    this.delimiter = delimiter;
+    Arrays.fill(shift, delimiter.length);
+    for (int i = 0; i < delimiter.length - 1; i++) {
+      shift[delimiter[i] & 0xff] = delimiter.length - 1 - i;
+    }
+  }
+
+  int length() {
+    return delimiter.length;
+  }
+
+  /**
+   * Returns the position of the first occurrence of the delimiter in the
+   * given range of the data, or <code>-1</code> if there is none.
+   * @param data the bytes to search in
+   * @param from first position to search at (inclusive)
+   * @param to end of the range (exclusive)
+   */
+  int indexOf(final byte[] data, final int from, final int to) {
+    final int last = delimiter.length - 1;
+    int position = from;
+    while (position + last < to) {
+      int i = last;
+      while (data[position + i] == delimiter[i]) {
+        if (i == 0) {
+          return position;
+        }
+        i--;
+      }
+      position += shift[data[position + last] & 0xff];
+    }
+    return -1;
+  }
+}
@@ -15,13 +15,21 @@
  ******************************************************************************/
 package com.sap.core.odata.core.batch;
 
+import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import com.sap.core.odata.api.ODataService;
 import com.sap.core.odata.api.ODataServiceFactory;
-import com.sap.core.odata.api.batch.BatchHandler;
+import com.sap.core.odata.api.batch.BatchParallelCallback;
 import com.sap.core.odata.api.batch.BatchPart;
+import com.sap.core.odata.api.batch.BatchPartsHandler;
 import com.sap.core.odata.api.batch.BatchResponsePart;
 import com.sap.core.odata.api.exception.ODataException;
 import com.sap.core.odata.api.processor.ODataContext;
@@ -30,13 +38,18 @@ import com.sap.core.odata.api.processor.ODataResponse;
 import com.sap.core.odata.core.ODataContextImpl;
 import com.sap.core.odata.core.ODataRequestHandler;
 
-public class BatchHandlerImpl implements BatchHandler {
+public class BatchHandlerImpl implements BatchPartsHandler {
+  private static final ThreadFactory THREAD_FACTORY = createThreadFactory();
+
   private ODataServiceFactory factory;
   private ODataService service;
+  /* context of the batch request; the processor context is replaced for every part */
+  private final ODataContext batchContext;
 
-  public BatchHandlerImpl(final ODataServiceFactory factory, final ODataService service) {
+  public BatchHandlerImpl(final ODataServiceFactory factory, final ODataService service) throws ODataException {
     this.factory = factory;
     this.service = service;
+    batchContext = service.getProcessor() == null ? null : service.getProcessor().getContext();
   }
 
   @Override
@@ -45,18 +58,46 @@ public class BatchHandlerImpl implements BatchHandler {
       List<ODataRequest> changeSetRequests = batchPart.getRequests();
       return service.getBatchProcessor().executeChangeSet(this, changeSetRequests);
     } else {
-      if (batchPart.getRequests().size() != 1) {
-        throw new ODataException("Query Operation should contain one request");
-      }
-      ODataRequest request = batchPart.getRequests().get(0);
+      ODataRequest request = getQueryRequest(batchPart);
       ODataRequestHandler handler = createHandler(request);
       ODataResponse response = handler.handle(request);
-      List<ODataResponse> responses = new ArrayList<ODataResponse>(1);
-      responses.add(response);
-      return BatchResponsePart.responses(responses).changeSet(false).build();
+      return createResponsePart(response);
     }
   }
 
+  @Override
+  public List<BatchResponsePart> handleBatchParts(final List<BatchPart> batchParts) throws ODataException {
+    List<BatchResponsePart> responseParts = new ArrayList<BatchResponsePart>(batchParts.size());
+    final BatchParallelCallback callback = factory.getCallback(BatchParallelCallback.class);
+    final int parallelism = callback == null ? 1 : callback.getMaxParallelism();
+    if (parallelism < 2) {
+      for (BatchPart batchPart : batchParts) {
+        responseParts.add(handleBatchPart(batchPart));
+      }
+      return responseParts;
+    }
+
+    ExecutorService executor = null;
+    try {
+      List<BatchPart> queryOperations = new ArrayList<BatchPart>();
+      for (BatchPart batchPart : batchParts) {
+        if (batchPart.isChangeSet()) {
+          executor = handleQueryOperations(queryOperations, executor, parallelism, responseParts);
+          queryOperations.clear();
+          responseParts.add(handleBatchPart(batchPart));
+        } else {
+          queryOperations.add(batchPart);
+        }
+      }
+      executor = handleQueryOperations(queryOperations, executor, parallelism, responseParts);
+    } finally {
+      if (executor != null) {
+        executor.shutdownNow();
+      }
+    }
+    return responseParts;
+  }
+
   @Override
   public ODataResponse handleRequest(final ODataRequest request) throws ODataException {
     ODataRequestHandler handler = createHandler(request);
@@ -66,8 +107,7 @@ public class BatchHandlerImpl implements BatchHandler {
   private ODataRequestHandler createHandler(final ODataRequest request) throws ODataException {
     ODataContextImpl context = new ODataContextImpl(request, factory);
 
-    ODataContext parentContext = service.getProcessor().getContext();
-    context.setBatchParentContext(parentContext);
+    context.setBatchParentContext(batchContext);
 
     context.setService(service);
     service.getProcessor().setContext(context);
@@ -75,4 +115,96 @@ public class BatchHandlerImpl implements BatchHandler {
     return new ODataRequestHandler(factory, service, context);
   }
 
+  /**
+   * Executes consecutive query operations concurrently and adds their responses in request order.
+   * @return the executor, created on first use
+   */
+  private ExecutorService handleQueryOperations(final List<BatchPart> queryOperations,
+      final ExecutorService executor, final int parallelism, final List<BatchResponsePart> responseParts) throws ODataException {
+    if (queryOperations.size() < 2) {
+      for (BatchPart batchPart : queryOperations) {
+        responseParts.add(handleBatchPart(batchPart));
+      }
+      return executor;
+    }
+
+    final ExecutorService usedExecutor = executor == null ? Executors.newFixedThreadPool(parallelism, THREAD_FACTORY) : executor;
+    List<Future<BatchResponsePart>> futures = new ArrayList<Future<BatchResponsePart>>(queryOperations.size());
+    for (final BatchPart batchPart : queryOperations) {
+      final BatchHandlerImpl isolatedHandler = createIsolatedHandler(getQueryRequest(batchPart));
+      futures.add(usedExecutor.submit(new Callable<BatchResponsePart>() {
+        @Override
+        public BatchResponsePart call() throws ODataException {
+          return isolatedHandler.handleBatchPart(batchPart);
+        }
+      }));
+    }
+    for (Future<BatchResponsePart> future : futures) {
+      responseParts.add(getResponsePart(future));
+    }
+    return usedExecutor;
+  }
+
+  /**
+   * Creates a batch handler with a service instance of its own,
+   * so that a query operation can be handled concurrently to others.
+   */
+  private BatchHandlerImpl createIsolatedHandler(final ODataRequest request) throws ODataException {
+    ODataContextImpl context = new ODataContextImpl(request, factory);
+    context.setBatchParentContext(batchContext);
+
+    ODataService partService = factory.createService(context);
+    partService.getProcessor().setContext(batchContext);
+
+    return new BatchHandlerImpl(factory, partService);
+  }
+
+  private BatchResponsePart getResponsePart(final Future<BatchResponsePart> future) throws ODataException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ODataException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof ODataException) {
+        throw (ODataException) e.getCause();
+      } else if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      } else {
+        throw new ODataException(e.getCause());
+      }
+    }
+  }
+
+  private ODataRequest getQueryRequest(final BatchPart batchPart) throws ODataException {
+    if (batchPart.getRequests().size() != 1) {
+      throw new ODataException("Query Operation should contain one request");
+    }
+    return batchPart.getRequests().get(0);
+  }
+
+  private BatchResponsePart createResponsePart(final ODataResponse response) {
+    List<ODataResponse> responses = new ArrayList<ODataResponse>(1);
+    responses.add(response);
+    return BatchResponsePart.responses(responses).changeSet(false).build();
+  }
+
+  /**
+   * Uses virtual threads if the Java runtime provides them (Java 21 and later)
+   * and platform threads otherwise.
+   */
+  private static ThreadFactory createThreadFactory() {
+    try {
+      final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+    } catch (NoSuchMethodException e) {
+      return Executors.defaultThreadFactory();
+    } catch (ClassNotFoundException e) {
+      return Executors.defaultThreadFactory();
+    } catch (IllegalAccessException e) {
+      return Executors.defaultThreadFactory();
+    } catch (InvocationTargetException e) {
+      return Executors.defaultThreadFactory();
+    }
+  }
 }
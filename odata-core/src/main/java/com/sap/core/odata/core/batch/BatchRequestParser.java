@@ -16,10 +16,12 @@
 package com.sap.core.odata.core.batch;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -27,9 +29,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Scanner;
 import java.util.Set;
-import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import com.sap.core.odata.api.batch.BatchException;
@@ -46,10 +47,20 @@ import com.sap.core.odata.core.PathInfoImpl;
 import com.sap.core.odata.core.commons.ContentType;
 
 /**
+ * Parses a multipart/mixed batch request.
+ * <p>The request body is read once into a byte buffer; boundary delimiters
+ * are located with a precomputed {@link BatchBoundaryMatcher}, and only the
+ * MIME headers, request lines and request headers are decoded into strings.
+ * The body of each change set request is handed out as an input stream
+ * over its range of the buffer.</p>
  * @author SAP AG
  */
 public class BatchRequestParser {
-  private static final String LF = "\n";
+  private static final Charset CHARSET = Charset.forName("UTF-8");
+  private static final int BUFFER_SIZE = 8192;
+  private static final byte LF = '\n';
+  private static final byte CR = '\r';
+  private static final String DELIMITER_PREFIX = "--";
   private static final String REG_EX_OPTIONAL_WHITESPACE = "\\s?";
   private static final String REG_EX_ZERO_OR_MORE_WHITESPACES = "\\s*";
   private static final String ANY_CHARACTERS = ".*";
@@ -57,18 +68,20 @@ public class BatchRequestParser {
   private static final Pattern REG_EX_BLANK_LINE = Pattern.compile("(|" + REG_EX_ZERO_OR_MORE_WHITESPACES + ")");
   private static final Pattern REG_EX_HEADER = Pattern.compile("([a-zA-Z\\-]+):" + REG_EX_OPTIONAL_WHITESPACE + "(.*)" + REG_EX_ZERO_OR_MORE_WHITESPACES);
   private static final Pattern REG_EX_VERSION = Pattern.compile("(?:HTTP/[0-9]\\.[0-9])");
-  private static final Pattern REG_EX_ANY_BOUNDARY_STRING = Pattern.compile("--" + ANY_CHARACTERS + REG_EX_ZERO_OR_MORE_WHITESPACES);
   private static final Pattern REG_EX_REQUEST_LINE = Pattern.compile("(GET|POST|PUT|DELETE|MERGE|PATCH)\\s(.*)\\s?" + REG_EX_VERSION + REG_EX_ZERO_OR_MORE_WHITESPACES);
+  private static final Pattern REG_EX_PARAMETER_SEPARATOR = Pattern.compile(";\\s?");
   private static final Pattern REG_EX_BOUNDARY_PARAMETER = Pattern.compile(REG_EX_OPTIONAL_WHITESPACE + "boundary=(\".*\"|.*)" + REG_EX_ZERO_OR_MORE_WHITESPACES);
   private static final Pattern REG_EX_CONTENT_TYPE = Pattern.compile(REG_EX_OPTIONAL_WHITESPACE + BatchConstants.MULTIPART_MIXED);
+  private static final Pattern REG_EX_MULTIPART_CONTENT_TYPE = Pattern.compile(REG_EX_OPTIONAL_WHITESPACE + BatchConstants.MULTIPART_MIXED + ANY_CHARACTERS);
   private static final Pattern REG_EX_QUERY_PARAMETER = Pattern.compile("((?:\\$[a-z]+)|(?:[^\\$][^=]))=([^=]+)");
+  private static final Pattern REG_EX_CONTENT_ID_REFERENCE = Pattern.compile("\\$[^/]/([^?]+)(?:\\?.*)?");
 
-  private static final String REG_EX_BOUNDARY = "([a-zA-Z0-9_\\-\\.'\\+]{1,70})|\"([a-zA-Z0-9_\\-\\.'\\+\\s\\(\\),/:=\\?]{1,69}[a-zA-Z0-9_\\-\\.'\\+\\(\\),/:=\\?])\""; // See RFC 2046
+  private static final Pattern REG_EX_BOUNDARY = Pattern.compile("([a-zA-Z0-9_\\-\\.'\\+]{1,70})|\"([a-zA-Z0-9_\\-\\.'\\+\\s\\(\\),/:=\\?]{1,69}[a-zA-Z0-9_\\-\\.'\\+\\(\\),/:=\\?])\""); // See RFC 2046
   private String baseUri;
+  private Pattern regexRequestUri;
   private PathInfo batchRequestPathInfo;
   private String contentTypeMime;
-  private String boundary;
-  private String currentContentId;
+  private byte[] data;
   private static Set<String> HTTP_CHANGESET_METHODS;
   private static Set<String> HTTP_BATCH_METHODS;
 
@@ -90,189 +103,189 @@ public class BatchRequestParser {
   }
 
   public List<BatchPart> parse(final InputStream in) throws BatchException {
-    Scanner scanner = new Scanner(in).useDelimiter(LF);
     baseUri = getBaseUri();
-    List<BatchPart> requestList;
+    regexRequestUri = Pattern.compile("(?:" + (baseUri == null ? "" : Pattern.quote(baseUri)) + ")?/?([^?]+)(\\?.*)?");
     try {
-      requestList = parseBatchRequest(scanner);
+      data = readContent(in);
+    } catch (IOException e) {
+      throw new BatchException(ODataMessageException.COMMON, e);
     } finally {// NOPMD (suppress DoNotThrowExceptionInFinally)
-      scanner.close();
       try {
         in.close();
       } catch (IOException e) {
         throw new BatchException(ODataMessageException.COMMON, e);
       }
     }
-    return requestList;
+    return parseBatchRequest();
   }
 
-  private List<BatchPart> parseBatchRequest(final Scanner scanner) throws BatchException {
+  private List<BatchPart> parseBatchRequest() throws BatchException {
     List<BatchPart> requests = new LinkedList<BatchPart>();
     if (contentTypeMime != null) {
-      boundary = getBoundary(contentTypeMime);
-      parsePreamble(scanner);
-      String closeDelimiter = "--" + boundary + "--" + REG_EX_ZERO_OR_MORE_WHITESPACES;
-      while (scanner.hasNext() && !scanner.hasNext(closeDelimiter)) {
-        requests.add(parseMultipart(scanner, boundary, false));
-        parseNewLine(scanner);
-      }
-      if (scanner.hasNext(closeDelimiter)) {
-        scanner.next(closeDelimiter);
-      } else {
-        throw new BatchException(BatchException.MISSING_CLOSE_DELIMITER);
+      String boundary = getBoundary(contentTypeMime);
+      for (BodyPart bodyPart : getBodyParts(0, data.length, boundary)) {
+        requests.add(parseMultipart(bodyPart, boundary, false));
       }
     } else {
       throw new BatchException(BatchException.MISSING_CONTENT_TYPE);
     }
     return requests;
+  }
 
+  /**
+   * Splits the given range of the request body at the delimiter lines of the boundary.
+   * The preamble before the first and the epilogue after the close delimiter are skipped.
+   */
+  private List<BodyPart> getBodyParts(final int start, final int end, final String boundary) throws BatchException {
+    BatchBoundaryMatcher matcher = new BatchBoundaryMatcher((DELIMITER_PREFIX + boundary).getBytes(CHARSET));
+    List<BodyPart> bodyParts = new ArrayList<BodyPart>();
+    int partStart = -1;
+    int position = start;
+    while (position < end) {
+      final int delimiter = matcher.indexOf(data, position, end);
+      if (delimiter < 0) {
+        break;
+      }
+      final int afterBoundary = delimiter + matcher.length();
+      final boolean isClose = startsWith(afterBoundary, end, DELIMITER_PREFIX);
+      final int lineEnd = getLineEnd(afterBoundary, end);
+      if ((delimiter > start && data[delimiter - 1] != LF)
+          || !isBlank(isClose ? afterBoundary + DELIMITER_PREFIX.length() : afterBoundary, lineEnd)) {
+        // The boundary is only part of a line and therefore no delimiter.
+        position = afterBoundary;
+        continue;
+      }
+      if (partStart < 0) {
+        validatePreamble(start, delimiter, boundary);
+      } else {
+        bodyParts.add(new BodyPart(partStart, trimLineBreak(partStart, delimiter)));
+      }
+      partStart = lineEnd < end ? lineEnd + 1 : end;
+      if (isClose) {
+        return bodyParts;
+      }
+      position = partStart;
+    }
+    if (partStart < 0) {
+      validatePreamble(start, end, boundary);
+      throw new BatchException(BatchException.MISSING_BOUNDARY_DELIMITER);
+    }
+    throw new BatchException(BatchException.MISSING_CLOSE_DELIMITER);
   }
 
-  //The method parses additional information prior to the first boundary delimiter line
-  private void parsePreamble(final Scanner scanner) {
-    while (scanner.hasNext() && !scanner.hasNext(REG_EX_ANY_BOUNDARY_STRING)) {
-      scanner.next();
+  //The method checks additional information prior to the first boundary delimiter line
+  private void validatePreamble(final int start, final int end, final String boundary) throws BatchException {
+    LineReader reader = new LineReader(start, end);
+    String line;
+    while ((line = reader.readLine()) != null) {
+      if (line.startsWith(DELIMITER_PREFIX)) {
+        throw new BatchException(BatchException.NO_MATCH_WITH_BOUNDARY_STRING.addContent(boundary));
+      }
     }
   }
 
-  private BatchPart parseMultipart(final Scanner scanner, final String boundary, final boolean isChangeSet) throws BatchException {
-    Map<String, String> mimeHeaders = new HashMap<String, String>();
-    BatchPart multipart = null;
+  private BatchPart parseMultipart(final BodyPart bodyPart, final String boundary, final boolean isChangeSet) throws BatchException {
+    LineReader reader = new LineReader(bodyPart.start, bodyPart.end);
+    Map<String, String> mimeHeaders = parseHeaders(reader);
     List<ODataRequest> requests = new ArrayList<ODataRequest>();
-    if (scanner.hasNext("--" + boundary + REG_EX_ZERO_OR_MORE_WHITESPACES)) {
-      scanner.next();
-      mimeHeaders = parseHeaders(scanner);
 
-      String contentType = mimeHeaders.get(BatchConstants.HTTP_CONTENT_TYPE.toLowerCase());
-      if (contentType == null) {
-        throw new BatchException(BatchException.MISSING_CONTENT_TYPE);
-      }
+    String contentType = mimeHeaders.get(BatchConstants.HTTP_CONTENT_TYPE.toLowerCase());
+    if (contentType == null) {
+      throw new BatchException(BatchException.MISSING_CONTENT_TYPE);
+    }
+    if (BatchConstants.HTTP_APPLICATION_HTTP.equalsIgnoreCase(contentType)) {
+      validateEncoding(mimeHeaders.get(BatchConstants.HTTP_CONTENT_TRANSFER_ENCODING.toLowerCase()));
       if (isChangeSet) {
-        if (BatchConstants.HTTP_APPLICATION_HTTP.equalsIgnoreCase(contentType)) {
-          validateEncoding(mimeHeaders.get(BatchConstants.HTTP_CONTENT_TRANSFER_ENCODING.toLowerCase()));
-          currentContentId = mimeHeaders.get(BatchConstants.HTTP_CONTENT_ID.toLowerCase());
-          parseNewLine(scanner);// mandatory
-
-          requests.add(parseRequest(scanner, isChangeSet));
-          multipart = new BatchPartImpl(false, requests);
-        } else {
-          throw new BatchException(BatchException.INVALID_CONTENT_TYPE.addContent(BatchConstants.HTTP_APPLICATION_HTTP));
-        }
+        String contentId = mimeHeaders.get(BatchConstants.HTTP_CONTENT_ID.toLowerCase());
+        requests.add(parseRequest(reader, true, contentId));
       } else {
-        if (BatchConstants.HTTP_APPLICATION_HTTP.equalsIgnoreCase(contentType)) {
-          validateEncoding(mimeHeaders.get(BatchConstants.HTTP_CONTENT_TRANSFER_ENCODING.toLowerCase()));
-          parseNewLine(scanner);// mandatory
-          requests.add(parseRequest(scanner, isChangeSet));
-          multipart = new BatchPartImpl(false, requests);
-        } else if (contentType.matches(REG_EX_OPTIONAL_WHITESPACE + BatchConstants.MULTIPART_MIXED + ANY_CHARACTERS)) {
-          String changeSetBoundary = getBoundary(contentType);
-          if (boundary.equals(changeSetBoundary)) {
-            throw new BatchException(BatchException.INVALID_CHANGESET_BOUNDARY);
-          }
-          List<ODataRequest> changeSetRequests = new LinkedList<ODataRequest>();
-          parseNewLine(scanner);// mandatory
-          Pattern changeSetCloseDelimiter = Pattern.compile("--" + changeSetBoundary + "--" + REG_EX_ZERO_OR_MORE_WHITESPACES);
-          while (!scanner.hasNext(changeSetCloseDelimiter)) {
-            BatchPart part = parseMultipart(scanner, changeSetBoundary, true);
-            if (part.getRequests().size() == 1) {
-              changeSetRequests.add(part.getRequests().get(0));
-            }
-          }
-          scanner.next(changeSetCloseDelimiter);
-          multipart = new BatchPartImpl(true, changeSetRequests);
-        } else {
-          throw new BatchException(BatchException.INVALID_CONTENT_TYPE.addContent(BatchConstants.MULTIPART_MIXED + " or " + BatchConstants.HTTP_APPLICATION_HTTP));
-        }
+        requests.add(parseRequest(reader, false, null));
+        validateNoContent(reader, boundary);
       }
-    } else if (scanner.hasNext(boundary + REG_EX_ZERO_OR_MORE_WHITESPACES)) {
-      throw new BatchException(BatchException.INVALID_BOUNDARY);
-    } else if (scanner.hasNext(REG_EX_ANY_BOUNDARY_STRING)) {
-      throw new BatchException(BatchException.NO_MATCH_WITH_BOUNDARY_STRING.addContent(boundary));
+      return new BatchPartImpl(false, requests);
+    } else if (isChangeSet) {
+      throw new BatchException(BatchException.INVALID_CONTENT_TYPE.addContent(BatchConstants.HTTP_APPLICATION_HTTP));
+    } else if (REG_EX_MULTIPART_CONTENT_TYPE.matcher(contentType).matches()) {
+      String changeSetBoundary = getBoundary(contentType);
+      if (boundary.equals(changeSetBoundary)) {
+        throw new BatchException(BatchException.INVALID_CHANGESET_BOUNDARY);
+      }
+      List<ODataRequest> changeSetRequests = new LinkedList<ODataRequest>();
+      for (BodyPart changeSetPart : getBodyParts(reader.getPosition(), bodyPart.end, changeSetBoundary)) {
+        changeSetRequests.addAll(parseMultipart(changeSetPart, changeSetBoundary, true).getRequests());
+      }
+      return new BatchPartImpl(true, changeSetRequests);
     } else {
-      throw new BatchException(BatchException.MISSING_BOUNDARY_DELIMITER);
+      throw new BatchException(BatchException.INVALID_CONTENT_TYPE.addContent(BatchConstants.MULTIPART_MIXED + " or " + BatchConstants.HTTP_APPLICATION_HTTP));
     }
-    return multipart;
-
   }
 
-  private ODataRequest parseRequest(final Scanner scanner, final boolean isChangeSet) throws BatchException {
+  private ODataRequest parseRequest(final LineReader reader, final boolean isChangeSet, final String contentId) throws BatchException {
     ODataRequestImpl request = new ODataRequestImpl();
-    if (scanner.hasNext(REG_EX_REQUEST_LINE)) {
-      scanner.next(REG_EX_REQUEST_LINE);
-      String method = null;
-      String uri = null;
-      MatchResult result = scanner.match();
-      if (result.groupCount() == 2) {
-        method = result.group(1);
-        uri = result.group(2).trim();
-      } else {
-        throw new BatchException(BatchException.INVALID_REQUEST_LINE.addContent(scanner.next()));
-      }
-      request.setPathInfo(parseRequestUri(uri));
-      request.setQueryParameters(parseQueryParameters(uri));
-      if (isChangeSet) {
-        if (!HTTP_CHANGESET_METHODS.contains(method)) {
-          throw new BatchException(BatchException.INVALID_CHANGESET_METHOD);
-        }
-      } else if (!HTTP_BATCH_METHODS.contains(method)) {
-        throw new BatchException(BatchException.INVALID_QUERY_OPERATION_METHOD);
-      }
-      request.setMethod(ODataHttpMethod.valueOf(method));
-      Map<String, List<String>> headers = parseRequestHeaders(scanner);
-      if (currentContentId != null) {
-        List<String> headerList = new ArrayList<String>();
-        headerList.add(currentContentId);
-        headers.put(BatchConstants.HTTP_CONTENT_ID.toLowerCase(), headerList);
-      }
-      request.setRequestHeaders(headers);
-      String requestContentType = request.getRequestHeaderValue(BatchConstants.HTTP_CONTENT_TYPE.toLowerCase());
-      if (requestContentType != null) {
-        request.setContentType(ContentType.create(requestContentType));
-      }
-      String requestAcceptHeaders = request.getRequestHeaderValue(BatchConstants.ACCEPT.toLowerCase());
-      if (requestAcceptHeaders != null) {
-        request.setAcceptHeaders(parseAcceptHeaders(requestAcceptHeaders));
-      } else {
-        request.setAcceptHeaders(new ArrayList<String>());
-      }
-      String requestAcceptLanguages = request.getRequestHeaderValue(BatchConstants.ACCEPT_LANGUAGE.toLowerCase());
-      if (requestAcceptLanguages != null) {
-        request.setAcceptableLanguages(parseAcceptableLanguages(requestAcceptLanguages));
-      } else {
-        request.setAcceptableLanguages(new ArrayList<Locale>());
-      }
-
-      parseNewLine(scanner);
-
-      if (isChangeSet) {
-        request.setBody(parseBody(scanner));
+    final String requestLine = reader.readLine();
+    final Matcher result = requestLine == null ? null : REG_EX_REQUEST_LINE.matcher(requestLine);
+    if (result == null || !result.matches()) {
+      throw new BatchException(BatchException.INVALID_REQUEST_LINE.addContent(requestLine));
+    }
+    final String method = result.group(1);
+    final String uri = result.group(2).trim();
+    request.setPathInfo(parseRequestUri(uri));
+    request.setQueryParameters(parseQueryParameters(uri));
+    if (isChangeSet) {
+      if (!HTTP_CHANGESET_METHODS.contains(method)) {
+        throw new BatchException(BatchException.INVALID_CHANGESET_METHOD);
       }
-
+    } else if (!HTTP_BATCH_METHODS.contains(method)) {
+      throw new BatchException(BatchException.INVALID_QUERY_OPERATION_METHOD);
+    }
+    request.setMethod(ODataHttpMethod.valueOf(method));
+    Map<String, List<String>> headers = parseRequestHeaders(reader);
+    if (contentId != null) {
+      List<String> headerList = new ArrayList<String>();
+      headerList.add(contentId);
+      headers.put(BatchConstants.HTTP_CONTENT_ID.toLowerCase(), headerList);
+    }
+    request.setRequestHeaders(headers);
+    String requestContentType = request.getRequestHeaderValue(BatchConstants.HTTP_CONTENT_TYPE.toLowerCase());
+    if (requestContentType != null) {
+      request.setContentType(ContentType.create(requestContentType));
+    }
+    String requestAcceptHeaders = request.getRequestHeaderValue(BatchConstants.ACCEPT.toLowerCase());
+    if (requestAcceptHeaders != null) {
+      request.setAcceptHeaders(parseAcceptHeaders(requestAcceptHeaders));
+    } else {
+      request.setAcceptHeaders(new ArrayList<String>());
+    }
+    String requestAcceptLanguages = request.getRequestHeaderValue(BatchConstants.ACCEPT_LANGUAGE.toLowerCase());
+    if (requestAcceptLanguages != null) {
+      request.setAcceptableLanguages(parseAcceptableLanguages(requestAcceptLanguages));
     } else {
-      throw new BatchException(BatchException.INVALID_REQUEST_LINE.addContent(scanner.next()));
+      request.setAcceptableLanguages(new ArrayList<Locale>());
+    }
+
+    if (isChangeSet) {
+      request.setBody(getBody(reader.getPosition(), reader.getEnd()));
     }
     return request;
   }
 
-  private Map<String, List<String>> parseRequestHeaders(final Scanner scanner) throws BatchException {
+  private Map<String, List<String>> parseRequestHeaders(final LineReader reader) throws BatchException {
     Map<String, List<String>> headers = new HashMap<String, List<String>>();
-    while (scanner.hasNext() && !scanner.hasNext(REG_EX_BLANK_LINE)) {
-      if (scanner.hasNext(REG_EX_HEADER)) {
-        scanner.next(REG_EX_HEADER);
-        MatchResult result = scanner.match();
-        if (result.groupCount() == 2) {
-          String headerName = result.group(1).trim().toLowerCase();
-          String headerValue = result.group(2).trim().toLowerCase();
-          if (headers.containsKey(headerName)) {
-            headers.get(headerName).add(headerValue);
-          } else {
-            List<String> headerList = new ArrayList<String>();
-            headerList.add(headerValue);
-            headers.put(headerName, headerList);
-          }
+    String line;
+    while ((line = reader.readLine()) != null && !REG_EX_BLANK_LINE.matcher(line).matches()) {
+      Matcher result = REG_EX_HEADER.matcher(line);
+      if (result.matches()) {
+        String headerName = result.group(1).trim().toLowerCase();
+        String headerValue = result.group(2).trim().toLowerCase();
+        if (headers.containsKey(headerName)) {
+          headers.get(headerName).add(headerValue);
+        } else {
+          List<String> headerList = new ArrayList<String>();
+          headerList.add(headerValue);
+          headers.put(headerName, headerList);
         }
       } else {
-        throw new BatchException(BatchException.INVALID_HEADER.addContent(scanner.next()));
+        throw new BatchException(BatchException.INVALID_HEADER.addContent(line));
       }
     }
     return headers;
@@ -282,15 +295,11 @@ public class BatchRequestParser {
     PathInfoImpl pathInfo = new PathInfoImpl();
     pathInfo.setServiceRoot(batchRequestPathInfo.getServiceRoot());
     pathInfo.setPrecedingPathSegment(batchRequestPathInfo.getPrecedingSegments());
-    Scanner uriScanner = new Scanner(uri);
-    Pattern regexRequestUri = Pattern.compile("(?:" + baseUri + ")?/?([^?]+)(\\?.*)?");
-    if (uriScanner.hasNext("\\$[^/]/([^?]+)(?:\\?.*)?")) {
+    if (REG_EX_CONTENT_ID_REFERENCE.matcher(uri).matches()) {
       // TODO: Content-ID reference 
-      uriScanner.next("\\$[^/]/([^?]+)(?:\\?.*)?");
-    } else if (uriScanner.hasNext(regexRequestUri)) {
-      uriScanner.next(regexRequestUri);
-      MatchResult result = uriScanner.match();
-      if (result.groupCount() == 2) {
+    } else {
+      Matcher result = regexRequestUri.matcher(uri);
+      if (result.matches()) {
         String odataPathSegmentsAsString = result.group(1);
         String queryParametersAsString = result.group(2) != null ? result.group(2) : "";
         pathInfo.setODataPathSegment(parseODataPathSegments(odataPathSegmentsAsString));
@@ -298,61 +307,41 @@ public class BatchRequestParser {
           String requestUri = baseUri + "/" + odataPathSegmentsAsString + queryParametersAsString;
           pathInfo.setRequestUri(new URI(requestUri));
         } catch (URISyntaxException e) {
-          uriScanner.close();
           throw new BatchException(BatchException.INVALID_URI, e);
         }
       } else {
-        uriScanner.close();
         throw new BatchException(BatchException.INVALID_URI);
       }
-    } else {
-      uriScanner.close();
-      throw new BatchException(BatchException.INVALID_URI);
     }
-    uriScanner.close();
     return pathInfo;
   }
 
-  private Map<String, String> parseQueryParameters(final String uri) throws BatchException {
-    Scanner uriScanner = new Scanner(uri);
+  private Map<String, String> parseQueryParameters(final String uri) {
     Map<String, String> queryParametersMap = new HashMap<String, String>();
-    Pattern regex = Pattern.compile("(?:" + baseUri + ")?/?" + "[^?]+" + "\\?(.*)");
-    if (uriScanner.hasNext(regex)) {
-      uriScanner.next(regex);
-      MatchResult uriResult = uriScanner.match();
-      if (uriResult.groupCount() == 1) {
-        String queryParams = uriResult.group(1);
-        Scanner queryParamsScanner = new Scanner(queryParams).useDelimiter("&");
-        while (queryParamsScanner.hasNext(REG_EX_QUERY_PARAMETER)) {
-          queryParamsScanner.next(REG_EX_QUERY_PARAMETER);
-          MatchResult result = queryParamsScanner.match();
-          if (result.groupCount() == 2) {
-            String systemQueryOption = result.group(1);
-            String value = result.group(2);
-            queryParametersMap.put(systemQueryOption, value);
-          } else {
-            queryParamsScanner.close();
-            throw new BatchException(BatchException.INVALID_QUERY_PARAMETER);
-          }
+    final int queryStart = uri.indexOf('?');
+    if (queryStart > 0) {
+      for (String queryParameter : uri.substring(queryStart + 1).split("&")) {
+        Matcher result = REG_EX_QUERY_PARAMETER.matcher(queryParameter);
+        if (!result.matches()) {
+          break;
         }
-        queryParamsScanner.close();
-
-      } else {
-        uriScanner.close();
-        throw new BatchException(BatchException.INVALID_URI);
+        queryParametersMap.put(result.group(1), result.group(2));
       }
     }
-    uriScanner.close();
     return queryParametersMap;
   }
 
   private List<PathSegment> parseODataPathSegments(final String odataPathSegmentsAsString) {
-    Scanner pathSegmentScanner = new Scanner(odataPathSegmentsAsString).useDelimiter("/");
     List<PathSegment> odataPathSegments = new ArrayList<PathSegment>();
-    while (pathSegmentScanner.hasNext()) {
-      odataPathSegments.add(new ODataPathSegmentImpl(pathSegmentScanner.next(), null));
+    int segmentStart = 0;
+    while (segmentStart < odataPathSegmentsAsString.length()) {
+      int segmentEnd = odataPathSegmentsAsString.indexOf('/', segmentStart);
+      if (segmentEnd < 0) {
+        segmentEnd = odataPathSegmentsAsString.length();
+      }
+      odataPathSegments.add(new ODataPathSegmentImpl(odataPathSegmentsAsString.substring(segmentStart, segmentEnd), null));
+      segmentStart = segmentEnd + 1;
     }
-    pathSegmentScanner.close();
     return odataPathSegments;
   }
 
@@ -364,47 +353,41 @@ public class BatchRequestParser {
     return AcceptParser.parseAcceptableLanguages(headerValue);
   }
 
-  private InputStream parseBody(final Scanner scanner) {
-    String body = null;
-    InputStream requestBody;
-    while (scanner.hasNext() && !scanner.hasNext(REG_EX_ANY_BOUNDARY_STRING)) {
-      if (!scanner.hasNext(REG_EX_ZERO_OR_MORE_WHITESPACES)) {
-        if (body == null) {
-          body = scanner.next();
-        } else {
-          body = body + LF + scanner.next();
-        }
-      } else {
-        scanner.next();
+  /**
+   * Returns the body of a change set request without copying it.
+   * The line break which belongs to the following delimiter has already been
+   * removed from the end of the body part; all other bytes are content.
+   */
+  private InputStream getBody(final int start, final int end) {
+    return new ByteArrayInputStream(data, start, end - start);
+  }
+
+  // A query operation has no body, so only blank lines may follow until the next delimiter.
+  private void validateNoContent(final LineReader reader, final String boundary) throws BatchException {
+    String line;
+    while ((line = reader.readLine()) != null) {
+      if (boundary.equals(line.trim())) {
+        throw new BatchException(BatchException.INVALID_BOUNDARY);
+      } else if (!REG_EX_BLANK_LINE.matcher(line).matches()) {
+        throw new BatchException(BatchException.MISSING_BOUNDARY_DELIMITER);
       }
     }
-    if (body != null) {
-      requestBody = new ByteArrayInputStream(body.getBytes());
-    } else {
-      requestBody = new ByteArrayInputStream("".getBytes());
-    }
-    return requestBody;
   }
 
   private String getBoundary(final String contentType) throws BatchException {
-    Scanner contentTypeScanner = new Scanner(contentType).useDelimiter(";\\s?");
-    if (contentTypeScanner.hasNext(REG_EX_CONTENT_TYPE)) {
-      contentTypeScanner.next(REG_EX_CONTENT_TYPE);
-    } else {
-      contentTypeScanner.close();
+    final String[] parameters = REG_EX_PARAMETER_SEPARATOR.split(contentType);
+    if (parameters.length == 0 || !REG_EX_CONTENT_TYPE.matcher(parameters[0]).matches()) {
       throw new BatchException(BatchException.INVALID_CONTENT_TYPE.addContent(BatchConstants.MULTIPART_MIXED));
     }
-    if (contentTypeScanner.hasNext(REG_EX_BOUNDARY_PARAMETER)) {
-      contentTypeScanner.next(REG_EX_BOUNDARY_PARAMETER);
-      MatchResult result = contentTypeScanner.match();
-      contentTypeScanner.close();
-      if (result.groupCount() == 1 && result.group(1).trim().matches(REG_EX_BOUNDARY)) {
-        return trimQuota(result.group(1).trim());
+    Matcher result = parameters.length > 1 ? REG_EX_BOUNDARY_PARAMETER.matcher(parameters[1]) : null;
+    if (result != null && result.matches()) {
+      final String boundary = result.group(1).trim();
+      if (REG_EX_BOUNDARY.matcher(boundary).matches()) {
+        return trimQuota(boundary);
       } else {
         throw new BatchException(BatchException.INVALID_BOUNDARY);
       }
     } else {
-      contentTypeScanner.close();
       throw new BatchException(BatchException.MISSING_PARAMETER_IN_CONTENT_TYPE);
     }
   }
@@ -415,32 +398,22 @@ public class BatchRequestParser {
     }
   }
 
-  private Map<String, String> parseHeaders(final Scanner scanner) throws BatchException {
+  private Map<String, String> parseHeaders(final LineReader reader) throws BatchException {
     Map<String, String> headers = new HashMap<String, String>();
-    while (scanner.hasNext() && !(scanner.hasNext(REG_EX_BLANK_LINE))) {
-      if (scanner.hasNext(REG_EX_HEADER)) {
-        scanner.next(REG_EX_HEADER);
-        MatchResult result = scanner.match();
-        if (result.groupCount() == 2) {
-          String headerName = result.group(1).trim().toLowerCase();
-          String headerValue = result.group(2).trim().toLowerCase();
-          headers.put(headerName, headerValue);
-        }
+    String line;
+    while ((line = reader.readLine()) != null && !REG_EX_BLANK_LINE.matcher(line).matches()) {
+      Matcher result = REG_EX_HEADER.matcher(line);
+      if (result.matches()) {
+        String headerName = result.group(1).trim().toLowerCase();
+        String headerValue = result.group(2).trim().toLowerCase();
+        headers.put(headerName, headerValue);
       } else {
-        throw new BatchException(BatchException.INVALID_HEADER.addContent(scanner.next()));
+        throw new BatchException(BatchException.INVALID_HEADER.addContent(line));
       }
     }
     return headers;
   }
 
-  private void parseNewLine(final Scanner scanner) throws BatchException {
-    if (scanner.hasNext() && scanner.hasNext(REG_EX_BLANK_LINE)) {
-      scanner.next();
-    } else {
-      throw new BatchException(BatchException.MISSING_BLANK_LINE);
-    }
-  }
-
   private String getBaseUri() throws BatchException {
     if (batchRequestPathInfo != null) {
       if (batchRequestPathInfo.getServiceRoot() != null) {
@@ -459,14 +432,107 @@ public class BatchRequestParser {
     return null;
   }
 
-  private String trimQuota(String boundary) {
-    if (boundary.matches("\".*\"")) {
-      boundary = boundary.replace("\"", "");
+  private String trimQuota(final String boundary) {
+    if (boundary.length() > 1 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+      return boundary.substring(1, boundary.length() - 1);
     }
-    boundary = boundary.replaceAll("\\)", "\\\\)");
-    boundary = boundary.replaceAll("\\(", "\\\\(");
-    boundary = boundary.replaceAll("\\?", "\\\\?");
-    boundary = boundary.replaceAll("\\+", "\\\\+");
     return boundary;
   }
+
+  private static byte[] readContent(final InputStream in) throws IOException {
+    ByteArrayOutputStream content = new ByteArrayOutputStream(BUFFER_SIZE);
+    byte[] buffer = new byte[BUFFER_SIZE];
+    int count;
+    while ((count = in.read(buffer)) >= 0) {
+      content.write(buffer, 0, count);
+    }
+    return content.toByteArray();
+  }
+
+  private boolean startsWith(final int position, final int end, final String prefix) {
+    if (position + prefix.length() > end) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length(); i++) {
+      if (data[position + i] != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int getLineEnd(final int position, final int end) {
+    int index = position;
+    while (index < end && data[index] != LF) {
+      index++;
+    }
+    return index;
+  }
+
+  private boolean isBlank(final int start, final int end) {
+    for (int index = start; index < end; index++) {
+      if (!Character.isWhitespace(data[index])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // The line break before a delimiter belongs to the delimiter.
+  private int trimLineBreak(final int start, final int delimiter) {
+    int end = delimiter;
+    if (end > start && data[end - 1] == LF) {
+      end--;
+    }
+    if (end > start && data[end - 1] == CR) {
+      end--;
+    }
+    return end;
+  }
+
+  private static class BodyPart {
+    private final int start;
+    private final int end;
+
+    public BodyPart(final int start, final int end) {
+      this.start = start;
+      this.end = end;
+    }
+  }
+
+  /**
+   * Reads the lines of a range of the request body.
+   * Lines are terminated by LF; a preceding CR is not part of the line.
+   */
+  private class LineReader {
+    private int position;
+    private final int end;
+
+    public LineReader(final int start, final int end) {
+      position = start;
+      this.end = end;
+    }
+
+    public String readLine() {
+      if (position >= end) {
+        return null;
+      }
+      final int lineEnd = getLineEnd(position, end);
+      int contentEnd = lineEnd;
+      if (contentEnd > position && data[contentEnd - 1] == CR) {
+        contentEnd--;
+      }
+      final String line = new String(data, position, contentEnd - position, CHARSET);
+      position = lineEnd < end ? lineEnd + 1 : end;
+      return line;
+    }
+
+    public int getPosition() {
+      return position;
+    }
+
+    public int getEnd() {
+      return end;
+    }
+  }
 }
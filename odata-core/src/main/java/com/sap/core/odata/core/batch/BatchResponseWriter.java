@@ -15,110 +15,120 @@
  ******************************************************************************/
 package com.sap.core.odata.core.batch;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
 import java.util.List;
 import java.util.UUID;
 
 import com.sap.core.odata.api.batch.BatchException;
 import com.sap.core.odata.api.batch.BatchResponsePart;
 import com.sap.core.odata.api.commons.HttpStatusCodes;
-import com.sap.core.odata.api.exception.ODataMessageException;
 import com.sap.core.odata.api.processor.ODataResponse;
+import com.sap.core.odata.api.processor.ODataStreamingEntity;
+import com.sap.core.odata.core.ep.util.StreamingEntity;
 
+/**
+ * Writes the multipart/mixed response of a batch request.
+ * <p>The response entity is a {@link StreamingEntity}; the multipart body is
+ * written to the output when the response is sent instead of being assembled
+ * in memory, and the entity of a child response is streamed through as bytes.
+ * The body of the child response currently being written is copied into a
+ * buffer, to determine its content length.</p>
+ * <p>The batch response parts themselves are handled before the response is
+ * written, so the responses of all parts are kept until then; memory usage
+ * still grows with the size of the batch.</p>
+ * @author SAP AG
+ */
 public class BatchResponseWriter {
+  private static final Charset CHARSET = Charset.forName("UTF-8");
+  private static final int BUFFER_SIZE = 8192;
   private static final String COLON = ":";
   private static final String SP = " ";
   private static final String LF = "\r\n";
-  private StringBuilder writer = new StringBuilder();
 
-  private void appendChangeSet(final BatchResponsePart batchResponsePart) throws BatchException {
+  public ODataResponse writeResponse(final List<BatchResponsePart> batchResponseParts) throws BatchException {
+    final String boundary = generateBoundary("batch");
+    return ODataResponse.entity(new StreamingEntity() {
+      @Override
+      public void write(final OutputStream out) throws IOException {
+        appendResponseBody(batchResponseParts, boundary, out);
+      }
+    }).status(HttpStatusCodes.ACCEPTED).
+        header(BatchConstants.HTTP_CONTENT_TYPE, BatchConstants.MULTIPART_MIXED + "; boundary=" + boundary).build();
+  }
+
+  private void appendChangeSet(final BatchResponsePart batchResponsePart, final OutputStream writer) throws IOException {
     String boundary = generateBoundary("changeset");
-    writer.append(BatchConstants.HTTP_CONTENT_TYPE).append(COLON).append(SP).append("multipart/mixed; boundary=" + boundary).append(LF).append(LF);
+    append(writer, BatchConstants.HTTP_CONTENT_TYPE + COLON + SP + "multipart/mixed; boundary=" + boundary + LF + LF);
     for (ODataResponse response : batchResponsePart.getResponses()) {
-      writer.append("--").append(boundary).append(LF);
-      appendResponseBodyPart(response);
+      append(writer, "--" + boundary + LF);
+      appendResponseBodyPart(response, writer);
     }
-    writer.append("--").append(boundary).append("--").append(LF).append(LF);
+    append(writer, "--" + boundary + "--" + LF + LF);
   }
 
-  public ODataResponse writeResponse(final List<BatchResponsePart> batchResponseParts) throws BatchException {
-    String boundary = generateBoundary("batch");
-    appendResponseBody(batchResponseParts, boundary);
-    String batchResponseBody = writer.toString();
-    return ODataResponse.entity(batchResponseBody).status(HttpStatusCodes.ACCEPTED).
-        header(BatchConstants.HTTP_CONTENT_TYPE, BatchConstants.MULTIPART_MIXED + "; boundary=" + boundary)
-        .header(BatchConstants.HTTP_CONTENT_LENGTH, "" + batchResponseBody.length()).build();
-
-  }
-
-  private void appendResponseBody(final List<BatchResponsePart> batchResponseParts, final String boundary) throws BatchException {
-
+  private void appendResponseBody(final List<BatchResponsePart> batchResponseParts, final String boundary, final OutputStream writer) throws IOException {
     for (BatchResponsePart batchResponsePart : batchResponseParts) {
-      writer.append("--").append(boundary).append(LF);
+      append(writer, "--" + boundary + LF);
       if (batchResponsePart.isChangeSet()) {
-        appendChangeSet(batchResponsePart);
+        appendChangeSet(batchResponsePart, writer);
       } else {
         ODataResponse response = batchResponsePart.getResponses().get(0);
-        appendResponseBodyPart(response);
+        appendResponseBodyPart(response, writer);
       }
+      writer.flush();
     }
-    writer.append("--").append(boundary).append("--");
+    append(writer, "--" + boundary + "--");
   }
 
-  private void appendResponseBodyPart(final ODataResponse response) throws BatchException {
-    writer.append(BatchConstants.HTTP_CONTENT_TYPE).append(COLON).append(SP).append(BatchConstants.HTTP_APPLICATION_HTTP).append(LF);
-    writer.append(BatchConstants.HTTP_CONTENT_TRANSFER_ENCODING).append(COLON).append(SP).append("binary").append(LF).append(LF);
-    writer.append("HTTP/1.1").append(SP).append(response.getStatus().getStatusCode()).append(SP).append(response.getStatus().getInfo()).append(LF);
-    appendHeader(response);
+  private void appendResponseBodyPart(final ODataResponse response, final OutputStream writer) throws IOException {
+    append(writer, BatchConstants.HTTP_CONTENT_TYPE + COLON + SP + BatchConstants.HTTP_APPLICATION_HTTP + LF);
+    append(writer, BatchConstants.HTTP_CONTENT_TRANSFER_ENCODING + COLON + SP + "binary" + LF + LF);
+    append(writer, "HTTP/1.1" + SP + response.getStatus().getStatusCode() + SP + response.getStatus().getInfo() + LF);
+    appendHeader(response, writer);
     if (!HttpStatusCodes.NO_CONTENT.equals(response.getStatus())) {
-      String body;
-      if (response.getEntity() instanceof InputStream) {
-        InputStream in = (InputStream) response.getEntity();
-        body = readBody(in);
-      } else {
-        body = response.getEntity().toString();
-      }
-      writer.append(BatchConstants.HTTP_CONTENT_LENGTH).append(COLON).append(SP).append(body.length()).append(LF).append(LF);
-      writer.append(body);
+      ByteArrayOutputStream body = new ByteArrayOutputStream(BUFFER_SIZE);
+      readBody(response.getEntity(), body);
+      append(writer, BatchConstants.HTTP_CONTENT_LENGTH + COLON + SP + body.size() + LF + LF);
+      body.writeTo(writer);
     }
-    writer.append(LF).append(LF);
+    append(writer, LF + LF);
   }
 
-  private void appendHeader(final ODataResponse response) {
+  private void appendHeader(final ODataResponse response, final OutputStream writer) throws IOException {
     for (String name : response.getHeaderNames()) {
-      writer.append(name).append(COLON).append(SP).append(response.getHeader(name)).append(LF);
+      append(writer, name + COLON + SP + response.getHeader(name) + LF);
     }
   }
 
+  private void append(final OutputStream writer, final String value) throws IOException {
+    writer.write(value.getBytes(CHARSET));
+  }
+
   private String generateBoundary(final String value) {
     return value + "_" + UUID.randomUUID().toString();
   }
 
-  private String readBody(final InputStream in) throws BatchException {
-    byte[] tmp = new byte[2048];
-    int count;
-    BatchException cachedException = null;
-    StringBuffer b = new StringBuffer();
-    try {
-      count = in.read(tmp);
-      while (count >= 0) {
-        b.append(new String(tmp, 0, count));
-        count = in.read(tmp);
-      }
-    } catch (IOException e) {
-      cachedException = new BatchException(ODataMessageException.COMMON, e);
-      throw cachedException;
-    } finally {// NOPMD (suppress DoNotThrowExceptionInFinally)
+  private void readBody(final Object entity, final OutputStream body) throws IOException {
+    if (entity instanceof ODataStreamingEntity) {
+      ((ODataStreamingEntity) entity).write(body);
+    } else if (entity instanceof InputStream) {
+      InputStream in = (InputStream) entity;
+      byte[] tmp = new byte[BUFFER_SIZE];
       try {
-        in.close();
-      } catch (IOException e) {
-        if (cachedException != null) {
-          throw cachedException;
+        int count = in.read(tmp);
+        while (count >= 0) {
+          body.write(tmp, 0, count);
+          count = in.read(tmp);
         }
+      } finally {
+        in.close();
       }
+    } else if (entity != null) {
+      append(body, entity.toString());
     }
-    return b.toString();
   }
-
 }
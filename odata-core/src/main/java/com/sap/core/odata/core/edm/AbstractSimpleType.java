@@ -15,6 +15,8 @@
  ******************************************************************************/
 package com.sap.core.odata.core.edm;
 
+import java.io.IOException;
+
 import com.sap.core.odata.api.edm.Edm;
 import com.sap.core.odata.api.edm.EdmException;
 import com.sap.core.odata.api.edm.EdmFacets;
@@ -109,6 +111,89 @@ public abstract class AbstractSimpleType implements EdmSimpleType {
 
   protected abstract <T> String internalValueToString(T value, EdmLiteralKind literalKind, EdmFacets facets) throws EdmSimpleTypeException;
 
+  /**
+   * Appends the literal representation of a value to the given target;
+   * the result is the same as that of {@link #valueToString(Object, EdmLiteralKind, EdmFacets)}
+   * but types that support it avoid creating intermediate objects.
+   * @param value       the Java value
+   * @param literalKind the kind of literal representation
+   * @param facets      additional constraints for formatting (optional)
+   * @param target      the {@link Appendable} the literal is appended to
+   * @return <code>false</code> if the value is <code>null</code> and nothing has been appended,
+   *         <code>true</code> otherwise
+   * @throws EdmSimpleTypeException if the value is not valid
+   * @throws IOException if the target throws it
+   */
+  public final boolean appendValue(final Object value, final EdmLiteralKind literalKind, final EdmFacets facets, final Appendable target) throws EdmSimpleTypeException, IOException {
+    if (value == null) {
+      if (facets == null || facets.isNullable() == null || facets.isNullable()) {
+        return false;
+      } else {
+        throw new EdmSimpleTypeException(EdmSimpleTypeException.VALUE_NULL_NOT_ALLOWED);
+      }
+    }
+
+    if (literalKind == null) {
+      throw new EdmSimpleTypeException(EdmSimpleTypeException.LITERAL_KIND_MISSING);
+    }
+
+    if (literalKind == EdmLiteralKind.URI) {
+      target.append(toUriLiteral(internalValueToString(value, literalKind, facets)));
+    } else {
+      internalAppendValue(value, literalKind, facets, target);
+    }
+    return true;
+  }
+
+  /**
+   * Appends the literal representation of a non-<code>null</code> value;
+   * subclasses override this if they can do so without the intermediate String
+   * created by {@link #internalValueToString(Object, EdmLiteralKind, EdmFacets)}.
+   */
+  protected <T> void internalAppendValue(final T value, final EdmLiteralKind literalKind, final EdmFacets facets, final Appendable target) throws EdmSimpleTypeException, IOException {
+    target.append(internalValueToString(value, literalKind, facets));
+  }
+
+  /**
+   * Creates the literal representation with {@link #internalAppendValue(Object, EdmLiteralKind, EdmFacets, Appendable)};
+   * for use in {@link #internalValueToString(Object, EdmLiteralKind, EdmFacets)} of types overriding it.
+   */
+  protected final <T> String appendToString(final T value, final EdmLiteralKind literalKind, final EdmFacets facets, final int capacity) throws EdmSimpleTypeException {
+    StringBuilder result = new StringBuilder(capacity);
+    try {
+      internalAppendValue(value, literalKind, facets, result);
+    } catch (final IOException e) {
+      // cannot happen; a StringBuilder does not throw it
+      throw new EdmSimpleTypeException(EdmSimpleTypeException.COMMON, e);
+    }
+    return result.toString();
+  }
+
+  /**
+   * Appends the decimal representation of a number without creating a String.
+   * @param target the {@link Appendable} the number is appended to
+   * @param number the number
+   * @throws IOException if the target throws it
+   */
+  protected static void appendInteger(final Appendable target, final long number) throws IOException {
+    if (number == Long.MIN_VALUE) {
+      target.append(Long.toString(number));
+      return;
+    }
+    long value = number;
+    if (value < 0) {
+      target.append('-');
+      value = -value;
+    }
+    long divisor = 1;
+    while (divisor <= value / 10) {
+      divisor *= 10;
+    }
+    for (; divisor > 0; divisor /= 10) {
+      target.append((char) ('0' + value / divisor % 10));
+    }
+  }
+
   @Override
   public String toUriLiteral(final String literal) throws EdmSimpleTypeException {
     return literal;
@@ -15,6 +15,8 @@
  ******************************************************************************/
 package com.sap.core.odata.core.edm;
 
+import java.io.IOException;
+
 import com.sap.core.odata.api.edm.EdmFacets;
 import com.sap.core.odata.api.edm.EdmLiteralKind;
 import com.sap.core.odata.api.edm.EdmSimpleType;
@@ -75,9 +77,18 @@ public class EdmByte extends AbstractSimpleType {
 
   @Override
   protected <T> String internalValueToString(final T value, final EdmLiteralKind literalKind, final EdmFacets facets) throws EdmSimpleTypeException {
+    return Long.toString(getLongValue(value));
+  }
+
+  @Override
+  protected <T> void internalAppendValue(final T value, final EdmLiteralKind literalKind, final EdmFacets facets, final Appendable target) throws EdmSimpleTypeException, IOException {
+    appendInteger(target, getLongValue(value));
+  }
+
+  private static long getLongValue(final Object value) throws EdmSimpleTypeException {
     if (value instanceof Byte || value instanceof Short || value instanceof Integer || value instanceof Long) {
       if (((Number) value).longValue() >= 0 && ((Number) value).longValue() <= 255) {
-        return value.toString();
+        return ((Number) value).longValue();
       } else {
         throw new EdmSimpleTypeException(EdmSimpleTypeException.VALUE_ILLEGAL_CONTENT.addContent(value));
       }
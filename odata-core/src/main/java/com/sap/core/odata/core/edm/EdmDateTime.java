@@ -15,6 +15,7 @@
  ******************************************************************************/
 package com.sap.core.odata.core.edm;
 
+import java.io.IOException;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.TimeZone;
@@ -35,6 +36,9 @@ public class EdmDateTime extends AbstractSimpleType {
       "(\\p{Digit}{1,4})-(\\p{Digit}{1,2})-(\\p{Digit}{1,2})"
           + "T(\\p{Digit}{1,2}):(\\p{Digit}{1,2})(?::(\\p{Digit}{1,2})(\\.(\\p{Digit}{0,3}?)0*)?)?");
   private static final Pattern JSON_PATTERN = Pattern.compile("/Date\\((-?\\p{Digit}+)\\)/");
+  private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+  /* first day of the Gregorian calendar, 1582-10-15T00:00:00Z */
+  private static final long GREGORIAN_CUTOVER = -12219292800000L;
   private static final EdmDateTime instance = new EdmDateTime();
 
   public static EdmDateTime getInstance() {
@@ -147,6 +151,11 @@ public class EdmDateTime extends AbstractSimpleType {
 
   @Override
   protected <T> String internalValueToString(final T value, final EdmLiteralKind literalKind, final EdmFacets facets) throws EdmSimpleTypeException {
+    return appendToString(value, literalKind, facets, 23); // 23 characters are enough for millisecond precision.
+  }
+
+  @Override
+  protected <T> void internalAppendValue(final T value, final EdmLiteralKind literalKind, final EdmFacets facets, final Appendable target) throws EdmSimpleTypeException, IOException {
     long timeInMillis;
     if (value instanceof Date) {
       timeInMillis = ((Date) value).getTime();
@@ -159,48 +168,89 @@ public class EdmDateTime extends AbstractSimpleType {
     }
 
     if (literalKind == EdmLiteralKind.JSON) {
-      return "/Date(" + timeInMillis + ")/";
+      target.append("/Date(");
+      appendInteger(target, timeInMillis);
+      target.append(")/");
+      return;
     }
 
-    Calendar dateTimeValue = Calendar.getInstance(TimeZone.getTimeZone("GMT"));
-    dateTimeValue.setTimeInMillis(timeInMillis);
+    try {
+      appendDateTime(target, timeInMillis, facets);
+    } catch (final IllegalArgumentException e) {
+      throw new EdmSimpleTypeException(EdmSimpleTypeException.VALUE_FACETS_NOT_MATCHED.addContent(value, facets), e);
+    }
+  }
+
+  /**
+   * Appends the XML literal representation of a point in time in GMT.
+   * <p>The date fields are computed arithmetically in the proleptic Gregorian
+   * calendar; only for points in time before the Gregorian calendar reform,
+   * where {@link java.util.GregorianCalendar} switches to the Julian calendar,
+   * a {@link Calendar} object is used.</p>
+   * @param result       the {@link Appendable} the literal is appended to
+   * @param timeInMillis milliseconds since 1970-01-01T00:00:00Z
+   * @param facets       additional constraints for formatting (optional)
+   * @throws IOException if the target throws it
+   * @throws IllegalArgumentException if the precision in the facets is too small
+   */
+  protected static void appendDateTime(final Appendable result, final long timeInMillis, final EdmFacets facets) throws IOException, IllegalArgumentException {
+    int year;
+    int month;
+    int day;
+    int millisOfDay;
+    if (timeInMillis < GREGORIAN_CUTOVER) {
+      Calendar dateTimeValue = Calendar.getInstance(TimeZone.getTimeZone("GMT"));
+      dateTimeValue.setTimeInMillis(timeInMillis);
+      year = dateTimeValue.get(Calendar.YEAR);
+      month = dateTimeValue.get(Calendar.MONTH) + 1; // month is zero-based
+      day = dateTimeValue.get(Calendar.DAY_OF_MONTH);
+      millisOfDay = ((dateTimeValue.get(Calendar.HOUR_OF_DAY) * 60
+          + dateTimeValue.get(Calendar.MINUTE)) * 60
+          + dateTimeValue.get(Calendar.SECOND)) * 1000;
+    } else {
+      final long days = timeInMillis / MILLIS_PER_DAY - (timeInMillis % MILLIS_PER_DAY < 0 ? 1 : 0);
+      millisOfDay = (int) (timeInMillis - days * MILLIS_PER_DAY);
+      // conversion from days since 1970-01-01 to year, month, and day,
+      // counting years from March to February so that the leap day comes last
+      final long shiftedDays = days + 719468; // days since 0000-03-01
+      final long era = (shiftedDays >= 0 ? shiftedDays : shiftedDays - 146096) / 146097; // 400-year cycles
+      final int dayOfEra = (int) (shiftedDays - era * 146097);
+      final int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+      final int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+      final int shiftedMonth = (5 * dayOfYear + 2) / 153;
+      day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+      month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+      year = (int) (yearOfEra + era * 400) + (month <= 2 ? 1 : 0);
+    }
 
-    StringBuilder result = new StringBuilder(23); // 23 characters are enough for millisecond precision.
-    final int year = dateTimeValue.get(Calendar.YEAR);
     appendTwoDigits(result, year / 100);
     appendTwoDigits(result, year % 100);
     result.append('-');
-    appendTwoDigits(result, dateTimeValue.get(Calendar.MONTH) + 1); // month is zero-based
+    appendTwoDigits(result, month);
     result.append('-');
-    appendTwoDigits(result, dateTimeValue.get(Calendar.DAY_OF_MONTH));
+    appendTwoDigits(result, day);
     result.append('T');
-    appendTwoDigits(result, dateTimeValue.get(Calendar.HOUR_OF_DAY));
+    appendTwoDigits(result, millisOfDay / 3600000);
     result.append(':');
-    appendTwoDigits(result, dateTimeValue.get(Calendar.MINUTE));
+    appendTwoDigits(result, millisOfDay / 60000 % 60);
     result.append(':');
-    appendTwoDigits(result, dateTimeValue.get(Calendar.SECOND));
-
-    try {
-      appendMilliseconds(result, timeInMillis, facets);
-    } catch (final IllegalArgumentException e) {
-      throw new EdmSimpleTypeException(EdmSimpleTypeException.VALUE_FACETS_NOT_MATCHED.addContent(value, facets), e);
-    }
+    appendTwoDigits(result, millisOfDay / 1000 % 60);
 
-    return result.toString();
+    appendMilliseconds(result, timeInMillis, facets);
   }
 
   /**
-   * Appends the given number to the given string builder,
+   * Appends the given number to the given target,
    * assuming that the number has at most two digits, performance-optimized.
-   * @param result a {@link StringBuilder}
+   * @param result an {@link Appendable}
    * @param number an integer that must satisfy <code>0 <= number <= 99</code>
    */
-  private static void appendTwoDigits(final StringBuilder result, final int number) {
+  private static void appendTwoDigits(final Appendable result, final int number) throws IOException {
     result.append((char) ('0' + number / 10));
     result.append((char) ('0' + number % 10));
   }
 
-  protected static void appendMilliseconds(final StringBuilder result, final long milliseconds, final EdmFacets facets) throws IllegalArgumentException {
+  protected static void appendMilliseconds(final Appendable result, final long milliseconds, final EdmFacets facets) throws IOException, IllegalArgumentException {
     final int digits = milliseconds % 1000 == 0 ? 0 : milliseconds % 100 == 0 ? 1 : milliseconds % 10 == 0 ? 2 : 3;
     if (digits > 0) {
       result.append('.');
@@ -15,6 +15,7 @@
  ******************************************************************************/
 package com.sap.core.odata.core.edm;
 
+import java.io.IOException;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.TimeZone;
@@ -119,16 +120,19 @@ public class EdmDateTimeOffset extends AbstractSimpleType {
 
   @Override
   protected <T> String internalValueToString(final T value, final EdmLiteralKind literalKind, final EdmFacets facets) throws EdmSimpleTypeException {
-    Long milliSeconds; // number of milliseconds since 1970-01-01T00:00:00Z
+    return appendToString(value, literalKind, facets, 29); // 29 characters are enough for millisecond precision.
+  }
+
+  @Override
+  protected <T> void internalAppendValue(final T value, final EdmLiteralKind literalKind, final EdmFacets facets, final Appendable target) throws EdmSimpleTypeException, IOException {
+    long milliSeconds; // number of milliseconds since 1970-01-01T00:00:00Z
     int offset; // offset in milliseconds from GMT to the requested time zone
     if (value instanceof Date) {
       milliSeconds = ((Date) value).getTime();
       // Although java.util.Date, as stated in its documentation,
       // "is intended to reflect coordinated universal time (UTC)",
       // its toString() method uses the default time zone. And so do we.
-      Calendar dateTimeValue = Calendar.getInstance();
-      dateTimeValue.setTime((Date) value);
-      offset = dateTimeValue.get(Calendar.ZONE_OFFSET) + dateTimeValue.get(Calendar.DST_OFFSET);
+      offset = TimeZone.getDefault().getOffset(milliSeconds);
     } else if (value instanceof Calendar) {
       final Calendar dateTimeValue = (Calendar) ((Calendar) value).clone();
       milliSeconds = dateTimeValue.getTimeInMillis();
@@ -144,16 +148,42 @@ public class EdmDateTimeOffset extends AbstractSimpleType {
     final int offsetInMinutes = offset / 60 / 1000;
 
     if (literalKind == EdmLiteralKind.JSON) {
-      return "/Date(" + milliSeconds + (offset == 0 ? "" : String.format("%+05d", offsetInMinutes)) + ")/";
+      target.append("/Date(");
+      appendInteger(target, milliSeconds);
+      if (offset != 0) {
+        // same as String.format("%+05d", offsetInMinutes)
+        target.append(offsetInMinutes < 0 ? '-' : '+');
+        appendDigits(target, Math.abs(offsetInMinutes), 4);
+      }
+      target.append(")/");
 
     } else {
-      final String localTimeString = EdmDateTime.getInstance().valueToString(milliSeconds, EdmLiteralKind.DEFAULT, facets);
-      final int offsetHours = offsetInMinutes / 60;
-      final int offsetMinutes = Math.abs(offsetInMinutes % 60);
-      final String offsetString = offset == 0 ? "Z" : String.format("%+03d:%02d", offsetHours, offsetMinutes);
+      try {
+        EdmDateTime.appendDateTime(target, milliSeconds, facets);
+      } catch (final IllegalArgumentException e) {
+        throw new EdmSimpleTypeException(EdmSimpleTypeException.VALUE_FACETS_NOT_MATCHED.addContent(milliSeconds, facets), e);
+      }
+      if (offset == 0) {
+        target.append('Z');
+      } else {
+        // same as String.format("%+03d:%02d", offsetHours, offsetMinutes)
+        final int offsetHours = offsetInMinutes / 60;
+        final int offsetMinutes = Math.abs(offsetInMinutes % 60);
+        target.append(offsetHours < 0 ? '-' : '+');
+        appendDigits(target, Math.abs(offsetHours), 2);
+        target.append(':');
+        appendDigits(target, offsetMinutes, 2);
+      }
+    }
+  }
 
-      return localTimeString + offsetString;
+  private static void appendDigits(final Appendable target, final int number, final int minimumDigits) throws IOException {
+    for (int limit = 10, digits = 1; digits < minimumDigits; limit *= 10, digits++) {
+      if (number < limit) {
+        target.append('0');
+      }
     }
+    appendInteger(target, number);
   }
 
   @Override
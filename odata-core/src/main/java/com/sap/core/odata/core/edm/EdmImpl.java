@@ -15,8 +15,8 @@
  ******************************************************************************/
 package com.sap.core.odata.core.edm;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.sap.core.odata.api.edm.Edm;
 import com.sap.core.odata.api.edm.EdmAssociation;
@@ -27,52 +27,63 @@ import com.sap.core.odata.api.edm.EdmException;
 import com.sap.core.odata.api.edm.EdmServiceMetadata;
 import com.sap.core.odata.api.edm.FullQualifiedName;
 import com.sap.core.odata.api.exception.ODataException;
+import com.sap.core.odata.core.uri.ResourcePathCache;
+import com.sap.core.odata.core.uri.expression.ExpressionCache;
 
 /**
+ * Lazily resolves and caches the metadata objects of an entity data model.
+ * The caches are safe for concurrent access so that one instance can be
+ * shared between requests.
  * @author SAP AG
  */
 public abstract class EdmImpl implements Edm {
 
+  private volatile EdmEntityContainer defaultEntityContainer;
   private Map<String, EdmEntityContainer> edmEntityContainers;
   private Map<FullQualifiedName, EdmEntityType> edmEntityTypes;
   private Map<FullQualifiedName, EdmComplexType> edmComplexTypes;
   private Map<FullQualifiedName, EdmAssociation> edmAssociations;
 
+  private final ResourcePathCache resourcePathCache = new ResourcePathCache();
+  private final ExpressionCache expressionCache = new ExpressionCache();
+
   protected EdmServiceMetadata edmServiceMetadata;
 
   public EdmImpl(final EdmServiceMetadata edmServiceMetadata) {
-    edmEntityContainers = new HashMap<String, EdmEntityContainer>();
-    edmEntityTypes = new HashMap<FullQualifiedName, EdmEntityType>();
-    edmComplexTypes = new HashMap<FullQualifiedName, EdmComplexType>();
-    edmAssociations = new HashMap<FullQualifiedName, EdmAssociation>();
+    edmEntityContainers = new ConcurrentHashMap<String, EdmEntityContainer>();
+    edmEntityTypes = new ConcurrentHashMap<FullQualifiedName, EdmEntityType>();
+    edmComplexTypes = new ConcurrentHashMap<FullQualifiedName, EdmComplexType>();
+    edmAssociations = new ConcurrentHashMap<FullQualifiedName, EdmAssociation>();
     this.edmServiceMetadata = edmServiceMetadata;
   }
 
   @Override
   public EdmEntityContainer getEntityContainer(final String name) throws EdmException {
-    if (edmEntityContainers.containsKey(name)) {
-      return edmEntityContainers.get(name);
+    EdmEntityContainer edmEntityContainer = name == null ? defaultEntityContainer : edmEntityContainers.get(name);
+    if (edmEntityContainer != null) {
+      return edmEntityContainer;
     }
 
-    EdmEntityContainer edmEntityContainer = null;
-
     try {
       edmEntityContainer = createEntityContainer(name);
-      if (edmEntityContainer != null) {
-        if (name == null && edmEntityContainers.containsKey(edmEntityContainer.getName())) {
-          //ensure that the same default entity container is stored in the HashMap under null and its name 
-          edmEntityContainer = edmEntityContainers.get(edmEntityContainer.getName());
-          edmEntityContainers.put(name, edmEntityContainer);
-        } else if (edmEntityContainers.containsKey(null) && edmEntityContainers.get(null) != null && name.equals(edmEntityContainers.get(null).getName())) {
-          //ensure that the same default entity container is stored in the HashMap under null and its name        
-          edmEntityContainer = edmEntityContainers.get(null);
-          edmEntityContainers.put(name, edmEntityContainer);
+    } catch (ODataException e) {
+      throw new EdmException(EdmException.COMMON, e);
+    }
+
+    if (edmEntityContainer != null) {
+      //ensure that the same default entity container is returned for null and its name
+      final String containerName = edmEntityContainer.getName();
+      if (containerName != null) {
+        final EdmEntityContainer cached = edmEntityContainers.get(containerName);
+        if (cached == null) {
+          edmEntityContainers.put(containerName, edmEntityContainer);
         } else {
-          edmEntityContainers.put(name, edmEntityContainer);
+          edmEntityContainer = cached;
         }
       }
-    } catch (ODataException e) {
-      throw new EdmException(EdmException.COMMON, e);
+      if (name == null) {
+        defaultEntityContainer = edmEntityContainer;
+      }
     }
 
     return edmEntityContainer;
@@ -81,12 +92,11 @@ public abstract class EdmImpl implements Edm {
   @Override
   public EdmEntityType getEntityType(final String namespace, final String name) throws EdmException {
     FullQualifiedName fqName = new FullQualifiedName(namespace, name);
-    if (edmEntityTypes.containsKey(fqName)) {
-      return edmEntityTypes.get(fqName);
+    EdmEntityType edmEntityType = edmEntityTypes.get(fqName);
+    if (edmEntityType != null) {
+      return edmEntityType;
     }
 
-    EdmEntityType edmEntityType = null;
-
     try {
       edmEntityType = createEntityType(fqName);
       if (edmEntityType != null) {
@@ -102,12 +112,11 @@ public abstract class EdmImpl implements Edm {
   @Override
   public EdmComplexType getComplexType(final String namespace, final String name) throws EdmException {
     FullQualifiedName fqName = new FullQualifiedName(namespace, name);
-    if (edmComplexTypes.containsKey(fqName)) {
-      return edmComplexTypes.get(fqName);
+    EdmComplexType edmComplexType = edmComplexTypes.get(fqName);
+    if (edmComplexType != null) {
+      return edmComplexType;
     }
 
-    EdmComplexType edmComplexType = null;
-
     try {
       edmComplexType = createComplexType(fqName);
       if (edmComplexType != null) {
@@ -123,12 +132,11 @@ public abstract class EdmImpl implements Edm {
   @Override
   public EdmAssociation getAssociation(final String namespace, final String name) throws EdmException {
     FullQualifiedName fqName = new FullQualifiedName(namespace, name);
-    if (edmAssociations.containsKey(fqName)) {
-      return edmAssociations.get(fqName);
+    EdmAssociation edmAssociation = edmAssociations.get(fqName);
+    if (edmAssociation != null) {
+      return edmAssociation;
     }
 
-    EdmAssociation edmAssociation = null;
-
     try {
       edmAssociation = createAssociation(fqName);
       if (edmAssociation != null) {
@@ -141,6 +149,20 @@ public abstract class EdmImpl implements Edm {
     return edmAssociation;
   }
 
+  /**
+   * @return the cache of parsed resource paths for this entity data model
+   */
+  public ResourcePathCache getResourcePathCache() {
+    return resourcePathCache;
+  }
+
+  /**
+   * @return the cache of parsed $filter and $orderby expressions for this entity data model
+   */
+  public ExpressionCache getExpressionCache() {
+    return expressionCache;
+  }
+
   @Override
   public EdmServiceMetadata getServiceMetadata() {
     return edmServiceMetadata;
@@ -15,6 +15,8 @@
  ******************************************************************************/
 package com.sap.core.odata.core.edm;
 
+import java.io.IOException;
+
 import com.sap.core.odata.api.edm.EdmFacets;
 import com.sap.core.odata.api.edm.EdmLiteralKind;
 import com.sap.core.odata.api.edm.EdmSimpleType;
@@ -79,11 +81,20 @@ public class EdmInt32 extends AbstractSimpleType {
 
   @Override
   protected <T> String internalValueToString(final T value, final EdmLiteralKind literalKind, final EdmFacets facets) throws EdmSimpleTypeException {
+    return Long.toString(getLongValue(value));
+  }
+
+  @Override
+  protected <T> void internalAppendValue(final T value, final EdmLiteralKind literalKind, final EdmFacets facets, final Appendable target) throws EdmSimpleTypeException, IOException {
+    appendInteger(target, getLongValue(value));
+  }
+
+  private static long getLongValue(final Object value) throws EdmSimpleTypeException {
     if (value instanceof Byte || value instanceof Short || value instanceof Integer) {
-      return value.toString();
+      return ((Number) value).longValue();
     } else if (value instanceof Long) {
       if ((Long) value >= Integer.MIN_VALUE && (Long) value <= Integer.MAX_VALUE) {
-        return value.toString();
+        return (Long) value;
       } else {
         throw new EdmSimpleTypeException(EdmSimpleTypeException.VALUE_ILLEGAL_CONTENT.addContent(value));
       }
@@ -15,6 +15,7 @@
  ******************************************************************************/
 package com.sap.core.odata.core.edm;
 
+import java.io.IOException;
 import java.math.BigInteger;
 
 import com.sap.core.odata.api.edm.EdmFacets;
@@ -96,11 +97,20 @@ public class EdmInt64 extends AbstractSimpleType {
 
   @Override
   protected <T> String internalValueToString(final T value, final EdmLiteralKind literalKind, final EdmFacets facets) throws EdmSimpleTypeException {
+    return Long.toString(getLongValue(value));
+  }
+
+  @Override
+  protected <T> void internalAppendValue(final T value, final EdmLiteralKind literalKind, final EdmFacets facets, final Appendable target) throws EdmSimpleTypeException, IOException {
+    appendInteger(target, getLongValue(value));
+  }
+
+  private static long getLongValue(final Object value) throws EdmSimpleTypeException {
     if (value instanceof Byte || value instanceof Short || value instanceof Integer || value instanceof Long) {
-      return value.toString();
+      return ((Number) value).longValue();
     } else if (value instanceof BigInteger) {
       if (((BigInteger) value).bitLength() < Long.SIZE) {
-        return value.toString();
+        return ((BigInteger) value).longValue();
       } else {
         throw new EdmSimpleTypeException(EdmSimpleTypeException.VALUE_ILLEGAL_CONTENT.addContent(value));
       }
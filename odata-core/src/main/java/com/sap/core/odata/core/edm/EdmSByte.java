@@ -15,6 +15,8 @@
  ******************************************************************************/
 package com.sap.core.odata.core.edm;
 
+import java.io.IOException;
+
 import com.sap.core.odata.api.edm.EdmFacets;
 import com.sap.core.odata.api.edm.EdmLiteralKind;
 import com.sap.core.odata.api.edm.EdmSimpleType;
@@ -68,11 +70,20 @@ public class EdmSByte extends AbstractSimpleType {
 
   @Override
   protected <T> String internalValueToString(final T value, final EdmLiteralKind literalKind, final EdmFacets facets) throws EdmSimpleTypeException {
+    return Long.toString(getLongValue(value));
+  }
+
+  @Override
+  protected <T> void internalAppendValue(final T value, final EdmLiteralKind literalKind, final EdmFacets facets, final Appendable target) throws EdmSimpleTypeException, IOException {
+    appendInteger(target, getLongValue(value));
+  }
+
+  private static long getLongValue(final Object value) throws EdmSimpleTypeException {
     if (value instanceof Byte) {
-      return value.toString();
+      return ((Number) value).longValue();
     } else if (value instanceof Short || value instanceof Integer || value instanceof Long) {
       if (((Number) value).longValue() >= Byte.MIN_VALUE && ((Number) value).longValue() <= Byte.MAX_VALUE) {
-        return value.toString();
+        return ((Number) value).longValue();
       } else {
         throw new EdmSimpleTypeException(EdmSimpleTypeException.VALUE_ILLEGAL_CONTENT.addContent(value));
       }
@@ -15,6 +15,7 @@
  ******************************************************************************/
 package com.sap.core.odata.core.edm;
 
+import java.io.IOException;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.TimeZone;
@@ -35,6 +36,7 @@ import com.sap.core.odata.api.edm.EdmSimpleTypeException;
  */
 public class EdmTime extends AbstractSimpleType {
 
+  private static final int MILLIS_PER_DAY = 24 * 60 * 60 * 1000;
   private static final Pattern PATTERN = Pattern.compile(
       "PT(?:(\\p{Digit}{1,2})H)?(?:(\\p{Digit}{1,4})M)?(?:(\\p{Digit}{1,5})(?:\\.(\\p{Digit}+?)0*)?S)?");
   private static final EdmTime instance = new EdmTime();
@@ -114,39 +116,47 @@ public class EdmTime extends AbstractSimpleType {
 
   @Override
   protected <T> String internalValueToString(final T value, final EdmLiteralKind literalKind, final EdmFacets facets) throws EdmSimpleTypeException {
-    Calendar dateTimeValue;
+    return appendToString(value, literalKind, facets, 15); // 15 characters are enough for millisecond precision.
+  }
+
+  @Override
+  protected <T> void internalAppendValue(final T value, final EdmLiteralKind literalKind, final EdmFacets facets, final Appendable result) throws EdmSimpleTypeException, IOException {
+    int millisOfDay;
     if (value instanceof Date) {
-      dateTimeValue = Calendar.getInstance();
-      dateTimeValue.clear();
-      dateTimeValue.setTime((Date) value);
+      final long timeInMillis = ((Date) value).getTime();
+      millisOfDay = getMillisOfDay(timeInMillis + TimeZone.getDefault().getOffset(timeInMillis));
     } else if (value instanceof Calendar) {
-      dateTimeValue = (Calendar) ((Calendar) value).clone();
+      final Calendar dateTimeValue = (Calendar) ((Calendar) value).clone();
+      millisOfDay = ((dateTimeValue.get(Calendar.HOUR_OF_DAY) * 60
+          + dateTimeValue.get(Calendar.MINUTE)) * 60
+          + dateTimeValue.get(Calendar.SECOND)) * 1000
+          + dateTimeValue.get(Calendar.MILLISECOND);
     } else if (value instanceof Long) {
-      dateTimeValue = Calendar.getInstance(TimeZone.getTimeZone("GMT"));
-      dateTimeValue.clear();
-      dateTimeValue.setTimeInMillis((Long) value);
+      millisOfDay = getMillisOfDay((Long) value);
     } else {
       throw new EdmSimpleTypeException(EdmSimpleTypeException.VALUE_TYPE_NOT_SUPPORTED.addContent(value.getClass()));
     }
 
-    StringBuilder result = new StringBuilder(15); // 15 characters are enough for millisecond precision.
     result.append('P');
     result.append('T');
-    result.append(dateTimeValue.get(Calendar.HOUR_OF_DAY));
+    appendInteger(result, millisOfDay / 3600000);
     result.append('H');
-    result.append(dateTimeValue.get(Calendar.MINUTE));
+    appendInteger(result, millisOfDay / 60000 % 60);
     result.append('M');
-    result.append(dateTimeValue.get(Calendar.SECOND));
+    appendInteger(result, millisOfDay / 1000 % 60);
 
     try {
-      EdmDateTime.appendMilliseconds(result, dateTimeValue.get(Calendar.MILLISECOND), facets);
+      EdmDateTime.appendMilliseconds(result, millisOfDay % 1000, facets);
     } catch (final IllegalArgumentException e) {
       throw new EdmSimpleTypeException(EdmSimpleTypeException.VALUE_FACETS_NOT_MATCHED.addContent(value, facets), e);
     }
 
     result.append('S');
+  }
 
-    return result.toString();
+  private static int getMillisOfDay(final long timeInMillis) {
+    final int millisOfDay = (int) (timeInMillis % MILLIS_PER_DAY);
+    return millisOfDay < 0 ? millisOfDay + MILLIS_PER_DAY : millisOfDay;
   }
 
   @Override
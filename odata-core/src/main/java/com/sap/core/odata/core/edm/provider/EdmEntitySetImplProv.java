@@ -15,6 +15,9 @@
  ******************************************************************************/
 package com.sap.core.odata.core.edm.provider;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import com.sap.core.odata.api.edm.EdmAnnotatable;
 import com.sap.core.odata.api.edm.EdmAnnotations;
 import com.sap.core.odata.api.edm.EdmAssociationSet;
@@ -27,12 +30,14 @@ import com.sap.core.odata.api.edm.EdmMapping;
 import com.sap.core.odata.api.edm.EdmNavigationProperty;
 import com.sap.core.odata.api.edm.FullQualifiedName;
 import com.sap.core.odata.api.edm.provider.EntitySet;
+import com.sap.core.odata.core.ep.aggregator.EntityInfoAggregator;
 
 public class EdmEntitySetImplProv extends EdmNamedImplProv implements EdmEntitySet, EdmAnnotatable {
 
   private EntitySet entitySet;
   private EdmEntityContainer edmEntityContainer;
   private EdmEntityType edmEntityType;
+  private final Map<String, EntityInfoAggregator> entityInfoAggregators = new ConcurrentHashMap<String, EntityInfoAggregator>();
 
   public EdmEntitySetImplProv(final EdmImplProv edm, final EntitySet entitySet, final EdmEntityContainer edmEntityContainer) throws EdmException {
     super(edm, entitySet.getName());
@@ -71,6 +76,14 @@ public class EdmEntitySetImplProv extends EdmNamedImplProv implements EdmEntityS
     return edmEntityContainer;
   }
 
+  /**
+   * @return the serialization information of this entity set,
+   *         created by {@link EntityInfoAggregator} per expand/select shape
+   */
+  public Map<String, EntityInfoAggregator> getEntityInfoAggregators() {
+    return entityInfoAggregators;
+  }
+
   @Override
   public EdmAnnotations getAnnotations() throws EdmException {
     return new EdmAnnotationsImplProv(entitySet.getAnnotationAttributes(), entitySet.getAnnotationElements());
@@ -15,20 +15,23 @@
  ******************************************************************************/
 package com.sap.core.odata.core.edm.provider;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 
 import com.sap.core.odata.api.ODataServiceVersion;
 import com.sap.core.odata.api.edm.EdmEntitySetInfo;
 import com.sap.core.odata.api.edm.EdmServiceMetadata;
+import com.sap.core.odata.api.edm.EdmServiceMetadataETag;
 import com.sap.core.odata.api.edm.provider.DataServices;
 import com.sap.core.odata.api.edm.provider.EdmProvider;
 import com.sap.core.odata.api.edm.provider.EntityContainer;
@@ -39,17 +42,21 @@ import com.sap.core.odata.api.edm.provider.Schema;
 import com.sap.core.odata.api.ep.EntityProviderException;
 import com.sap.core.odata.api.exception.ODataException;
 import com.sap.core.odata.core.ep.producer.XmlMetadataProducer;
-import com.sap.core.odata.core.ep.util.CircleStreamBuffer;
+import com.sap.core.odata.core.ep.util.CachedContent;
+import com.sap.core.odata.core.ep.util.XmlStreamFactories;
 
 /**
  * @author SAP AG
  */
-public class EdmServiceMetadataImplProv implements EdmServiceMetadata {
+public class EdmServiceMetadataImplProv implements EdmServiceMetadata, EdmServiceMetadataETag {
 
   private EdmProvider edmProvider;
-  private String dataServiceVersion;
-  private List<Schema> schemas;
-  private List<EdmEntitySetInfo> entitySetInfos;
+  private volatile String dataServiceVersion;
+  private volatile List<Schema> schemas;
+  private volatile List<EdmEntitySetInfo> entitySetInfos;
+  private volatile CachedContent metadataDocument;
+  /* serialized service document per format, see getServiceDocument */
+  private final Map<String, ServiceDocument> serviceDocuments = new ConcurrentHashMap<String, ServiceDocument>();
 
   public EdmServiceMetadataImplProv(final EdmProvider edmProvider) {
     this.edmProvider = edmProvider;
@@ -57,39 +64,79 @@ public class EdmServiceMetadataImplProv implements EdmServiceMetadata {
 
   @Override
   public InputStream getMetadata() throws ODataException {
-    if (schemas == null) {
-      schemas = edmProvider.getSchemas();
-    }
+    return getSerializedMetadata().getInputStream();
+  }
+
+  @Override
+  public String getMetadataETag() throws ODataException {
+    return getSerializedMetadata().getETag();
+  }
+
+  /**
+   * Returns the service document serialized before for the given format.
+   * Only the document for the most recently used service root is kept per
+   * format, because the service root is taken from the request.
+   * @param format format of the service document, e.g., <code>atom</code>
+   * @param serviceRoot service root written into the document or <code>null</code>
+   * if the document does not contain it
+   * @return the serialized service document or <code>null</code>
+   */
+  public CachedContent getServiceDocument(final String format, final String serviceRoot) {
+    final ServiceDocument serviceDocument = serviceDocuments.get(format);
+    return serviceDocument == null
+        || (serviceRoot == null ? serviceDocument.serviceRoot != null : !serviceRoot.equals(serviceDocument.serviceRoot)) ?
+        null : serviceDocument.content;
+  }
+
+  /**
+   * Keeps the serialized service document for the given format and service root.
+   * @see #getServiceDocument(String, String)
+   */
+  public void setServiceDocument(final String format, final String serviceRoot, final CachedContent content) {
+    serviceDocuments.put(format, new ServiceDocument(serviceRoot, content));
+  }
+
+  /*
+   * The metadata document is serialized once; concurrent first calls may both
+   * serialize it, with identical results.
+   */
+  private CachedContent getSerializedMetadata() throws ODataException {
+    if (metadataDocument == null) {
+      if (schemas == null) {
+        schemas = edmProvider.getSchemas();
+      }
 
-    OutputStreamWriter writer = null;
-    CircleStreamBuffer csb = new CircleStreamBuffer();
-    EntityProviderException cachedException = null;
-    DataServices metadata = new DataServices().setSchemas(schemas).setDataServiceVersion(getDataServiceVersion());
-
-    try {
-      writer = new OutputStreamWriter(csb.getOutputStream(), "UTF-8");
-      XMLStreamWriter xmlStreamWriter = XMLOutputFactory.newInstance().createXMLStreamWriter(writer);
-      XmlMetadataProducer.writeMetadata(metadata, xmlStreamWriter, null);
-      return csb.getInputStream();
-    } catch (XMLStreamException e) {
-      cachedException = new EntityProviderException(EntityProviderException.COMMON, e);
-      throw cachedException;
-    } catch (UnsupportedEncodingException e) {
-      cachedException = new EntityProviderException(EntityProviderException.COMMON, e);
-      throw cachedException;
-    } finally {// NOPMD (suppress DoNotThrowExceptionInFinally)
-      if (writer != null) {
-        try {
-          writer.close();
-        } catch (IOException e) {
-          if (cachedException != null) {
-            throw cachedException;
-          } else {
-            throw new EntityProviderException(EntityProviderException.COMMON, e);
+      OutputStreamWriter writer = null;
+      ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      EntityProviderException cachedException = null;
+      DataServices metadata = new DataServices().setSchemas(schemas).setDataServiceVersion(getDataServiceVersion());
+
+      try {
+        writer = new OutputStreamWriter(buffer, "UTF-8");
+        XMLStreamWriter xmlStreamWriter = XmlStreamFactories.getOutputFactory().createXMLStreamWriter(writer);
+        XmlMetadataProducer.writeMetadata(metadata, xmlStreamWriter, null);
+      } catch (XMLStreamException e) {
+        cachedException = new EntityProviderException(EntityProviderException.COMMON, e);
+        throw cachedException;
+      } catch (UnsupportedEncodingException e) {
+        cachedException = new EntityProviderException(EntityProviderException.COMMON, e);
+        throw cachedException;
+      } finally {// NOPMD (suppress DoNotThrowExceptionInFinally)
+        if (writer != null) {
+          try {
+            writer.close();
+          } catch (IOException e) {
+            if (cachedException != null) {
+              throw cachedException;
+            } else {
+              throw new EntityProviderException(EntityProviderException.COMMON, e);
+            }
           }
         }
       }
+      metadataDocument = new CachedContent(buffer.toByteArray());
     }
+    return metadataDocument;
   }
 
   @Override
@@ -99,31 +146,32 @@ public class EdmServiceMetadataImplProv implements EdmServiceMetadata {
     }
 
     if (dataServiceVersion == null) {
-      dataServiceVersion = ODataServiceVersion.V10;
-
-      if (schemas != null) {
-        for (Schema schema : schemas) {
-          List<EntityType> entityTypes = schema.getEntityTypes();
-          if (entityTypes != null) {
-            for (EntityType entityType : entityTypes) {
-              List<Property> properties = entityType.getProperties();
-              if (properties != null) {
-                for (Property property : properties) {
-                  if (property.getCustomizableFeedMappings() != null) {
-                    if (property.getCustomizableFeedMappings().getFcKeepInContent() != null) {
-                      if (!property.getCustomizableFeedMappings().getFcKeepInContent()) {
-                        dataServiceVersion = ODataServiceVersion.V20;
-                        return dataServiceVersion;
-                      }
+      dataServiceVersion = determineDataServiceVersion();
+    }
+    return dataServiceVersion;
+  }
+
+  private String determineDataServiceVersion() {
+    if (schemas != null) {
+      for (Schema schema : schemas) {
+        List<EntityType> entityTypes = schema.getEntityTypes();
+        if (entityTypes != null) {
+          for (EntityType entityType : entityTypes) {
+            List<Property> properties = entityType.getProperties();
+            if (properties != null) {
+              for (Property property : properties) {
+                if (property.getCustomizableFeedMappings() != null) {
+                  if (property.getCustomizableFeedMappings().getFcKeepInContent() != null) {
+                    if (!property.getCustomizableFeedMappings().getFcKeepInContent()) {
+                      return ODataServiceVersion.V20;
                     }
                   }
                 }
-                if (entityType.getCustomizableFeedMappings() != null) {
-                  if (entityType.getCustomizableFeedMappings().getFcKeepInContent() != null) {
-                    if (entityType.getCustomizableFeedMappings().getFcKeepInContent()) {
-                      dataServiceVersion = ODataServiceVersion.V20;
-                      return dataServiceVersion;
-                    }
+              }
+              if (entityType.getCustomizableFeedMappings() != null) {
+                if (entityType.getCustomizableFeedMappings().getFcKeepInContent() != null) {
+                  if (entityType.getCustomizableFeedMappings().getFcKeepInContent()) {
+                    return ODataServiceVersion.V20;
                   }
                 }
               }
@@ -132,13 +180,13 @@ public class EdmServiceMetadataImplProv implements EdmServiceMetadata {
         }
       }
     }
-    return dataServiceVersion;
+    return ODataServiceVersion.V10;
   }
 
   @Override
   public List<EdmEntitySetInfo> getEntitySetInfos() throws ODataException {
     if (entitySetInfos == null) {
-      entitySetInfos = new ArrayList<EdmEntitySetInfo>();
+      List<EdmEntitySetInfo> infos = new ArrayList<EdmEntitySetInfo>();
 
       if (schemas == null) {
         schemas = edmProvider.getSchemas();
@@ -148,13 +196,24 @@ public class EdmServiceMetadataImplProv implements EdmServiceMetadata {
         for (EntityContainer entityContainer : schema.getEntityContainers()) {
           for (EntitySet entitySet : entityContainer.getEntitySets()) {
             EdmEntitySetInfo entitySetInfo = new EdmEntitySetInfoImplProv(entitySet, entityContainer);
-            entitySetInfos.add(entitySetInfo);
+            infos.add(entitySetInfo);
           }
         }
       }
+      entitySetInfos = infos;
 
     }
 
     return entitySetInfos;
   }
+
+  private static final class ServiceDocument {
+    private final String serviceRoot;
+    private final CachedContent content;
+
+    private ServiceDocument(final String serviceRoot, final CachedContent content) {
+      this.serviceRoot = serviceRoot;
+      this.content = content;
+    }
+  }
 }
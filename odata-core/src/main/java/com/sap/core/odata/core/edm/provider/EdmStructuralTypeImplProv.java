@@ -19,6 +19,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.sap.core.odata.api.edm.Edm;
 import com.sap.core.odata.api.edm.EdmAnnotatable;
@@ -44,7 +45,7 @@ public abstract class EdmStructuralTypeImplProv extends EdmNamedImplProv impleme
   protected String namespace;
   protected Map<String, EdmTyped> edmProperties;
   private Map<String, Property> properties;
-  private List<String> edmPropertyNames;
+  private volatile List<String> edmPropertyNames;
 
   public EdmStructuralTypeImplProv(final EdmImplProv edm, final ComplexType structuralType, final EdmTypeKind edmTypeKind, final String namespace) throws EdmException {
     super(edm, structuralType.getName());
@@ -56,7 +57,7 @@ public abstract class EdmStructuralTypeImplProv extends EdmNamedImplProv impleme
 
     buildPropertiesInternal();
 
-    edmProperties = new HashMap<String, EdmTyped>();
+    edmProperties = new ConcurrentHashMap<String, EdmTyped>();
   }
 
   private void resolveBaseType() throws EdmException {
@@ -90,7 +91,7 @@ public abstract class EdmStructuralTypeImplProv extends EdmNamedImplProv impleme
 
   @Override
   public EdmTyped getProperty(final String name) throws EdmException {
-    EdmTyped property = edmProperties.get(name);
+    EdmTyped property = name == null ? null : edmProperties.get(name);
     if (property == null) {
       property = getPropertyInternal(name);
       if (property == null && edmBaseType != null) {
@@ -103,15 +104,16 @@ public abstract class EdmStructuralTypeImplProv extends EdmNamedImplProv impleme
   @Override
   public List<String> getPropertyNames() throws EdmException {
     if (edmPropertyNames == null) {
-      edmPropertyNames = new ArrayList<String>();
+      List<String> propertyNames = new ArrayList<String>();
       if (edmBaseType != null) {
-        edmPropertyNames.addAll(edmBaseType.getPropertyNames());
+        propertyNames.addAll(edmBaseType.getPropertyNames());
       }
       if (structuralType.getProperties() != null) {
         for (final Property property : structuralType.getProperties()) {
-          edmPropertyNames.add(property.getName());
+          propertyNames.add(property.getName());
         }
       }
+      edmPropertyNames = propertyNames;
     }
 
     return edmPropertyNames;
@@ -15,14 +15,16 @@
  ******************************************************************************/
 package com.sap.core.odata.core.ep;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
-import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 
@@ -59,7 +61,11 @@ import com.sap.core.odata.core.ep.producer.XmlErrorDocumentProducer;
 import com.sap.core.odata.core.ep.producer.XmlLinkEntityProducer;
 import com.sap.core.odata.core.ep.producer.XmlLinksEntityProducer;
 import com.sap.core.odata.core.ep.producer.XmlPropertyEntityProducer;
+import com.sap.core.odata.core.ep.util.CachedContent;
 import com.sap.core.odata.core.ep.util.CircleStreamBuffer;
+import com.sap.core.odata.core.ep.util.OneShotIterable;
+import com.sap.core.odata.core.ep.util.StreamingEntity;
+import com.sap.core.odata.core.ep.util.XmlStreamFactories;
 import com.sap.core.odata.core.exception.ODataRuntimeException;
 
 /**
@@ -70,6 +76,7 @@ public class AtomEntityProvider implements ContentTypeBasedEntityProvider {
   /** Default used charset for writer and response content header */
   private static final String DEFAULT_CHARSET = ContentType.CHARSET_UTF_8;
   private static final String XML_VERSION = "1.0";
+  private static final String SERVICE_DOCUMENT_FORMAT = "atom";
   private final ODataFormat odataFormat;
 
   public AtomEntityProvider() throws EntityProviderException {
@@ -108,7 +115,7 @@ public class AtomEntityProvider implements ContentTypeBasedEntityProvider {
 
     try {
       OutputStream outStream = csb.getOutputStream();
-      XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(outStream, DEFAULT_CHARSET);
+      XMLStreamWriter writer = XmlStreamFactories.getOutputFactory().createXMLStreamWriter(outStream, DEFAULT_CHARSET);
 
       XmlErrorDocumentProducer producer = new XmlErrorDocumentProducer();
       producer.writeErrorDocument(writer, errorCode, message, locale, innerError);
@@ -138,26 +145,29 @@ public class AtomEntityProvider implements ContentTypeBasedEntityProvider {
    */
   @Override
   public ODataResponse writeServiceDocument(final Edm edm, final String serviceRoot) throws EntityProviderException {
-    CircleStreamBuffer csb = new CircleStreamBuffer();
-
-    try {
-      OutputStreamWriter writer = new OutputStreamWriter(csb.getOutputStream(), DEFAULT_CHARSET);
-      AtomServiceDocumentProducer as = new AtomServiceDocumentProducer(edm, serviceRoot);
-      as.writeServiceDocument(writer);
-      csb.closeWrite();
-
-      ODataResponse response = ODataResponse.entity(csb.getInputStream())
-          .contentHeader(ContentType.APPLICATION_ATOM_SVC_CS_UTF_8.toContentTypeString())
-          .build();
-
-      return response;
-    } catch (EntityProviderException e) {
-      csb.close();
-      throw e;
-    } catch (Exception e) {
-      csb.close();
-      throw new EntityProviderException(EntityProviderException.EXCEPTION_OCCURRED.addContent(e.getClass().getSimpleName()), e);
+    // the service root is written as xml:base
+    CachedContent serviceDocument = ServiceDocumentCache.get(edm, SERVICE_DOCUMENT_FORMAT, serviceRoot);
+
+    if (serviceDocument == null) {
+      try {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        OutputStreamWriter writer = new OutputStreamWriter(buffer, DEFAULT_CHARSET);
+        AtomServiceDocumentProducer as = new AtomServiceDocumentProducer(edm, serviceRoot);
+        as.writeServiceDocument(writer);
+        writer.flush();
+        serviceDocument = new CachedContent(buffer.toByteArray());
+        ServiceDocumentCache.put(edm, SERVICE_DOCUMENT_FORMAT, serviceRoot, serviceDocument);
+      } catch (EntityProviderException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new EntityProviderException(EntityProviderException.EXCEPTION_OCCURRED.addContent(e.getClass().getSimpleName()), e);
+      }
     }
+
+    return ODataResponse.entity(serviceDocument.getInputStream())
+        .contentHeader(ContentType.APPLICATION_ATOM_SVC_CS_UTF_8.toContentTypeString())
+        .eTag(serviceDocument.getETag())
+        .build();
   }
 
   @Override
@@ -166,7 +176,7 @@ public class AtomEntityProvider implements ContentTypeBasedEntityProvider {
 
     try {
       OutputStream outStream = csb.getOutputStream();
-      XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(outStream, DEFAULT_CHARSET);
+      XMLStreamWriter writer = XmlStreamFactories.getOutputFactory().createXMLStreamWriter(outStream, DEFAULT_CHARSET);
       writer.writeStartDocument(DEFAULT_CHARSET, XML_VERSION);
 
       AtomEntryEntityProducer as = new AtomEntryEntityProducer(properties);
@@ -201,7 +211,7 @@ public class AtomEntityProvider implements ContentTypeBasedEntityProvider {
 
     try {
       OutputStream outStream = csb.getOutputStream();
-      XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(outStream, DEFAULT_CHARSET);
+      XMLStreamWriter writer = XmlStreamFactories.getOutputFactory().createXMLStreamWriter(outStream, DEFAULT_CHARSET);
       writer.writeStartDocument(DEFAULT_CHARSET, XML_VERSION);
 
       XmlPropertyEntityProducer ps = new XmlPropertyEntityProducer();
@@ -222,18 +232,40 @@ public class AtomEntityProvider implements ContentTypeBasedEntityProvider {
 
   @Override
   public ODataResponse writeFeed(final EdmEntitySet entitySet, final List<Map<String, Object>> data, final EntityProviderWriteProperties properties) throws EntityProviderException {
-    CircleStreamBuffer csb = new CircleStreamBuffer();
+    return writeFeed(entitySet, (Iterable<Map<String, Object>>) data, properties);
+  }
 
-    try {
-      OutputStream outStream = csb.getOutputStream();
-      XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(outStream, DEFAULT_CHARSET);
-      writer.writeStartDocument(DEFAULT_CHARSET, XML_VERSION);
+  @Override
+  public ODataResponse writeFeed(final EdmEntitySet entitySet, final Iterator<Map<String, Object>> data, final EntityProviderWriteProperties properties) throws EntityProviderException {
+    return writeFeed(entitySet, new OneShotIterable<Map<String, Object>>(data), properties);
+  }
 
-      AtomFeedProducer atomFeedProvider = new AtomFeedProducer(properties);
-      EntityInfoAggregator eia = EntityInfoAggregator.create(entitySet, properties.getExpandSelectTree());
-      atomFeedProvider.append(writer, eia, data, false);
+  /**
+   * Writes a feed of the entries provided by <code>data</code>; a streaming
+   * response asks <code>data</code> for a new iterator each time it is written,
+   * so data given as {@link Iterator} can be written only once.
+   */
+  private ODataResponse writeFeed(final EdmEntitySet entitySet, final Iterable<Map<String, Object>> data, final EntityProviderWriteProperties properties) throws EntityProviderException {
+    final AtomFeedProducer atomFeedProvider = new AtomFeedProducer(properties);
+    final EntityInfoAggregator eia = EntityInfoAggregator.create(entitySet, properties.getExpandSelectTree());
+
+    if (properties.isStreaming()) {
+      return ODataResponse.entity(new StreamingEntity() {
+        @Override
+        public void write(final OutputStream out) throws IOException {
+          try {
+            appendFeed(out, atomFeedProvider, eia, data.iterator());
+          } catch (EntityProviderException e) {
+            throw new IOException(e);
+          }
+        }
+      }).contentHeader(getContentHeader(ContentType.APPLICATION_ATOM_XML_FEED)).build();
+    }
 
-      writer.flush();
+    CircleStreamBuffer csb = new CircleStreamBuffer();
+
+    try {
+      appendFeed(csb.getOutputStream(), atomFeedProvider, eia, data.iterator());
       csb.closeWrite();
 
       ODataResponse response = ODataResponse.entity(csb.getInputStream()).contentHeader(getContentHeader(ContentType.APPLICATION_ATOM_XML_FEED)).build();
@@ -241,8 +273,18 @@ public class AtomEntityProvider implements ContentTypeBasedEntityProvider {
     } catch (EntityProviderException e) {
       csb.close();
       throw e;
+    }
+  }
+
+  private static void appendFeed(final OutputStream outStream, final AtomFeedProducer atomFeedProvider, final EntityInfoAggregator eia, final Iterator<Map<String, Object>> data) throws EntityProviderException {
+    try {
+      XMLStreamWriter writer = XmlStreamFactories.getOutputFactory().createXMLStreamWriter(outStream, DEFAULT_CHARSET);
+      writer.writeStartDocument(DEFAULT_CHARSET, XML_VERSION);
+
+      atomFeedProvider.append(writer, eia, data, false);
+
+      writer.flush();
     } catch (XMLStreamException e) {
-      csb.close();
       throw new EntityProviderException(EntityProviderException.EXCEPTION_OCCURRED.addContent(e.getClass().getSimpleName()), e);
     }
   }
@@ -260,7 +302,7 @@ public class AtomEntityProvider implements ContentTypeBasedEntityProvider {
 
     try {
       OutputStream outStream = csb.getOutputStream();
-      XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(outStream, DEFAULT_CHARSET);
+      XMLStreamWriter writer = XmlStreamFactories.getOutputFactory().createXMLStreamWriter(outStream, DEFAULT_CHARSET);
       writer.writeStartDocument(DEFAULT_CHARSET, XML_VERSION);
 
       XmlLinkEntityProducer entity = new XmlLinkEntityProducer(properties);
@@ -287,7 +329,7 @@ public class AtomEntityProvider implements ContentTypeBasedEntityProvider {
 
     try {
       OutputStream outStream = csb.getOutputStream();
-      XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(outStream, DEFAULT_CHARSET);
+      XMLStreamWriter writer = XmlStreamFactories.getOutputFactory().createXMLStreamWriter(outStream, DEFAULT_CHARSET);
       writer.writeStartDocument(DEFAULT_CHARSET, XML_VERSION);
 
       XmlLinksEntityProducer entity = new XmlLinksEntityProducer(properties);
@@ -312,7 +354,7 @@ public class AtomEntityProvider implements ContentTypeBasedEntityProvider {
 
     try {
       OutputStream outStream = csb.getOutputStream();
-      XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(outStream, DEFAULT_CHARSET);
+      XMLStreamWriter writer = XmlStreamFactories.getOutputFactory().createXMLStreamWriter(outStream, DEFAULT_CHARSET);
       writer.writeStartDocument(DEFAULT_CHARSET, XML_VERSION);
 
       XmlCollectionEntityProducer.append(writer, propertyInfo, data);
@@ -16,6 +16,7 @@
 package com.sap.core.odata.core.ep;
 
 import java.io.InputStream;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -54,6 +55,8 @@ public interface ContentTypeBasedEntityProvider {
 
   ODataResponse writeFeed(EdmEntitySet entitySet, List<Map<String, Object>> data, EntityProviderWriteProperties properties) throws EntityProviderException;
 
+  ODataResponse writeFeed(EdmEntitySet entitySet, Iterator<Map<String, Object>> data, EntityProviderWriteProperties properties) throws EntityProviderException;
+
   ODataResponse writeEntry(EdmEntitySet entitySet, Map<String, Object> data, EntityProviderWriteProperties properties) throws EntityProviderException;
 
   ODataResponse writeProperty(EdmProperty edmProperty, Object value) throws EntityProviderException;
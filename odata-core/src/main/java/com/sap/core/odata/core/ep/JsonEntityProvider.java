@@ -15,10 +15,11 @@
  ******************************************************************************/
 package com.sap.core.odata.core.ep;
 
-import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -55,7 +56,11 @@ import com.sap.core.odata.core.ep.producer.JsonLinkEntityProducer;
 import com.sap.core.odata.core.ep.producer.JsonLinksEntityProducer;
 import com.sap.core.odata.core.ep.producer.JsonPropertyEntityProducer;
 import com.sap.core.odata.core.ep.producer.JsonServiceDocumentProducer;
+import com.sap.core.odata.core.ep.util.CachedContent;
 import com.sap.core.odata.core.ep.util.CircleStreamBuffer;
+import com.sap.core.odata.core.ep.util.OneShotIterable;
+import com.sap.core.odata.core.ep.util.StreamingEntity;
+import com.sap.core.odata.core.ep.util.Utf8JsonWriter;
 import com.sap.core.odata.core.exception.ODataRuntimeException;
 
 /**
@@ -63,7 +68,7 @@ import com.sap.core.odata.core.exception.ODataRuntimeException;
  */
 public class JsonEntityProvider implements ContentTypeBasedEntityProvider {
 
-  private static final String DEFAULT_CHARSET = "UTF-8";
+  private static final String SERVICE_DOCUMENT_FORMAT = "json";
 
   /**
    * <p>Serializes an error message according to the OData standard.</p>
@@ -82,7 +87,7 @@ public class JsonEntityProvider implements ContentTypeBasedEntityProvider {
     CircleStreamBuffer buffer = new CircleStreamBuffer();
 
     try {
-      BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(buffer.getOutputStream(), DEFAULT_CHARSET));
+      Utf8JsonWriter writer = new Utf8JsonWriter(buffer.getOutputStream());
       new JsonErrorDocumentProducer().writeErrorDocument(writer, errorCode, message, locale, innerError);
       writer.flush();
       buffer.closeWrite();
@@ -107,22 +112,26 @@ public class JsonEntityProvider implements ContentTypeBasedEntityProvider {
    */
   @Override
   public ODataResponse writeServiceDocument(final Edm edm, final String serviceRoot) throws EntityProviderException {
-    CircleStreamBuffer buffer = new CircleStreamBuffer();
-
-    try {
-      BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(buffer.getOutputStream(), DEFAULT_CHARSET));
-      JsonServiceDocumentProducer.writeServiceDocument(writer, edm);
-      writer.flush();
-      buffer.closeWrite();
-
-      return ODataResponse.entity(buffer.getInputStream())
-          .contentHeader(HttpContentType.APPLICATION_JSON)
-          .header(ODataHttpHeaders.DATASERVICEVERSION, ODataServiceVersion.V10)
-          .build();
-    } catch (Exception e) {
-      buffer.close();
-      throw new ODataRuntimeException(e);
+    CachedContent serviceDocument = ServiceDocumentCache.get(edm, SERVICE_DOCUMENT_FORMAT, null);
+
+    if (serviceDocument == null) {
+      try {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        Utf8JsonWriter writer = new Utf8JsonWriter(buffer);
+        JsonServiceDocumentProducer.writeServiceDocument(writer, edm);
+        writer.flush();
+        serviceDocument = new CachedContent(buffer.toByteArray());
+        ServiceDocumentCache.put(edm, SERVICE_DOCUMENT_FORMAT, null, serviceDocument);
+      } catch (Exception e) {
+        throw new ODataRuntimeException(e);
+      }
     }
+
+    return ODataResponse.entity(serviceDocument.getInputStream())
+        .contentHeader(HttpContentType.APPLICATION_JSON)
+        .header(ODataHttpHeaders.DATASERVICEVERSION, ODataServiceVersion.V10)
+        .eTag(serviceDocument.getETag())
+        .build();
   }
 
   @Override
@@ -131,7 +140,7 @@ public class JsonEntityProvider implements ContentTypeBasedEntityProvider {
     CircleStreamBuffer buffer = new CircleStreamBuffer();
 
     try {
-      BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(buffer.getOutputStream(), DEFAULT_CHARSET));
+      Utf8JsonWriter writer = new Utf8JsonWriter(buffer.getOutputStream());
       JsonEntryEntityProducer producer = new JsonEntryEntityProducer(properties);
       producer.append(writer, entityInfo, data, true);
       writer.flush();
@@ -161,7 +170,7 @@ public class JsonEntityProvider implements ContentTypeBasedEntityProvider {
 
     try {
       OutputStream outStream = buffer.getOutputStream();
-      BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outStream, DEFAULT_CHARSET));
+      Utf8JsonWriter writer = new Utf8JsonWriter(outStream);
       new JsonPropertyEntityProducer().append(writer, propertyInfo, value);
       writer.flush();
       buffer.closeWrite();
@@ -181,12 +190,42 @@ public class JsonEntityProvider implements ContentTypeBasedEntityProvider {
 
   @Override
   public ODataResponse writeFeed(final EdmEntitySet entitySet, final List<Map<String, Object>> data, final EntityProviderWriteProperties properties) throws EntityProviderException {
+    return writeFeed(entitySet, (Iterable<Map<String, Object>>) data, properties);
+  }
+
+  @Override
+  public ODataResponse writeFeed(final EdmEntitySet entitySet, final Iterator<Map<String, Object>> data, final EntityProviderWriteProperties properties) throws EntityProviderException {
+    return writeFeed(entitySet, new OneShotIterable<Map<String, Object>>(data), properties);
+  }
+
+  /**
+   * Writes a feed of the entries provided by <code>data</code>; a streaming
+   * response asks <code>data</code> for a new iterator each time it is written,
+   * so data given as {@link Iterator} can be written only once.
+   */
+  private ODataResponse writeFeed(final EdmEntitySet entitySet, final Iterable<Map<String, Object>> data, final EntityProviderWriteProperties properties) throws EntityProviderException {
     final EntityInfoAggregator entityInfo = EntityInfoAggregator.create(entitySet, properties.getExpandSelectTree());
+
+    if (properties.isStreaming()) {
+      return ODataResponse.entity(new StreamingEntity() {
+        @Override
+        public void write(final OutputStream out) throws IOException {
+          Utf8JsonWriter writer = new Utf8JsonWriter(out);
+          try {
+            new JsonFeedEntityProducer(properties).append(writer, entityInfo, data.iterator(), true);
+          } catch (EntityProviderException e) {
+            throw new IOException(e);
+          }
+          writer.flush();
+        }
+      }).contentHeader(HttpContentType.APPLICATION_JSON).build();
+    }
+
     CircleStreamBuffer buffer = new CircleStreamBuffer();
 
     try {
-      BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(buffer.getOutputStream(), DEFAULT_CHARSET));
-      new JsonFeedEntityProducer(properties).append(writer, entityInfo, data, true);
+      Utf8JsonWriter writer = new Utf8JsonWriter(buffer.getOutputStream());
+      new JsonFeedEntityProducer(properties).append(writer, entityInfo, data.iterator(), true);
       writer.flush();
       buffer.closeWrite();
 
@@ -206,7 +245,7 @@ public class JsonEntityProvider implements ContentTypeBasedEntityProvider {
     CircleStreamBuffer buffer = new CircleStreamBuffer();
 
     try {
-      BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(buffer.getOutputStream(), DEFAULT_CHARSET));
+      Utf8JsonWriter writer = new Utf8JsonWriter(buffer.getOutputStream());
       new JsonLinkEntityProducer(properties).append(writer, entityInfo, data);
       writer.flush();
       buffer.closeWrite();
@@ -230,7 +269,7 @@ public class JsonEntityProvider implements ContentTypeBasedEntityProvider {
     CircleStreamBuffer buffer = new CircleStreamBuffer();
 
     try {
-      BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(buffer.getOutputStream(), DEFAULT_CHARSET));
+      Utf8JsonWriter writer = new Utf8JsonWriter(buffer.getOutputStream());
       new JsonLinksEntityProducer(properties).append(writer, entityInfo, data);
       writer.flush();
       buffer.closeWrite();
@@ -253,7 +292,7 @@ public class JsonEntityProvider implements ContentTypeBasedEntityProvider {
     CircleStreamBuffer buffer = new CircleStreamBuffer();
 
     try {
-      BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(buffer.getOutputStream(), DEFAULT_CHARSET));
+      Utf8JsonWriter writer = new Utf8JsonWriter(buffer.getOutputStream());
       new JsonCollectionEntityProducer().append(writer, propertyInfo, data);
       writer.flush();
       buffer.closeWrite();
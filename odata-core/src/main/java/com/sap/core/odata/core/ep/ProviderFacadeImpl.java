@@ -16,6 +16,7 @@
 package com.sap.core.odata.core.ep;
 
 import java.io.InputStream;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -109,6 +110,11 @@ public class ProviderFacadeImpl implements EntityProviderInterface {
     return create(contentType).writeFeed(entitySet, data, properties);
   }
 
+  @Override
+  public ODataResponse writeFeed(final String contentType, final EdmEntitySet entitySet, final Iterator<Map<String, Object>> data, final EntityProviderWriteProperties properties) throws EntityProviderException {
+    return create(contentType).writeFeed(entitySet, data, properties);
+  }
+
   @Override
   public ODataResponse writeEntry(final String contentType, final EdmEntitySet entitySet, final Map<String, Object> data, final EntityProviderWriteProperties properties) throws EntityProviderException {
     return create(contentType).writeEntry(entitySet, data, properties);
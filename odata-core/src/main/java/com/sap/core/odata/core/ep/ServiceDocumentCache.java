@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.core.ep;
+
+import com.sap.core.odata.api.edm.Edm;
+import com.sap.core.odata.core.edm.provider.EdmServiceMetadataImplProv;
+import com.sap.core.odata.core.ep.util.CachedContent;
+
+/**
+ * Access to the serialized service documents kept by the service metadata of
+ * an entity data model.
+ * <p>The service document only depends on the entity sets of the entity data
+ * model and, for Atom, on the service root; an entity data model reused across
+ * requests therefore serializes it only once. Entity data models not created
+ * from an {@link com.sap.core.odata.api.edm.provider.EdmProvider} are not
+ * cached.</p>
+ * 
+ * @author SAP AG
+ */
+final class ServiceDocumentCache {
+
+  private ServiceDocumentCache() {}
+
+  static CachedContent get(final Edm edm, final String format, final String serviceRoot) {
+    final EdmServiceMetadataImplProv serviceMetadata = getServiceMetadata(edm);
+    return serviceMetadata == null ? null : serviceMetadata.getServiceDocument(format, serviceRoot);
+  }
+
+  static void put(final Edm edm, final String format, final String serviceRoot, final CachedContent document) {
+    final EdmServiceMetadataImplProv serviceMetadata = getServiceMetadata(edm);
+    if (serviceMetadata != null) {
+      serviceMetadata.setServiceDocument(format, serviceRoot, document);
+    }
+  }
+
+  private static EdmServiceMetadataImplProv getServiceMetadata(final Edm edm) {
+    return edm.getServiceMetadata() instanceof EdmServiceMetadataImplProv ?
+        (EdmServiceMetadataImplProv) edm.getServiceMetadata() : null;
+  }
+}
@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import com.sap.core.odata.api.edm.Edm;
 import com.sap.core.odata.api.edm.EdmComplexType;
 import com.sap.core.odata.api.edm.EdmConcurrencyMode;
 import com.sap.core.odata.api.edm.EdmCustomizableFeedMappings;
@@ -41,14 +42,24 @@ import com.sap.core.odata.api.edm.EdmType;
 import com.sap.core.odata.api.edm.EdmTypeKind;
 import com.sap.core.odata.api.ep.EntityProviderException;
 import com.sap.core.odata.api.uri.ExpandSelectTreeNode;
+import com.sap.core.odata.core.commons.Encoder;
+import com.sap.core.odata.core.edm.provider.EdmEntitySetImplProv;
 
 /**
  * Aggregator to get easy and fast access to all for serialization and de-serialization necessary {@link EdmEntitySet} informations.
+ * <p>Aggregators are immutable; for entity sets of the provider-based entity data model
+ * they are created once per expand/select shape and shared.
+ * Everything about an entry that does not depend on its data, e.g., the
+ * percent-encoded entity-set path or the properties to write, is therefore
+ * computed here once instead of for every entry.</p>
  * 
  * @author SAP AG
  */
 public class EntityInfoAggregator {
 
+  /* bound for the number of cached aggregators per entity set */
+  private static final int MAX_CACHED_SHAPES = 64;
+
   private static final Set<String> SYN_TARGET_PATHS = new HashSet<String>(Arrays.asList(
       EdmTargetPath.SYNDICATION_AUTHORNAME,
       EdmTargetPath.SYNDICATION_AUTHOREMAIL,
@@ -65,7 +76,8 @@ public class EntityInfoAggregator {
 
   private Map<String, EntityPropertyInfo> propertyInfo = new HashMap<String, EntityPropertyInfo>();
   private Map<String, NavigationPropertyInfo> navigationPropertyInfos = new HashMap<String, NavigationPropertyInfo>();
-  private List<EntityPropertyInfo> keyPropertyInfos;
+  private volatile List<EntityPropertyInfo> keyPropertyInfos;
+  private List<String> keyPrefixes;
 
   /*
    * list with all property names in the order based on order in {@link EdmProperty} (normally [key, entity,
@@ -77,6 +89,8 @@ public class EntityInfoAggregator {
   private List<String> selectedPropertyNames;
   private List<String> selectedNavigationPropertyNames;
   private List<String> expandedNavigationPropertyNames;
+  private List<EntityPropertyInfo> etagPropertyInfos;
+  private List<EntityPropertyInfo> selectedPropertyInfos;
 
   private Map<String, EntityPropertyInfo> targetPath2EntityPropertyInfo = new HashMap<String, EntityPropertyInfo>();
   private List<String> noneSyndicationTargetPaths = new ArrayList<String>();
@@ -84,6 +98,8 @@ public class EntityInfoAggregator {
   private boolean isDefaultEntityContainer;
   private String entitySetName;
   private String entityContainerName;
+  private String entityTypeName;
+  private volatile String entitySetPath;
 
   private EdmEntityType entityType;
   private EdmEntitySet entitySet;
@@ -106,11 +122,52 @@ public class EntityInfoAggregator {
    *           of {@link EdmEntitySet}).
    */
   public static EntityInfoAggregator create(final EdmEntitySet entitySet, final ExpandSelectTreeNode expandSelectTree) throws EntityProviderException {
-    EntityInfoAggregator eia = new EntityInfoAggregator();
-    eia.initialize(entitySet, expandSelectTree);
+    if (!(entitySet instanceof EdmEntitySetImplProv)) {
+      EntityInfoAggregator eia = new EntityInfoAggregator();
+      eia.initialize(entitySet, expandSelectTree);
+      return eia;
+    }
+
+    // The aggregator is immutable and depends only on the entity set
+    // and the top level of the expand/select tree, so it can be shared.
+    final Map<String, EntityInfoAggregator> cache = ((EdmEntitySetImplProv) entitySet).getEntityInfoAggregators();
+    final String shape = getShape(expandSelectTree);
+    EntityInfoAggregator eia = cache.get(shape);
+    if (eia == null) {
+      eia = new EntityInfoAggregator();
+      eia.initialize(entitySet, expandSelectTree);
+      if (cache.size() >= MAX_CACHED_SHAPES) {
+        cache.clear();
+      }
+      cache.put(shape, eia);
+    }
     return eia;
   }
 
+  /**
+   * Returns a canonical form of the parts of the expand/select tree
+   * the aggregator depends on: the selected properties and the selected and
+   * expanded navigation properties of the top level, in their order.
+   */
+  private static String getShape(final ExpandSelectTreeNode expandSelectTree) throws EntityProviderException {
+    if (expandSelectTree == null) {
+      return "";
+    }
+    StringBuilder shape = new StringBuilder(expandSelectTree.isAll() ? "*" : "");
+    try {
+      for (final EdmProperty property : expandSelectTree.getProperties()) {
+        shape.append(',').append(property.getName());
+      }
+    } catch (EdmException e) {
+      throw new EntityProviderException(EntityProviderException.COMMON, e);
+    }
+    shape.append('/');
+    for (final Map.Entry<String, ExpandSelectTreeNode> link : expandSelectTree.getLinks().entrySet()) {
+      shape.append(',').append(link.getKey()).append(link.getValue() == null ? '-' : '+');
+    }
+    return shape.toString();
+  }
+
   /**
    * Create an {@link EntityInfoAggregator} based on given {@link EdmEntitySet}
    * 
@@ -123,9 +180,7 @@ public class EntityInfoAggregator {
    *           of {@link EdmEntitySet}).
    */
   public static EntityInfoAggregator create(final EdmEntitySet entitySet) throws EntityProviderException {
-    EntityInfoAggregator eia = new EntityInfoAggregator();
-    eia.initialize(entitySet, null);
-    return eia;
+    return create(entitySet, null);
   }
 
   /**
@@ -219,6 +274,25 @@ public class EntityInfoAggregator {
     return entityContainerName;
   }
 
+  /**
+   * @return the namespace-qualified name of the entity type
+   */
+  public String getEntityTypeName() {
+    return entityTypeName;
+  }
+
+  /**
+   * @return the percent-encoded name of the entity set, qualified with the name
+   *         of the entity container if that is not the default container
+   */
+  public String getEntitySetPath() {
+    if (entitySetPath == null) {
+      entitySetPath = (isDefaultEntityContainer ? "" : Encoder.encode(entityContainerName) + Edm.DELIMITER)
+          + Encoder.encode(entitySetName);
+    }
+    return entitySetPath;
+  }
+
   /**
    * @return unmodifiable set of all found target path names.
    */
@@ -270,13 +344,16 @@ public class EntityInfoAggregator {
     return propertyInfo.get(name);
   }
 
+  /**
+   * @return unmodifiable list of the property infos of the selected properties,
+   *         in the order of the properties in the entity type
+   */
+  public List<EntityPropertyInfo> getSelectedPropertyInfos() {
+    return selectedPropertyInfos;
+  }
+
   public Collection<EntityPropertyInfo> getETagPropertyInfos() {
-    List<EntityPropertyInfo> keyProperties = new ArrayList<EntityPropertyInfo>();
-    for (String etagPropertyName : etagPropertyNames) {
-      EntityPropertyInfo e = propertyInfo.get(etagPropertyName);
-      keyProperties.add(e);
-    }
-    return keyProperties;
+    return etagPropertyInfos;
   }
 
   /**
@@ -287,10 +364,16 @@ public class EntityInfoAggregator {
 
     if (keyPropertyInfos == null) {
       try {
-        keyPropertyInfos = new ArrayList<EntityPropertyInfo>();
-        for (String keyPropertyName : entityType.getKeyPropertyNames()) {
-          keyPropertyInfos.add(propertyInfo.get(keyPropertyName));
+        List<EntityPropertyInfo> infos = new ArrayList<EntityPropertyInfo>();
+        List<String> prefixes = new ArrayList<String>();
+        final List<String> keyPropertyNames = entityType.getKeyPropertyNames();
+        for (String keyPropertyName : keyPropertyNames) {
+          infos.add(propertyInfo.get(keyPropertyName));
+          prefixes.add((prefixes.isEmpty() ? "" : ",")
+              + (keyPropertyNames.size() > 1 ? Encoder.encode(keyPropertyName) + "=" : ""));
         }
+        keyPrefixes = Collections.unmodifiableList(prefixes);
+        keyPropertyInfos = Collections.unmodifiableList(infos);
       } catch (EdmException e) {
         throw new EntityProviderException(EntityProviderException.COMMON, e);
       }
@@ -298,6 +381,16 @@ public class EntityInfoAggregator {
     return keyPropertyInfos;
   }
 
+  /**
+   * @return list of the texts preceding the values of the key properties in an entry key,
+   *         in the order of {@link #getKeyPropertyInfos()}
+   * @throws EntityProviderException
+   */
+  public List<String> getKeyPrefixes() throws EntityProviderException {
+    getKeyPropertyInfos();
+    return keyPrefixes;
+  }
+
   public NavigationPropertyInfo getNavigationPropertyInfo(final String name) {
     return navigationPropertyInfos.get(name);
   }
@@ -340,6 +433,22 @@ public class EntityInfoAggregator {
         }
       }
 
+      entityTypeName = entityType.getNamespace() + Edm.DELIMITER + entityType.getName();
+
+      List<EntityPropertyInfo> infos = new ArrayList<EntityPropertyInfo>();
+      for (String etagPropertyName : etagPropertyNames) {
+        infos.add(propertyInfo.get(etagPropertyName));
+      }
+      etagPropertyInfos = Collections.unmodifiableList(infos);
+
+      infos = new ArrayList<EntityPropertyInfo>();
+      for (String propertyName : propertyNames) {
+        if (selectedPropertyNames.contains(propertyName)) {
+          infos.add(propertyInfo.get(propertyName));
+        }
+      }
+      selectedPropertyInfos = Collections.unmodifiableList(infos);
+
     } catch (EdmException e) {
       throw new EntityProviderException(EntityProviderException.COMMON, e);
     }
@@ -443,6 +552,6 @@ public class EntityInfoAggregator {
   }
 
   public List<String> getExpandedNavigationPropertyNames() {
-    return expandedNavigationPropertyNames;
+    return Collections.unmodifiableList(expandedNavigationPropertyNames);
   }
 }
@@ -35,6 +35,7 @@ import com.sap.core.odata.api.servicedocument.ExtensionElement;
 import com.sap.core.odata.api.servicedocument.Fixed;
 import com.sap.core.odata.api.servicedocument.Workspace;
 import com.sap.core.odata.core.ep.util.FormatXml;
+import com.sap.core.odata.core.ep.util.XmlStreamFactories;
 import com.sap.core.odata.core.servicedocument.AcceptImpl;
 import com.sap.core.odata.core.servicedocument.AtomInfoImpl;
 import com.sap.core.odata.core.servicedocument.CategoriesImpl;
@@ -291,9 +292,7 @@ public class AtomServiceDocumentConsumer {
 
   private XMLStreamReader createStreamReader(final InputStream in) throws EntityProviderException {
     if (in != null) {
-      XMLInputFactory factory = XMLInputFactory.newInstance();
-      factory.setProperty(XMLInputFactory.IS_VALIDATING, false);
-      factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+      XMLInputFactory factory = XmlStreamFactories.getInputFactory();
       XMLStreamReader streamReader;
       try {
         streamReader = factory.createXMLStreamReader(in);
@@ -33,6 +33,7 @@ import com.sap.core.odata.api.ep.EntityProviderReadProperties.EntityProviderRead
 import com.sap.core.odata.api.ep.entry.ODataEntry;
 import com.sap.core.odata.api.ep.feed.ODataFeed;
 import com.sap.core.odata.core.ep.aggregator.EntityInfoAggregator;
+import com.sap.core.odata.core.ep.util.XmlStreamFactories;
 
 /**
  * Xml entity (content type dependent) consumer for reading input (from <code>content</code>).
@@ -212,9 +213,7 @@ public class XmlEntityConsumer {
   }
 
   private XMLStreamReader createStaxReader(final Object content) throws XMLStreamException, EntityProviderException {
-    XMLInputFactory factory = XMLInputFactory.newInstance();
-    factory.setProperty(XMLInputFactory.IS_VALIDATING, false);
-    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+    XMLInputFactory factory = XmlStreamFactories.getInputFactory();
 
     if (content == null) {
       throw new EntityProviderException(EntityProviderException.ILLEGAL_ARGUMENT
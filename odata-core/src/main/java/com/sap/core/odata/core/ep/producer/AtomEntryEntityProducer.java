@@ -65,6 +65,7 @@ public class AtomEntryEntityProducer {
   private String etag;
   private String location;
   private final EntityProviderWriteProperties properties;
+  private final XmlPropertyEntityProducer propertyProducer = new XmlPropertyEntityProducer();
 
   public AtomEntryEntityProducer(final EntityProviderWriteProperties properties) throws EntityProviderException {
     this.properties = properties == null ? EntityProviderWriteProperties.serviceRoot(null).build() : properties;
@@ -88,23 +89,26 @@ public class AtomEntryEntityProducer {
         writer.writeAttribute(Edm.NAMESPACE_M_2007_08, FormatXml.M_ETAG, etag);
       }
 
+      // all links of the entry start with its self link
+      final String self = createSelfLink(eia, data, null);
+
       // write all atom infos (mandatory and optional)
-      appendAtomMandatoryParts(writer, eia, data);
+      appendAtomMandatoryParts(writer, eia, data, self);
       appendAtomOptionalParts(writer, eia, data);
 
       if (eia.getEntityType().hasStream()) {
         // write all links
-        appendAtomEditLink(writer, eia, data);
-        appendAtomContentLink(writer, eia, data, properties.getMediaResourceMimeType());
-        appendAtomNavigationLinks(writer, eia, data);
+        appendAtomEditLink(writer, eia, self);
+        appendAtomContentLink(writer, self, properties.getMediaResourceMimeType());
+        appendAtomNavigationLinks(writer, eia, data, self);
         // write properties/content
         appendCustomProperties(writer, eia, data);
-        appendAtomContentPart(writer, eia, data, properties.getMediaResourceMimeType());
+        appendAtomContentPart(writer, self, properties.getMediaResourceMimeType());
         appendProperties(writer, eia, data);
       } else {
         // write all links
-        appendAtomEditLink(writer, eia, data);
-        appendAtomNavigationLinks(writer, eia, data);
+        appendAtomEditLink(writer, eia, self);
+        appendAtomNavigationLinks(writer, eia, data, self);
         // write properties/content
         appendCustomProperties(writer, eia, data);
         writer.writeStartElement(FormatXml.ATOM_CONTENT);
@@ -130,8 +134,7 @@ public class AtomEntryEntityProducer {
     for (String tpName : noneSyndicationTargetPaths) {
       EntityPropertyInfo info = eia.getTargetPathInfo(tpName);
       final String name = info.getName();
-      XmlPropertyEntityProducer aps = new XmlPropertyEntityProducer();
-      aps.appendCustomProperty(writer, name, info, data.get(name));
+      propertyProducer.appendCustomProperty(writer, name, info, data.get(name));
     }
   }
 
@@ -162,11 +165,11 @@ public class AtomEntryEntityProducer {
     }
   }
 
-  private void appendAtomNavigationLinks(final XMLStreamWriter writer, final EntityInfoAggregator eia, final Map<String, Object> data) throws EntityProviderException, EdmException, URISyntaxException {
+  private void appendAtomNavigationLinks(final XMLStreamWriter writer, final EntityInfoAggregator eia, final Map<String, Object> data, final String entrySelf) throws EntityProviderException, EdmException, URISyntaxException {
     for (String name : eia.getSelectedNavigationPropertyNames()) {
       NavigationPropertyInfo info = eia.getNavigationPropertyInfo(name);
       boolean isFeed = (info.getMultiplicity() == EdmMultiplicity.MANY);
-      String self = createSelfLink(eia, data, info.getName());
+      String self = entrySelf + "/" + info.getName();
       appendAtomNavigationLink(writer, self, info.getName(), isFeed, eia, data);
     }
   }
@@ -268,10 +271,8 @@ public class AtomEntryEntityProducer {
 
   }
 
-  private void appendAtomEditLink(final XMLStreamWriter writer, final EntityInfoAggregator eia, final Map<String, Object> data) throws EntityProviderException {
+  private void appendAtomEditLink(final XMLStreamWriter writer, final EntityInfoAggregator eia, final String self) throws EntityProviderException {
     try {
-      String self = createSelfLink(eia, data, null);
-
       writer.writeStartElement(FormatXml.ATOM_LINK);
       writer.writeAttribute(FormatXml.ATOM_HREF, self);
       writer.writeAttribute(FormatXml.ATOM_REL, Edm.LINK_REL_EDIT);
@@ -284,9 +285,9 @@ public class AtomEntryEntityProducer {
     }
   }
 
-  private void appendAtomContentLink(final XMLStreamWriter writer, final EntityInfoAggregator eia, final Map<String, Object> data, String mediaResourceMimeType) throws EntityProviderException {
+  private void appendAtomContentLink(final XMLStreamWriter writer, final String entrySelf, String mediaResourceMimeType) throws EntityProviderException {
     try {
-      String self = createSelfLink(eia, data, "$value");
+      String self = entrySelf + "/$value";
 
       if (mediaResourceMimeType == null) {
         mediaResourceMimeType = ContentType.APPLICATION_OCTET_STREAM.toString();
@@ -302,9 +303,9 @@ public class AtomEntryEntityProducer {
     }
   }
 
-  private void appendAtomContentPart(final XMLStreamWriter writer, final EntityInfoAggregator eia, final Map<String, Object> data, String mediaResourceMimeType) throws EntityProviderException {
+  private void appendAtomContentPart(final XMLStreamWriter writer, final String entrySelf, String mediaResourceMimeType) throws EntityProviderException {
     try {
-      String self = createSelfLink(eia, data, "$value");
+      String self = entrySelf + "/$value";
 
       if (mediaResourceMimeType == null) {
         mediaResourceMimeType = ContentType.APPLICATION_OCTET_STREAM.toString();
@@ -319,10 +320,10 @@ public class AtomEntryEntityProducer {
     }
   }
 
-  private void appendAtomMandatoryParts(final XMLStreamWriter writer, final EntityInfoAggregator eia, final Map<String, Object> data) throws EntityProviderException {
+  private void appendAtomMandatoryParts(final XMLStreamWriter writer, final EntityInfoAggregator eia, final Map<String, Object> data, final String self) throws EntityProviderException {
     try {
       writer.writeStartElement(FormatXml.ATOM_ID);
-      location = properties.getServiceRoot().toASCIIString() + createSelfLink(eia, data, null);
+      location = properties.getServiceRoot().toASCIIString() + self;
       writer.writeCharacters(location);
       writer.writeEndElement();
 
@@ -416,15 +417,12 @@ public class AtomEntryEntityProducer {
       String published = getTargetPathValue(eia, EdmTargetPath.SYNDICATION_PUBLISHED, data);
       appendAtomOptionalPart(writer, FormatXml.ATOM_PUBLISHED, published, false);
 
-      String term = eia.getEntityType().getNamespace() + Edm.DELIMITER + eia.getEntityType().getName();
       writer.writeStartElement(FormatXml.ATOM_CATEGORY);
-      writer.writeAttribute(FormatXml.ATOM_CATEGORY_TERM, term);
+      writer.writeAttribute(FormatXml.ATOM_CATEGORY_TERM, eia.getEntityTypeName());
       writer.writeAttribute(FormatXml.ATOM_CATEGORY_SCHEME, Edm.NAMESPACE_SCHEME_2007_08);
       writer.writeEndElement();
     } catch (XMLStreamException e) {
       throw new EntityProviderException(EntityProviderException.COMMON, e);
-    } catch (EdmException e) {
-      throw new EntityProviderException(EntityProviderException.COMMON, e);
     }
   }
 
@@ -444,39 +442,29 @@ public class AtomEntryEntityProducer {
   }
 
   static String createSelfLink(final EntityInfoAggregator eia, final Map<String, Object> data, final String extension) throws EntityProviderException {
-    StringBuilder sb = new StringBuilder();
-    if (!eia.isDefaultEntityContainer()) {
-      sb.append(Encoder.encode(eia.getEntityContainerName())).append(Edm.DELIMITER);
+    StringBuilder sb = new StringBuilder(eia.getEntitySetPath()).append('(');
+    appendEntryKey(sb, eia, data);
+    sb.append(')');
+    if (extension != null) {
+      sb.append('/').append(extension);
     }
-    sb.append(Encoder.encode(eia.getEntitySetName()));
-
-    sb.append("(").append(createEntryKey(eia, data)).append(")").append(extension == null ? "" : ("/" + extension));
     return sb.toString();
   }
 
-  private static String createEntryKey(final EntityInfoAggregator entityInfo, final Map<String, Object> data) throws EntityProviderException {
+  private static void appendEntryKey(final StringBuilder keys, final EntityInfoAggregator entityInfo, final Map<String, Object> data) throws EntityProviderException {
     final List<EntityPropertyInfo> keyPropertyInfos = entityInfo.getKeyPropertyInfos();
+    final List<String> keyPrefixes = entityInfo.getKeyPrefixes();
 
-    StringBuilder keys = new StringBuilder();
-    for (final EntityPropertyInfo keyPropertyInfo : keyPropertyInfos) {
-      if (keys.length() > 0) {
-        keys.append(',');
-      }
-
-      final String name = keyPropertyInfo.getName();
-      if (keyPropertyInfos.size() > 1) {
-        keys.append(Encoder.encode(name)).append('=');
-      }
-
+    for (int i = 0; i < keyPropertyInfos.size(); i++) {
+      final EntityPropertyInfo keyPropertyInfo = keyPropertyInfos.get(i);
       final EdmSimpleType type = (EdmSimpleType) keyPropertyInfo.getType();
       try {
-        keys.append(Encoder.encode(type.valueToString(data.get(name), EdmLiteralKind.URI, keyPropertyInfo.getFacets())));
+        keys.append(keyPrefixes.get(i))
+            .append(Encoder.encode(type.valueToString(data.get(keyPropertyInfo.getName()), EdmLiteralKind.URI, keyPropertyInfo.getFacets())));
       } catch (final EdmSimpleTypeException e) {
         throw new EntityProviderException(EntityProviderException.COMMON, e);
       }
     }
-
-    return keys.toString();
   }
 
   private void appendProperties(final XMLStreamWriter writer, final EntityInfoAggregator eia, final Map<String, Object> data) throws EntityProviderException {
@@ -490,8 +478,7 @@ public class AtomEntryEntityProducer {
 
           if (isNotMappedViaCustomMapping(propertyInfo)) {
             Object value = data.get(propertyName);
-            XmlPropertyEntityProducer aps = new XmlPropertyEntityProducer();
-            aps.append(writer, propertyInfo.getName(), propertyInfo, value);
+            propertyProducer.append(writer, propertyInfo.getName(), propertyInfo, value);
           }
         }
 
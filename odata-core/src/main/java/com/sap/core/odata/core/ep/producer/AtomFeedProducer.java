@@ -17,6 +17,7 @@ package com.sap.core.odata.core.ep.producer;
 
 import java.net.URI;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -32,7 +33,6 @@ import com.sap.core.odata.api.ep.EntityProviderException;
 import com.sap.core.odata.api.ep.EntityProviderWriteProperties;
 import com.sap.core.odata.api.ep.callback.TombstoneCallback;
 import com.sap.core.odata.api.ep.callback.TombstoneCallbackResult;
-import com.sap.core.odata.core.commons.Encoder;
 import com.sap.core.odata.core.edm.EdmDateTimeOffset;
 import com.sap.core.odata.core.ep.aggregator.EntityInfoAggregator;
 import com.sap.core.odata.core.ep.util.FormatXml;
@@ -50,6 +50,10 @@ public class AtomFeedProducer {
   }
 
   public void append(final XMLStreamWriter writer, final EntityInfoAggregator eia, final List<Map<String, Object>> data, final boolean isInline) throws EntityProviderException {
+    append(writer, eia, data.iterator(), isInline);
+  }
+
+  public void append(final XMLStreamWriter writer, final EntityInfoAggregator eia, final Iterator<Map<String, Object>> data, final boolean isInline) throws EntityProviderException {
     try {
       writer.writeStartElement(FormatXml.ATOM_FEED);
       TombstoneCallback callback = null;
@@ -128,10 +132,10 @@ public class AtomFeedProducer {
     }
   }
 
-  private void appendEntries(final XMLStreamWriter writer, final EntityInfoAggregator eia, final List<Map<String, Object>> data) throws EntityProviderException {
+  private void appendEntries(final XMLStreamWriter writer, final EntityInfoAggregator eia, final Iterator<Map<String, Object>> data) throws EntityProviderException {
     AtomEntryEntityProducer entryProvider = new AtomEntryEntityProducer(properties);
-    for (Map<String, Object> singleEntryData : data) {
-      entryProvider.append(writer, eia, singleEntryData, false, true);
+    while (data.hasNext()) {
+      entryProvider.append(writer, eia, data.next(), false, true);
     }
   }
 
@@ -169,14 +173,7 @@ public class AtomFeedProducer {
   }
 
   private String createSelfLink(final EntityInfoAggregator eia) throws EntityProviderException {
-    StringBuilder sb = new StringBuilder();
-    if (!eia.isDefaultEntityContainer()) {
-      final String entityContainerName = Encoder.encode(eia.getEntityContainerName());
-      sb.append(entityContainerName).append(Edm.DELIMITER);
-    }
-    final String entitySetName = Encoder.encode(eia.getEntitySetName());
-    sb.append(entitySetName);
-    return sb.toString();
+    return eia.getEntitySetPath();
   }
 
   private void appendAtomMandatoryParts(final XMLStreamWriter writer, final EntityInfoAggregator eia) throws EntityProviderException {
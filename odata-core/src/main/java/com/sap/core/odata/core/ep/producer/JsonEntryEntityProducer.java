@@ -22,7 +22,6 @@ import java.util.Map;
 
 import com.sap.core.odata.api.ODataCallback;
 import com.sap.core.odata.api.commons.HttpContentType;
-import com.sap.core.odata.api.edm.Edm;
 import com.sap.core.odata.api.edm.EdmEntitySet;
 import com.sap.core.odata.api.edm.EdmEntityType;
 import com.sap.core.odata.api.edm.EdmException;
@@ -40,6 +39,7 @@ import com.sap.core.odata.api.ep.callback.WriteFeedCallbackResult;
 import com.sap.core.odata.api.exception.ODataApplicationException;
 import com.sap.core.odata.core.commons.Encoder;
 import com.sap.core.odata.core.ep.aggregator.EntityInfoAggregator;
+import com.sap.core.odata.core.ep.aggregator.EntityPropertyInfo;
 import com.sap.core.odata.core.ep.util.FormatJson;
 import com.sap.core.odata.core.ep.util.JsonStreamWriter;
 
@@ -76,8 +76,7 @@ public class JsonEntryEntityProducer {
       location = (properties.getServiceRoot() == null ? "" : properties.getServiceRoot().toASCIIString()) + self;
       jsonStreamWriter.namedStringValue(FormatJson.ID, location).separator()
           .namedStringValue(FormatJson.URI, location).separator()
-          .namedStringValueRaw(FormatJson.TYPE,
-              type.getNamespace() + Edm.DELIMITER + type.getName());
+          .namedStringValueRaw(FormatJson.TYPE, entityInfo.getEntityTypeName());
       eTag = AtomEntryEntityProducer.createETag(entityInfo, data);
       if (eTag != null) {
         jsonStreamWriter.separator()
@@ -96,12 +95,11 @@ public class JsonEntryEntityProducer {
       }
       jsonStreamWriter.endObject();
 
-      for (final String propertyName : type.getPropertyNames()) {
-        if (entityInfo.getSelectedPropertyNames().contains(propertyName)) {
-          jsonStreamWriter.separator()
-              .name(propertyName);
-          JsonPropertyEntityProducer.appendPropertyValue(jsonStreamWriter, entityInfo.getPropertyInfo(propertyName), data.get(propertyName));
-        }
+      for (final EntityPropertyInfo propertyInfo : entityInfo.getSelectedPropertyInfos()) {
+        final String propertyName = propertyInfo.getName();
+        jsonStreamWriter.separator()
+            .name(propertyName);
+        JsonPropertyEntityProducer.appendPropertyValue(jsonStreamWriter, propertyInfo, data.get(propertyName));
       }
 
       for (final String navigationPropertyName : type.getNavigationPropertyNames()) {
@@ -17,6 +17,7 @@ package com.sap.core.odata.core.ep.producer;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -40,6 +41,10 @@ public class JsonFeedEntityProducer {
   }
 
   public void append(final Writer writer, final EntityInfoAggregator entityInfo, final List<Map<String, Object>> data, final boolean isRootElement) throws EntityProviderException {
+    append(writer, entityInfo, data.iterator(), isRootElement);
+  }
+
+  public void append(final Writer writer, final EntityInfoAggregator entityInfo, final Iterator<Map<String, Object>> data, final boolean isRootElement) throws EntityProviderException {
     JsonStreamWriter jsonStreamWriter = new JsonStreamWriter(writer);
 
     try {
@@ -59,13 +64,13 @@ public class JsonFeedEntityProducer {
           .beginArray();
       JsonEntryEntityProducer entryProducer = new JsonEntryEntityProducer(properties);
       boolean first = true;
-      for (final Map<String, Object> entryData : data) {
+      while (data.hasNext()) {
         if (first) {
           first = false;
         } else {
           jsonStreamWriter.separator();
         }
-        entryProducer.append(writer, entityInfo, entryData, false);
+        entryProducer.append(writer, entityInfo, data.next(), false);
       }
       jsonStreamWriter.endArray();
 
@@ -76,27 +76,27 @@ public class JsonPropertyEntityProducer {
     } else {
       final EdmSimpleType type = (EdmSimpleType) propertyInfo.getType();
       final Object contentValue = value instanceof Map ? ((Map<?, ?>) value).get(propertyInfo.getName()) : value;
-      final String valueAsString = type.valueToString(contentValue, EdmLiteralKind.JSON, propertyInfo.getFacets());
       switch (EdmSimpleTypeKind.valueOf(type.getName())) {
       case String:
-        jsonStreamWriter.stringValue(valueAsString);
+        jsonStreamWriter.stringValue(type.valueToString(contentValue, EdmLiteralKind.JSON, propertyInfo.getFacets()));
         break;
       case Boolean:
       case Byte:
       case SByte:
       case Int16:
       case Int32:
-        jsonStreamWriter.unquotedValue(valueAsString);
+        jsonStreamWriter.unquotedValue(type, contentValue, propertyInfo.getFacets());
         break;
       case DateTime:
       case DateTimeOffset:
         // Although JSON escaping is (and should be) done in the JSON
         // serializer, we backslash-escape the forward slash here explicitly
         // because it is not required to escape it in JSON but in OData.
+        final String valueAsString = type.valueToString(contentValue, EdmLiteralKind.JSON, propertyInfo.getFacets());
         jsonStreamWriter.stringValueRaw(valueAsString == null ? null : valueAsString.replace("/", "\\/"));
         break;
       default:
-        jsonStreamWriter.stringValueRaw(valueAsString);
+        jsonStreamWriter.stringValueRaw(type, contentValue, propertyInfo.getFacets());
         break;
       }
     }
@@ -15,6 +15,7 @@
  ******************************************************************************/
 package com.sap.core.odata.core.ep.producer;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -26,7 +27,10 @@ import com.sap.core.odata.api.edm.EdmCustomizableFeedMappings;
 import com.sap.core.odata.api.edm.EdmException;
 import com.sap.core.odata.api.edm.EdmLiteralKind;
 import com.sap.core.odata.api.edm.EdmSimpleType;
+import com.sap.core.odata.api.edm.EdmSimpleTypeException;
 import com.sap.core.odata.api.ep.EntityProviderException;
+import com.sap.core.odata.core.edm.AbstractSimpleType;
+import com.sap.core.odata.core.edm.EdmString;
 import com.sap.core.odata.core.ep.aggregator.EntityComplexPropertyInfo;
 import com.sap.core.odata.core.ep.aggregator.EntityPropertyInfo;
 import com.sap.core.odata.core.ep.util.FormatXml;
@@ -37,6 +41,10 @@ import com.sap.core.odata.core.ep.util.FormatXml;
  */
 public class XmlPropertyEntityProducer {
 
+  /* reused for formatting simple-property values without intermediate Strings */
+  private final StringBuilder valueBuffer = new StringBuilder();
+  private char[] valueCharacters = new char[64];
+
   /**
    * Append {@link Object} <code>value</code> based on {@link EntityPropertyInfo} to {@link XMLStreamWriter}
    * in an already existing XML structure inside the d namespace.
@@ -179,11 +187,32 @@ public class XmlPropertyEntityProducer {
     }
 
     final EdmSimpleType type = (EdmSimpleType) prop.getType();
-    final String valueAsString = type.valueToString(contentValue, EdmLiteralKind.DEFAULT, prop.getFacets());
-    if (valueAsString == null) {
-      writer.writeAttribute(Edm.NAMESPACE_M_2007_08, FormatXml.ATOM_NULL, FormatXml.ATOM_VALUE_TRUE);
-    } else {
-      writer.writeCharacters(valueAsString);
+    if (!(type instanceof AbstractSimpleType) || type instanceof EdmString) {
+      // A String value itself is written; there is nothing to gain from formatting it into the buffer.
+      final String valueAsString = type.valueToString(contentValue, EdmLiteralKind.DEFAULT, prop.getFacets());
+      if (valueAsString == null) {
+        writer.writeAttribute(Edm.NAMESPACE_M_2007_08, FormatXml.ATOM_NULL, FormatXml.ATOM_VALUE_TRUE);
+      } else {
+        writer.writeCharacters(valueAsString);
+      }
+      return;
+    }
+
+    valueBuffer.setLength(0);
+    try {
+      if (((AbstractSimpleType) type).appendValue(contentValue, EdmLiteralKind.DEFAULT, prop.getFacets(), valueBuffer)) {
+        final int length = valueBuffer.length();
+        if (length > valueCharacters.length) {
+          valueCharacters = new char[Math.max(length, 2 * valueCharacters.length)];
+        }
+        valueBuffer.getChars(0, length, valueCharacters, 0);
+        writer.writeCharacters(valueCharacters, 0, length);
+      } else {
+        writer.writeAttribute(Edm.NAMESPACE_M_2007_08, FormatXml.ATOM_NULL, FormatXml.ATOM_VALUE_TRUE);
+      }
+    } catch (final IOException e) {
+      // cannot happen; a StringBuilder does not throw it
+      throw new EdmSimpleTypeException(EdmSimpleTypeException.COMMON, e);
     }
   }
 
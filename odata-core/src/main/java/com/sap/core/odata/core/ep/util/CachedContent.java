@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.core.ep.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Serialized content which is produced once and served many times, e.g., the
+ * metadata document or the service document.
+ * <p>Every call of {@link #getInputStream()} returns a new stream over the same
+ * bytes without copying them. The strong entity tag is derived from the content
+ * on first access, so it changes exactly when the content changes.</p>
+ * 
+ * @author SAP AG
+ */
+public final class CachedContent {
+
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  private final byte[] content;
+  private volatile String eTag;
+
+  public CachedContent(final byte[] content) {
+    this.content = content;
+  }
+
+  public InputStream getInputStream() {
+    return new ByteArrayInputStream(content);
+  }
+
+  public int getLength() {
+    return content.length;
+  }
+
+  /**
+   * @return strong entity tag, including the surrounding quotes
+   */
+  public String getETag() {
+    // concurrent first calls compute the same value
+    if (eTag == null) {
+      eTag = createETag(content);
+    }
+    return eTag;
+  }
+
+  private static String createETag(final byte[] content) {
+    byte[] digest;
+    try {
+      digest = MessageDigest.getInstance("MD5").digest(content);
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    StringBuilder eTag = new StringBuilder(2 + 2 * digest.length).append('"');
+    for (final byte b : digest) {
+      eTag.append(HEX_DIGITS[(b >> 4) & 0x0F]).append(HEX_DIGITS[b & 0x0F]);
+    }
+    return eTag.append('"').toString();
+  }
+}
@@ -18,15 +18,29 @@ package com.sap.core.odata.core.ep.util;
 import java.io.IOException;
 import java.io.Writer;
 
+import com.sap.core.odata.api.edm.EdmFacets;
+import com.sap.core.odata.api.edm.EdmLiteralKind;
+import com.sap.core.odata.api.edm.EdmSimpleType;
+import com.sap.core.odata.api.edm.EdmSimpleTypeException;
+import com.sap.core.odata.core.edm.AbstractSimpleType;
+
 /**
  * Writes JSON output.
+ * <p>If the writer is a {@link Utf8JsonWriter}, names and escaped string values
+ * are written through its byte-level shortcuts.</p>
+ * <p>Simple-type values are formatted into a reusable buffer first
+ * so that nothing is written for a value that turns out to be invalid.</p>
  * @author SAP AG
  */
 public class JsonStreamWriter {
   private final Writer writer;
+  private final Utf8JsonWriter utf8Writer;
+  private final StringBuilder valueBuffer = new StringBuilder();
+  private char[] valueChars = new char[32];
 
   public JsonStreamWriter(final Writer writer) {
     this.writer = writer;
+    utf8Writer = writer instanceof Utf8JsonWriter ? (Utf8JsonWriter) writer : null;
   }
 
   public JsonStreamWriter beginObject() throws IOException {
@@ -50,7 +64,11 @@ public class JsonStreamWriter {
   }
 
   public JsonStreamWriter name(final String name) throws IOException {
-    writer.append('"').append(name).append('"').append(':');
+    if (utf8Writer == null) {
+      writer.append('"').append(name).append('"').append(':');
+    } else {
+      utf8Writer.writeName(name);
+    }
     return this;
   }
 
@@ -59,6 +77,51 @@ public class JsonStreamWriter {
     return this;
   }
 
+  /**
+   * Writes the JSON literal of a simple-type value without quotation marks;
+   * <code>null</code> is written as JSON null.
+   */
+  public JsonStreamWriter unquotedValue(final EdmSimpleType type, final Object value, final EdmFacets facets) throws IOException, EdmSimpleTypeException {
+    if (!(type instanceof AbstractSimpleType)) {
+      return unquotedValue(type.valueToString(value, EdmLiteralKind.JSON, facets));
+    }
+    if (format((AbstractSimpleType) type, value, facets)) {
+      writeValueBuffer();
+    } else {
+      writer.append(FormatJson.NULL);
+    }
+    return this;
+  }
+
+  /**
+   * Writes the JSON literal of a simple-type value in quotation marks without escaping;
+   * <code>null</code> is written as JSON null.
+   */
+  public JsonStreamWriter stringValueRaw(final EdmSimpleType type, final Object value, final EdmFacets facets) throws IOException, EdmSimpleTypeException {
+    if (value == null || !(type instanceof AbstractSimpleType)) {
+      return stringValueRaw(type.valueToString(value, EdmLiteralKind.JSON, facets));
+    }
+    format((AbstractSimpleType) type, value, facets);
+    writer.append('"');
+    writeValueBuffer();
+    writer.append('"');
+    return this;
+  }
+
+  private boolean format(final AbstractSimpleType type, final Object value, final EdmFacets facets) throws IOException, EdmSimpleTypeException {
+    valueBuffer.setLength(0);
+    return type.appendValue(value, EdmLiteralKind.JSON, facets, valueBuffer);
+  }
+
+  private void writeValueBuffer() throws IOException {
+    final int length = valueBuffer.length();
+    if (valueChars.length < length) {
+      valueChars = new char[Math.max(length, 2 * valueChars.length)];
+    }
+    valueBuffer.getChars(0, length, valueChars, 0);
+    writer.write(valueChars, 0, length);
+  }
+
   public JsonStreamWriter stringValueRaw(final String value) throws IOException {
     if (value == null) {
       writer.append(FormatJson.NULL);
@@ -73,7 +136,11 @@ public class JsonStreamWriter {
       writer.append(FormatJson.NULL);
     } else {
       writer.append('"');
-      escape(value);
+      if (utf8Writer == null) {
+        escape(value);
+      } else {
+        utf8Writer.writeEscaped(value);
+      }
       writer.append('"');
     }
     return this;
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.core.ep.util;
+
+import java.util.Iterator;
+
+/**
+ * Iterable over the entries of an iterator that can be consumed only once.
+ * <p>A streaming feed response iterates over its data each time it is written;
+ * if the data have been given as {@link Iterator}, a second write must fail
+ * instead of silently producing an empty feed.</p>
+ * 
+ * @author SAP AG
+ */
+public class OneShotIterable<T> implements Iterable<T> {
+
+  private Iterator<T> iterator;
+
+  public OneShotIterable(final Iterator<T> iterator) {
+    this.iterator = iterator;
+  }
+
+  /**
+   * Returns the iterator given at construction time.
+   * @throws IllegalStateException if the iterator has already been returned
+   */
+  @Override
+  public synchronized Iterator<T> iterator() {
+    if (iterator == null) {
+      throw new IllegalStateException("Data given as iterator can be written only once.");
+    }
+    final Iterator<T> result = iterator;
+    iterator = null;
+    return result;
+  }
+}
@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.core.ep.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.sap.core.odata.api.processor.ODataStreamingEntity;
+
+/**
+ * Response entity which writes its content on demand.
+ * <p>If the entity is sent via {@link ODataStreamingEntity#write(java.io.OutputStream)},
+ * the content goes directly to the response output stream without any buffering.
+ * If the entity is read as {@link InputStream} instead (e.g., inside a batch response
+ * or for debug output), the content is written once into a {@link CircleStreamBuffer}
+ * and read from there.</p>
+ * 
+ * @author SAP AG
+ */
+public abstract class StreamingEntity extends InputStream implements ODataStreamingEntity {
+
+  private CircleStreamBuffer buffer;
+
+  private InputStream getBufferedStream() throws IOException {
+    if (buffer == null) {
+      buffer = new CircleStreamBuffer();
+      write(buffer.getOutputStream());
+      buffer.closeWrite();
+    }
+    return buffer.getInputStream();
+  }
+
+  @Override
+  public int read() throws IOException {
+    return getBufferedStream().read();
+  }
+
+  @Override
+  public int read(final byte[] b, final int off, final int len) throws IOException {
+    return getBufferedStream().read(b, off, len);
+  }
+
+  @Override
+  public int available() throws IOException {
+    return getBufferedStream().available();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (buffer != null) {
+      buffer.close();
+    }
+  }
+}
@@ -0,0 +1,236 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.core.ep.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writer encoding characters directly as UTF-8 bytes into a buffer
+ * that is written to the underlying output stream when it is full or flushed.
+ * <p>In contrast to an {@link java.io.OutputStreamWriter} it needs no
+ * charset encoder and offers the {@link JsonStreamWriter} two shortcuts:
+ * names are written from pre-encoded byte arrays that are shared across
+ * all writers, and string values are escaped and encoded in one pass with
+ * a fast path for ASCII characters.</p>
+ * <p>Unpaired surrogates are written as <code>'?'</code> like the standard
+ * UTF-8 encoder does.</p>
+ * @author SAP AG
+ */
+public class Utf8JsonWriter extends Writer {
+
+  private static final int BUFFER_SIZE = 8192;
+  /* names come from entity data models; the bound protects against unexpected variety */
+  private static final int MAX_CACHED_NAMES = 4096;
+  private static final Map<String, byte[]> names = new ConcurrentHashMap<String, byte[]>();
+
+  private static final byte[][] ASCII_ESCAPES = new byte[128][];
+  private static final byte[] HEX_DIGITS = { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F' };
+
+  static {
+    for (char c = 0; c < 0x20; c++) {
+      ASCII_ESCAPES[c] = new byte[] { '\\', 'u', '0', '0', HEX_DIGITS[c >> 4], HEX_DIGITS[c & 0xF] };
+    }
+    ASCII_ESCAPES['\b'] = new byte[] { '\\', 'b' };
+    ASCII_ESCAPES['\t'] = new byte[] { '\\', 't' };
+    ASCII_ESCAPES['\n'] = new byte[] { '\\', 'n' };
+    ASCII_ESCAPES['\f'] = new byte[] { '\\', 'f' };
+    ASCII_ESCAPES['\r'] = new byte[] { '\\', 'r' };
+    ASCII_ESCAPES['"'] = new byte[] { '\\', '"' };
+    ASCII_ESCAPES['\\'] = new byte[] { '\\', '\\' };
+  }
+
+  private final OutputStream out;
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private int position;
+  /* high surrogate of a pair split across two write calls */
+  private char pendingHighSurrogate;
+
+  public Utf8JsonWriter(final OutputStream out) {
+    this.out = out;
+  }
+
+  @Override
+  public void write(final int c) throws IOException {
+    writeChar((char) c);
+  }
+
+  @Override
+  public void write(final char[] characters, final int offset, final int length) throws IOException {
+    for (int i = offset; i < offset + length; i++) {
+      writeChar(characters[i]);
+    }
+  }
+
+  @Override
+  public void write(final String string, final int offset, final int length) throws IOException {
+    for (int i = offset; i < offset + length; i++) {
+      writeChar(string.charAt(i));
+    }
+  }
+
+  @Override
+  public Writer append(final char c) throws IOException {
+    writeChar(c);
+    return this;
+  }
+
+  @Override
+  public Writer append(final CharSequence sequence) throws IOException {
+    final CharSequence characters = sequence == null ? "null" : sequence;
+    for (int i = 0; i < characters.length(); i++) {
+      writeChar(characters.charAt(i));
+    }
+    return this;
+  }
+
+  /**
+   * Writes a name followed by a colon, i.e., <code>"name":</code>, without escaping.
+   * @param name the name
+   * @throws IOException if an I/O error occurs
+   */
+  protected void writeName(final String name) throws IOException {
+    byte[] encoded = names.get(name);
+    if (encoded == null) {
+      encoded = ("\"" + name + "\":").getBytes("UTF-8");
+      if (names.size() >= MAX_CACHED_NAMES) {
+        names.clear();
+      }
+      names.put(name, encoded);
+    }
+    writeBytes(encoded);
+  }
+
+  /**
+   * Writes the JSON-escaped form of a Java String value according to RFC 4627
+   * in the same form as {@link JsonStreamWriter#escape(String)}.
+   * @param value the Java String
+   * @throws IOException if an I/O error occurs
+   */
+  protected void writeEscaped(final String value) throws IOException {
+    flushPendingSurrogate();
+    final int length = value.length();
+    int i = 0;
+    while (i < length) {
+      // ASCII fast path: copy characters as bytes as long as no escaping is needed
+      if (position + length - i > buffer.length) {
+        flushBuffer();
+      }
+      final int end = Math.min(length, i + buffer.length - position);
+      char c;
+      while (i < end && (c = value.charAt(i)) < 0x80 && ASCII_ESCAPES[c] == null) {
+        buffer[position++] = (byte) c;
+        i++;
+      }
+      if (i < end) {
+        c = value.charAt(i++);
+        if (c < 0x80) {
+          writeBytes(ASCII_ESCAPES[c]);
+        } else if (Character.isHighSurrogate(c) && i < length && Character.isLowSurrogate(value.charAt(i))) {
+          writeCodePoint(Character.toCodePoint(c, value.charAt(i++)));
+        } else {
+          writeCodePoint(Character.isLowSurrogate(c) || Character.isHighSurrogate(c) ? '?' : c);
+        }
+      }
+    }
+  }
+
+  private void writeChar(final char c) throws IOException {
+    if (pendingHighSurrogate != 0) {
+      final char high = pendingHighSurrogate;
+      pendingHighSurrogate = 0;
+      if (Character.isLowSurrogate(c)) {
+        writeCodePoint(Character.toCodePoint(high, c));
+        return;
+      }
+      writeCodePoint('?');
+    }
+    if (c < 0x80) {
+      if (position == buffer.length) {
+        flushBuffer();
+      }
+      buffer[position++] = (byte) c;
+    } else if (Character.isHighSurrogate(c)) {
+      pendingHighSurrogate = c;
+    } else {
+      writeCodePoint(Character.isLowSurrogate(c) ? '?' : c);
+    }
+  }
+
+  private void flushPendingSurrogate() throws IOException {
+    if (pendingHighSurrogate != 0) {
+      pendingHighSurrogate = 0;
+      writeCodePoint('?');
+    }
+  }
+
+  private void writeCodePoint(final int codePoint) throws IOException {
+    if (position + 4 > buffer.length) {
+      flushBuffer();
+    }
+    if (codePoint < 0x80) {
+      buffer[position++] = (byte) codePoint;
+    } else if (codePoint < 0x800) {
+      buffer[position++] = (byte) (0xC0 | codePoint >> 6);
+      buffer[position++] = (byte) (0x80 | codePoint & 0x3F);
+    } else if (codePoint < 0x10000) {
+      buffer[position++] = (byte) (0xE0 | codePoint >> 12);
+      buffer[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+      buffer[position++] = (byte) (0x80 | codePoint & 0x3F);
+    } else {
+      buffer[position++] = (byte) (0xF0 | codePoint >> 18);
+      buffer[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+      buffer[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+      buffer[position++] = (byte) (0x80 | codePoint & 0x3F);
+    }
+  }
+
+  private void writeBytes(final byte[] bytes) throws IOException {
+    flushPendingSurrogate();
+    if (position + bytes.length > buffer.length) {
+      flushBuffer();
+      if (bytes.length > buffer.length) {
+        out.write(bytes);
+        return;
+      }
+    }
+    System.arraycopy(bytes, 0, buffer, position, bytes.length);
+    position += bytes.length;
+  }
+
+  private void flushBuffer() throws IOException {
+    if (position > 0) {
+      out.write(buffer, 0, position);
+      position = 0;
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    flushBuffer();
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    flushPendingSurrogate();
+    flush();
+    out.close();
+  }
+}
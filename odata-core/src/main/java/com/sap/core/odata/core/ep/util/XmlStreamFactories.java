@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.core.ep.util;
+
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+
+import com.sap.core.odata.api.ep.XmlStreamFactoryProvider;
+
+/**
+ * Shared StAX factories.
+ * <p>Looking up a StAX implementation with <code>newInstance()</code> scans the
+ * class path on every call; the factories are therefore created and configured
+ * once, either by the {@link XmlStreamFactoryProvider} registered as service or
+ * by the default lookup, and then used by all threads.</p>
+ * 
+ * @author SAP AG
+ */
+public final class XmlStreamFactories {
+
+  private static final XmlStreamFactoryProvider DEFAULT_PROVIDER = new XmlStreamFactoryProvider() {
+    @Override
+    public XMLInputFactory createInputFactory() {
+      return XMLInputFactory.newInstance();
+    }
+
+    @Override
+    public XMLOutputFactory createOutputFactory() {
+      return XMLOutputFactory.newInstance();
+    }
+  };
+
+  private static volatile Factories factories;
+
+  private XmlStreamFactories() {}
+
+  /**
+   * Returns the shared, namespace-aware and non-validating input factory.
+   * @return an {@link XMLInputFactory}
+   */
+  public static XMLInputFactory getInputFactory() {
+    return getFactories().inputFactory;
+  }
+
+  /**
+   * Returns the shared output factory.
+   * @return an {@link XMLOutputFactory}
+   */
+  public static XMLOutputFactory getOutputFactory() {
+    return getFactories().outputFactory;
+  }
+
+  /**
+   * Replaces the shared factories with the ones created by the given provider;
+   * with <code>null</code> the registered or default provider is looked up again
+   * on next use. Intended for tests and benchmarks.
+   * @param provider a {@link XmlStreamFactoryProvider} or <code>null</code>
+   */
+  public static void setProvider(final XmlStreamFactoryProvider provider) {
+    factories = provider == null ? null : new Factories(provider);
+  }
+
+  private static Factories getFactories() {
+    Factories current = factories;
+    if (current == null) {
+      synchronized (XmlStreamFactories.class) {
+        current = factories;
+        if (current == null) {
+          current = new Factories(findProvider());
+          factories = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  private static XmlStreamFactoryProvider findProvider() {
+    try {
+      final Iterator<XmlStreamFactoryProvider> iterator =
+          ServiceLoader.load(XmlStreamFactoryProvider.class, XmlStreamFactories.class.getClassLoader()).iterator();
+      if (iterator.hasNext()) {
+        return iterator.next();
+      }
+    } catch (final ServiceConfigurationError e) {
+      // A broken registration must not make XML formats unusable; fall back to the default.
+    }
+    return DEFAULT_PROVIDER;
+  }
+
+  private static final class Factories {
+    private final XMLInputFactory inputFactory;
+    private final XMLOutputFactory outputFactory;
+
+    private Factories(final XmlStreamFactoryProvider provider) {
+      inputFactory = provider.createInputFactory();
+      inputFactory.setProperty(XMLInputFactory.IS_VALIDATING, false);
+      inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+      outputFactory = provider.createOutputFactory();
+    }
+  }
+}
@@ -0,0 +1,365 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.core.rest;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.ws.rs.core.StreamingOutput;
+
+import com.sap.core.odata.api.ODataCompressionCallback;
+import com.sap.core.odata.api.exception.ODataRequestEntityTooLargeException;
+import com.sap.core.odata.api.processor.ODataStreamingEntity;
+import com.sap.core.odata.core.commons.ContentType;
+
+/**
+ * Content coding of HTTP message bodies with <code>gzip</code> or <code>deflate</code>
+ * as enabled by an {@link ODataCompressionCallback}.
+ * @author SAP AG
+ */
+public final class ContentCoding {
+
+  public static final String GZIP = "gzip";
+  public static final String DEFLATE = "deflate";
+  private static final String X_GZIP = "x-gzip";
+  private static final String IDENTITY = "identity";
+  private static final String ANY = "*";
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private final String name;
+  private final int minimumSize;
+  private final int level;
+
+  private ContentCoding(final String name, final int minimumSize, final int level) {
+    this.name = name;
+    this.minimumSize = minimumSize;
+    this.level = level;
+  }
+
+  /**
+   * Chooses the content coding for the response body from the values of the
+   * <code>Accept-Encoding</code> request header; <code>gzip</code> is preferred
+   * over <code>deflate</code> if the client accepts both with the same quality.
+   * @param callback the compression settings of the service
+   * @param acceptEncodings the header values, may be <code>null</code>
+   * @return the content coding or <code>null</code> if the client accepts none
+   */
+  public static ContentCoding create(final ODataCompressionCallback callback, final List<String> acceptEncodings) {
+    if (acceptEncodings == null) {
+      return null;
+    }
+    double gzip = -1;
+    double deflate = -1;
+    double any = -1;
+    for (final String acceptEncoding : acceptEncodings) {
+      for (final String element : acceptEncoding.split(",")) {
+        final String[] parts = element.split(";");
+        final String coding = parts[0].trim().toLowerCase(Locale.ENGLISH);
+        final double quality = getQuality(parts);
+        if (GZIP.equals(coding) || X_GZIP.equals(coding)) {
+          gzip = Math.max(gzip, quality);
+        } else if (DEFLATE.equals(coding)) {
+          deflate = Math.max(deflate, quality);
+        } else if (ANY.equals(coding)) {
+          any = Math.max(any, quality);
+        }
+      }
+    }
+    // RFC 2616, 14.3: "The special "*" symbol in an Accept-Encoding field
+    // matches any available content-coding not explicitly listed in the header field."
+    if (gzip < 0) {
+      gzip = any;
+    }
+    if (deflate < 0) {
+      deflate = any;
+    }
+    final String name = gzip > 0 && gzip >= deflate ? GZIP : deflate > 0 ? DEFLATE : null;
+    return name == null ? null : new ContentCoding(name, callback.getMinimumSize(), callback.getCompressionLevel());
+  }
+
+  private static double getQuality(final String[] parts) {
+    for (int i = 1; i < parts.length; i++) {
+      final String parameter = parts[i].trim();
+      if (parameter.startsWith("q=")) {
+        try {
+          return Double.parseDouble(parameter.substring(2).trim());
+        } catch (final NumberFormatException e) {
+          return 0;
+        }
+      }
+    }
+    return 1;
+  }
+
+  /**
+   * @return the name of the content coding as used in the <code>Content-Encoding</code> header
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns the entity tag of the encoded representation. A strong entity tag
+   * gets the name of the content coding appended, e.g., <code>"1a2b-gzip"</code>,
+   * since representations with different content codings must not share a strong
+   * validator (RFC 7232, 2.3.3); weak entity tags are kept.
+   * @param eTag the entity tag of the unencoded representation, may be <code>null</code>
+   * @return the entity tag of the encoded representation
+   */
+  public String encodeETag(final String eTag) {
+    if (eTag == null || eTag.startsWith("W/") || eTag.length() < 2 || !eTag.endsWith("\"")) {
+      return eTag;
+    }
+    return eTag.substring(0, eTag.length() - 1) + '-' + name + '"';
+  }
+
+  /**
+   * Encodes a response entity if it is worth it.
+   * @param entity the response entity
+   * @param contentType the content type of the response
+   * @return the entity to be sent; it is encoded if and only if
+   *         {@link #isEncoded(Object)} returns <code>true</code> for it
+   * @throws IOException if the start of an entity stream could not be read
+   */
+  public Object encode(final Object entity, final String contentType) throws IOException {
+    if (entity == null || !isCompressible(contentType)) {
+      return entity;
+    }
+    if (entity instanceof ODataStreamingEntity) {
+      return new EncodedEntity(null, 0, null, (ODataStreamingEntity) entity);
+    }
+    if (entity instanceof String) {
+      final String charset = getCharset(contentType);
+      final byte[] bytes = ((String) entity).getBytes(charset == null ? ContentType.CHARSET_UTF_8 : charset);
+      return bytes.length < minimumSize ? entity : new EncodedEntity(bytes, bytes.length, null, null);
+    }
+    if (entity instanceof InputStream) {
+      // Read the start of the stream to see whether it reaches the minimum size.
+      final InputStream stream = (InputStream) entity;
+      byte[] start = new byte[Math.max(minimumSize, 1)];
+      int length = 0;
+      int count = 0;
+      while (length < minimumSize && (count = stream.read(start, length, start.length - length)) >= 0) {
+        length += count;
+      }
+      if (count < 0) {
+        stream.close();
+        return new ByteArrayInputStream(start, 0, length);
+      }
+      return new EncodedEntity(start, length, stream, null);
+    }
+    return entity;
+  }
+
+  /**
+   * @param entity an entity returned by {@link #encode(Object, String)}
+   * @return whether the entity is encoded
+   */
+  public static boolean isEncoded(final Object entity) {
+    return entity instanceof EncodedEntity;
+  }
+
+  private static boolean isCompressible(final String contentType) {
+    if (contentType == null) {
+      return false;
+    }
+    final String type = contentType.toLowerCase(Locale.ENGLISH);
+    return type.startsWith("text/")
+        || type.startsWith("multipart/")
+        || type.startsWith("application/") && (type.contains("xml") || type.contains("json"));
+  }
+
+  private static String getCharset(final String contentType) {
+    return ContentType.isParseable(contentType) ?
+        ContentType.create(contentType).getParameters().get(ContentType.PARAMETER_CHARSET) :
+        null;
+  }
+
+  /**
+   * Decodes a request body according to its content coding.
+   * Bodies with an unknown content coding are returned unchanged.
+   * Reading more than the maximum size from a decoded body results in an
+   * {@link IOException} caused by an {@link ODataRequestEntityTooLargeException}.
+   * @param contentEncoding the value of the <code>Content-Encoding</code> request header, may be <code>null</code>
+   * @param content the request body
+   * @param maximumSize the maximum size of the decoded body in bytes; negative for no limit
+   * @return the decoded request body
+   * @throws IOException if the body is not encoded as announced
+   */
+  public static InputStream decode(final String contentEncoding, final InputStream content, final long maximumSize) throws IOException {
+    if (contentEncoding == null) {
+      return content;
+    }
+    final String coding = contentEncoding.trim().toLowerCase(Locale.ENGLISH);
+    if (GZIP.equals(coding) || X_GZIP.equals(coding)) {
+      // The GZIP header is read immediately, so an empty body must be left alone.
+      PushbackInputStream pushbackStream = new PushbackInputStream(content);
+      final int first = pushbackStream.read();
+      if (first < 0) {
+        return pushbackStream;
+      }
+      pushbackStream.unread(first);
+      return limit(new GZIPInputStream(pushbackStream, BUFFER_SIZE), maximumSize);
+    } else if (DEFLATE.equals(coding)) {
+      return limit(new InflaterInputStream(content), maximumSize);
+    } else {
+      return content;
+    }
+  }
+
+  /**
+   * Returns whether reading a request body returned by
+   * {@link #decode(String, InputStream, long)} has failed because of its maximum size.
+   * Processors usually wrap the failure in an exception of their own,
+   * so it is checked after the request has been handled.
+   * @param body the request body
+   * @return <code>true</code> if the maximum size has been exceeded
+   */
+  public static boolean isMaximumSizeExceeded(final InputStream body) {
+    return body instanceof LimitedInputStream && ((LimitedInputStream) body).exceeded;
+  }
+
+  private static InputStream limit(final InputStream decoder, final long maximumSize) {
+    return maximumSize < 0 ? decoder : new LimitedInputStream(decoder, maximumSize);
+  }
+
+  private DeflaterOutputStream createEncoder(final OutputStream out, final Deflater deflater) throws IOException {
+    if (GZIP.equals(name)) {
+      return new GZIPOutputStream(out, BUFFER_SIZE) {
+        {
+          // GZIPOutputStream does not offer to set the compression level,
+          // so its deflater is replaced by one with the configured level.
+          def.end();
+          def = deflater;
+        }
+      };
+    } else {
+      return new DeflaterOutputStream(out, deflater, BUFFER_SIZE);
+    }
+  }
+
+  /**
+   * Entity written through the encoder: first the already read start,
+   * then the rest of the stream or the output of the streaming entity.
+   */
+  private final class EncodedEntity implements StreamingOutput {
+    private final byte[] start;
+    private final int startLength;
+    private final InputStream rest;
+    private final ODataStreamingEntity streamingEntity;
+
+    private EncodedEntity(final byte[] start, final int startLength, final InputStream rest, final ODataStreamingEntity streamingEntity) {
+      this.start = start;
+      this.startLength = startLength;
+      this.rest = rest;
+      this.streamingEntity = streamingEntity;
+    }
+
+    @Override
+    public void write(final OutputStream output) throws IOException {
+      // The raw deflate format is used inside the GZIP file format.
+      final Deflater deflater = new Deflater(level, GZIP.equals(name));
+      try {
+        DeflaterOutputStream encoder = createEncoder(output, deflater);
+        if (start != null) {
+          encoder.write(start, 0, startLength);
+        }
+        if (rest != null) {
+          byte[] buffer = new byte[BUFFER_SIZE];
+          int count;
+          while ((count = rest.read(buffer)) >= 0) {
+            encoder.write(buffer, 0, count);
+          }
+        }
+        if (streamingEntity != null) {
+          streamingEntity.write(encoder);
+        }
+        encoder.finish();
+      } finally {
+        deflater.end();
+        if (rest != null) {
+          rest.close();
+        }
+      }
+    }
+  }
+
+  /**
+   * Counts the bytes read from the decoder and fails as soon as
+   * their number exceeds the maximum size.
+   */
+  private static final class LimitedInputStream extends FilterInputStream {
+    private final long maximumSize;
+    private long count;
+    private boolean exceeded;
+
+    private LimitedInputStream(final InputStream in, final long maximumSize) {
+      super(in);
+      this.maximumSize = maximumSize;
+    }
+
+    @Override
+    public int read() throws IOException {
+      final int result = super.read();
+      if (result >= 0) {
+        count(1);
+      }
+      return result;
+    }
+
+    @Override
+    public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+      final int result = super.read(buffer, offset, length);
+      if (result > 0) {
+        count(result);
+      }
+      return result;
+    }
+
+    @Override
+    public long skip(final long length) throws IOException {
+      final long result = super.skip(length);
+      count(result);
+      return result;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    private void count(final long length) throws IOException {
+      count += length;
+      if (count > maximumSize) {
+        exceeded = true;
+        throw new IOException("Decoded request body exceeds " + maximumSize + " bytes",
+            new ODataRequestEntityTooLargeException(ODataRequestEntityTooLargeException.COMMON));
+      }
+    }
+  }
+}
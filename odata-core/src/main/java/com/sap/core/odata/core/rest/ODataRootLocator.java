@@ -18,6 +18,7 @@ package com.sap.core.odata.core.rest;
 import java.util.List;
 
 import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.Encoded;
 import javax.ws.rs.HeaderParam;
@@ -92,19 +93,7 @@ public class ODataRootLocator {
       return handleRedirect();
     }
 
-    final String factoryClassName = servletConfig.getInitParameter(ODataServiceFactory.FACTORY_LABEL);
-    if (factoryClassName == null) {
-      throw new ODataRuntimeException("servlet config missing: com.sap.core.odata.processor.factory");
-    }
-
-    ClassLoader cl = (ClassLoader) servletRequest.getAttribute(ODataServiceFactory.FACTORY_CLASSLOADER_LABEL);
-    Class<?> factoryClass;
-    if (cl == null) {
-      factoryClass = Class.forName(factoryClassName);
-    } else {
-      factoryClass = Class.forName(factoryClassName, true, cl);
-    }
-    ODataServiceFactory serviceFactory = (ODataServiceFactory) factoryClass.newInstance();
+    ODataServiceFactory serviceFactory = getServiceFactory();
 
     int pathSplit = 0;
     final String pathSplitAsString = servletConfig.getInitParameter(ODataServiceFactory.PATH_SPLIT_LABEL);
@@ -124,6 +113,43 @@ public class ODataRootLocator {
     return ODataSubLocator.create(param);
   }
 
+  private ODataServiceFactory getServiceFactory() throws ClassNotFoundException, InstantiationException, IllegalAccessException {
+    if (!Boolean.parseBoolean(servletConfig.getInitParameter(ODataServiceFactory.SHARED_FACTORY_LABEL))) {
+      return createServiceFactory();
+    }
+
+    // one factory instance per servlet, kept in the servlet context
+    final ServletContext servletContext = servletConfig.getServletContext();
+    final String attributeName = ODataServiceFactory.SHARED_FACTORY_LABEL + "." + servletConfig.getServletName();
+    ODataServiceFactory serviceFactory = (ODataServiceFactory) servletContext.getAttribute(attributeName);
+    if (serviceFactory == null) {
+      synchronized (servletContext) {
+        serviceFactory = (ODataServiceFactory) servletContext.getAttribute(attributeName);
+        if (serviceFactory == null) {
+          serviceFactory = createServiceFactory();
+          servletContext.setAttribute(attributeName, serviceFactory);
+        }
+      }
+    }
+    return serviceFactory;
+  }
+
+  private ODataServiceFactory createServiceFactory() throws ClassNotFoundException, InstantiationException, IllegalAccessException {
+    final String factoryClassName = servletConfig.getInitParameter(ODataServiceFactory.FACTORY_LABEL);
+    if (factoryClassName == null) {
+      throw new ODataRuntimeException("servlet config missing: com.sap.core.odata.processor.factory");
+    }
+
+    ClassLoader cl = (ClassLoader) servletRequest.getAttribute(ODataServiceFactory.FACTORY_CLASSLOADER_LABEL);
+    Class<?> factoryClass;
+    if (cl == null) {
+      factoryClass = Class.forName(factoryClassName);
+    } else {
+      factoryClass = Class.forName(factoryClassName, true, cl);
+    }
+    return (ODataServiceFactory) factoryClass.newInstance();
+  }
+
   private Object handleRedirect() {
     return new ODataRedirectLocator();
   }
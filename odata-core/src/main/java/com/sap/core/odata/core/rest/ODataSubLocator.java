@@ -15,6 +15,9 @@
  ******************************************************************************/
 package com.sap.core.odata.core.rest;
 
+import java.io.IOException;
+import java.io.InputStream;
+
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
 import javax.ws.rs.HEAD;
@@ -25,12 +28,16 @@ import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.core.Response;
 
+import com.sap.core.odata.api.ODataCompressionCallback;
 import com.sap.core.odata.api.ODataService;
 import com.sap.core.odata.api.ODataServiceFactory;
+import com.sap.core.odata.api.commons.HttpHeaders;
 import com.sap.core.odata.api.commons.ODataHttpMethod;
 import com.sap.core.odata.api.exception.MessageReference;
+import com.sap.core.odata.api.exception.ODataBadRequestException;
 import com.sap.core.odata.api.exception.ODataException;
 import com.sap.core.odata.api.exception.ODataNotImplementedException;
+import com.sap.core.odata.api.exception.ODataRequestEntityTooLargeException;
 import com.sap.core.odata.api.processor.ODataResponse;
 import com.sap.core.odata.core.ODataContextImpl;
 import com.sap.core.odata.core.ODataExceptionWrapper;
@@ -44,6 +51,7 @@ public final class ODataSubLocator {
 
   private ODataServiceFactory serviceFactory;
   private ODataRequestImpl request;
+  private ContentCoding contentCoding;
 
   @GET
   public Response handleGet() throws ODataException {
@@ -141,7 +149,10 @@ public final class ODataSubLocator {
     ODataRequestHandler requestHandler = new ODataRequestHandler(serviceFactory, service, context);
 
     final ODataResponse odataResponse = requestHandler.handle(request);
-    final Response response = RestUtil.convertResponse(odataResponse);
+    if (ContentCoding.isMaximumSizeExceeded(request.getBody())) {
+      throw new ODataRequestEntityTooLargeException(ODataRequestEntityTooLargeException.COMMON);
+    }
+    final Response response = RestUtil.convertResponse(odataResponse, contentCoding);
 
     return response;
   }
@@ -154,7 +165,18 @@ public final class ODataSubLocator {
     subLocator.request = new ODataRequestImpl();
     subLocator.request.setRequestHeaders(param.getHttpHeaders().getRequestHeaders());
     subLocator.request.setPathInfo(RestUtil.buildODataPathInfo(param));
-    subLocator.request.setBody(RestUtil.contentAsStream(RestUtil.extractRequestContent(param)));
+    InputStream body = RestUtil.contentAsStream(RestUtil.extractRequestContent(param));
+    final ODataCompressionCallback compressionCallback = subLocator.serviceFactory.getCallback(ODataCompressionCallback.class);
+    if (compressionCallback != null) {
+      try {
+        body = ContentCoding.decode(param.getHttpHeaders().getHeaderString(HttpHeaders.CONTENT_ENCODING), body,
+            compressionCallback.getMaximumDecodedSize());
+      } catch (final IOException e) {
+        throw new ODataBadRequestException(ODataBadRequestException.COMMON, e);
+      }
+      subLocator.contentCoding = ContentCoding.create(compressionCallback, param.getHttpHeaders().getRequestHeader(HttpHeaders.ACCEPT_ENCODING));
+    }
+    subLocator.request.setBody(body);
     subLocator.request.setQueryParameters(RestUtil.convertToSinglevaluedMap(param.getUriInfo().getQueryParameters()));
     subLocator.request.setAcceptHeaders(RestUtil.extractAcceptHeaders(param));
     subLocator.request.setContentType(RestUtil.extractRequestContentType(param));
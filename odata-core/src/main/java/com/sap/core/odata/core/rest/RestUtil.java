@@ -18,6 +18,7 @@ package com.sap.core.odata.core.rest;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -33,6 +34,7 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 
@@ -41,25 +43,65 @@ import com.sap.core.odata.api.exception.ODataBadRequestException;
 import com.sap.core.odata.api.exception.ODataException;
 import com.sap.core.odata.api.exception.ODataNotFoundException;
 import com.sap.core.odata.api.processor.ODataResponse;
+import com.sap.core.odata.api.processor.ODataStreamingEntity;
 import com.sap.core.odata.api.uri.PathSegment;
 import com.sap.core.odata.core.ODataPathSegmentImpl;
 import com.sap.core.odata.core.PathInfoImpl;
 import com.sap.core.odata.core.commons.ContentType;
 import com.sap.core.odata.core.commons.Decoder;
+import com.sap.core.odata.core.exception.ODataRuntimeException;
 
 /**
  * @author SAP AG
  */
 public class RestUtil {
   public static Response convertResponse(final ODataResponse odataResponse) {
+    return convertResponse(odataResponse, null);
+  }
+
+  /**
+   * Converts an OData response into a JAX-RS response.
+   * @param odataResponse the OData response
+   * @param contentCoding the content coding for the response body, or <code>null</code>
+   *                      if compression is not enabled
+   * @return the JAX-RS response
+   */
+  public static Response convertResponse(final ODataResponse odataResponse, final ContentCoding contentCoding) {
     try {
-      ResponseBuilder responseBuilder = Response.noContent().status(odataResponse.getStatus().getStatusCode()).entity(odataResponse.getEntity());
+      Object entity = odataResponse.getEntity();
+      boolean isEncoded = false;
+      if (contentCoding != null && !odataResponse.containsHeader(HttpHeaders.CONTENT_ENCODING)) {
+        entity = contentCoding.encode(entity, odataResponse.getContentHeader());
+        isEncoded = ContentCoding.isEncoded(entity);
+      }
+
+      ResponseBuilder responseBuilder = Response.noContent().status(odataResponse.getStatus().getStatusCode()).entity(convertEntity(entity));
 
       for (final String name : odataResponse.getHeaderNames()) {
-        responseBuilder = responseBuilder.header(name, odataResponse.getHeader(name));
+        if (!isEncoded) {
+          responseBuilder = responseBuilder.header(name, odataResponse.getHeader(name));
+        } else if (HttpHeaders.ETAG.equalsIgnoreCase(name)) {
+          responseBuilder = responseBuilder.header(name, contentCoding.encodeETag(odataResponse.getHeader(name)));
+        } else if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+          responseBuilder = responseBuilder.header(name, odataResponse.getHeader(name));
+        }
+      }
+      if (isEncoded) {
+        responseBuilder = responseBuilder.header(HttpHeaders.CONTENT_ENCODING, contentCoding.getName());
+      }
+      if (contentCoding != null) {
+        // The response depends on the Accept-Encoding header; caches must know about that.
+        responseBuilder = responseBuilder.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
       }
 
       return responseBuilder.build();
+    } catch (final IOException e) {
+      try {
+        odataResponse.close();
+      } catch (IOException inner) {
+        // ignored; the exception reading the entity is reported
+      }
+      throw new ODataRuntimeException(e);
     } catch (RuntimeException e) {
       if (odataResponse != null) {
         try {
@@ -73,6 +115,19 @@ public class RestUtil {
     }
   }
 
+  private static Object convertEntity(final Object entity) {
+    if (entity instanceof ODataStreamingEntity) {
+      final ODataStreamingEntity streamingEntity = (ODataStreamingEntity) entity;
+      return new StreamingOutput() {
+        @Override
+        public void write(final OutputStream output) throws IOException {
+          streamingEntity.write(output);
+        }
+      };
+    }
+    return entity;
+  }
+
   public static ContentType extractRequestContentType(final SubLocatorParameter param) throws ODataBadRequestException {
     final String contentType = param.getHttpHeaders().getHeaderString(HttpHeaders.CONTENT_TYPE);
     if (contentType == null || contentType.isEmpty()) {
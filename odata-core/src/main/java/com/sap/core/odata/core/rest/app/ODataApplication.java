@@ -28,6 +28,7 @@ import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Application;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.ext.MessageBodyWriter;
 import javax.ws.rs.ext.Provider;
 
@@ -45,6 +46,7 @@ public class ODataApplication extends Application {
     classes.add(ODataRootLocator.class);
     classes.add(ODataExceptionMapperImpl.class);
     classes.add(MyProvider.class);
+    classes.add(StreamingProvider.class);
     return classes;
   }
 
@@ -78,4 +80,29 @@ public class ODataApplication extends Application {
       entityStream.flush();
     }
   }
+
+  /**
+   * Writes streamed multipart/mixed content, e.g., a batch response, as it is;
+   * the multipart provider of the JAX-RS runtime would add its own boundary.
+   */
+  @Provider
+  @Produces("multipart/mixed")
+  public static final class StreamingProvider implements MessageBodyWriter<StreamingOutput> {
+
+    @Override
+    public boolean isWriteable(final Class<?> type, final Type genericType, final Annotation[] annotations, final MediaType mediaType) {
+      return StreamingOutput.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public long getSize(final StreamingOutput t, final Class<?> type, final Type genericType, final Annotation[] annotations, final MediaType mediaType) {
+      return -1;
+    }
+
+    @Override
+    public void writeTo(final StreamingOutput t, final Class<?> type, final Type genericType, final Annotation[] annotations, final MediaType mediaType, final MultivaluedMap<String, Object> httpHeaders, final OutputStream entityStream) throws IOException, WebApplicationException {
+      t.write(entityStream);
+      entityStream.flush();
+    }
+  }
 }
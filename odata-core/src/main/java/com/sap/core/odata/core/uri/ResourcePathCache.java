@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.core.uri;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.sap.core.odata.api.edm.EdmEntityType;
+
+/**
+ * Least-recently-used cache of parsed resource paths of one entity data model.
+ * <p>Resource paths are cached as templates where the content of key predicates
+ * is replaced by a placeholder; e.g., <code>Products(1)</code> and
+ * <code>Products(2)</code> share the template <code>Products(?)</code>.
+ * The cached parse result contains everything that depends on the template only,
+ * i.e., all metadata objects and the URI type; for a cache hit only the key
+ * predicates have to be parsed.</p>
+ * @author SAP AG
+ */
+public final class ResourcePathCache {
+
+  static final int MAX_ENTRIES = 512;
+
+  private static final String KEY_PLACEHOLDER = "(?)";
+
+  private final Map<List<String>, Entry> entries = new LinkedHashMap<List<String>, Entry>(64, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<List<String>, Entry> eldest) {
+      return size() > MAX_ENTRIES;
+    }
+  };
+
+  /**
+   * Parsed resource path without its key predicates,
+   * together with the entity types the key predicates of the template belong to,
+   * in the order of their appearance in the resource path.
+   */
+  static final class Entry {
+    private final UriInfoImpl resourcePath;
+    private final List<EdmEntityType> keyEntityTypes;
+
+    Entry(final UriInfoImpl resourcePath, final List<EdmEntityType> keyEntityTypes) {
+      this.resourcePath = resourcePath;
+      this.keyEntityTypes = keyEntityTypes;
+    }
+
+    UriInfoImpl getResourcePath() {
+      return resourcePath;
+    }
+
+    List<EdmEntityType> getKeyEntityTypes() {
+      return keyEntityTypes;
+    }
+  }
+
+  Entry get(final List<String> template) {
+    synchronized (entries) {
+      return entries.get(template);
+    }
+  }
+
+  void put(final List<String> template, final Entry entry) {
+    synchronized (entries) {
+      entries.put(template, entry);
+    }
+  }
+
+  int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  /**
+   * Returns the template for the given path segments and adds the
+   * content of their key predicates, still percent-encoded, to the given list.
+   * A segment is considered to have a key predicate if it ends with a closing
+   * parenthesis and contains a non-empty text after its first opening parenthesis,
+   * exactly as the path-segment patterns of the URI parser would see it.
+   * @param pathSegments the path segments
+   * @param keyPredicates the list to add the key predicates to
+   * @return the template as list of segments
+   */
+  static List<String> getTemplate(final List<String> pathSegments, final List<String> keyPredicates) {
+    List<String> template = new ArrayList<String>(pathSegments.size());
+    for (final String segment : pathSegments) {
+      final int open = segment.indexOf('(');
+      final int close = segment.length() - 1;
+      if (open > 0 && close > open + 1 && segment.charAt(close) == ')' && !containsLineTerminator(segment, open + 1, close)) {
+        template.add(segment.substring(0, open) + KEY_PLACEHOLDER);
+        keyPredicates.add(segment.substring(open + 1, close));
+      } else {
+        template.add(segment);
+      }
+    }
+    return template;
+  }
+
+  /* The patterns of the URI parser match any characters except line terminators in key predicates. */
+  private static boolean containsLineTerminator(final String segment, final int start, final int end) {
+    for (int i = start; i < end; i++) {
+      final char character = segment.charAt(i);
+      if (character == '\n' || character == '\r' || character == '\u0085' || character == '\u2028' || character == '\u2029') {
+        return true;
+      }
+    }
+    return false;
+  }
+}
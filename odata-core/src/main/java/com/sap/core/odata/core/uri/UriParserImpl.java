@@ -46,6 +46,7 @@ import com.sap.core.odata.api.exception.ODataBadRequestException;
 import com.sap.core.odata.api.exception.ODataMessageException;
 import com.sap.core.odata.api.uri.ExpandSelectTreeNode;
 import com.sap.core.odata.api.uri.KeyPredicate;
+import com.sap.core.odata.api.uri.NavigationSegment;
 import com.sap.core.odata.api.uri.NavigationPropertySegment;
 import com.sap.core.odata.api.uri.PathSegment;
 import com.sap.core.odata.api.uri.SelectItem;
@@ -57,8 +58,10 @@ import com.sap.core.odata.api.uri.expression.ExpressionParserException;
 import com.sap.core.odata.api.uri.expression.FilterExpression;
 import com.sap.core.odata.api.uri.expression.OrderByExpression;
 import com.sap.core.odata.core.commons.Decoder;
+import com.sap.core.odata.core.edm.EdmImpl;
 import com.sap.core.odata.core.edm.EdmSimpleTypeFacadeImpl;
 import com.sap.core.odata.core.exception.ODataRuntimeException;
+import com.sap.core.odata.core.uri.expression.ExpressionCache;
 import com.sap.core.odata.core.uri.expression.FilterParserImpl;
 import com.sap.core.odata.core.uri.expression.OrderByParserImpl;
 
@@ -79,6 +82,7 @@ public class UriParserImpl extends UriParser {
   private UriInfoImpl uriResult;
   private Map<SystemQueryOption, String> systemQueryOptions;
   private Map<String, String> otherQueryParameters;
+  private List<EdmEntityType> keyEntityTypes;
 
   public UriParserImpl(final Edm edm) {
     this.edm = edm;
@@ -133,6 +137,68 @@ public class UriParserImpl extends UriParser {
   }
 
   private void handleResourcePath() throws UriSyntaxException, UriNotMatchingException, EdmException {
+    if (!(edm instanceof EdmImpl)) {
+      parseResourcePath();
+      return;
+    }
+
+    final ResourcePathCache cache = ((EdmImpl) edm).getResourcePathCache();
+    List<String> keys = new ArrayList<String>();
+    final List<String> template = ResourcePathCache.getTemplate(pathSegments, keys);
+    final ResourcePathCache.Entry entry = cache.get(template);
+    if (entry == null) {
+      keyEntityTypes = new ArrayList<EdmEntityType>();
+      parseResourcePath();
+      // Key predicates ignored by the parser would make the template ambiguous.
+      if (keyEntityTypes.size() == keys.size()) {
+        UriInfoImpl resourcePath = new UriInfoImpl();
+        copyResourcePath(uriResult, resourcePath, null, null);
+        cache.put(template, new ResourcePathCache.Entry(resourcePath, keyEntityTypes));
+      }
+      keyEntityTypes = null;
+    } else {
+      pathSegments.clear();
+      copyResourcePath(entry.getResourcePath(), uriResult, keys, entry.getKeyEntityTypes());
+    }
+  }
+
+  /**
+   * Copies all information of the resource path from source to target.
+   * If keys are given, the key predicates are parsed from them
+   * instead of being copied.
+   */
+  private void copyResourcePath(final UriInfoImpl source, final UriInfoImpl target, final List<String> keys, final List<EdmEntityType> keyEntityTypes) throws UriSyntaxException, EdmException {
+    target.setUriType(source.getUriType());
+    target.setEntityContainer(source.getEntityContainer());
+    target.setStartEntitySet(source.getStartEntitySet());
+    target.setTargetEntitySet(source.getTargetEntitySet());
+    target.setFunctionImport(source.getFunctionImport());
+    target.setTargetType(source.getTargetType());
+    target.setCount(source.isCount());
+    target.setValue(source.isValue());
+    target.setLinks(source.isLinks());
+
+    int keyIndex = 0;
+    if (!source.getKeyPredicates().isEmpty()) {
+      target.setKeyPredicates(keys == null ?
+          source.getKeyPredicates() : parseKey(keys.get(keyIndex), keyEntityTypes.get(keyIndex++)));
+    }
+    for (final NavigationSegment segment : source.getNavigationSegments()) {
+      NavigationSegmentImpl navigationSegment = new NavigationSegmentImpl();
+      navigationSegment.setEntitySet(segment.getEntitySet());
+      navigationSegment.setNavigationProperty(segment.getNavigationProperty());
+      if (!segment.getKeyPredicates().isEmpty()) {
+        navigationSegment.setKeyPredicates(keys == null ?
+            segment.getKeyPredicates() : parseKey(keys.get(keyIndex), keyEntityTypes.get(keyIndex++)));
+      }
+      target.addNavigationSegment(navigationSegment);
+    }
+    for (final EdmProperty property : source.getPropertyPath()) {
+      target.addProperty(property);
+    }
+  }
+
+  private void parseResourcePath() throws UriSyntaxException, UriNotMatchingException, EdmException {
     if (pathSegments.isEmpty()) {
       uriResult.setUriType(UriType.URI0);
     } else {
@@ -406,6 +472,9 @@ public class UriParserImpl extends UriParser {
   }
 
   private ArrayList<KeyPredicate> parseKey(final String keyPredicate, final EdmEntityType entityType) throws UriSyntaxException, EdmException {
+    if (keyEntityTypes != null) {
+      keyEntityTypes.add(entityType);
+    }
     final List<EdmProperty> keyProperties = entityType.getKeyProperties();
     ArrayList<EdmProperty> parsedKeyProperties = new ArrayList<EdmProperty>();
     ArrayList<KeyPredicate> keyPredicates = new ArrayList<KeyPredicate>();
@@ -577,7 +646,15 @@ public class UriParserImpl extends UriParser {
     final EdmType targetType = uriResult.getTargetType();
     if (targetType instanceof EdmEntityType) {
       try {
-        uriResult.setFilter(new FilterParserImpl((EdmEntityType) targetType).parseFilterString(filter, true));
+        final ExpressionCache cache = edm instanceof EdmImpl ? ((EdmImpl) edm).getExpressionCache() : null;
+        FilterExpression expression = cache == null ? null : cache.getFilter((EdmEntityType) targetType, filter, true);
+        if (expression == null) {
+          expression = new FilterParserImpl((EdmEntityType) targetType).parseFilterString(filter, true);
+          if (cache != null) {
+            cache.putFilter((EdmEntityType) targetType, filter, true, expression);
+          }
+        }
+        uriResult.setFilter(expression);
       } catch (ExpressionParserException e) {
         throw new UriSyntaxException(UriSyntaxException.INVALIDFILTEREXPRESSION.addContent(filter), e);
       } catch (ODataMessageException e) {
@@ -590,7 +667,15 @@ public class UriParserImpl extends UriParser {
     final EdmType targetType = uriResult.getTargetType();
     if (targetType instanceof EdmEntityType) {
       try {
-        uriResult.setOrderBy(parseOrderByString((EdmEntityType) targetType, orderBy));
+        final ExpressionCache cache = edm instanceof EdmImpl ? ((EdmImpl) edm).getExpressionCache() : null;
+        OrderByExpression expression = cache == null ? null : cache.getOrderBy((EdmEntityType) targetType, orderBy);
+        if (expression == null) {
+          expression = parseOrderByString((EdmEntityType) targetType, orderBy);
+          if (cache != null) {
+            cache.putOrderBy((EdmEntityType) targetType, orderBy, expression);
+          }
+        }
+        uriResult.setOrderBy(expression);
       } catch (ExpressionParserException e) {
         throw new UriSyntaxException(UriSyntaxException.INVALIDORDERBYEXPRESSION.addContent(orderBy), e);
       } catch (ODataMessageException e) {
@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.core.uri.expression;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sap.core.odata.api.edm.EdmEntityType;
+import com.sap.core.odata.api.uri.expression.FilterExpression;
+import com.sap.core.odata.api.uri.expression.OrderByExpression;
+
+/**
+ * Least-recently-used cache of parsed $filter and $orderby expressions of one
+ * entity data model per entity type and expression string.
+ * <p>Parsing includes tokenizing and type-checking against the entity data model;
+ * clients often send the same few expressions again and again.
+ * The cached expression trees are shared and must not be modified.</p>
+ * <p>The entries are split by hash code into stripes with a lock and an
+ * access order of their own, so that concurrent lookups rarely wait for each
+ * other; if a stripe is full, its least recently used entry is removed.</p>
+ * <p>The number of cache hits and misses is counted.</p>
+ * @author SAP AG
+ */
+public final class ExpressionCache {
+
+  static final int MAX_ENTRIES = 256;
+  private static final int STRIPES = 8;
+
+  private final Stripe[] stripes = new Stripe[STRIPES];
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  private enum Kind {
+    FILTER, BOOLEAN_FILTER, ORDER_BY
+  }
+
+  public ExpressionCache() {
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new Stripe();
+    }
+  }
+
+  /**
+   * Returns the parsed $filter expression for the given entity type and string.
+   * @param entityType the entity type the filter is applied on
+   * @param filter the filter expression string
+   * @param allowOnlyBinary whether the filter has been parsed as boolean expression
+   * @return the cached {@link FilterExpression} or <code>null</code> if there is none
+   */
+  public FilterExpression getFilter(final EdmEntityType entityType, final String filter, final boolean allowOnlyBinary) {
+    return (FilterExpression) get(new Key(entityType, allowOnlyBinary ? Kind.BOOLEAN_FILTER : Kind.FILTER, filter));
+  }
+
+  public void putFilter(final EdmEntityType entityType, final String filter, final boolean allowOnlyBinary, final FilterExpression expression) {
+    put(new Key(entityType, allowOnlyBinary ? Kind.BOOLEAN_FILTER : Kind.FILTER, filter), expression);
+  }
+
+  /**
+   * Returns the parsed $orderby expression for the given entity type and string.
+   * @param entityType the entity type the ordering is applied on
+   * @param orderBy the orderby expression string
+   * @return the cached {@link OrderByExpression} or <code>null</code> if there is none
+   */
+  public OrderByExpression getOrderBy(final EdmEntityType entityType, final String orderBy) {
+    return (OrderByExpression) get(new Key(entityType, Kind.ORDER_BY, orderBy));
+  }
+
+  public void putOrderBy(final EdmEntityType entityType, final String orderBy, final OrderByExpression expression) {
+    put(new Key(entityType, Kind.ORDER_BY, orderBy), expression);
+  }
+
+  /**
+   * @return the number of successful lookups since the last {@link #clear()}
+   */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * @return the number of unsuccessful lookups since the last {@link #clear()}
+   */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * @return the number of cached expressions
+   */
+  public int size() {
+    int size = 0;
+    for (final Stripe stripe : stripes) {
+      synchronized (stripe) {
+        size += stripe.size();
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Removes all cached expressions and resets the statistics.
+   */
+  public void clear() {
+    for (final Stripe stripe : stripes) {
+      synchronized (stripe) {
+        stripe.clear();
+      }
+    }
+    hits.set(0);
+    misses.set(0);
+  }
+
+  private Object get(final Key key) {
+    final Stripe stripe = getStripe(key);
+    final Object expression;
+    synchronized (stripe) {
+      expression = stripe.get(key);
+    }
+    if (expression == null) {
+      misses.incrementAndGet();
+    } else {
+      hits.incrementAndGet();
+    }
+    return expression;
+  }
+
+  private void put(final Key key, final Object expression) {
+    final Stripe stripe = getStripe(key);
+    synchronized (stripe) {
+      stripe.put(key, expression);
+    }
+  }
+
+  private Stripe getStripe(final Key key) {
+    final int hashCode = key.hashCode();
+    return stripes[(hashCode ^ (hashCode >>> 16)) & (STRIPES - 1)];
+  }
+
+  /**
+   * Entries of one stripe in access order.
+   */
+  private static final class Stripe extends LinkedHashMap<Key, Object> {
+    private static final long serialVersionUID = 1L;
+
+    Stripe() {
+      super(16, 0.75f, true);
+    }
+
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<Key, Object> eldest) {
+      return size() > MAX_ENTRIES / STRIPES;
+    }
+  }
+
+  /**
+   * Entity types are compared by identity; an entity data model
+   * has exactly one instance per entity type.
+   */
+  private static final class Key {
+    private final EdmEntityType entityType;
+    private final Kind kind;
+    private final String expression;
+    private final int hashCode;
+
+    Key(final EdmEntityType entityType, final Kind kind, final String expression) {
+      this.entityType = entityType;
+      this.kind = kind;
+      this.expression = expression;
+      hashCode = (31 * System.identityHashCode(entityType) + kind.hashCode()) * 31 + expression.hashCode();
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(final Object object) {
+      if (!(object instanceof Key)) {
+        return false;
+      }
+      final Key other = (Key) object;
+      return entityType == other.entityType && kind == other.kind && expression.equals(other.expression);
+    }
+  }
+}
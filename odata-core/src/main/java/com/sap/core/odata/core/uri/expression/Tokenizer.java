@@ -15,9 +15,6 @@
  ******************************************************************************/
 package com.sap.core.odata.core.uri.expression;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 import com.sap.core.odata.api.edm.EdmLiteral;
 import com.sap.core.odata.api.edm.EdmLiteralException;
 import com.sap.core.odata.api.edm.EdmSimpleTypeFacade;
@@ -31,12 +28,22 @@ import com.sap.core.odata.core.edm.EdmSimpleTypeFacadeImpl;
  */
 public class Tokenizer {
 
-  //Pattern OTHER_LIT = Pattern.compile("^([[A-Za-z0-9]._~%!$&*+;:@-]+)");
-  private static final Pattern OTHER_LIT = Pattern.compile("(?:\\p{L}|\\p{Digit}|[-._~%!$&*+;:@])+");
-  private static final Pattern FUNK = Pattern.compile("^(startswith|endswith|substring|substring|substringof|indexof|replace|tolower|toupper|trim|concat|length|year|mounth|day|hour|minute|second|round|ceiling|floor)( *)\\(");
-  private static final Pattern AND_SUB1 = Pattern.compile("^(add|sub|mul|div|mod|not) ");
-  private static final Pattern AND_SUB = Pattern.compile("^(and|or|eq|ne|lt|gt|le|ge) ");
-  private static final Pattern prefix = Pattern.compile("^(X|binary|guid|datetime|datetimeoffset|time)'");
+  /* characters of untyped literals besides letters: ASCII digits and -._~%!$&*+;:@ */
+  private static final boolean[] LITERAL_CHARACTERS = new boolean[128];
+  static {
+    for (char c = '0'; c <= '9'; c++) {
+      LITERAL_CHARACTERS[c] = true;
+    }
+    for (final char c : "-._~%!$&*+;:@".toCharArray()) {
+      LITERAL_CHARACTERS[c] = true;
+    }
+  }
+
+  private static final String[] METHODS = { "startswith", "endswith", "substring", "substringof", "indexof", "replace", "tolower", "toupper", "trim", "concat", "length", "year", "mounth", "day", "hour", "minute", "second", "round", "ceiling", "floor" };
+  private static final String[] MATH_OPERATORS = { "add", "sub", "mul", "div", "mod", "not" };
+  private static final String[] BINARY_OPERATORS = { "and", "or", "eq", "ne", "lt", "gt", "le", "ge" };
+  private static final String[] PREFIXES = { "X", "binary", "guid", "datetime", "datetimeoffset", "time" };
+  private static final String[] BOOLEANS = { "true", "false" };
   private boolean flagIncludeWhitespace = false;
   private EdmSimpleTypeFacade typeDectector = null;
 
@@ -114,38 +121,34 @@ public class Tokenizer {
         break;
 
       default:
-        String rem_expr = expression.substring(curPosition); //remaining expression
+        // The whole word is scanned once and then compared with the keywords;
+        // the remaining expression is never copied.
+        final int end = scanLiteral(curPosition);
 
-        boolean isBinary = checkForBinary(oldPosition, rem_expr);
-        if (isBinary) {
+        if (checkForBinary(oldPosition, end)) {
           break;
         }
 
         //check for prefixes like X, binary, guid, datetime
-        boolean isPrefix = checkForPrefix(rem_expr);
-        if (isPrefix) {
+        if (checkForPrefix(end)) {
           break;
         }
 
         //check for math
-        boolean isMath = checkForMath(oldPosition, rem_expr);
-        if (isMath) {
+        if (checkForMath(oldPosition, end)) {
           break;
         }
 
         //check for function
-        boolean isFunction = checkForMethod(oldPosition, rem_expr);
-        if (isFunction) {
+        if (checkForMethod(oldPosition, end)) {
           break;
         }
 
-        boolean isBoolean = checkForBoolean(oldPosition, rem_expr);
-        if (isBoolean) {
+        if (checkForBoolean(oldPosition, end)) {
           break;
         }
 
-        boolean isLiteral = checkForLiteral(oldPosition, curCharacter, rem_expr);
-        if (isLiteral) {
+        if (checkForLiteral(oldPosition, curCharacter, end)) {
           break;
         }
 
@@ -156,11 +159,53 @@ public class Tokenizer {
     return tokens;
   }
 
-  private boolean checkForLiteral(final int oldPosition, final char curCharacter, final String rem_expr) {
-    final Matcher matcher = OTHER_LIT.matcher(rem_expr);
+  /**
+   * Returns the end of the untyped literal (letters, ASCII digits, and -._~%!$&*+;:@)
+   * starting at the given position.
+   */
+  private int scanLiteral(final int start) {
+    int position = start;
+    while (position < expressionLength) {
+      final char character = expression.charAt(position);
+      if (character < LITERAL_CHARACTERS.length) {
+        if (!LITERAL_CHARACTERS[character]
+            && !(character >= 'A' && character <= 'Z' || character >= 'a' && character <= 'z')) {
+          break;
+        }
+        position++;
+      } else {
+        final int codePoint = expression.codePointAt(position);
+        if (!Character.isLetter(codePoint)) {
+          break;
+        }
+        position += Character.charCount(codePoint);
+      }
+    }
+    return position;
+  }
+
+  /**
+   * Returns the word from the list that is at the current position
+   * and ends at the given position, or <code>null</code>.
+   */
+  private String findWord(final String[] words, final int end) {
+    final int length = end - curPosition;
+    for (final String word : words) {
+      if (word.length() == length && expression.regionMatches(curPosition, word, 0, length)) {
+        return word;
+      }
+    }
+    return null;
+  }
+
+  private boolean isFollowedBy(final int end, final char character) {
+    return end < expressionLength && expression.charAt(end) == character;
+  }
+
+  private boolean checkForLiteral(final int oldPosition, final char curCharacter, final int end) {
     boolean isLiteral = false;
-    if (matcher.lookingAt()) {
-      String token = matcher.group();
+    if (end > curPosition) {
+      String token = expression.substring(curPosition, end);
       try {
         EdmLiteral edmLiteral = typeDectector.parseUriLiteral(token);
         curPosition = curPosition + token.length();
@@ -186,11 +231,12 @@ public class Tokenizer {
     return isLiteral;
   }
 
-  private boolean checkForBoolean(final int oldPosition, final String rem_expr) {
+  private boolean checkForBoolean(final int oldPosition, final int end) {
     boolean isBoolean = false;
-    if (rem_expr.equals("true") || rem_expr.equals("false")) {
-      curPosition = curPosition + rem_expr.length();
-      tokens.appendEdmTypedToken(oldPosition, TokenKind.SIMPLE_TYPE, rem_expr, new EdmLiteral(EdmSimpleTypeFacadeImpl.getEdmSimpleType(EdmSimpleTypeKind.Boolean), rem_expr));
+    final String token = end == expressionLength ? findWord(BOOLEANS, end) : null;
+    if (token != null) {
+      curPosition = curPosition + token.length();
+      tokens.appendEdmTypedToken(oldPosition, TokenKind.SIMPLE_TYPE, token, new EdmLiteral(EdmSimpleTypeFacadeImpl.getEdmSimpleType(EdmSimpleTypeKind.Boolean), token));
       isBoolean = true;
     }
     return isBoolean;
@@ -214,23 +260,27 @@ public class Tokenizer {
     }
   }
 
-  private boolean checkForMethod(final int oldPosition, final String rem_expr) {
+  private boolean checkForMethod(final int oldPosition, final int end) {
     boolean isMethod = false;
-    Matcher matcher = FUNK.matcher(rem_expr);
-    if (matcher.find()) {
-      String token = matcher.group(1);
-      curPosition = curPosition + token.length();
-      tokens.appendToken(oldPosition, TokenKind.LITERAL, token);
-      isMethod = true;
+    final String token = findWord(METHODS, end);
+    if (token != null) {
+      int position = end;
+      while (isFollowedBy(position, ' ')) {
+        position++;
+      }
+      if (isFollowedBy(position, '(')) {
+        curPosition = curPosition + token.length();
+        tokens.appendToken(oldPosition, TokenKind.LITERAL, token);
+        isMethod = true;
+      }
     }
     return isMethod;
   }
 
-  private boolean checkForMath(final int oldPosition, final String rem_expr) {
+  private boolean checkForMath(final int oldPosition, final int end) {
     boolean isMath = false;
-    Matcher matcher1 = AND_SUB1.matcher(rem_expr);
-    if (matcher1.find()) {
-      String token = matcher1.group(1);
+    final String token = findWord(MATH_OPERATORS, end);
+    if (token != null && isFollowedBy(end, ' ')) {
       curPosition = curPosition + token.length();
       tokens.appendToken(oldPosition, TokenKind.LITERAL, token);
       isMath = true;
@@ -238,11 +288,10 @@ public class Tokenizer {
     return isMath;
   }
 
-  private boolean checkForBinary(final int oldPosition, final String rem_expr) {
+  private boolean checkForBinary(final int oldPosition, final int end) {
     boolean isBinary = false;
-    Matcher matcher1 = AND_SUB.matcher(rem_expr);
-    if (matcher1.find()) {
-      String token = matcher1.group(1);
+    final String token = findWord(BINARY_OPERATORS, end);
+    if (token != null && isFollowedBy(end, ' ')) {
       curPosition = curPosition + token.length();
       tokens.appendToken(oldPosition, TokenKind.LITERAL, token);
       isBinary = true;
@@ -250,17 +299,12 @@ public class Tokenizer {
     return isBinary;
   }
 
-  private boolean checkForPrefix(final String rem_expr) throws ExpressionParserException, TokenizerException {
+  private boolean checkForPrefix(final int end) throws ExpressionParserException, TokenizerException {
     boolean isPrefix = false;
-    Matcher matcher = prefix.matcher(rem_expr);
-    String token = "";
-    char curCharacter;
-
-    if (matcher.find()) {
-      token = matcher.group(1);
+    final String token = findWord(PREFIXES, end);
+    if (token != null && isFollowedBy(end, '\'')) {
       curPosition = curPosition + token.length();
-      curCharacter = expression.charAt(curPosition); //"should  be '
-      readLiteral(curCharacter, token);
+      readLiteral(expression.charAt(curPosition), token);
       isPrefix = true;
     }
     return isPrefix;
@@ -277,10 +321,10 @@ public class Tokenizer {
    * @throws ExpressionParserException
    * @throws TokenizerException
    */
-  private void readLiteral(char curCharacter, String token) throws ExpressionParserException, TokenizerException {
-    int offsetPos = -token.length();
+  private void readLiteral(char curCharacter, final String prefix) throws ExpressionParserException, TokenizerException {
+    int offsetPos = -prefix.length();
     int oldPosition = curPosition;
-    token = token + Character.toString(curCharacter);
+    StringBuilder token = new StringBuilder(prefix).append(curCharacter);
     curPosition = curPosition + 1;
 
     boolean wasApostroph = false; //leading ' does not count
@@ -292,14 +336,14 @@ public class Tokenizer {
           break;
         }
 
-        token = token + curCharacter;
+        token.append(curCharacter);
         wasApostroph = false;
       } else {
         if (wasApostroph) {
           wasApostroph = false; //a double ' is a normal character '
         } else {
           wasApostroph = true;
-          token = token + curCharacter;
+          token.append(curCharacter);
         }
       }
       curPosition = curPosition + 1;
@@ -310,11 +354,12 @@ public class Tokenizer {
       throw FilterParserExceptionImpl.createTOKEN_UNDETERMINATED_STRING(oldPosition, expression);
     }
 
+    final String literal = token.toString();
     try {
-      EdmLiteral edmLiteral = typeDectector.parseUriLiteral(token);
-      tokens.appendEdmTypedToken(oldPosition + offsetPos, TokenKind.SIMPLE_TYPE, token, edmLiteral);
+      EdmLiteral edmLiteral = typeDectector.parseUriLiteral(literal);
+      tokens.appendEdmTypedToken(oldPosition + offsetPos, TokenKind.SIMPLE_TYPE, literal, edmLiteral);
     } catch (EdmLiteralException ex) {
-      throw TokenizerException.createTYPEDECTECTION_FAILED_ON_STRING(ex, oldPosition, token);
+      throw TokenizerException.createTYPEDECTECTION_FAILED_ON_STRING(ex, oldPosition, literal);
     }
   }
 }
@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.core.batch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.sap.core.odata.api.ODataCallback;
+import com.sap.core.odata.api.ODataService;
+import com.sap.core.odata.api.ODataServiceFactory;
+import com.sap.core.odata.api.batch.BatchParallelCallback;
+import com.sap.core.odata.api.batch.BatchPart;
+import com.sap.core.odata.api.batch.BatchResponsePart;
+import com.sap.core.odata.api.commons.HttpStatusCodes;
+import com.sap.core.odata.api.edm.Edm;
+import com.sap.core.odata.api.ep.EntityProviderBatchProperties;
+import com.sap.core.odata.api.exception.ODataException;
+import com.sap.core.odata.api.processor.ODataContext;
+import com.sap.core.odata.api.processor.ODataResponse;
+import com.sap.core.odata.api.processor.ODataSingleProcessor;
+import com.sap.core.odata.api.uri.info.GetSimplePropertyUriInfo;
+import com.sap.core.odata.core.PathInfoImpl;
+import com.sap.core.odata.testutil.mock.MockFacade;
+
+/**
+ * @author SAP AG
+ */
+public class BatchHandlerImplTest {
+
+  private static final int REQUEST_COUNT = 6;
+  private static final AtomicInteger RUNNING = new AtomicInteger();
+  private static final AtomicInteger MAX_RUNNING = new AtomicInteger();
+  private static final AtomicInteger SERVICES = new AtomicInteger();
+  private static Edm edm;
+  private static ODataContext batchContext;
+
+  @BeforeClass
+  public static void createEdm() throws ODataException {
+    edm = MockFacade.getMockEdm();
+  }
+
+  @Before
+  public void resetCounters() {
+    RUNNING.set(0);
+    MAX_RUNNING.set(0);
+    SERVICES.set(0);
+  }
+
+  @Test
+  public void sequentialQueryOperations() throws Exception {
+    final List<BatchResponsePart> responseParts = handle(new TestServiceFactory(1));
+
+    checkResponses(responseParts);
+    assertEquals(1, MAX_RUNNING.get());
+    assertEquals(1, SERVICES.get());
+  }
+
+  @Test
+  public void parallelQueryOperations() throws Exception {
+    final List<BatchResponsePart> responseParts = handle(new TestServiceFactory(4));
+
+    checkResponses(responseParts);
+    assertTrue(MAX_RUNNING.get() > 1);
+    assertTrue(MAX_RUNNING.get() <= 4);
+    assertEquals(1 + REQUEST_COUNT, SERVICES.get());
+  }
+
+  private List<BatchResponsePart> handle(final ODataServiceFactory factory) throws Exception {
+    StringBuilder batch = new StringBuilder();
+    for (int i = 1; i <= REQUEST_COUNT; i++) {
+      batch.append("--batch_123" + "\r\n")
+          .append("Content-Type: application/http" + "\r\n")
+          .append("Content-Transfer-Encoding: binary" + "\r\n")
+          .append("\r\n")
+          .append("GET Employees('" + i + "')/EmployeeName HTTP/1.1" + "\r\n")
+          .append("\r\n")
+          .append("\r\n");
+    }
+    batch.append("--batch_123--");
+    PathInfoImpl pathInfo = new PathInfoImpl();
+    pathInfo.setServiceRoot(new URI("http://localhost/odata/"));
+    final List<BatchPart> batchParts = new BatchRequestParser("multipart/mixed;boundary=batch_123",
+        EntityProviderBatchProperties.init().pathInfo(pathInfo).build())
+        .parse(new ByteArrayInputStream(batch.toString().getBytes("UTF-8")));
+
+    ODataService service = factory.createService(null);
+    batchContext = mock(ODataContext.class);
+    service.getProcessor().setContext(batchContext);
+    return new BatchHandlerImpl(factory, service).handleBatchParts(batchParts);
+  }
+
+  private void checkResponses(final List<BatchResponsePart> responseParts) {
+    assertEquals(REQUEST_COUNT, responseParts.size());
+    for (int i = 0; i < REQUEST_COUNT; i++) {
+      assertFalse(responseParts.get(i).isChangeSet());
+      final ODataResponse response = responseParts.get(i).getResponses().get(0);
+      assertEquals(HttpStatusCodes.OK, response.getStatus());
+      assertEquals(String.valueOf(i + 1), response.getEntity());
+    }
+  }
+
+  private static class TestServiceFactory extends ODataServiceFactory {
+    private final int parallelism;
+
+    public TestServiceFactory(final int parallelism) {
+      this.parallelism = parallelism;
+    }
+
+    @Override
+    public ODataService createService(final ODataContext ctx) throws ODataException {
+      SERVICES.incrementAndGet();
+      return createODataSingleProcessorService(edm, new TestProcessor());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T extends ODataCallback> T getCallback(final Class<? extends ODataCallback> callbackInterface) {
+      if (callbackInterface.isAssignableFrom(BatchParallelCallback.class)) {
+        return (T) new BatchParallelCallback() {
+          @Override
+          public int getMaxParallelism() {
+            return parallelism;
+          }
+        };
+      }
+      return super.getCallback(callbackInterface);
+    }
+  }
+
+  private static class TestProcessor extends ODataSingleProcessor {
+    @Override
+    public ODataResponse readEntitySimpleProperty(final GetSimplePropertyUriInfo uriInfo, final String contentType) throws ODataException {
+      assertTrue(getContext().isInBatchMode());
+      assertSame(batchContext, getContext().getBatchParentContext());
+      final int running = RUNNING.incrementAndGet();
+      int max = MAX_RUNNING.get();
+      while (running > max && !MAX_RUNNING.compareAndSet(max, running)) {
+        max = MAX_RUNNING.get();
+      }
+      try {
+        Thread.sleep(100);
+      } catch (InterruptedException e) {
+        throw new ODataException(e);
+      } finally {
+        RUNNING.decrementAndGet();
+      }
+      return ODataResponse.entity(uriInfo.getKeyPredicates().get(0).getLiteral()).status(HttpStatusCodes.OK).build();
+    }
+  }
+}
@@ -15,11 +15,13 @@
  ******************************************************************************/
 package com.sap.core.odata.core.batch;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
@@ -215,6 +217,51 @@ public class BatchRequestParserTest {
     }
   }
 
+  @Test
+  public void testBinaryContent() throws IOException, BatchException {
+    byte[] content = new byte[] { 0, (byte) 0xff, '\r', '\n', '-', '-', 'c', 'h', 'a', 'n', 'g', 'e', 's', 'e', 't', (byte) 0x80, 'x' };
+    assertArrayEquals(content, parseBinaryContent(content));
+  }
+
+  @Test
+  public void testBinaryContentEndingWithLineBreak() throws IOException, BatchException {
+    byte[] content = new byte[] { 0, (byte) 0xff, '\r', '\n', '\n', '\r', '\n' };
+    assertArrayEquals(content, parseBinaryContent(content));
+  }
+
+  private byte[] parseBinaryContent(final byte[] content) throws IOException, BatchException {
+    String head = "--batch_8194-cf13-1f56" + "\r\n"
+        + "Content-Type: multipart/mixed; boundary=changeset_f980-1cb6-94dd" + "\r\n"
+        + "\r\n"
+        + "--changeset_f980-1cb6-94dd" + "\r\n"
+        + "Content-Type: application/http" + "\r\n"
+        + "Content-Transfer-Encoding: binary" + "\r\n"
+        + "\r\n"
+        + "POST Employees HTTP/1.1" + "\r\n"
+        + "Content-Type: application/octet-stream" + "\r\n"
+        + "\r\n";
+    String tail = "\r\n"
+        + "--changeset_f980-1cb6-94dd--" + "\r\n"
+        + "\r\n"
+        + "--batch_8194-cf13-1f56--";
+    ByteArrayOutputStream batch = new ByteArrayOutputStream();
+    batch.write(head.getBytes("UTF-8"));
+    batch.write(content);
+    batch.write(tail.getBytes("UTF-8"));
+
+    List<BatchPart> batchParts = new BatchRequestParser(contentType, batchProperties).parse(new ByteArrayInputStream(batch.toByteArray()));
+    assertEquals(1, batchParts.size());
+    assertTrue(batchParts.get(0).isChangeSet());
+    assertEquals(1, batchParts.get(0).getRequests().size());
+    InputStream body = batchParts.get(0).getRequests().get(0).getBody();
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    int b;
+    while ((b = body.read()) >= 0) {
+      result.write(b);
+    }
+    return result.toByteArray();
+  }
+
   @Test
   public void testBoundaryParameterWithQuotas() throws BatchException {
     Map<String, List<String>> requestHeaders = new HashMap<String, List<String>>();
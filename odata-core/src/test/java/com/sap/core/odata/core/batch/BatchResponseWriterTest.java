@@ -20,7 +20,10 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -30,6 +33,7 @@ import com.sap.core.odata.api.batch.BatchException;
 import com.sap.core.odata.api.batch.BatchResponsePart;
 import com.sap.core.odata.api.commons.HttpStatusCodes;
 import com.sap.core.odata.api.processor.ODataResponse;
+import com.sap.core.odata.api.processor.ODataStreamingEntity;
 
 public class BatchResponseWriterTest {
 
@@ -51,7 +55,7 @@ public class BatchResponseWriterTest {
 
     assertEquals(202, batchResponse.getStatus().getStatusCode());
     assertNotNull(batchResponse.getEntity());
-    String body = (String) batchResponse.getEntity();
+    String body = readBody(batchResponse);
 
     assertTrue(body.contains("--batch"));
     assertTrue(body.contains("--changeset"));
@@ -76,7 +80,7 @@ public class BatchResponseWriterTest {
 
     assertEquals(202, batchResponse.getStatus().getStatusCode());
     assertNotNull(batchResponse.getEntity());
-    String body = (String) batchResponse.getEntity();
+    String body = readBody(batchResponse);
 
     assertTrue(body.contains("--batch"));
     assertFalse(body.contains("--changeset"));
@@ -101,7 +105,7 @@ public class BatchResponseWriterTest {
 
     assertEquals(202, batchResponse.getStatus().getStatusCode());
     assertNotNull(batchResponse.getEntity());
-    String body = (String) batchResponse.getEntity();
+    String body = readBody(batchResponse);
     assertTrue(body.contains("--batch"));
     assertTrue(body.contains("--changeset"));
     assertTrue(body.indexOf("--changeset") != body.lastIndexOf("--changeset"));
@@ -113,4 +117,35 @@ public class BatchResponseWriterTest {
 
   }
 
+  @Test
+  public void testStreamedEntity() throws BatchException, IOException {
+    final String content = "Walter Winter \u00e4\u00f6\u00fc";
+    List<BatchResponsePart> parts = new ArrayList<BatchResponsePart>();
+    for (int i = 0; i < 2; i++) {
+      ODataResponse response = ODataResponse.entity(new ByteArrayInputStream(content.getBytes("UTF-8")))
+          .status(HttpStatusCodes.OK).contentHeader("text/plain").build();
+      List<ODataResponse> responses = new ArrayList<ODataResponse>(1);
+      responses.add(response);
+      parts.add(BatchResponsePart.responses(responses).changeSet(false).build());
+    }
+
+    ODataResponse batchResponse = new BatchResponseWriter().writeResponse(parts);
+
+    assertTrue(batchResponse.getEntity() instanceof ODataStreamingEntity);
+    String body = readBody(batchResponse);
+    assertEquals(2, body.split("Content-Length: " + content.getBytes("UTF-8").length + "\r\n\r\n" + content).length - 1);
+    assertTrue(body.endsWith(content + "\r\n\r\n--" + batchResponse.getHeader("Content-Type").split("boundary=")[1] + "--"));
+  }
+
+  private String readBody(final ODataResponse response) throws IOException {
+    InputStream in = (InputStream) response.getEntity();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[16];
+    int count;
+    while ((count = in.read(buffer)) >= 0) {
+      out.write(buffer, 0, count);
+    }
+    return new String(out.toByteArray(), "UTF-8");
+  }
+
 }
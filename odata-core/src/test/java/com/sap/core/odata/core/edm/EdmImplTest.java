@@ -17,6 +17,7 @@ package com.sap.core.odata.core.edm;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -52,6 +53,13 @@ public class EdmImplTest extends BaseTest {
     assertNotSame(edm.getDefaultEntityContainer(), edm.getEntityContainer(""));
   }
 
+  @Test
+  public void testDefaultEntityContainerCache() throws EdmException {
+    ForEdmImplTest defaultEdm = new ForEdmImplTest("default");
+    assertSame(defaultEdm.getDefaultEntityContainer(), defaultEdm.getEntityContainer("default"));
+    assertSame(defaultEdm.getEntityContainer("default"), defaultEdm.getEntityContainer(null));
+  }
+
   @Test
   public void testEntityTypeCache() throws EdmException {
     assertEquals(edm.getEntityType("foo", "bar"), edm.getEntityType("foo", "bar"));
@@ -72,14 +80,21 @@ public class EdmImplTest extends BaseTest {
 
   private class ForEdmImplTest extends EdmImpl {
 
+    private final String defaultContainerName;
+
     public ForEdmImplTest() {
+      this(null);
+    }
+
+    public ForEdmImplTest(final String defaultContainerName) {
       super(null);
+      this.defaultContainerName = defaultContainerName;
     }
 
     @Override
     protected EdmEntityContainer createEntityContainer(final String name) throws ODataException {
       EdmEntityContainer edmEntityContainer = mock(EdmEntityContainer.class);
-      when(edmEntityContainer.getName()).thenReturn(name);
+      when(edmEntityContainer.getName()).thenReturn(name == null ? defaultContainerName : name);
       return edmEntityContainer;
     }
 
@@ -814,6 +814,64 @@ public class EdmSimpleTypeTest extends BaseTest {
     expectErrorInValueToString(instance, dateTime, null, null, EdmSimpleTypeException.LITERAL_KIND_MISSING);
   }
 
+  @Test
+  public void appendValue() throws Exception {
+    Calendar dateTime = Calendar.getInstance(TimeZone.getTimeZone("GMT+11:30"));
+    dateTime.clear();
+    dateTime.set(2012, 2, 1, 11, 2, 3);
+    final Object[][] values = {
+        { EdmSimpleTypeKind.Binary, new byte[] { -86, -69, -52, -35, -18, -1 } },
+        { EdmSimpleTypeKind.Boolean, true },
+        { EdmSimpleTypeKind.Byte, (short) 255 },
+        { EdmSimpleTypeKind.DateTime, dateTime },
+        { EdmSimpleTypeKind.DateTime, -2000L },
+        { EdmSimpleTypeKind.DateTime, -30610224000001L }, // 1000-01-01T00:00:00 minus one millisecond
+        { EdmSimpleTypeKind.DateTime, new Date(253402300799999L) },
+        { EdmSimpleTypeKind.DateTimeOffset, dateTime },
+        { EdmSimpleTypeKind.DateTimeOffset, 1330558323007L },
+        { EdmSimpleTypeKind.Decimal, new BigDecimal("-12.345") },
+        { EdmSimpleTypeKind.Double, 1.25E-7 },
+        { EdmSimpleTypeKind.Guid, UUID.fromString("aabbccdd-aabb-ccdd-eeff-aabbccddeeff") },
+        { EdmSimpleTypeKind.Int16, -32768 },
+        { EdmSimpleTypeKind.Int32, Integer.MIN_VALUE },
+        { EdmSimpleTypeKind.Int64, Long.MIN_VALUE },
+        { EdmSimpleTypeKind.Int64, 0L },
+        { EdmSimpleTypeKind.Int64, new BigInteger("9223372036854775807") },
+        { EdmSimpleTypeKind.SByte, (byte) -128 },
+        { EdmSimpleTypeKind.Single, 1.5F },
+        { EdmSimpleTypeKind.String, "text" },
+        { EdmSimpleTypeKind.Time, dateTime },
+        { EdmSimpleTypeKind.Time, -1L } };
+    for (final Object[] value : values) {
+      final AbstractSimpleType instance = (AbstractSimpleType) ((EdmSimpleTypeKind) value[0]).getEdmSimpleTypeInstance();
+      for (final EdmLiteralKind literalKind : EdmLiteralKind.values()) {
+        StringBuilder result = new StringBuilder();
+        assertTrue(instance.appendValue(value[1], literalKind, null, result));
+        assertEquals(instance.valueToString(value[1], literalKind, null), result.toString());
+      }
+    }
+
+    assertEquals("1969-12-31T23:59:58", EdmDateTime.getInstance().valueToString(-2000L, EdmLiteralKind.DEFAULT, null));
+    assertEquals("1599-12-31T23:59:59", EdmDateTime.getInstance().valueToString(-11676096001000L, EdmLiteralKind.DEFAULT, null));
+    assertEquals("PT23H59M59.999S", EdmTime.getInstance().valueToString(-1L, EdmLiteralKind.DEFAULT, null));
+
+    StringBuilder result = new StringBuilder();
+    assertFalse(EdmInt32.getInstance().appendValue(null, EdmLiteralKind.DEFAULT, null, result));
+    assertEquals(0, result.length());
+    try {
+      EdmInt32.getInstance().appendValue(null, EdmLiteralKind.DEFAULT, getNullableFacets(false), result);
+      fail("Expected exception not thrown");
+    } catch (EdmSimpleTypeException e) {
+      assertEquals(EdmSimpleTypeException.VALUE_NULL_NOT_ALLOWED.getKey(), e.getMessageReference().getKey());
+    }
+    try {
+      EdmInt16.getInstance().appendValue(32768, EdmLiteralKind.DEFAULT, null, result);
+      fail("Expected exception not thrown");
+    } catch (EdmSimpleTypeException e) {
+      assertEquals(EdmSimpleTypeException.VALUE_ILLEGAL_CONTENT.getKey(), e.getMessageReference().getKey());
+    }
+  }
+
   private void expectErrorInValueOfString(final EdmSimpleType instance, final String value, final EdmLiteralKind literalKind, final EdmFacets facets, final MessageReference messageReference) {
     try {
       instance.valueOfString(value, literalKind, facets, instance.getDefaultType());
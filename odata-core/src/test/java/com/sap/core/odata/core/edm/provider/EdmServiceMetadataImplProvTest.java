@@ -19,6 +19,8 @@ import static org.custommonkey.xmlunit.XMLAssert.assertXpathExists;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -38,10 +40,14 @@ import org.junit.Test;
 import com.sap.core.odata.api.edm.Edm;
 import com.sap.core.odata.api.edm.EdmEntitySetInfo;
 import com.sap.core.odata.api.edm.EdmServiceMetadata;
+import com.sap.core.odata.api.edm.EdmServiceMetadataETag;
 import com.sap.core.odata.api.edm.provider.EdmProvider;
 import com.sap.core.odata.api.edm.provider.EntityContainer;
 import com.sap.core.odata.api.edm.provider.EntitySet;
 import com.sap.core.odata.api.edm.provider.Schema;
+import com.sap.core.odata.api.processor.ODataResponse;
+import com.sap.core.odata.core.ep.AtomEntityProvider;
+import com.sap.core.odata.core.ep.util.CachedContent;
 import com.sap.core.odata.testutil.fit.BaseTest;
 import com.sap.core.odata.testutil.helper.StringHelper;
 import com.sap.core.odata.testutil.mock.EdmTestProvider;
@@ -67,6 +73,18 @@ public class EdmServiceMetadataImplProvTest extends BaseTest {
     XMLUnit.setXpathNamespaceContext(new SimpleNamespaceContext(prefixMap));
   }
 
+  @Test
+  public void metadataIsSerializedOnce() throws Exception {
+    EdmServiceMetadata serviceMetadata = new EdmImplProv(new EdmTestProvider()).getServiceMetadata();
+    assertTrue(serviceMetadata instanceof EdmServiceMetadataETag);
+    final String eTag = ((EdmServiceMetadataETag) serviceMetadata).getMetadataETag();
+    assertNotNull(eTag);
+    assertTrue(eTag.startsWith("\"") && eTag.endsWith("\""));
+    assertEquals(metadata, StringHelper.inputStreamToString(serviceMetadata.getMetadata()));
+    assertEquals(metadata, StringHelper.inputStreamToString(serviceMetadata.getMetadata()));
+    assertEquals(eTag, ((EdmServiceMetadataETag) serviceMetadata).getMetadataETag());
+  }
+
   @Test
   public void getEntitySetInfosForEmptyEdmProvider() throws Exception {
     EdmProvider edmProvider = mock(EdmProvider.class);
@@ -279,4 +297,35 @@ public class EdmServiceMetadataImplProvTest extends BaseTest {
     assertXpathExists("/edmx:Edmx/edmx:DataServices/a:Schema/a:EntityType[@Name='Room']", metadata);
     assertXpathExists("/edmx:Edmx/edmx:DataServices/a:Schema/a:EntityType[@Name='Building']", metadata);
   }
+
+  @Test
+  public void serviceDocumentKeptPerFormatAndServiceRoot() throws Exception {
+    EdmServiceMetadataImplProv serviceMetadata = (EdmServiceMetadataImplProv) new EdmImplProv(new EdmTestProvider()).getServiceMetadata();
+    CachedContent atom = new CachedContent(new byte[] { 1 });
+    CachedContent json = new CachedContent(new byte[] { 2 });
+    serviceMetadata.setServiceDocument("atom", "http://host:80/service/", atom);
+    serviceMetadata.setServiceDocument("json", null, json);
+
+    assertSame(atom, serviceMetadata.getServiceDocument("atom", "http://host:80/service/"));
+    assertSame(json, serviceMetadata.getServiceDocument("json", null));
+    assertNull(serviceMetadata.getServiceDocument("atom", "http://other:80/service/"));
+    assertNull(serviceMetadata.getServiceDocument("atom", null));
+
+    serviceMetadata.setServiceDocument("atom", "http://other:80/service/", json);
+    assertNull(serviceMetadata.getServiceDocument("atom", "http://host:80/service/"));
+  }
+
+  @Test
+  public void serviceDocumentSerializedOncePerEdm() throws Exception {
+    Edm edm = new EdmImplProv(new EdmTestProvider());
+    final String serviceRoot = "http://host:80/service/";
+    ODataResponse response = new AtomEntityProvider().writeServiceDocument(edm, serviceRoot);
+    CachedContent serviceDocument = ((EdmServiceMetadataImplProv) edm.getServiceMetadata()).getServiceDocument("atom", serviceRoot);
+    assertNotNull(serviceDocument);
+    assertEquals(serviceDocument.getETag(), response.getETag());
+
+    response = new AtomEntityProvider().writeServiceDocument(edm, serviceRoot);
+    assertSame(serviceDocument, ((EdmServiceMetadataImplProv) edm.getServiceMetadata()).getServiceDocument("atom", serviceRoot));
+    assertEquals(serviceDocument.getETag(), response.getETag());
+  }
 }
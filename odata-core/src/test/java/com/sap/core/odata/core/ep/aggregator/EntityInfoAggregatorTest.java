@@ -18,15 +18,25 @@ package com.sap.core.odata.core.ep.aggregator;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
 
 import org.junit.Test;
 
 import com.sap.core.odata.api.edm.EdmEntitySet;
+import com.sap.core.odata.api.edm.EdmProperty;
 import com.sap.core.odata.api.edm.EdmTypeKind;
 import com.sap.core.odata.api.uri.ExpandSelectTreeNode;
+import com.sap.core.odata.core.edm.provider.EdmImplProv;
 import com.sap.core.odata.core.ep.AbstractProviderTest;
+import com.sap.core.odata.testutil.mock.EdmTestProvider;
 import com.sap.core.odata.testutil.mock.MockFacade;
 
 /**
@@ -73,4 +83,55 @@ public class EntityInfoAggregatorTest extends AbstractProviderTest {
     assertFalse(cityInfo.getPropertyInfo("PostalCode").isComplex());
     assertEquals("String", cityInfo.getPropertyInfo("PostalCode").getType().getName());
   }
+
+  @Test
+  public void cachedPerShape() throws Exception {
+    final EdmEntitySet entitySet = new EdmImplProv(new EdmTestProvider()).getDefaultEntityContainer().getEntitySet("Employees");
+    final EntityInfoAggregator eia = EntityInfoAggregator.create(entitySet);
+    assertSame(eia, EntityInfoAggregator.create(entitySet, null));
+
+    ExpandSelectTreeNode expandSelectTree = mock(ExpandSelectTreeNode.class);
+    when(expandSelectTree.isAll()).thenReturn(false);
+    when(expandSelectTree.getProperties()).thenReturn(Arrays.asList((EdmProperty) entitySet.getEntityType().getProperty("Age")));
+    when(expandSelectTree.getLinks()).thenReturn(Collections.<String, ExpandSelectTreeNode> singletonMap("ne_Room", null));
+    final EntityInfoAggregator selectEia = EntityInfoAggregator.create(entitySet, expandSelectTree);
+    assertNotSame(eia, selectEia);
+    assertEquals(Arrays.asList("Age"), selectEia.getSelectedPropertyNames());
+    assertEquals(Arrays.asList("ne_Room"), selectEia.getSelectedNavigationPropertyNames());
+    assertTrue(selectEia.getExpandedNavigationPropertyNames().isEmpty());
+
+    ExpandSelectTreeNode sameShape = mock(ExpandSelectTreeNode.class);
+    when(sameShape.isAll()).thenReturn(false);
+    when(sameShape.getProperties()).thenReturn(Arrays.asList((EdmProperty) entitySet.getEntityType().getProperty("Age")));
+    when(sameShape.getLinks()).thenReturn(Collections.<String, ExpandSelectTreeNode> singletonMap("ne_Room", null));
+    assertSame(selectEia, EntityInfoAggregator.create(entitySet, sameShape));
+
+    when(sameShape.getLinks()).thenReturn(Collections.singletonMap("ne_Room", mock(ExpandSelectTreeNode.class)));
+    assertEquals(Arrays.asList("ne_Room"), EntityInfoAggregator.create(entitySet, sameShape).getExpandedNavigationPropertyNames());
+  }
+
+  @Test
+  public void entryIndependentParts() throws Exception {
+    final EdmImplProv edm = new EdmImplProv(new EdmTestProvider());
+    EntityInfoAggregator eia = EntityInfoAggregator.create(edm.getEntityContainer("Container2").getEntitySet("Photos"));
+    assertEquals("Container2.Photos", eia.getEntitySetPath());
+    assertEquals("RefScenario2.Photo", eia.getEntityTypeName());
+    assertEquals(Arrays.asList("Id=", ",Type="), eia.getKeyPrefixes());
+
+    final EdmEntitySet entitySet = edm.getDefaultEntityContainer().getEntitySet("Employees");
+    eia = EntityInfoAggregator.create(entitySet);
+    assertEquals("Employees", eia.getEntitySetPath());
+    assertEquals(Arrays.asList(""), eia.getKeyPrefixes());
+    assertEquals(entitySet.getEntityType().getPropertyNames().size(), eia.getSelectedPropertyInfos().size());
+
+    ExpandSelectTreeNode expandSelectTree = mock(ExpandSelectTreeNode.class);
+    when(expandSelectTree.getProperties()).thenReturn(Arrays.asList(
+        (EdmProperty) entitySet.getEntityType().getProperty("Age"),
+        (EdmProperty) entitySet.getEntityType().getProperty("EmployeeId")));
+    when(expandSelectTree.getLinks()).thenReturn(Collections.<String, ExpandSelectTreeNode> emptyMap());
+    eia = EntityInfoAggregator.create(entitySet, expandSelectTree);
+    assertEquals(2, eia.getSelectedPropertyInfos().size());
+    assertEquals("EmployeeId", eia.getSelectedPropertyInfos().get(0).getName());
+    assertEquals("Age", eia.getSelectedPropertyInfos().get(1).getName());
+  }
 }
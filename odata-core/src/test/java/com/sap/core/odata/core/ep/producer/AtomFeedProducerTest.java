@@ -20,9 +20,11 @@ import static org.custommonkey.xmlunit.XMLAssert.assertXpathExists;
 import static org.custommonkey.xmlunit.XMLAssert.assertXpathNotExists;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
@@ -35,6 +37,7 @@ import com.sap.core.odata.api.edm.EdmEntitySet;
 import com.sap.core.odata.api.ep.EntityProviderException;
 import com.sap.core.odata.api.ep.EntityProviderWriteProperties;
 import com.sap.core.odata.api.processor.ODataResponse;
+import com.sap.core.odata.api.processor.ODataStreamingEntity;
 import com.sap.core.odata.api.uri.info.GetEntitySetUriInfo;
 import com.sap.core.odata.core.commons.ContentType;
 import com.sap.core.odata.core.ep.AbstractProviderTest;
@@ -118,6 +121,48 @@ public class AtomFeedProducerTest extends AbstractProviderTest {
     assertXpathExists("/a:feed/a:author/a:name", xmlString);
   }
 
+  @Test
+  public void testStreamingFeed() throws Exception {
+    AtomEntityProvider ser = createAtomEntityProvider();
+    EntityProviderWriteProperties properties = EntityProviderWriteProperties.serviceRoot(BASE_URI).mediaResourceMimeType("mediatype").streaming(true).build();
+    ODataResponse response = ser.writeFeed(view.getTargetEntitySet(), roomsData, properties);
+    assertTrue(response.getEntity() instanceof ODataStreamingEntity);
+    assertEquals(ContentType.APPLICATION_ATOM_XML_FEED_CS_UTF_8.toContentTypeString(), response.getContentHeader());
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ((ODataStreamingEntity) response.getEntity()).write(out);
+    String xmlString = new String(out.toByteArray(), "UTF-8");
+
+    assertXpathExists("/a:feed", xmlString);
+    assertXpathEvaluatesTo("1", "count(/a:feed/a:entry)", xmlString);
+    assertXpathEvaluatesTo(BASE_URI.toASCIIString() + "Rooms('1')", "/a:feed/a:entry/a:id/text()", xmlString);
+  }
+
+  @Test
+  public void testFeedFromIterator() throws Exception {
+    initializeRoomData(3);
+
+    AtomEntityProvider ser = createAtomEntityProvider();
+    EntityProviderWriteProperties properties = EntityProviderWriteProperties.serviceRoot(BASE_URI).mediaResourceMimeType("mediatype").build();
+    ODataResponse response = ser.writeFeed(view.getTargetEntitySet(), roomsData.iterator(), properties);
+    String xmlString = verifyResponse(response);
+
+    assertXpathEvaluatesTo("3", "count(/a:feed/a:entry)", xmlString);
+    assertXpathEvaluatesTo(BASE_URI.toASCIIString() + "Rooms('3')", "/a:feed/a:entry[3]/a:id/text()", xmlString);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testStreamingFeedFromIteratorWrittenOnlyOnce() throws Exception {
+    AtomEntityProvider ser = createAtomEntityProvider();
+    EntityProviderWriteProperties properties = EntityProviderWriteProperties.serviceRoot(BASE_URI).mediaResourceMimeType("mediatype").streaming(true).build();
+    ODataResponse response = ser.writeFeed(view.getTargetEntitySet(), roomsData.iterator(), properties);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ((ODataStreamingEntity) response.getEntity()).write(out);
+    assertXpathEvaluatesTo("1", "count(/a:feed/a:entry)", new String(out.toByteArray(), "UTF-8"));
+
+    ((ODataStreamingEntity) response.getEntity()).write(new ByteArrayOutputStream());
+  }
+
   private String verifyResponse(final ODataResponse response) throws IOException {
     assertNotNull(response);
     assertNotNull(response.getEntity());
@@ -17,7 +17,9 @@ package com.sap.core.odata.core.ep.producer;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.net.URI;
 import java.util.ArrayList;
@@ -32,6 +34,7 @@ import com.sap.core.odata.api.commons.InlineCount;
 import com.sap.core.odata.api.edm.EdmEntitySet;
 import com.sap.core.odata.api.ep.EntityProviderWriteProperties;
 import com.sap.core.odata.api.processor.ODataResponse;
+import com.sap.core.odata.api.processor.ODataStreamingEntity;
 import com.sap.core.odata.core.ep.JsonEntityProvider;
 import com.sap.core.odata.testutil.fit.BaseTest;
 import com.sap.core.odata.testutil.helper.StringHelper;
@@ -76,6 +79,46 @@ public class JsonFeedEntityProducerTest extends BaseTest {
         json);
   }
 
+  @Test
+  public void streamingFeed() throws Exception {
+    final EdmEntitySet entitySet = MockFacade.getMockEdm().getDefaultEntityContainer().getEntitySet("Teams");
+    Map<String, Object> teamData = new HashMap<String, Object>();
+    teamData.put("Id", "1");
+    teamData.put("isScrumTeam", true);
+    List<Map<String, Object>> teamsData = new ArrayList<Map<String, Object>>();
+    teamsData.add(teamData);
+
+    final EntityProviderWriteProperties properties = EntityProviderWriteProperties.serviceRoot(URI.create(BASE_URI)).streaming(true).build();
+    final ODataResponse response = new JsonEntityProvider().writeFeed(entitySet, teamsData, properties);
+    assertNotNull(response);
+    assertTrue(response.getEntity() instanceof ODataStreamingEntity);
+    assertEquals(HttpContentType.APPLICATION_JSON, response.getContentHeader());
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ((ODataStreamingEntity) response.getEntity()).write(out);
+    final String json = new String(out.toByteArray(), "UTF-8");
+    assertEquals(StringHelper.inputStreamToString((InputStream) new JsonEntityProvider().writeFeed(entitySet, teamsData, DEFAULT_PROPERTIES).getEntity()),
+        json);
+    assertEquals(json, StringHelper.inputStreamToString((InputStream) response.getEntity()));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void streamingFeedFromIteratorWrittenOnlyOnce() throws Exception {
+    final EdmEntitySet entitySet = MockFacade.getMockEdm().getDefaultEntityContainer().getEntitySet("Teams");
+    Map<String, Object> teamData = new HashMap<String, Object>();
+    teamData.put("Id", "1");
+    List<Map<String, Object>> teamsData = new ArrayList<Map<String, Object>>();
+    teamsData.add(teamData);
+
+    final EntityProviderWriteProperties properties = EntityProviderWriteProperties.serviceRoot(URI.create(BASE_URI)).streaming(true).build();
+    final ODataResponse response = new JsonEntityProvider().writeFeed(entitySet, teamsData.iterator(), properties);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ((ODataStreamingEntity) response.getEntity()).write(out);
+    assertTrue(new String(out.toByteArray(), "UTF-8").contains("Teams('1')"));
+
+    ((ODataStreamingEntity) response.getEntity()).write(new ByteArrayOutputStream());
+  }
+
   @Test
   public void inlineCount() throws Exception {
     final EdmEntitySet entitySet = MockFacade.getMockEdm().getDefaultEntityContainer().getEntitySet("Buildings");
@@ -16,11 +16,15 @@
 package com.sap.core.odata.core.ep.util;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
 import java.io.StringWriter;
 
 import org.junit.Test;
 
+import com.sap.core.odata.api.edm.EdmSimpleType;
+import com.sap.core.odata.api.edm.EdmSimpleTypeException;
+import com.sap.core.odata.api.edm.EdmSimpleTypeKind;
 import com.sap.core.odata.testutil.fit.BaseTest;
 
 /**
@@ -60,6 +64,40 @@ public class JsonStreamWriterTest extends BaseTest {
     assertEquals("{\"number\":null,\"string\":null,\"raw\":null}", writer.toString());
   }
 
+  @Test
+  public void simpleTypeValues() throws Exception {
+    StringWriter writer = new StringWriter();
+    JsonStreamWriter jsonStreamWriter = new JsonStreamWriter(writer);
+    jsonStreamWriter.beginArray()
+        .unquotedValue(EdmSimpleTypeKind.Int32.getEdmSimpleTypeInstance(), 42, null).separator()
+        .stringValueRaw(EdmSimpleTypeKind.Int64.getEdmSimpleTypeInstance(), 1234567890123L, null).separator()
+        .unquotedValue(EdmSimpleTypeKind.Int32.getEdmSimpleTypeInstance(), null, null).separator()
+        .stringValueRaw(EdmSimpleTypeKind.Int64.getEdmSimpleTypeInstance(), null, null)
+        .endArray();
+    writer.flush();
+    assertEquals("[42,\"1234567890123\",null,null]", writer.toString());
+  }
+
+  @Test
+  public void invalidSimpleTypeValueNotWritten() throws Exception {
+    final EdmSimpleType type = EdmSimpleTypeKind.Int64.getEdmSimpleTypeInstance();
+    StringWriter writer = new StringWriter();
+    JsonStreamWriter jsonStreamWriter = new JsonStreamWriter(writer);
+    jsonStreamWriter.beginArray();
+    try {
+      jsonStreamWriter.stringValueRaw(type, "1", null);
+      fail("Expected EdmSimpleTypeException not thrown");
+    } catch (final EdmSimpleTypeException e) {
+      assertEquals("[", writer.toString());
+    }
+    try {
+      jsonStreamWriter.unquotedValue(type, 'x', null);
+      fail("Expected EdmSimpleTypeException not thrown");
+    } catch (final EdmSimpleTypeException e) {
+      assertEquals("[", writer.toString());
+    }
+  }
+
   @Test
   public void escape() throws Exception {
     final String outsideBMP = String.valueOf(Character.toChars(0x1F603));
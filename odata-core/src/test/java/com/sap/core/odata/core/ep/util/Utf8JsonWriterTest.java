@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.core.ep.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.sap.core.odata.testutil.fit.BaseTest;
+
+/**
+ * @author SAP AG
+ */
+public class Utf8JsonWriterTest extends BaseTest {
+
+  private static final String OUTSIDE_BMP = String.valueOf(Character.toChars(0x1F603));
+
+  @Test
+  public void sameAsOutputStreamWriter() throws Exception {
+    assertSameOutput("abc / ? \u007F € ﷼ äöü " + OUTSIDE_BMP);
+    assertSameOutput("\b\t\n\f\r\u0000\u0001\u000B\u0011\u001F \"\\ " + OUTSIDE_BMP + "\"");
+    assertSameOutput("");
+  }
+
+  @Test
+  public void unpairedSurrogates() throws Exception {
+    assertSameOutput("a\uD83Db");
+    assertSameOutput("a\uDE03b");
+    assertSameOutput("\uDE03\uD83D");
+  }
+
+  @Test
+  public void longValues() throws Exception {
+    StringBuilder ascii = new StringBuilder();
+    StringBuilder mixed = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      ascii.append((char) ('a' + i % 26));
+      mixed.append(i % 7 == 0 ? "€" : i % 11 == 0 ? OUTSIDE_BMP : i % 13 == 0 ? "\n" : "x");
+    }
+    assertSameOutput(ascii.toString());
+    assertSameOutput(mixed.toString());
+  }
+
+  @Test
+  public void randomValues() throws Exception {
+    final char[] characters = { 'a', 'Z', '0', ' ', '"', '\\', '/', '\n', '\u0001', '\u007F', 'ä', '€', '\uD83D', '\uDE03' };
+    Random random = new Random(42);
+    for (int n = 0; n < 500; n++) {
+      StringBuilder value = new StringBuilder();
+      final int length = random.nextInt(12000);
+      for (int i = 0; i < length; i++) {
+        value.append(characters[random.nextInt(characters.length)]);
+      }
+      assertSameOutput(value.toString());
+    }
+  }
+
+  @Test
+  public void names() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Utf8JsonWriter writer = new Utf8JsonWriter(out);
+    new JsonStreamWriter(writer).beginObject()
+        .namedStringValueRaw("Name", "1").separator()
+        .namedStringValueRaw("Name", "2").separator()
+        .namedStringValue("Стоимость", "€")
+        .endObject();
+    writer.flush();
+    assertEquals("{\"Name\":\"1\",\"Name\":\"2\",\"Стоимость\":\"€\"}", out.toString("UTF-8"));
+  }
+
+  private void assertSameOutput(final String value) throws Exception {
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    write(new OutputStreamWriter(expected, "UTF-8"), value);
+    ByteArrayOutputStream actual = new ByteArrayOutputStream();
+    write(new Utf8JsonWriter(actual), value);
+    assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+  }
+
+  private void write(final Writer writer, final String value) throws Exception {
+    new JsonStreamWriter(writer).beginObject()
+        .namedStringValue("escaped", value).separator()
+        .namedStringValueRaw("raw", value).separator()
+        .name("value").unquotedValue(value)
+        .endObject();
+    writer.flush();
+  }
+}
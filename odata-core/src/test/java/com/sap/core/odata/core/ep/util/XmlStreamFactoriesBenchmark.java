@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.core.ep.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+
+import com.ctc.wstx.stax.WstxInputFactory;
+import com.ctc.wstx.stax.WstxOutputFactory;
+import com.sap.core.odata.api.edm.EdmEntitySet;
+import com.sap.core.odata.api.ep.EntityProviderReadProperties;
+import com.sap.core.odata.api.ep.EntityProviderWriteProperties;
+import com.sap.core.odata.api.ep.XmlStreamFactoryProvider;
+import com.sap.core.odata.core.edm.provider.EdmImplProv;
+import com.sap.core.odata.core.ep.AtomEntityProvider;
+import com.sap.core.odata.testutil.mock.EdmTestProvider;
+
+/**
+ * Measures Atom feed write and read throughput with the StAX implementations
+ * available on the test class path.
+ * <p>Not a unit test; run its main method with the test class path, e.g., from the IDE.
+ * Implementations not covered here, e.g., Aalto, can be measured by
+ * adding a {@link XmlStreamFactoryProvider} for them to {@link #main(String[])}.</p>
+ * 
+ * @author SAP AG
+ */
+public class XmlStreamFactoriesBenchmark {
+
+  private static final int ROOMS = 100;
+  private static final int WARM_UP_ITERATIONS = 500;
+  private static final int ITERATIONS = 2000;
+
+  private static final XmlStreamFactoryProvider JDK = new XmlStreamFactoryProvider() {
+    @Override
+    public XMLInputFactory createInputFactory() {
+      return (XMLInputFactory) newInstance("com.sun.xml.internal.stream.XMLInputFactoryImpl");
+    }
+
+    @Override
+    public XMLOutputFactory createOutputFactory() {
+      return (XMLOutputFactory) newInstance("com.sun.xml.internal.stream.XMLOutputFactoryImpl");
+    }
+  };
+
+  private static final XmlStreamFactoryProvider WOODSTOX = new XmlStreamFactoryProvider() {
+    @Override
+    public XMLInputFactory createInputFactory() {
+      return new WstxInputFactory();
+    }
+
+    @Override
+    public XMLOutputFactory createOutputFactory() {
+      return new WstxOutputFactory();
+    }
+  };
+
+  public static void main(final String[] args) throws Exception {
+    final EdmEntitySet entitySet = new EdmImplProv(new EdmTestProvider()).getDefaultEntityContainer().getEntitySet("Rooms");
+    final List<Map<String, Object>> rooms = new ArrayList<Map<String, Object>>();
+    for (int i = 1; i <= ROOMS; i++) {
+      Map<String, Object> room = new HashMap<String, Object>();
+      room.put("Id", String.valueOf(i));
+      room.put("Name", "Room " + i);
+      room.put("Seats", Integer.valueOf(i % 20));
+      room.put("Version", Integer.valueOf(1));
+      rooms.add(room);
+    }
+
+    run("JDK", JDK, entitySet, rooms);
+    run("Woodstox", WOODSTOX, entitySet, rooms);
+    XmlStreamFactories.setProvider(null);
+  }
+
+  private static void run(final String name, final XmlStreamFactoryProvider provider, final EdmEntitySet entitySet, final List<Map<String, Object>> rooms) throws Exception {
+    XmlStreamFactories.setProvider(provider);
+    final AtomEntityProvider atom = new AtomEntityProvider();
+    final EntityProviderWriteProperties writeProperties = EntityProviderWriteProperties.serviceRoot(new URI("http://host:80/service/")).build();
+    final EntityProviderReadProperties readProperties = EntityProviderReadProperties.init().mergeSemantic(false).build();
+    final byte[] feed = write(atom, entitySet, rooms, writeProperties);
+
+    for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+      write(atom, entitySet, rooms, writeProperties);
+      atom.readFeed(entitySet, new ByteArrayInputStream(feed), readProperties);
+    }
+
+    long start = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      write(atom, entitySet, rooms, writeProperties);
+    }
+    final long writeTime = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      atom.readFeed(entitySet, new ByteArrayInputStream(feed), readProperties);
+    }
+    final long readTime = System.nanoTime() - start;
+
+    System.out.println(String.format("%-10s write: %8.1f feeds/s   read: %8.1f feeds/s   (%d entries, %d bytes)",
+        name, ITERATIONS * 1e9 / writeTime, ITERATIONS * 1e9 / readTime, rooms.size(), feed.length));
+  }
+
+  private static Object newInstance(final String className) {
+    try {
+      return Class.forName(className).newInstance();
+    } catch (final Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static byte[] write(final AtomEntityProvider atom, final EdmEntitySet entitySet, final List<Map<String, Object>> rooms, final EntityProviderWriteProperties properties) throws Exception {
+    final InputStream content = (InputStream) atom.writeFeed(entitySet, rooms, properties).getEntity();
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int count;
+    while ((count = content.read(buffer)) >= 0) {
+      result.write(buffer, 0, count);
+    }
+    content.close();
+    return result.toByteArray();
+  }
+}
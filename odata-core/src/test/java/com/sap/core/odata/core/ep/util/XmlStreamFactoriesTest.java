@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.core.ep.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.ctc.wstx.stax.WstxInputFactory;
+import com.ctc.wstx.stax.WstxOutputFactory;
+import com.sap.core.odata.api.ep.XmlStreamFactoryProvider;
+import com.sap.core.odata.testutil.fit.BaseTest;
+
+/**
+ * @author SAP AG
+ */
+public class XmlStreamFactoriesTest extends BaseTest {
+
+  @After
+  public void resetProvider() {
+    XmlStreamFactories.setProvider(null);
+  }
+
+  @Test
+  public void shared() {
+    assertSame(XmlStreamFactories.getInputFactory(), XmlStreamFactories.getInputFactory());
+    assertSame(XmlStreamFactories.getOutputFactory(), XmlStreamFactories.getOutputFactory());
+    assertEquals(Boolean.TRUE, XmlStreamFactories.getInputFactory().getProperty(XMLInputFactory.IS_NAMESPACE_AWARE));
+    assertEquals(Boolean.FALSE, XmlStreamFactories.getInputFactory().getProperty(XMLInputFactory.IS_VALIDATING));
+  }
+
+  @Test
+  public void provider() {
+    final XMLInputFactory inputFactory = new WstxInputFactory();
+    final XMLOutputFactory outputFactory = new WstxOutputFactory();
+    XmlStreamFactories.setProvider(new XmlStreamFactoryProvider() {
+      @Override
+      public XMLInputFactory createInputFactory() {
+        return inputFactory;
+      }
+
+      @Override
+      public XMLOutputFactory createOutputFactory() {
+        return outputFactory;
+      }
+    });
+    assertSame(inputFactory, XmlStreamFactories.getInputFactory());
+    assertSame(outputFactory, XmlStreamFactories.getOutputFactory());
+    assertEquals(Boolean.TRUE, inputFactory.getProperty(XMLInputFactory.IS_NAMESPACE_AWARE));
+  }
+}
@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.core.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.ws.rs.core.StreamingOutput;
+
+import org.junit.Test;
+
+import com.sap.core.odata.api.ODataCompressionCallback;
+import com.sap.core.odata.api.exception.ODataRequestEntityTooLargeException;
+import com.sap.core.odata.api.processor.ODataStreamingEntity;
+import com.sap.core.odata.testutil.fit.BaseTest;
+import com.sap.core.odata.testutil.helper.StringHelper;
+
+/**
+ * @author SAP AG
+ */
+public class ContentCodingTest extends BaseTest {
+
+  private static final String XML = "application/atom+xml; charset=utf-8";
+
+  private static final ODataCompressionCallback CALLBACK = new ODataCompressionCallback() {
+    @Override
+    public int getMinimumSize() {
+      return 100;
+    }
+
+    @Override
+    public int getCompressionLevel() {
+      return 1;
+    }
+
+    @Override
+    public long getMaximumDecodedSize() {
+      return -1;
+    }
+  };
+
+  private static ContentCoding create(final String... acceptEncodings) {
+    return ContentCoding.create(CALLBACK, Arrays.asList(acceptEncodings));
+  }
+
+  @Test
+  public void negotiation() {
+    assertNull(ContentCoding.create(CALLBACK, null));
+    assertNull(create("identity"));
+    assertNull(create("gzip;q=0, deflate;q=0"));
+    assertNull(create("*;q=0"));
+    assertNull(create("br"));
+    assertEquals(ContentCoding.GZIP, create("gzip").getName());
+    assertEquals(ContentCoding.GZIP, create("x-gzip").getName());
+    assertEquals(ContentCoding.GZIP, create("deflate, gzip").getName());
+    assertEquals(ContentCoding.GZIP, create("deflate", "gzip").getName());
+    assertEquals(ContentCoding.GZIP, create("*").getName());
+    assertEquals(ContentCoding.DEFLATE, create("DEFLATE").getName());
+    assertEquals(ContentCoding.DEFLATE, create("gzip;q=0.5, deflate").getName());
+    assertEquals(ContentCoding.DEFLATE, create("gzip;q=0, *").getName());
+  }
+
+  @Test
+  public void negotiationWithRepeatedCodings() {
+    // the best quality of a coding listed more than once counts
+    assertEquals(ContentCoding.DEFLATE, create("gzip;q=0.5, deflate;q=0.8, deflate;q=0.2").getName());
+    assertEquals(ContentCoding.DEFLATE, create("deflate;q=0.8", "gzip;q=0.5", "deflate;q=0.1").getName());
+    assertEquals(ContentCoding.GZIP, create("x-gzip;q=0.2, gzip;q=0.9, deflate;q=0.8").getName());
+    assertEquals(ContentCoding.GZIP, create("*;q=0.7, deflate;q=0.3, *;q=0").getName());
+  }
+
+  @Test
+  public void encodeETag() {
+    assertEquals("\"1a2b-gzip\"", create("gzip").encodeETag("\"1a2b\""));
+    assertEquals("\"1a2b-deflate\"", create("deflate").encodeETag("\"1a2b\""));
+    assertEquals("W/\"1a2b\"", create("gzip").encodeETag("W/\"1a2b\""));
+    assertNull(create("gzip").encodeETag(null));
+  }
+
+  private static byte[] write(final Object entity) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ((StreamingOutput) entity).write(output);
+    return output.toByteArray();
+  }
+
+  private static String read(final InputStream stream) throws IOException {
+    return StringHelper.inputStreamToString(stream);
+  }
+
+  @Test
+  public void encodeString() throws Exception {
+    final String content = StringHelper.generateData(1000);
+    Object entity = create("gzip").encode(content, XML);
+    assertTrue(ContentCoding.isEncoded(entity));
+    assertEquals(content, read(new GZIPInputStream(new ByteArrayInputStream(write(entity)))));
+
+    entity = create("deflate").encode(content, XML);
+    assertTrue(ContentCoding.isEncoded(entity));
+    assertEquals(content, read(new InflaterInputStream(new ByteArrayInputStream(write(entity)))));
+
+    assertSame(content, create("gzip").encode(content, "image/png"));
+    assertSame(content, create("gzip").encode(content, null));
+    final String small = StringHelper.generateData(99);
+    assertSame(small, create("gzip").encode(small, XML));
+  }
+
+  @Test
+  public void encodeStream() throws Exception {
+    final String content = StringHelper.generateData(1000);
+    Object entity = create("gzip").encode(new ByteArrayInputStream(content.getBytes("UTF-8")), "text/plain");
+    assertTrue(ContentCoding.isEncoded(entity));
+    assertEquals(content, read(new GZIPInputStream(new ByteArrayInputStream(write(entity)))));
+
+    final String small = StringHelper.generateData(99);
+    entity = create("gzip").encode(new ByteArrayInputStream(small.getBytes("UTF-8")), "text/plain");
+    assertFalse(ContentCoding.isEncoded(entity));
+    assertEquals(small, read((InputStream) entity));
+  }
+
+  @Test
+  public void encodeStreamingEntity() throws Exception {
+    final ODataStreamingEntity streamingEntity = new ODataStreamingEntity() {
+      @Override
+      public void write(final OutputStream out) throws IOException {
+        out.write("short".getBytes("UTF-8"));
+      }
+    };
+    final Object entity = create("gzip").encode(streamingEntity, "application/json");
+    assertTrue(ContentCoding.isEncoded(entity));
+    assertEquals("short", read(new GZIPInputStream(new ByteArrayInputStream(write(entity)))));
+  }
+
+  @Test
+  public void decode() throws Exception {
+    final String content = StringHelper.generateData(1000);
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    OutputStream encoder = new GZIPOutputStream(output);
+    encoder.write(content.getBytes("UTF-8"));
+    encoder.close();
+    assertEquals(content, read(ContentCoding.decode("gzip", new ByteArrayInputStream(output.toByteArray()), -1)));
+
+    output = new ByteArrayOutputStream();
+    encoder = new DeflaterOutputStream(output);
+    encoder.write(content.getBytes("UTF-8"));
+    encoder.close();
+    assertEquals(content, read(ContentCoding.decode("deflate", new ByteArrayInputStream(output.toByteArray()), -1)));
+
+    assertEquals("", read(ContentCoding.decode("gzip", new ByteArrayInputStream(new byte[0]), -1)));
+    final InputStream plain = new ByteArrayInputStream(new byte[0]);
+    assertSame(plain, ContentCoding.decode(null, plain, -1));
+    assertSame(plain, ContentCoding.decode("identity", plain, 0));
+  }
+
+  @Test
+  public void decodeWithLimit() throws Exception {
+    final String content = StringHelper.generateData(1000);
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    OutputStream encoder = new GZIPOutputStream(output);
+    encoder.write(content.getBytes("UTF-8"));
+    encoder.close();
+    final byte[] encoded = output.toByteArray();
+
+    assertEquals(content, read(ContentCoding.decode("gzip", new ByteArrayInputStream(encoded), 1000)));
+    try {
+      read(ContentCoding.decode("gzip", new ByteArrayInputStream(encoded), 999));
+      fail("Expected IOException not thrown");
+    } catch (final IOException e) {
+      assertTrue(e.getCause() instanceof ODataRequestEntityTooLargeException);
+    }
+
+    output = new ByteArrayOutputStream();
+    encoder = new DeflaterOutputStream(output);
+    encoder.write(content.getBytes("UTF-8"));
+    encoder.close();
+    try {
+      read(ContentCoding.decode("deflate", new ByteArrayInputStream(output.toByteArray()), 10));
+      fail("Expected IOException not thrown");
+    } catch (final IOException e) {
+      assertTrue(e.getCause() instanceof ODataRequestEntityTooLargeException);
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void decodeWrongContent() throws Exception {
+    ContentCoding.decode("gzip", new ByteArrayInputStream("not compressed".getBytes("UTF-8")), -1);
+  }
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.core.uri;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sap.core.odata.api.uri.UriSyntaxException;
+import com.sap.core.odata.core.edm.EdmImpl;
+import com.sap.core.odata.core.edm.provider.EdmImplProv;
+import com.sap.core.odata.testutil.fit.BaseTest;
+import com.sap.core.odata.testutil.mock.EdmTestProvider;
+import com.sap.core.odata.testutil.mock.MockFacade;
+
+/**
+ * @author SAP AG
+ */
+public class ResourcePathCacheTest extends BaseTest {
+
+  private EdmImpl edm;
+
+  @Before
+  public void createEdm() {
+    edm = new EdmImplProv(new EdmTestProvider());
+  }
+
+  private UriInfoImpl parse(final String path) throws Exception {
+    return (UriInfoImpl) new UriParserImpl(edm).parse(
+        MockFacade.getPathSegmentsAsODataPathSegmentMock(Arrays.asList(path.split("/", -1))),
+        Collections.<String, String> emptyMap());
+  }
+
+  @Test
+  public void template() {
+    List<String> keys = new ArrayList<String>();
+    assertEquals(Arrays.asList("Employees(?)", "ne_Manager", "nm_Employees(?)", "$count"),
+        ResourcePathCache.getTemplate(Arrays.asList("Employees('1')", "ne_Manager", "nm_Employees(EmployeeId='2')", "$count"), keys));
+    assertEquals(Arrays.asList("'1'", "EmployeeId='2'"), keys);
+
+    keys.clear();
+    assertEquals(Arrays.asList("Employees()", "(1)", "a(b", "Employees(?)"),
+        ResourcePathCache.getTemplate(Arrays.asList("Employees()", "(1)", "a(b", "Employees(')')"), keys));
+    assertEquals(Arrays.asList("')'"), keys);
+  }
+
+  @Test
+  public void sameTemplate() throws Exception {
+    UriInfoImpl result = parse("Employees('1')");
+    assertEquals(UriType.URI2, result.getUriType());
+    assertEquals("1", result.getKeyPredicates().get(0).getLiteral());
+
+    result = parse("Employees('2')");
+    assertEquals(UriType.URI2, result.getUriType());
+    assertEquals("Employees", result.getTargetEntitySet().getName());
+    assertEquals("2", result.getKeyPredicates().get(0).getLiteral());
+    assertEquals(1, edm.getResourcePathCache().size());
+  }
+
+  @Test
+  public void navigation() throws Exception {
+    parse("Rooms('1')/nr_Employees('2')/ne_Room/$count");
+    final UriInfoImpl result = parse("Rooms('3')/nr_Employees('4')/ne_Room/$count");
+    assertEquals(1, edm.getResourcePathCache().size());
+    assertEquals(UriType.URI16, result.getUriType());
+    assertTrue(result.isCount());
+    assertEquals("3", result.getKeyPredicates().get(0).getLiteral());
+    assertEquals(2, result.getNavigationSegments().size());
+    assertEquals("4", result.getNavigationSegments().get(0).getKeyPredicates().get(0).getLiteral());
+    assertTrue(result.getNavigationSegments().get(1).getKeyPredicates().isEmpty());
+    assertSame(edm.getEntityContainer(null).getEntitySet("Rooms"), result.getTargetEntitySet());
+  }
+
+  @Test
+  public void wrongKeyOnCachedTemplate() throws Exception {
+    parse("Employees('1')");
+    try {
+      parse("Employees(Id='1')");
+      fail("Expected UriSyntaxException not thrown");
+    } catch (final UriSyntaxException e) {
+      assertEquals(UriSyntaxException.INVALIDKEYPREDICATE.getKey(), e.getMessageReference().getKey());
+    }
+    assertEquals(1, edm.getResourcePathCache().size());
+  }
+}
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.core.uri.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sap.core.odata.api.uri.UriInfo;
+import com.sap.core.odata.api.uri.UriSyntaxException;
+import com.sap.core.odata.api.uri.expression.FilterExpression;
+import com.sap.core.odata.core.edm.EdmImpl;
+import com.sap.core.odata.core.edm.provider.EdmImplProv;
+import com.sap.core.odata.core.uri.UriParserImpl;
+import com.sap.core.odata.testutil.fit.BaseTest;
+import com.sap.core.odata.testutil.mock.EdmTestProvider;
+import com.sap.core.odata.testutil.mock.MockFacade;
+
+/**
+ * @author SAP AG
+ */
+public class ExpressionCacheTest extends BaseTest {
+
+  private EdmImpl edm;
+
+  @Before
+  public void createEdm() {
+    edm = new EdmImplProv(new EdmTestProvider());
+  }
+
+  private static UriInfo parse(final EdmImpl edm, final String filter, final String orderBy) throws Exception {
+    Map<String, String> queryParameters = new HashMap<String, String>();
+    if (filter != null) {
+      queryParameters.put("$filter", filter);
+    }
+    if (orderBy != null) {
+      queryParameters.put("$orderby", orderBy);
+    }
+    return new UriParserImpl(edm).parse(
+        MockFacade.getPathSegmentsAsODataPathSegmentMock(Arrays.asList("Employees")), queryParameters);
+  }
+
+  @Test
+  public void cachedFilterAndOrderBy() throws Exception {
+    final ExpressionCache cache = edm.getExpressionCache();
+    UriInfo result = parse(edm, "Age gt 20", "EmployeeName desc");
+    assertEquals(0, cache.getHitCount());
+    assertEquals(2, cache.getMissCount());
+    assertEquals(2, cache.size());
+
+    final UriInfo cachedResult = parse(edm, "Age gt 20", "EmployeeName desc");
+    assertSame(result.getFilter(), cachedResult.getFilter());
+    assertSame(result.getOrderBy(), cachedResult.getOrderBy());
+    assertEquals(2, cache.getHitCount());
+
+    result = parse(edm, "Age lt 20", null);
+    assertNotSame(cachedResult.getFilter(), result.getFilter());
+    assertEquals("Age lt 20", result.getFilter().getUriLiteral());
+    assertEquals(3, cache.getMissCount());
+
+    try {
+      parse(edm, "Age", null);
+      fail("Expected UriSyntaxException not thrown");
+    } catch (final UriSyntaxException e) {
+      assertEquals(UriSyntaxException.INVALIDFILTEREXPRESSION.getKey(), e.getMessageReference().getKey());
+    }
+    assertEquals(3, cache.size());
+
+    cache.clear();
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.getHitCount());
+    assertEquals(0, cache.getMissCount());
+  }
+
+  @Test
+  public void cachePerEntityDataModel() throws Exception {
+    final EdmImpl otherEdm = new EdmImplProv(new EdmTestProvider());
+    final UriInfo result = parse(edm, "Age gt 20", null);
+    final UriInfo otherResult = parse(otherEdm, "Age gt 20", null);
+    assertNotSame(result.getFilter(), otherResult.getFilter());
+    assertEquals(1, edm.getExpressionCache().size());
+    assertEquals(1, otherEdm.getExpressionCache().size());
+    assertEquals(0, otherEdm.getExpressionCache().getHitCount());
+  }
+
+  @Test
+  public void limitedSize() throws Exception {
+    final ExpressionCache cache = edm.getExpressionCache();
+    for (int i = 0; i < 2 * ExpressionCache.MAX_ENTRIES; i++) {
+      parse(edm, "Age gt " + i, null);
+    }
+    assertTrue(cache.size() <= ExpressionCache.MAX_ENTRIES);
+    final String last = "Age gt " + (2 * ExpressionCache.MAX_ENTRIES - 1);
+    assertSame(parse(edm, last, null).getFilter(), parse(edm, last, null).getFilter());
+  }
+
+  @Test
+  public void recentlyUsedEntriesSurvive() throws Exception {
+    final ExpressionCache cache = edm.getExpressionCache();
+    final FilterExpression hot = parse(edm, "Age gt 0", null).getFilter();
+    final FilterExpression cold = parse(edm, "Age gt 1", null).getFilter();
+    for (int i = 2; i < 10 * ExpressionCache.MAX_ENTRIES; i++) {
+      parse(edm, "Age gt " + i, null);
+      // the hot filter is used again and again while the cache overflows
+      if (i % 4 == 0) {
+        assertSame(hot, parse(edm, "Age gt 0", null).getFilter());
+      }
+    }
+    assertSame(hot, parse(edm, "Age gt 0", null).getFilter());
+    assertNotSame(cold, parse(edm, "Age gt 1", null).getFilter());
+    assertTrue(cache.size() <= ExpressionCache.MAX_ENTRIES);
+  }
+}
@@ -154,6 +154,30 @@ public class TestTokenizer
   {
     getTT("a eq b").at(1).aKind(TokenKind.LITERAL).aUriLiteral("eq");
     getTT("a eqotto b").at(1).aKind(TokenKind.LITERAL).aUriLiteral("eqotto");
+    getTT("a eq").at(1).aKind(TokenKind.LITERAL).aUriLiteral("eq").aPosition(2);
+    getTT("not true").at(0).aKind(TokenKind.LITERAL).aUriLiteral("not")
+        .at(1).aKind(TokenKind.SIMPLE_TYPE).aUriLiteral("true").aPosition(4);
+  }
+
+  @Test
+  public void tokenizeLongExpression() throws Exception
+  {
+    StringBuilder expression = new StringBuilder("ID eq 0");
+    for (int i = 1; i < 1000; i++) {
+      expression.append(" or ID eq ").append(i);
+    }
+    getTT(expression.toString())
+        .at(3).aKind(TokenKind.LITERAL).aUriLiteral("or").aPosition(8)
+        .at(3995).aKind(TokenKind.LITERAL).aUriLiteral("or").aPosition(expression.lastIndexOf(" or ") + 1)
+        .at(3998).aKind(TokenKind.SIMPLE_TYPE).aUriLiteral("999");
+  }
+
+  @Test
+  public void tokenizeUnicodeLetters() throws Exception
+  {
+    getTT("Stra\u00dfe eq 'x'").at(0).aKind(TokenKind.LITERAL).aUriLiteral("Stra\u00dfe")
+        .at(1).aKind(TokenKind.LITERAL).aUriLiteral("eq").aPosition(7);
+    getTT("a \u00a7").aExMsgText("Unknown character '\u00a7' at position '2' detected in \"a \u00a7\".");
   }
 
   @Test
@@ -55,6 +55,7 @@ import com.sap.core.odata.core.ep.util.CircleStreamBuffer;
 import com.sap.core.odata.core.ep.util.FormatJson;
 import com.sap.core.odata.core.ep.util.JsonStreamWriter;
 import com.sap.core.odata.core.processor.ODataSingleProcessorService;
+import com.sap.core.odata.testutil.helper.StringHelper;
 import com.sap.core.odata.testutil.mock.MockFacade;
 
 /**
@@ -107,11 +108,15 @@ public class BasicBatchTest extends AbstractBasicTest {
     assertNotNull(response);
     assertEquals(202, response.getStatusLine().getStatusCode());
     assertEquals("HTTP/1.1", response.getProtocolVersion().toString());
-    assertTrue(response.containsHeader("Content-Length"));
     assertTrue(response.containsHeader("Content-Type"));
     assertTrue(response.containsHeader("DataServiceVersion"));
     assertTrue(response.getEntity().getContentType().getValue().matches(REG_EX));
     assertNotNull(response.getEntity().getContent());
+    final String boundary = response.getEntity().getContentType().getValue().split("boundary=")[1];
+    final String body = StringHelper.httpEntityToString(response.getEntity());
+    assertTrue(body.startsWith("--" + boundary));
+    assertTrue(body.endsWith("--" + boundary + "--"));
+    assertTrue(body.contains("HTTP/1.1 200 OK"));
   }
 
   static class TestSingleProc extends ODataSingleProcessor {
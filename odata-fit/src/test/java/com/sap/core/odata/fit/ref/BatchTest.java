@@ -49,6 +49,15 @@ public class BatchTest extends AbstractRefTest {
     assertTrue(responseBody.contains("Frederic Fall MODIFIED"));
   }
 
+  @Test
+  public void testParallelQueryOperations() throws Exception {
+    String responseBody = execute("/parallel.batch");
+    assertFalse(responseBody.contains("HTTP/1.1 4"));
+    assertEquals(2, responseBody.split("Frederic Fall MODIFIED", -1).length - 1);
+    assertTrue(responseBody.contains("Jonathan Smith"));
+    assertTrue(responseBody.indexOf("Jonathan Smith") < responseBody.indexOf("Frederic Fall MODIFIED"));
+  }
+
   @Test
   public void testErrorBatch() throws Exception {
     String responseBody = execute("/error.batch");
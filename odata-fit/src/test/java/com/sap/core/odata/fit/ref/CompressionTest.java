@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.fit.ref;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.entity.ByteArrayEntity;
+import org.junit.Test;
+
+import com.sap.core.odata.api.ODataCallback;
+import com.sap.core.odata.api.ODataCompressionCallback;
+import com.sap.core.odata.api.commons.HttpContentType;
+import com.sap.core.odata.api.commons.HttpStatusCodes;
+import com.sap.core.odata.testutil.fit.FitStaticServiceFactory;
+import com.sap.core.odata.testutil.helper.StringHelper;
+
+/**
+ * Tests employing the reference scenario with compressed request and response bodies.
+ * @author SAP AG
+ */
+public class CompressionTest extends AbstractRefTest {
+
+  private static final int MAXIMUM_DECODED_SIZE = 1024;
+
+  /**
+   * Service factory enabling compression.
+   */
+  public static class CompressionServiceFactory extends FitStaticServiceFactory {
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T extends ODataCallback> T getCallback(final Class<? extends ODataCallback> callbackInterface) {
+      if (callbackInterface.isAssignableFrom(ODataCompressionCallback.class)) {
+        return (T) new ODataCompressionCallback() {
+          @Override
+          public int getMinimumSize() {
+            return 256;
+          }
+
+          @Override
+          public int getCompressionLevel() {
+            return -1;
+          }
+
+          @Override
+          public long getMaximumDecodedSize() {
+            return MAXIMUM_DECODED_SIZE;
+          }
+        };
+      }
+      return super.getCallback(callbackInterface);
+    }
+  }
+
+  @Override
+  protected Class<? extends FitStaticServiceFactory> getServiceFactoryClass() {
+    return CompressionServiceFactory.class;
+  }
+
+  @Test
+  public void compressedFeed() throws Exception {
+    HttpResponse response = callUri("Employees", HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+    assertEquals("gzip", response.getFirstHeader(HttpHeaders.CONTENT_ENCODING).getValue());
+    assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getFirstHeader("Vary").getValue());
+    final String body = StringHelper.inputStreamToString(new GZIPInputStream(response.getEntity().getContent()));
+    assertTrue(body.contains(EMPLOYEE_1_NAME));
+    assertTrue(body.contains(EMPLOYEE_6_NAME));
+
+    response = callUri("Employees");
+    assertNull(response.getFirstHeader(HttpHeaders.CONTENT_ENCODING));
+    assertTrue(getBody(response).contains(EMPLOYEE_6_NAME));
+  }
+
+  @Test
+  public void compressedMetadataETag() throws Exception {
+    HttpResponse response = callUri("$metadata");
+    final String eTag = response.getFirstHeader(HttpHeaders.ETAG).getValue();
+    getBody(response);
+    response = callUri("$metadata", HttpHeaders.ACCEPT_ENCODING, "gzip");
+    assertEquals("gzip", response.getFirstHeader(HttpHeaders.CONTENT_ENCODING).getValue());
+    final String compressedETag = response.getFirstHeader(HttpHeaders.ETAG).getValue();
+    assertEquals(eTag.substring(0, eTag.length() - 1) + "-gzip\"", compressedETag);
+    getBody(response);
+
+    HttpGet get = new HttpGet(URI.create(getEndpoint() + "$metadata"));
+    get.setHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+    get.setHeader(HttpHeaders.IF_NONE_MATCH, compressedETag);
+    response = getHttpClient().execute(get);
+    assertEquals(HttpStatusCodes.NOT_MODIFIED.getStatusCode(), response.getStatusLine().getStatusCode());
+    assertEquals(compressedETag, response.getFirstHeader(HttpHeaders.ETAG).getValue());
+  }
+
+  @Test
+  public void smallBodyUncompressed() throws Exception {
+    HttpResponse response = callUri("Employees('2')/Age/$value", HttpHeaders.ACCEPT_ENCODING, "gzip");
+    assertNull(response.getFirstHeader(HttpHeaders.CONTENT_ENCODING));
+    assertEquals(EMPLOYEE_2_AGE, getBody(response));
+  }
+
+  private HttpResponse putCompressed(final String uri, final String content) throws Exception {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    OutputStream encoder = new GZIPOutputStream(output);
+    encoder.write(content.getBytes("UTF-8"));
+    encoder.close();
+
+    HttpPut put = new HttpPut(URI.create(getEndpoint() + uri));
+    put.setEntity(new ByteArrayEntity(output.toByteArray()));
+    put.setHeader(HttpHeaders.CONTENT_TYPE, HttpContentType.TEXT_PLAIN);
+    put.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+    return getHttpClient().execute(put);
+  }
+
+  @Test
+  public void compressedRequestBody() throws Exception {
+    final HttpResponse response = putCompressed("Employees('2')/Age/$value", "42");
+    assertEquals(HttpStatusCodes.NO_CONTENT.getStatusCode(), response.getStatusLine().getStatusCode());
+
+    assertEquals("42", getBody(callUri("Employees('2')/Age/$value")));
+  }
+
+  @Test
+  public void compressedRequestBodyTooLarge() throws Exception {
+    final HttpResponse response = putCompressed("Employees('2')/EmployeeName/$value",
+        StringHelper.generateData(MAXIMUM_DECODED_SIZE + 1));
+    assertEquals(HttpStatusCodes.REQUEST_ENTITY_TOO_LARGE.getStatusCode(), response.getStatusLine().getStatusCode());
+    getBody(response);
+
+    assertEquals(EMPLOYEE_2_NAME, getBody(callUri("Employees('2')/EmployeeName/$value")));
+  }
+}
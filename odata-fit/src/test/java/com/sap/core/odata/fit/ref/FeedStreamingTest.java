@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.fit.ref;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.StringEntity;
+import org.junit.Test;
+
+import com.sap.core.odata.api.commons.HttpContentType;
+import com.sap.core.odata.api.commons.HttpStatusCodes;
+import com.sap.core.odata.api.edm.provider.EdmProvider;
+import com.sap.core.odata.api.processor.ODataSingleProcessor;
+import com.sap.core.odata.core.processor.ODataSingleProcessorService;
+import com.sap.core.odata.ref.edm.ScenarioEdmProvider;
+import com.sap.core.odata.ref.model.DataContainer;
+import com.sap.core.odata.ref.processor.ListsProcessor;
+import com.sap.core.odata.ref.processor.ScenarioDataSource;
+
+/**
+ * Tests employing the reference scenario with feeds written directly into the response output stream.
+ * @author SAP AG
+ */
+public class FeedStreamingTest extends AbstractRefTest {
+
+  @Override
+  protected ODataSingleProcessorService createService() {
+    DataContainer dataContainer = new DataContainer();
+    dataContainer.reset();
+    ODataSingleProcessor processor = new ListsProcessor(new ScenarioDataSource(dataContainer), true);
+    EdmProvider provider = new ScenarioEdmProvider();
+
+    return new ODataSingleProcessorService(provider, processor) {};
+  }
+
+  @Test
+  public void atomFeed() throws Exception {
+    final HttpResponse response = callUri("Rooms()?$inlinecount=allpages");
+    checkMediaType(response, HttpContentType.APPLICATION_ATOM_XML_UTF8 + ";type=feed");
+    assertNull(response.getFirstHeader(HttpHeaders.CONTENT_LENGTH));
+    final String body = getBody(response);
+    assertTrue(body.contains("<m:count>103</m:count>"));
+    assertTrue(body.contains("Rooms('100')"));
+    assertTrue(body.contains("$skiptoken=97"));
+    assertTrue(body.endsWith("</feed>"));
+  }
+
+  @Test
+  public void jsonFeed() throws Exception {
+    final HttpResponse response = callUri("Employees()?$format=json&$top=2");
+    checkMediaType(response, HttpContentType.APPLICATION_JSON);
+    assertNull(response.getFirstHeader(HttpHeaders.CONTENT_LENGTH));
+    final String body = getBody(response);
+    assertTrue(body.startsWith("{\"d\":{\"results\":[{\"__metadata\""));
+    assertTrue(body.contains(EMPLOYEE_2_NAME));
+    assertEquals(-1, body.indexOf(EMPLOYEE_3_NAME));
+  }
+
+  @Test
+  public void feedInBatch() throws Exception {
+    final HttpPost post = new HttpPost(URI.create(getEndpoint().toString() + "$batch"));
+    post.setHeader(HttpHeaders.CONTENT_TYPE, "multipart/mixed;boundary=batch_123");
+    post.setEntity(new StringEntity("--batch_123\r\n"
+        + "Content-Type: application/http\r\n"
+        + "Content-Transfer-Encoding: binary\r\n"
+        + "\r\n"
+        + "GET Employees()?$select=EmployeeName HTTP/1.1\r\n"
+        + "\r\n"
+        + "\r\n"
+        + "--batch_123--"));
+    final HttpResponse response = getHttpClient().execute(post);
+    assertEquals(HttpStatusCodes.ACCEPTED.getStatusCode(), response.getStatusLine().getStatusCode());
+    final String body = getBody(response);
+    assertTrue(body.contains("HTTP/1.1 200 OK"));
+    assertTrue(body.contains(EMPLOYEE_6_NAME));
+  }
+}
@@ -16,13 +16,17 @@
 package com.sap.core.odata.fit.ref;
 
 import static org.custommonkey.xmlunit.XMLAssert.assertXpathExists;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 
 import org.apache.http.HttpResponse;
 import org.junit.Before;
 import org.junit.Test;
 
 import com.sap.core.odata.api.commons.HttpContentType;
+import com.sap.core.odata.api.commons.HttpHeaders;
+import com.sap.core.odata.api.commons.HttpStatusCodes;
 
 /**
  * Tests employing the reference scenario reading the metadata document in XML format
@@ -47,6 +51,19 @@ public class MetadataTest extends AbstractRefXmlTest {
     badRequest("$metadata?$format=atom");
   }
 
+  @Test
+  public void metadataDocumentNotModified() throws Exception {
+    final HttpResponse response = callUri("$metadata");
+    assertNotNull(response.getFirstHeader(HttpHeaders.ETAG));
+    final String eTag = response.getFirstHeader(HttpHeaders.ETAG).getValue();
+    assertEquals(payload, getBody(response));
+
+    final HttpResponse notModified = callUri("$metadata", HttpHeaders.IF_NONE_MATCH, eTag, HttpStatusCodes.NOT_MODIFIED);
+    assertEquals(eTag, notModified.getFirstHeader(HttpHeaders.ETAG).getValue());
+
+    callUri("$metadata", HttpHeaders.IF_NONE_MATCH, "\"other\"", HttpStatusCodes.OK);
+  }
+
   @Test
   public void testGeneral() throws Exception {
     assertXpathExists("/edmx:Edmx[@Version='1.0']", payload);
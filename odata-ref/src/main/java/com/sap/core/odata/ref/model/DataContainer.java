@@ -15,25 +15,56 @@
  ******************************************************************************/
 package com.sap.core.odata.ref.model;
 
-import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
 import java.util.TimeZone;
 
 /**
  * Container and initialization code for the data objects of the reference scenario.
+ * The lists of data objects are indexed by key, so an object is found by its key
+ * in constant time also after the lists have been modified.
  * @author SAP AG
  */
 public class DataContainer {
 
   private static final String IMAGE_JPEG = "image/jpeg";
 
-  private List<Employee> employees = new ArrayList<Employee>();
-  private List<Team> teams = new ArrayList<Team>();
-  private List<Room> rooms = new ArrayList<Room>();
-  private List<Manager> managers = new ArrayList<Manager>();
-  private List<Building> buildings = new ArrayList<Building>();
-  private List<Photo> photos = new ArrayList<Photo>();
+  private final IndexedList<Employee> employees = new IndexedList<Employee>() {
+    @Override
+    protected Object getKey(final Employee employee) {
+      return employee.getId();
+    }
+  };
+  private final IndexedList<Team> teams = new IndexedList<Team>() {
+    @Override
+    protected Object getKey(final Team team) {
+      return team.getId();
+    }
+  };
+  private final IndexedList<Room> rooms = new IndexedList<Room>() {
+    @Override
+    protected Object getKey(final Room room) {
+      return room.getId();
+    }
+  };
+  private final IndexedList<Manager> managers = new IndexedList<Manager>() {
+    @Override
+    protected Object getKey(final Manager manager) {
+      return manager.getId();
+    }
+  };
+  private final IndexedList<Building> buildings = new IndexedList<Building>() {
+    @Override
+    protected Object getKey(final Building building) {
+      return building.getId();
+    }
+  };
+  private final IndexedList<Photo> photos = new IndexedList<Photo>() {
+    @Override
+    protected Object getKey(final Photo photo) {
+      return photo.getId();
+    }
+  };
   private int employeeId = 0;
   private int teamId = 0;
   private int roomId = 0;
@@ -267,6 +298,33 @@ public class DataContainer {
     return photos;
   }
 
+  /**
+   * Returns the employee with the given ID from the list of employees or <code>null</code>.
+   */
+  public Employee getEmployee(final String id) {
+    return employees.getByKey(id);
+  }
+
+  public Team getTeam(final String id) {
+    return teams.getByKey(id);
+  }
+
+  public Room getRoom(final String id) {
+    return rooms.getByKey(id);
+  }
+
+  public Manager getManager(final String id) {
+    return managers.getByKey(id);
+  }
+
+  public Building getBuilding(final String id) {
+    return buildings.getByKey(id);
+  }
+
+  public Photo getPhoto(final int id) {
+    return photos.getByKey(id);
+  }
+
   public void reset() {
     employees.clear();
     teams.clear();
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.ref.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * List of data objects with a hash index on their keys.
+ * All modifications, also through iterators and sublists, end up in
+ * {@link #add(int, Object)}, {@link #set(int, Object)}, or {@link #remove(int)},
+ * so the index is always consistent with the list content.
+ * @author SAP AG
+ */
+abstract class IndexedList<T> extends AbstractList<T> {
+
+  private final List<T> elements = new ArrayList<T>();
+  private final Map<Object, T> index = new HashMap<Object, T>();
+
+  /**
+   * Returns the key of a data object; it must be unique within the list
+   * and must not change while the object is in the list.
+   */
+  protected abstract Object getKey(T element);
+
+  /**
+   * Returns the data object with the given key or <code>null</code>.
+   */
+  public T getByKey(final Object key) {
+    return index.get(key);
+  }
+
+  @Override
+  public T get(final int position) {
+    return elements.get(position);
+  }
+
+  @Override
+  public int size() {
+    return elements.size();
+  }
+
+  @Override
+  public void add(final int position, final T element) {
+    elements.add(position, element);
+    index.put(getKey(element), element);
+    modCount++;
+  }
+
+  @Override
+  public T set(final int position, final T element) {
+    final T previous = elements.set(position, element);
+    unindex(previous);
+    index.put(getKey(element), element);
+    return previous;
+  }
+
+  @Override
+  public T remove(final int position) {
+    final T previous = elements.remove(position);
+    unindex(previous);
+    modCount++;
+    return previous;
+  }
+
+  @Override
+  public void clear() {
+    elements.clear();
+    index.clear();
+    modCount++;
+  }
+
+  private void unindex(final T element) {
+    final Object key = getKey(element);
+    if (index.get(key) == element) {
+      index.remove(key);
+    }
+  }
+}
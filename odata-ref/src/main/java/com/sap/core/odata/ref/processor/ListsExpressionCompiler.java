@@ -0,0 +1,714 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.ref.processor;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import com.sap.core.odata.api.edm.EdmLiteralKind;
+import com.sap.core.odata.api.edm.EdmProperty;
+import com.sap.core.odata.api.edm.EdmSimpleType;
+import com.sap.core.odata.api.edm.EdmSimpleTypeKind;
+import com.sap.core.odata.api.edm.EdmTypeKind;
+import com.sap.core.odata.api.edm.EdmTyped;
+import com.sap.core.odata.api.exception.ODataException;
+import com.sap.core.odata.api.exception.ODataHttpException;
+import com.sap.core.odata.api.exception.ODataNotFoundException;
+import com.sap.core.odata.api.exception.ODataNotImplementedException;
+import com.sap.core.odata.api.uri.expression.BinaryExpression;
+import com.sap.core.odata.api.uri.expression.BinaryOperator;
+import com.sap.core.odata.api.uri.expression.CommonExpression;
+import com.sap.core.odata.api.uri.expression.ExpressionKind;
+import com.sap.core.odata.api.uri.expression.LiteralExpression;
+import com.sap.core.odata.api.uri.expression.MemberExpression;
+import com.sap.core.odata.api.uri.expression.MethodExpression;
+import com.sap.core.odata.api.uri.expression.MethodOperator;
+import com.sap.core.odata.api.uri.expression.OrderByExpression;
+import com.sap.core.odata.api.uri.expression.OrderExpression;
+import com.sap.core.odata.api.uri.expression.PropertyExpression;
+import com.sap.core.odata.api.uri.expression.SortOrder;
+import com.sap.core.odata.api.uri.expression.UnaryExpression;
+import com.sap.core.odata.api.uri.expression.UnaryOperator;
+
+/**
+ * Compiles $filter and $orderby expression trees into evaluators
+ * that can be applied to many data objects.
+ * <p>The tree is analyzed only once: operators are resolved, literals are
+ * converted, and getter methods are looked up on first use and then kept.</p>
+ * <p>Values are compared and computed in typed form: integral numbers as
+ * {@link Long}, floating-point numbers as {@link Double}, decimals as
+ * {@link BigDecimal}, DateTime and Time values as milliseconds, and
+ * DateTimeOffset values as {@link Calendar}. Operands of different numeric
+ * types are promoted to the wider type. A <code>null</code> operand results
+ * in <code>null</code>, i.e., unknown, for arithmetic operations, methods, and
+ * ordering comparisons; <code>eq</code> and <code>ne</code> treat <code>null</code>
+ * as a value of its own, and <code>and</code>, <code>or</code>, and <code>not</code>
+ * use three-valued logic. A filter applies only where it evaluates to <code>true</code>.</p>
+ * @author SAP AG
+ */
+final class ListsExpressionCompiler {
+
+  private static final TimeZone UTC = TimeZone.getTimeZone("GMT");
+  private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000;
+
+  private ListsExpressionCompiler() {}
+
+  /**
+   * Evaluates a compiled expression for a data object.
+   */
+  abstract static class Evaluator {
+
+    abstract Object evaluate(Object data) throws ODataException;
+
+    /**
+     * Returns whether the expression evaluates to <code>true</code>
+     * for the given data object.
+     */
+    boolean test(final Object data) throws ODataException {
+      return Boolean.TRUE.equals(evaluate(data));
+    }
+  }
+
+  /**
+   * Returns the compiled form of an expression.
+   * An expression that cannot be evaluated results in an evaluator that
+   * throws the same exception as the interpretation would for every data object.
+   * @param expression  the expression
+   * @return the {@link Evaluator}
+   */
+  static Evaluator compile(final CommonExpression expression) {
+    try {
+      return compileExpression(expression);
+    } catch (final ODataException e) {
+      return new Failure(expression);
+    }
+  }
+
+  /**
+   * Returns a comparator for positions into the data list ordering them
+   * as given by the $orderby expression; ties are broken by position.
+   * Each order expression is evaluated at most once per data object;
+   * <code>null</code> values are ordered first.
+   * If an order expression cannot be evaluated for one of the compared objects,
+   * the positions are compared.
+   * @param data  the data list
+   * @param orderBy  the $orderby expression
+   * @return the comparator
+   */
+  static Comparator<Integer> compileOrderBy(final List<?> data, final OrderByExpression orderBy) {
+    final List<OrderExpression> orders = orderBy.getOrders();
+    final Evaluator[] evaluators = new Evaluator[orders.size()];
+    final boolean[] descending = new boolean[orders.size()];
+    for (int i = 0; i < evaluators.length; i++) {
+      evaluators[i] = compile(orders.get(i).getExpression());
+      descending[i] = orders.get(i).getSortOrder() == SortOrder.desc;
+    }
+
+    final Object[][] keys = new Object[evaluators.length][data.size()];
+    final byte[][] states = new byte[evaluators.length][data.size()];
+
+    return new Comparator<Integer>() {
+      private static final byte EVALUATED = 1;
+      private static final byte FAILED = 2;
+
+      @Override
+      public int compare(final Integer position1, final Integer position2) {
+        for (int i = 0; i < evaluators.length; i++) {
+          if (!isEvaluated(i, position1) || !isEvaluated(i, position2)) {
+            return position1.compareTo(position2);
+          }
+          final Object key1 = keys[i][position1];
+          final Object key2 = keys[i][position2];
+          final int result = key1 == null ? key2 == null ? 0 : -1 : key2 == null ? 1 : compareValues(key1, key2);
+          if (result != 0) {
+            return descending[i] ? -result : result;
+          }
+        }
+        return position1.compareTo(position2);
+      }
+
+      private boolean isEvaluated(final int order, final int position) {
+        if (states[order][position] == 0) {
+          try {
+            keys[order][position] = evaluators[order].evaluate(data.get(position));
+            states[order][position] = EVALUATED;
+          } catch (final ODataException e) {
+            states[order][position] = FAILED;
+          }
+        }
+        return states[order][position] == EVALUATED;
+      }
+    };
+  }
+
+  private static Evaluator compileExpression(final CommonExpression expression) throws ODataException {
+    switch (expression.getKind()) {
+    case UNARY:
+      final UnaryExpression unaryExpression = (UnaryExpression) expression;
+      return compileUnary(unaryExpression.getOperator(), compileExpression(unaryExpression.getOperand()));
+
+    case BINARY:
+      final BinaryExpression binaryExpression = (BinaryExpression) expression;
+      return compileBinary(binaryExpression.getOperator(),
+          compileExpression(binaryExpression.getLeftOperand()),
+          compileExpression(binaryExpression.getRightOperand()));
+
+    case PROPERTY:
+      final EdmProperty property = (EdmProperty) ((PropertyExpression) expression).getEdmProperty();
+      return new Property((EdmSimpleType) property.getType(),
+          Collections.singletonList(new Accessor(ListsProcessor.getGetterMethodName(property))));
+
+    case MEMBER:
+      final MemberExpression memberExpression = (MemberExpression) expression;
+      List<Accessor> accessors = new ArrayList<Accessor>();
+      CommonExpression currentExpression = memberExpression;
+      while (currentExpression != null) {
+        final PropertyExpression currentPropertyExpression =
+            (PropertyExpression) (currentExpression.getKind() == ExpressionKind.MEMBER ?
+                ((MemberExpression) currentExpression).getProperty() : currentExpression);
+        final EdmTyped currentProperty = currentPropertyExpression.getEdmProperty();
+        final EdmTypeKind kind = currentProperty.getType().getKind();
+        if (kind == EdmTypeKind.SIMPLE || kind == EdmTypeKind.COMPLEX) {
+          accessors.add(0, new Accessor(ListsProcessor.getGetterMethodName((EdmProperty) currentProperty)));
+        } else {
+          throw new ODataNotImplementedException();
+        }
+        currentExpression = currentExpression.getKind() == ExpressionKind.MEMBER ? ((MemberExpression) currentExpression).getPath() : null;
+      }
+      return new Property((EdmSimpleType) memberExpression.getEdmType(), accessors);
+
+    case LITERAL:
+      final LiteralExpression literal = (LiteralExpression) expression;
+      final EdmSimpleType literalType = (EdmSimpleType) literal.getEdmType();
+      return new Literal(normalize(literalType,
+          literalType.valueOfString(literal.getUriLiteral(), EdmLiteralKind.URI, null, literalType.getDefaultType())));
+
+    case METHOD:
+      final MethodExpression methodExpression = (MethodExpression) expression;
+      final List<CommonExpression> parameters = methodExpression.getParameters();
+      return compileMethod(methodExpression.getMethod(),
+          compileExpression(parameters.get(0)),
+          methodExpression.getParameterCount() > 1 ? compileExpression(parameters.get(1)) : null,
+          methodExpression.getParameterCount() > 2 ? compileExpression(parameters.get(2)) : null);
+
+    default:
+      throw new ODataNotImplementedException();
+    }
+  }
+
+  private static Evaluator compileUnary(final UnaryOperator operator, final Evaluator operand) throws ODataException {
+    switch (operator) {
+    case NOT:
+      return new Evaluator() {
+        @Override
+        Object evaluate(final Object data) throws ODataException {
+          final Boolean value = (Boolean) operand.evaluate(data);
+          return value == null ? null : !value;
+        }
+      };
+    case MINUS:
+      return new Evaluator() {
+        @Override
+        Object evaluate(final Object data) throws ODataException {
+          final Object value = operand.evaluate(data);
+          if (value == null) {
+            return null;
+          } else if (value instanceof Long) {
+            return -(Long) value;
+          } else if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).negate();
+          } else {
+            return -((Number) value).doubleValue();
+          }
+        }
+      };
+    default:
+      throw new ODataNotImplementedException();
+    }
+  }
+
+  private static Evaluator compileBinary(final BinaryOperator operator, final Evaluator left, final Evaluator right) throws ODataException {
+    switch (operator) {
+    case ADD:
+    case SUB:
+    case MUL:
+    case DIV:
+    case MODULO:
+      return new Arithmetic(operator, left, right);
+    case AND:
+      return new Evaluator() {
+        @Override
+        Object evaluate(final Object data) throws ODataException {
+          final Boolean leftValue = (Boolean) left.evaluate(data);
+          if (Boolean.FALSE.equals(leftValue)) {
+            return false;
+          }
+          final Boolean rightValue = (Boolean) right.evaluate(data);
+          return Boolean.FALSE.equals(rightValue) ? Boolean.FALSE : leftValue == null || rightValue == null ? null : Boolean.TRUE;
+        }
+      };
+    case OR:
+      return new Evaluator() {
+        @Override
+        Object evaluate(final Object data) throws ODataException {
+          final Boolean leftValue = (Boolean) left.evaluate(data);
+          if (Boolean.TRUE.equals(leftValue)) {
+            return true;
+          }
+          final Boolean rightValue = (Boolean) right.evaluate(data);
+          return Boolean.TRUE.equals(rightValue) ? Boolean.TRUE : leftValue == null || rightValue == null ? null : Boolean.FALSE;
+        }
+      };
+    case EQ:
+      return new Evaluator() {
+        @Override
+        Object evaluate(final Object data) throws ODataException {
+          return equalValues(left.evaluate(data), right.evaluate(data));
+        }
+      };
+    case NE:
+      return new Evaluator() {
+        @Override
+        Object evaluate(final Object data) throws ODataException {
+          return !equalValues(left.evaluate(data), right.evaluate(data));
+        }
+      };
+    case LT:
+    case LE:
+    case GT:
+    case GE:
+      return new Comparison(operator, left, right);
+    default:
+      throw new ODataNotImplementedException();
+    }
+  }
+
+  private static Evaluator compileMethod(final MethodOperator method, final Evaluator first, final Evaluator second, final Evaluator third) throws ODataException {
+    switch (method) {
+    case ENDSWITH:
+    case STARTSWITH:
+    case SUBSTRINGOF:
+    case INDEXOF:
+    case TOLOWER:
+    case TOUPPER:
+    case TRIM:
+    case SUBSTRING:
+    case CONCAT:
+    case LENGTH:
+    case YEAR:
+    case MONTH:
+    case DAY:
+    case HOUR:
+    case MINUTE:
+    case SECOND:
+    case ROUND:
+    case FLOOR:
+    case CEILING:
+      return new MethodCall(method, first, second, third);
+    default:
+      throw new ODataNotImplementedException();
+    }
+  }
+
+  /**
+   * Converts a value of the given type into the form used for evaluation.
+   */
+  private static Object normalize(final EdmSimpleType type, final Object value) {
+    if (value == null) {
+      return null;
+    } else if (value instanceof Long || value instanceof Double || value instanceof BigDecimal) {
+      return value;
+    } else if (value instanceof Integer || value instanceof Short || value instanceof Byte || value instanceof BigInteger) {
+      return ((Number) value).longValue();
+    } else if (value instanceof Float) {
+      return ((Float) value).doubleValue();
+    } else if (type == EdmSimpleTypeKind.DateTimeOffset.getEdmSimpleTypeInstance()) {
+      if (value instanceof Date) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime((Date) value);
+        return calendar;
+      }
+      return value;
+    } else if (type == EdmSimpleTypeKind.Time.getEdmSimpleTypeInstance()) {
+      // the time of day as in its default literal representation
+      if (value instanceof Calendar) {
+        final Calendar calendar = (Calendar) value;
+        return (long) ((calendar.get(Calendar.HOUR_OF_DAY) * 60
+            + calendar.get(Calendar.MINUTE)) * 60
+            + calendar.get(Calendar.SECOND)) * 1000
+            + calendar.get(Calendar.MILLISECOND);
+      } else if (value instanceof Date) {
+        final long timeInMillis = ((Date) value).getTime();
+        return getMillisOfDay(timeInMillis + TimeZone.getDefault().getOffset(timeInMillis));
+      }
+      return value;
+    } else if (value instanceof Calendar) {
+      return ((Calendar) value).getTimeInMillis();
+    } else if (value instanceof Date) {
+      return ((Date) value).getTime();
+    } else if (value instanceof Character) {
+      return value.toString();
+    } else {
+      return value;
+    }
+  }
+
+  private static long getMillisOfDay(final long timeInMillis) {
+    final long millisOfDay = timeInMillis % MILLIS_PER_DAY;
+    return millisOfDay < 0 ? millisOfDay + MILLIS_PER_DAY : millisOfDay;
+  }
+
+  private static boolean equalValues(final Object value1, final Object value2) {
+    if (value1 == null || value2 == null) {
+      return value1 == value2;
+    } else if (value1 instanceof byte[] && value2 instanceof byte[]) {
+      return Arrays.equals((byte[]) value1, (byte[]) value2);
+    } else if (value1 instanceof Boolean || value2 instanceof Boolean) {
+      return value1.equals(value2);
+    } else {
+      return compareValues(value1, value2) == 0;
+    }
+  }
+
+  /**
+   * Compares two non-<code>null</code> values;
+   * numbers are promoted to the wider of both types.
+   */
+  private static int compareValues(final Object value1, final Object value2) {
+    if (value1 instanceof Number && value2 instanceof Number) {
+      if (value1 instanceof Long && value2 instanceof Long) {
+        final long number1 = (Long) value1;
+        final long number2 = (Long) value2;
+        return number1 < number2 ? -1 : number1 == number2 ? 0 : 1;
+      } else if (value1 instanceof Double || value2 instanceof Double) {
+        return Double.compare(((Number) value1).doubleValue(), ((Number) value2).doubleValue());
+      } else {
+        return toBigDecimal(value1).compareTo(toBigDecimal(value2));
+      }
+    } else if (value1 instanceof Calendar || value2 instanceof Calendar) {
+      final long millis1 = value1 instanceof Calendar ? ((Calendar) value1).getTimeInMillis() : (Long) value1;
+      final long millis2 = value2 instanceof Calendar ? ((Calendar) value2).getTimeInMillis() : (Long) value2;
+      return millis1 < millis2 ? -1 : millis1 == millis2 ? 0 : 1;
+    } else if (value1 instanceof String && value2 instanceof String) {
+      return ((String) value1).compareTo((String) value2);
+    } else if (value1 instanceof Boolean && value2 instanceof Boolean) {
+      return ((Boolean) value1).compareTo((Boolean) value2);
+    } else {
+      return value1.toString().compareTo(value2.toString());
+    }
+  }
+
+  private static BigDecimal toBigDecimal(final Object number) {
+    return number instanceof BigDecimal ? (BigDecimal) number : BigDecimal.valueOf(((Number) number).longValue());
+  }
+
+  /**
+   * Returns the field of the calendar date and time of the value;
+   * DateTime values given in milliseconds are interpreted in UTC
+   * as in their default literal representation.
+   */
+  private static long getDateTimeField(final Object value, final int field) {
+    Calendar calendar;
+    if (value instanceof Calendar) {
+      calendar = (Calendar) value;
+    } else {
+      calendar = Calendar.getInstance(UTC);
+      calendar.setTimeInMillis((Long) value);
+    }
+    return calendar.get(field);
+  }
+
+  /**
+   * Expression that cannot be evaluated; the exception is created when
+   * the evaluation is attempted by analyzing the expression again.
+   */
+  private static final class Failure extends Evaluator {
+    private final CommonExpression expression;
+
+    Failure(final CommonExpression expression) {
+      this.expression = expression;
+    }
+
+    @Override
+    Object evaluate(final Object data) throws ODataException {
+      compileExpression(expression);
+      throw new ODataNotImplementedException();
+    }
+  }
+
+  private static final class Literal extends Evaluator {
+    private final Object value;
+
+    Literal(final Object value) {
+      this.value = value;
+    }
+
+    @Override
+    Object evaluate(final Object data) {
+      return value;
+    }
+  }
+
+  private static final class Property extends Evaluator {
+    private final EdmSimpleType type;
+    private final Accessor[] path;
+
+    Property(final EdmSimpleType type, final List<Accessor> path) {
+      this.type = type;
+      this.path = path.toArray(new Accessor[path.size()]);
+    }
+
+    @Override
+    Object evaluate(final Object data) throws ODataException {
+      Object value = data;
+      for (final Accessor accessor : path) {
+        if (value != null) {
+          value = accessor.getValue(value);
+        }
+      }
+      return normalize(type, value);
+    }
+  }
+
+  /**
+   * Arithmetic operation; division is always done in floating point.
+   */
+  private static final class Arithmetic extends Evaluator {
+    private final BinaryOperator operator;
+    private final Evaluator left;
+    private final Evaluator right;
+
+    Arithmetic(final BinaryOperator operator, final Evaluator left, final Evaluator right) {
+      this.operator = operator;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    Object evaluate(final Object data) throws ODataException {
+      final Number leftValue = (Number) left.evaluate(data);
+      final Number rightValue = (Number) right.evaluate(data);
+      if (leftValue == null || rightValue == null) {
+        return null;
+      }
+      if (operator == BinaryOperator.DIV || leftValue instanceof Double || rightValue instanceof Double) {
+        final double leftNumber = leftValue.doubleValue();
+        final double rightNumber = rightValue.doubleValue();
+        switch (operator) {
+        case ADD:
+          return leftNumber + rightNumber;
+        case SUB:
+          return leftNumber - rightNumber;
+        case MUL:
+          return leftNumber * rightNumber;
+        case DIV:
+          return leftNumber / rightNumber;
+        default:
+          return leftNumber % rightNumber;
+        }
+      } else if (leftValue instanceof BigDecimal || rightValue instanceof BigDecimal) {
+        final BigDecimal leftNumber = toBigDecimal(leftValue);
+        final BigDecimal rightNumber = toBigDecimal(rightValue);
+        switch (operator) {
+        case ADD:
+          return leftNumber.add(rightNumber);
+        case SUB:
+          return leftNumber.subtract(rightNumber);
+        case MUL:
+          return leftNumber.multiply(rightNumber);
+        default:
+          return leftNumber.remainder(rightNumber);
+        }
+      } else {
+        final long leftNumber = leftValue.longValue();
+        final long rightNumber = rightValue.longValue();
+        switch (operator) {
+        case ADD:
+          return leftNumber + rightNumber;
+        case SUB:
+          return leftNumber - rightNumber;
+        case MUL:
+          return leftNumber * rightNumber;
+        default:
+          return leftNumber % rightNumber;
+        }
+      }
+    }
+  }
+
+  private static final class Comparison extends Evaluator {
+    private final BinaryOperator operator;
+    private final Evaluator left;
+    private final Evaluator right;
+
+    Comparison(final BinaryOperator operator, final Evaluator left, final Evaluator right) {
+      this.operator = operator;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    Object evaluate(final Object data) throws ODataException {
+      final Object leftValue = left.evaluate(data);
+      final Object rightValue = right.evaluate(data);
+      if (leftValue == null || rightValue == null) {
+        return null;
+      }
+      final int comparison = compareValues(leftValue, rightValue);
+      switch (operator) {
+      case LT:
+        return comparison < 0;
+      case LE:
+        return comparison <= 0;
+      case GT:
+        return comparison > 0;
+      default:
+        return comparison >= 0;
+      }
+    }
+  }
+
+  private static final class MethodCall extends Evaluator {
+    private final MethodOperator method;
+    private final Evaluator first;
+    private final Evaluator second;
+    private final Evaluator third;
+
+    MethodCall(final MethodOperator method, final Evaluator first, final Evaluator second, final Evaluator third) {
+      this.method = method;
+      this.first = first;
+      this.second = second;
+      this.third = third;
+    }
+
+    @Override
+    Object evaluate(final Object data) throws ODataException {
+      final Object value = first.evaluate(data);
+      final Object secondValue = second == null ? null : second.evaluate(data);
+      final Object thirdValue = third == null ? null : third.evaluate(data);
+      if (value == null || second != null && secondValue == null || third != null && thirdValue == null) {
+        return null;
+      }
+
+      switch (method) {
+      case ENDSWITH:
+        return ((String) value).endsWith((String) secondValue);
+      case STARTSWITH:
+        return ((String) value).startsWith((String) secondValue);
+      case SUBSTRINGOF:
+        return ((String) secondValue).contains((String) value);
+      case INDEXOF:
+        return (long) ((String) value).indexOf((String) secondValue);
+      case TOLOWER:
+        return ((String) value).toLowerCase(Locale.ROOT);
+      case TOUPPER:
+        return ((String) value).toUpperCase(Locale.ROOT);
+      case TRIM:
+        return ((String) value).trim();
+      case SUBSTRING:
+        final int offset = ((Number) secondValue).intValue();
+        return thirdValue == null ?
+            ((String) value).substring(offset) :
+            ((String) value).substring(offset, offset + ((Number) thirdValue).intValue());
+      case CONCAT:
+        return (String) value + secondValue;
+      case LENGTH:
+        return (long) ((String) value).length();
+      case YEAR:
+        return getDateTimeField(value, Calendar.YEAR);
+      case MONTH:
+        return getDateTimeField(value, Calendar.MONTH) + 1;
+      case DAY:
+        return getDateTimeField(value, Calendar.DAY_OF_MONTH);
+      case HOUR:
+        return getDateTimeField(value, Calendar.HOUR_OF_DAY);
+      case MINUTE:
+        return getDateTimeField(value, Calendar.MINUTE);
+      case SECOND:
+        return getDateTimeField(value, Calendar.SECOND);
+      case ROUND:
+        return value instanceof Long ? value : Math.round(((Number) value).doubleValue());
+      case FLOOR:
+        return value instanceof Long ? value : Math.round(Math.floor(((Number) value).doubleValue()));
+      default:
+        return value instanceof Long ? value : Math.round(Math.ceil(((Number) value).doubleValue()));
+      }
+    }
+  }
+
+  /**
+   * Calls a getter method or a dot-separated chain of getter methods;
+   * the methods are looked up for the class of the first object
+   * they are called on and kept as long as objects of the same class follow.
+   */
+  private static final class Accessor {
+    private final String[] methodNames;
+    private final ResolvedMethod[] methods;
+
+    Accessor(final String methodName) {
+      methodNames = methodName.split("\\.", -1);
+      methods = new ResolvedMethod[methodNames.length];
+    }
+
+    Object getValue(final Object data) throws ODataNotFoundException {
+      Object dataObject = data;
+      for (int i = 0; i < methodNames.length && dataObject != null; i++) {
+        ResolvedMethod method = methods[i];
+        if (method == null || method.type != dataObject.getClass()) {
+          method = new ResolvedMethod(dataObject.getClass(), methodNames[i]);
+          methods[i] = method;
+        }
+        try {
+          dataObject = method.method.invoke(dataObject);
+        } catch (IllegalArgumentException e) {
+          throw new ODataNotFoundException(ODataHttpException.COMMON, e);
+        } catch (IllegalAccessException e) {
+          throw new ODataNotFoundException(ODataHttpException.COMMON, e);
+        } catch (InvocationTargetException e) {
+          throw new ODataNotFoundException(ODataHttpException.COMMON, e);
+        }
+      }
+      return dataObject;
+    }
+  }
+
+  private static final class ResolvedMethod {
+    private final Class<?> type;
+    private final Method method;
+
+    ResolvedMethod(final Class<?> type, final String name) throws ODataNotFoundException {
+      this.type = type;
+      try {
+        method = type.getMethod(name);
+      } catch (SecurityException e) {
+        throw new ODataNotFoundException(ODataHttpException.COMMON, e);
+      } catch (NoSuchMethodException e) {
+        throw new ODataNotFoundException(ODataHttpException.COMMON, e);
+      }
+    }
+  }
+}
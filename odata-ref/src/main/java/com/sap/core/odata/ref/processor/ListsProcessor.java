@@ -25,14 +25,15 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.PriorityQueue;
 
 import com.sap.core.odata.api.ODataCallback;
 import com.sap.core.odata.api.batch.BatchHandler;
 import com.sap.core.odata.api.batch.BatchPart;
+import com.sap.core.odata.api.batch.BatchPartsHandler;
 import com.sap.core.odata.api.batch.BatchResponsePart;
 import com.sap.core.odata.api.commons.HttpContentType;
 import com.sap.core.odata.api.commons.HttpStatusCodes;
@@ -54,7 +55,6 @@ import com.sap.core.odata.api.edm.EdmSimpleTypeKind;
 import com.sap.core.odata.api.edm.EdmStructuralType;
 import com.sap.core.odata.api.edm.EdmType;
 import com.sap.core.odata.api.edm.EdmTypeKind;
-import com.sap.core.odata.api.edm.EdmTyped;
 import com.sap.core.odata.api.ep.EntityProvider;
 import com.sap.core.odata.api.ep.EntityProviderBatchProperties;
 import com.sap.core.odata.api.ep.EntityProviderException;
@@ -87,18 +87,8 @@ import com.sap.core.odata.api.uri.PathInfo;
 import com.sap.core.odata.api.uri.PathSegment;
 import com.sap.core.odata.api.uri.UriInfo;
 import com.sap.core.odata.api.uri.UriParser;
-import com.sap.core.odata.api.uri.expression.BinaryExpression;
-import com.sap.core.odata.api.uri.expression.CommonExpression;
-import com.sap.core.odata.api.uri.expression.ExpressionKind;
 import com.sap.core.odata.api.uri.expression.FilterExpression;
-import com.sap.core.odata.api.uri.expression.LiteralExpression;
-import com.sap.core.odata.api.uri.expression.MemberExpression;
-import com.sap.core.odata.api.uri.expression.MethodExpression;
 import com.sap.core.odata.api.uri.expression.OrderByExpression;
-import com.sap.core.odata.api.uri.expression.OrderExpression;
-import com.sap.core.odata.api.uri.expression.PropertyExpression;
-import com.sap.core.odata.api.uri.expression.SortOrder;
-import com.sap.core.odata.api.uri.expression.UnaryExpression;
 import com.sap.core.odata.api.uri.info.DeleteUriInfo;
 import com.sap.core.odata.api.uri.info.GetComplexPropertyUriInfo;
 import com.sap.core.odata.api.uri.info.GetEntityCountUriInfo;
@@ -115,6 +105,7 @@ import com.sap.core.odata.api.uri.info.GetSimplePropertyUriInfo;
 import com.sap.core.odata.api.uri.info.PostUriInfo;
 import com.sap.core.odata.api.uri.info.PutMergePatchUriInfo;
 import com.sap.core.odata.ref.processor.ListsDataSource.BinaryData;
+import com.sap.core.odata.ref.processor.ListsExpressionCompiler.Evaluator;
 
 /**
  * Implementation of the centralized parts of OData processing,
@@ -128,9 +119,24 @@ public class ListsProcessor extends ODataSingleProcessor {
   private static final int SERVER_PAGING_SIZE = 100;
 
   private final ListsDataSource dataSource;
+  private final boolean streaming;
 
   public ListsProcessor(final ListsDataSource dataSource) {
+    this(dataSource, false);
+  }
+
+  /**
+   * @param dataSource the data source
+   * @param streaming whether feeds are written directly into the response output stream;
+   * errors during writing can then no longer be reported as error document
+   */
+  public ListsProcessor(final ListsDataSource dataSource, final boolean streaming) {
     this.dataSource = dataSource;
+    this.streaming = streaming;
+  }
+
+  ListsDataSource getDataSource() {
+    return dataSource;
   }
 
   @Override
@@ -172,7 +178,9 @@ public class ListsProcessor extends ODataSingleProcessor {
           && uriInfo.getSkipToken() == null
           && uriInfo.getSkip() == null
           && uriInfo.getTop() == null) {
-        sortInDefaultOrder(entitySet, data);
+        final List<Object> firstPage = applyOrderAndPaging(entitySet, data, null, null, null, SERVER_PAGING_SIZE + 1);
+        data.clear();
+        data.addAll(firstPage);
       }
 
       // TODO: Percent-encode "next" link.
@@ -183,9 +191,7 @@ public class ListsProcessor extends ODataSingleProcessor {
       nextLink += (nextLink.contains("?") ? "&" : "?")
           + "$skiptoken=" + getSkipToken(entitySet, data.get(SERVER_PAGING_SIZE));
 
-      while (data.size() > SERVER_PAGING_SIZE) {
-        data.remove(SERVER_PAGING_SIZE);
-      }
+      data.subList(SERVER_PAGING_SIZE, data.size()).clear();
     }
 
     final EdmEntityType entityType = entitySet.getEntityType();
@@ -201,6 +207,7 @@ public class ListsProcessor extends ODataSingleProcessor {
         .expandSelectTree(UriParser.createExpandSelectTree(uriInfo.getSelect(), uriInfo.getExpand()))
         .callbacks(getCallbacks(data, entityType))
         .nextLink(nextLink)
+        .streaming(streaming)
         .build();
 
     final int timingHandle = context.startRuntimeMeasurement("EntityProvider", "writeFeed");
@@ -1171,94 +1178,143 @@ public class ListsProcessor extends ODataSingleProcessor {
     ODataContext context = getContext();
     final int timingHandle = context.startRuntimeMeasurement(getClass().getSimpleName(), "applySystemQueryOptions");
 
+    List<T> result = data;
     if (filter != null) {
-      // Remove all elements the filter does not apply for.
-      // A for-each loop would not work with "remove", see Java documentation.
-      for (Iterator<T> iterator = data.iterator(); iterator.hasNext();) {
-        if (!appliesFilter(iterator.next(), filter)) {
-          iterator.remove();
+      // Collect all elements the filter applies for.
+      result = new ArrayList<T>();
+      final Evaluator predicate = ListsExpressionCompiler.compile(filter.getExpression());
+      for (final T entity : data) {
+        if (appliesFilter(entity, predicate)) {
+          result.add(entity);
         }
       }
     }
 
-    final Integer count = inlineCount == InlineCount.ALLPAGES ? data.size() : null;
+    final Integer count = inlineCount == InlineCount.ALLPAGES ? result.size() : null;
 
-    if (orderBy != null) {
-      sort(data, orderBy);
-    } else if (skipToken != null || skip != null || top != null) {
-      sortInDefaultOrder(entitySet, data);
+    if (orderBy != null || skipToken != null || skip != null || top != null) {
+      result = applyOrderAndPaging(entitySet, result, orderBy, skipToken, skip, top);
     }
 
-    if (skipToken != null) {
-      while (!data.isEmpty() && !getSkipToken(entitySet, data.get(0)).equals(skipToken)) {
-        data.remove(0);
-      }
+    if (result != data) {
+      data.clear();
+      data.addAll(result);
     }
 
-    if (skip != null) {
-      if (skip >= data.size()) {
-        data.clear();
-      } else {
-        for (int i = 0; i < skip; i++) {
-          data.remove(0);
-        }
+    context.stopRuntimeMeasurement(timingHandle);
+
+    return count;
+  }
+
+  /**
+   * Orders the data (by the $orderby expression or in default order)
+   * and returns the requested page as new list.
+   * Positions into the data list are ordered instead of the entities themselves;
+   * ties are broken by position so that the result is the same as with a stable sort.
+   * If only the first entities are needed, they are selected with a bounded heap.
+   */
+  private static <T> List<T> applyOrderAndPaging(final EdmEntitySet entitySet, final List<T> data, final OrderByExpression orderBy, final String skipToken, final Integer skip, final Integer top) throws ODataException {
+    final String[] skipTokens = orderBy == null ? getSkipTokens(entitySet, data) : null;
+    final Comparator<Integer> comparator = orderBy == null ?
+        getDefaultOrderComparator(skipTokens) : ListsExpressionCompiler.compileOrderBy(data, orderBy);
+    final long first = skip == null ? 0 : skip.longValue();
+
+    Integer[] positions;
+    if (skipToken == null && top != null && first + top < data.size()) {
+      positions = selectFirst(data.size(), (int) first + top, comparator);
+    } else {
+      positions = new Integer[data.size()];
+      for (int i = 0; i < positions.length; i++) {
+        positions[i] = i;
       }
+      Arrays.sort(positions, comparator);
     }
 
-    if (top != null) {
-      while (data.size() > top) {
-        data.remove(top.intValue());
-      }
+    long start = 0;
+    if (skipToken != null) {
+      start = skipTokens == null ?
+          findSkipToken(entitySet, data, positions, skipToken) : findSkipToken(skipTokens, positions, skipToken);
     }
+    start = Math.min(positions.length, start + first);
+    final long end = top == null ? positions.length : Math.min(positions.length, start + top);
 
-    context.stopRuntimeMeasurement(timingHandle);
+    List<T> result = new ArrayList<T>((int) (end - start));
+    for (int i = (int) start; i < end; i++) {
+      result.add(data.get(positions[i]));
+    }
+    return result;
+  }
 
-    return count;
+  private static Integer[] selectFirst(final int size, final int limit, final Comparator<Integer> comparator) {
+    PriorityQueue<Integer> heap = new PriorityQueue<Integer>(limit + 1, Collections.reverseOrder(comparator));
+    for (int i = 0; i < size; i++) {
+      if (heap.size() < limit) {
+        heap.add(i);
+      } else if (limit > 0 && comparator.compare(i, heap.peek()) < 0) {
+        heap.poll();
+        heap.add(i);
+      }
+    }
+    Integer[] positions = heap.toArray(new Integer[heap.size()]);
+    Arrays.sort(positions, comparator);
+    return positions;
   }
 
-  private static <T> void sort(final List<T> data, final OrderByExpression orderBy) {
-    Collections.sort(data, new Comparator<T>() {
+  private static Comparator<Integer> getDefaultOrderComparator(final String[] skipTokens) {
+    return new Comparator<Integer>() {
       @Override
-      public int compare(final T entity1, final T entity2) {
-        try {
-          int result = 0;
-          for (final OrderExpression expression : orderBy.getOrders()) {
-            result = evaluateExpression(entity1, expression.getExpression()).compareTo(
-                evaluateExpression(entity2, expression.getExpression()));
-            if (expression.getSortOrder() == SortOrder.desc) {
-              result = -result;
-            }
-            if (result != 0) {
-              break;
-            }
-          }
-          return result;
-        } catch (final ODataException e) {
-          return 0;
-        }
+      public int compare(final Integer position1, final Integer position2) {
+        final int result = skipTokens[position1].compareTo(skipTokens[position2]);
+        return result == 0 ? position1.compareTo(position2) : result;
       }
-    });
+    };
   }
 
-  private static <T> void sortInDefaultOrder(final EdmEntitySet entitySet, final List<T> data) {
-    Collections.sort(data, new Comparator<T>() {
-      @Override
-      public int compare(final T entity1, final T entity2) {
-        try {
-          return getSkipToken(entitySet, entity1).compareTo(getSkipToken(entitySet, entity2));
-        } catch (final ODataException e) {
-          return 0;
-        }
+  private static <T> String[] getSkipTokens(final EdmEntitySet entitySet, final List<T> data) throws ODataException {
+    String[] skipTokens = new String[data.size()];
+    for (int i = 0; i < skipTokens.length; i++) {
+      skipTokens[i] = getSkipToken(entitySet, data.get(i));
+    }
+    return skipTokens;
+  }
+
+  /**
+   * Finds the position of the entity with the given skip token by binary search
+   * in positions ordered by skip token; returns the number of positions if there is none.
+   */
+  private static int findSkipToken(final String[] skipTokens, final Integer[] positions, final String skipToken) {
+    int low = 0;
+    int high = positions.length;
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      if (skipTokens[positions[middle]].compareTo(skipToken) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
       }
-    });
+    }
+    return low < positions.length && skipTokens[positions[low]].equals(skipToken) ? low : positions.length;
+  }
+
+  private static <T> int findSkipToken(final EdmEntitySet entitySet, final List<T> data, final Integer[] positions, final String skipToken) throws ODataException {
+    for (int i = 0; i < positions.length; i++) {
+      if (getSkipToken(entitySet, data.get(positions[i])).equals(skipToken)) {
+        return i;
+      }
+    }
+    return positions.length;
   }
 
   private <T> boolean appliesFilter(final T data, final FilterExpression filter) throws ODataException {
+    return appliesFilter(data, filter == null ? null : ListsExpressionCompiler.compile(filter.getExpression()));
+  }
+
+  private <T> boolean appliesFilter(final T data, final Evaluator predicate) throws ODataException {
     ODataContext context = getContext();
     final int timingHandle = context.startRuntimeMeasurement(getClass().getSimpleName(), "appliesFilter");
 
     try {
-      return data != null && (filter == null || evaluateExpression(data, filter.getExpression()).equals("true"));
+      return data != null && (predicate == null || predicate.test(data));
     } catch (final RuntimeException e) {
       return false;
     } finally {
@@ -1266,207 +1322,6 @@ public class ListsProcessor extends ODataSingleProcessor {
     }
   }
 
-  private static <T> String evaluateExpression(final T data, final CommonExpression expression) throws ODataException {
-    switch (expression.getKind()) {
-    case UNARY:
-      final UnaryExpression unaryExpression = (UnaryExpression) expression;
-      final String operand = evaluateExpression(data, unaryExpression.getOperand());
-
-      switch (unaryExpression.getOperator()) {
-      case NOT:
-        return Boolean.toString(!Boolean.parseBoolean(operand));
-      case MINUS:
-        return operand.startsWith("-") ? operand.substring(1) : "-" + operand;
-      default:
-        throw new ODataNotImplementedException();
-      }
-
-    case BINARY:
-      final BinaryExpression binaryExpression = (BinaryExpression) expression;
-      final EdmSimpleType type = (EdmSimpleType) binaryExpression.getLeftOperand().getEdmType();
-      final String left = evaluateExpression(data, binaryExpression.getLeftOperand());
-      final String right = evaluateExpression(data, binaryExpression.getRightOperand());
-
-      switch (binaryExpression.getOperator()) {
-      case ADD:
-        if (binaryExpression.getEdmType() == EdmSimpleTypeKind.Decimal.getEdmSimpleTypeInstance()
-            || binaryExpression.getEdmType() == EdmSimpleTypeKind.Double.getEdmSimpleTypeInstance()
-            || binaryExpression.getEdmType() == EdmSimpleTypeKind.Single.getEdmSimpleTypeInstance()) {
-          return Double.toString(Double.valueOf(left) + Double.valueOf(right));
-        } else {
-          return Long.toString(Long.valueOf(left) + Long.valueOf(right));
-        }
-      case SUB:
-        if (binaryExpression.getEdmType() == EdmSimpleTypeKind.Decimal.getEdmSimpleTypeInstance()
-            || binaryExpression.getEdmType() == EdmSimpleTypeKind.Double.getEdmSimpleTypeInstance()
-            || binaryExpression.getEdmType() == EdmSimpleTypeKind.Single.getEdmSimpleTypeInstance()) {
-          return Double.toString(Double.valueOf(left) - Double.valueOf(right));
-        } else {
-          return Long.toString(Long.valueOf(left) - Long.valueOf(right));
-        }
-      case MUL:
-        if (binaryExpression.getEdmType() == EdmSimpleTypeKind.Decimal.getEdmSimpleTypeInstance()
-            || binaryExpression.getEdmType() == EdmSimpleTypeKind.Double.getEdmSimpleTypeInstance()
-            || binaryExpression.getEdmType() == EdmSimpleTypeKind.Single.getEdmSimpleTypeInstance()) {
-          return Double.toString(Double.valueOf(left) * Double.valueOf(right));
-        } else {
-          return Long.toString(Long.valueOf(left) * Long.valueOf(right));
-        }
-      case DIV:
-        final String number = Double.toString(Double.valueOf(left) / Double.valueOf(right));
-        return number.endsWith(".0") ? number.replace(".0", "") : number;
-      case MODULO:
-        if (binaryExpression.getEdmType() == EdmSimpleTypeKind.Decimal.getEdmSimpleTypeInstance()
-            || binaryExpression.getEdmType() == EdmSimpleTypeKind.Double.getEdmSimpleTypeInstance()
-            || binaryExpression.getEdmType() == EdmSimpleTypeKind.Single.getEdmSimpleTypeInstance()) {
-          return Double.toString(Double.valueOf(left) % Double.valueOf(right));
-        } else {
-          return Long.toString(Long.valueOf(left) % Long.valueOf(right));
-        }
-      case AND:
-        return Boolean.toString(left.equals("true") && right.equals("true"));
-      case OR:
-        return Boolean.toString(left.equals("true") || right.equals("true"));
-      case EQ:
-        return Boolean.toString(left.equals(right));
-      case NE:
-        return Boolean.toString(!left.equals(right));
-      case LT:
-        if (type == EdmSimpleTypeKind.String.getEdmSimpleTypeInstance()
-            || type == EdmSimpleTypeKind.DateTime.getEdmSimpleTypeInstance()
-            || type == EdmSimpleTypeKind.DateTimeOffset.getEdmSimpleTypeInstance()
-            || type == EdmSimpleTypeKind.Guid.getEdmSimpleTypeInstance()
-            || type == EdmSimpleTypeKind.Time.getEdmSimpleTypeInstance()) {
-          return Boolean.toString(left.compareTo(right) < 0);
-        } else {
-          return Boolean.toString(Double.valueOf(left) < Double.valueOf(right));
-        }
-      case LE:
-        if (type == EdmSimpleTypeKind.String.getEdmSimpleTypeInstance()
-            || type == EdmSimpleTypeKind.DateTime.getEdmSimpleTypeInstance()
-            || type == EdmSimpleTypeKind.DateTimeOffset.getEdmSimpleTypeInstance()
-            || type == EdmSimpleTypeKind.Guid.getEdmSimpleTypeInstance()
-            || type == EdmSimpleTypeKind.Time.getEdmSimpleTypeInstance()) {
-          return Boolean.toString(left.compareTo(right) <= 0);
-        } else {
-          return Boolean.toString(Double.valueOf(left) <= Double.valueOf(right));
-        }
-      case GT:
-        if (type == EdmSimpleTypeKind.String.getEdmSimpleTypeInstance()
-            || type == EdmSimpleTypeKind.DateTime.getEdmSimpleTypeInstance()
-            || type == EdmSimpleTypeKind.DateTimeOffset.getEdmSimpleTypeInstance()
-            || type == EdmSimpleTypeKind.Guid.getEdmSimpleTypeInstance()
-            || type == EdmSimpleTypeKind.Time.getEdmSimpleTypeInstance()) {
-          return Boolean.toString(left.compareTo(right) > 0);
-        } else {
-          return Boolean.toString(Double.valueOf(left) > Double.valueOf(right));
-        }
-      case GE:
-        if (type == EdmSimpleTypeKind.String.getEdmSimpleTypeInstance()
-            || type == EdmSimpleTypeKind.DateTime.getEdmSimpleTypeInstance()
-            || type == EdmSimpleTypeKind.DateTimeOffset.getEdmSimpleTypeInstance()
-            || type == EdmSimpleTypeKind.Guid.getEdmSimpleTypeInstance()
-            || type == EdmSimpleTypeKind.Time.getEdmSimpleTypeInstance()) {
-          return Boolean.toString(left.compareTo(right) >= 0);
-        } else {
-          return Boolean.toString(Double.valueOf(left) >= Double.valueOf(right));
-        }
-      case PROPERTY_ACCESS:
-        throw new ODataNotImplementedException();
-      default:
-        throw new ODataNotImplementedException();
-      }
-
-    case PROPERTY:
-      final EdmProperty property = (EdmProperty) ((PropertyExpression) expression).getEdmProperty();
-      final EdmSimpleType propertyType = (EdmSimpleType) property.getType();
-      return propertyType.valueToString(getPropertyValue(data, property), EdmLiteralKind.DEFAULT, property.getFacets());
-
-    case MEMBER:
-      final MemberExpression memberExpression = (MemberExpression) expression;
-      final PropertyExpression propertyExpression = (PropertyExpression) memberExpression.getProperty();
-      final EdmProperty memberProperty = (EdmProperty) propertyExpression.getEdmProperty();
-      final EdmSimpleType memberType = (EdmSimpleType) memberExpression.getEdmType();
-      List<EdmProperty> propertyPath = new ArrayList<EdmProperty>();
-      CommonExpression currentExpression = memberExpression;
-      while (currentExpression != null) {
-        final PropertyExpression currentPropertyExpression =
-            (PropertyExpression) (currentExpression.getKind() == ExpressionKind.MEMBER ?
-                ((MemberExpression) currentExpression).getProperty() : currentExpression);
-        final EdmTyped currentProperty = currentPropertyExpression.getEdmProperty();
-        final EdmTypeKind kind = currentProperty.getType().getKind();
-        if (kind == EdmTypeKind.SIMPLE || kind == EdmTypeKind.COMPLEX) {
-          propertyPath.add(0, (EdmProperty) currentProperty);
-        } else {
-          throw new ODataNotImplementedException();
-        }
-        currentExpression = currentExpression.getKind() == ExpressionKind.MEMBER ? ((MemberExpression) currentExpression).getPath() : null;
-      }
-      return memberType.valueToString(getPropertyValue(data, propertyPath), EdmLiteralKind.DEFAULT, memberProperty.getFacets());
-
-    case LITERAL:
-      final LiteralExpression literal = (LiteralExpression) expression;
-      final EdmSimpleType literalType = (EdmSimpleType) literal.getEdmType();
-      return literalType.valueToString(literalType.valueOfString(literal.getUriLiteral(), EdmLiteralKind.URI, null, literalType.getDefaultType()),
-          EdmLiteralKind.DEFAULT, null);
-
-    case METHOD:
-      final MethodExpression methodExpression = (MethodExpression) expression;
-      final String first = evaluateExpression(data, methodExpression.getParameters().get(0));
-      final String second = methodExpression.getParameterCount() > 1 ?
-          evaluateExpression(data, methodExpression.getParameters().get(1)) : null;
-      final String third = methodExpression.getParameterCount() > 2 ?
-          evaluateExpression(data, methodExpression.getParameters().get(2)) : null;
-
-      switch (methodExpression.getMethod()) {
-      case ENDSWITH:
-        return Boolean.toString(first.endsWith(second));
-      case INDEXOF:
-        return Integer.toString(first.indexOf(second));
-      case STARTSWITH:
-        return Boolean.toString(first.startsWith(second));
-      case TOLOWER:
-        return first.toLowerCase(Locale.ROOT);
-      case TOUPPER:
-        return first.toUpperCase(Locale.ROOT);
-      case TRIM:
-        return first.trim();
-      case SUBSTRING:
-        final int offset = Integer.parseInt(second);
-        return first.substring(offset, offset + Integer.parseInt(third));
-      case SUBSTRINGOF:
-        return Boolean.toString(second.contains(first));
-      case CONCAT:
-        return first + second;
-      case LENGTH:
-        return Integer.toString(first.length());
-      case YEAR:
-        return String.valueOf(Integer.parseInt(first.substring(0, 4)));
-      case MONTH:
-        return String.valueOf(Integer.parseInt(first.substring(5, 7)));
-      case DAY:
-        return String.valueOf(Integer.parseInt(first.substring(8, 10)));
-      case HOUR:
-        return String.valueOf(Integer.parseInt(first.substring(11, 13)));
-      case MINUTE:
-        return String.valueOf(Integer.parseInt(first.substring(14, 16)));
-      case SECOND:
-        return String.valueOf(Integer.parseInt(first.substring(17, 19)));
-      case ROUND:
-        return Long.toString(Math.round(Double.valueOf(first)));
-      case FLOOR:
-        return Long.toString(Math.round(Math.floor(Double.valueOf(first))));
-      case CEILING:
-        return Long.toString(Math.round(Math.ceil(Double.valueOf(first))));
-      default:
-        throw new ODataNotImplementedException();
-      }
-
-    default:
-      throw new ODataNotImplementedException();
-    }
-  }
-
   private static <T> String getSkipToken(final EdmEntitySet entitySet, final T data) throws ODataException {
     String skipToken = "";
     for (final EdmProperty property : entitySet.getEntityType().getKeyProperties()) {
@@ -1501,7 +1356,7 @@ public class ListsProcessor extends ODataSingleProcessor {
     }
   }
 
-  private static String getGetterMethodName(final EdmProperty property) throws EdmException {
+  static String getGetterMethodName(final EdmProperty property) throws EdmException {
     final String prefix = property.isSimple() && property.getType() == EdmSimpleTypeKind.Boolean.getEdmSimpleTypeInstance() ? "is" : "get";
     final String defaultMethodName = prefix + property.getName();
     return property.getMapping() == null || property.getMapping().getInternalName() == null ?
@@ -1698,14 +1553,20 @@ public class ListsProcessor extends ODataSingleProcessor {
   @Override
   public ODataResponse executeBatch(final BatchHandler handler, final String contentType, final InputStream content) throws ODataException {
     ODataResponse batchResponse;
-    List<BatchResponsePart> batchResponseParts = new ArrayList<BatchResponsePart>();
     PathInfo pathInfo = getContext().getPathInfo();
     EntityProviderBatchProperties batchProperties = EntityProviderBatchProperties.init().pathInfo(pathInfo).build();
     List<BatchPart> batchParts = EntityProvider.parseBatchRequest(contentType, content, batchProperties);
-    for (BatchPart batchPart : batchParts) {
-      batchResponseParts.add(handler.handleBatchPart(batchPart));
+    // all parts are handled before the response is written; only the multipart body is streamed
+    List<BatchResponsePart> responseParts;
+    if (handler instanceof BatchPartsHandler) {
+      responseParts = ((BatchPartsHandler) handler).handleBatchParts(batchParts);
+    } else {
+      responseParts = new ArrayList<BatchResponsePart>(batchParts.size());
+      for (BatchPart batchPart : batchParts) {
+        responseParts.add(handler.handleBatchPart(batchPart));
+      }
     }
-    batchResponse = EntityProvider.writeBatchResponse(batchResponseParts);
+    batchResponse = EntityProvider.writeBatchResponse(responseParts);
     return batchResponse;
   }
 
@@ -18,7 +18,6 @@ package com.sap.core.odata.ref.processor;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -80,57 +79,58 @@ public class ScenarioDataSource implements ListsDataSource {
 
   @Override
   public Object readData(final EdmEntitySet entitySet, final Map<String, Object> keys) throws ODataNotImplementedException, ODataNotFoundException, EdmException {
+    Object data = null;
     if (ENTITYSET_1_1.equals(entitySet.getName())) {
-      for (final Employee employee : dataContainer.getEmployees()) {
-        if (employee.getId().equals(keys.get("EmployeeId"))) {
-          return employee;
-        }
-      }
-      throw new ODataNotFoundException(ODataNotFoundException.ENTITY);
-
+      data = dataContainer.getEmployee((String) keys.get("EmployeeId"));
     } else if (ENTITYSET_1_2.equals(entitySet.getName())) {
-      for (final Team team : dataContainer.getTeams()) {
-        if (team.getId().equals(keys.get("Id"))) {
-          return team;
-        }
-      }
-      throw new ODataNotFoundException(ODataNotFoundException.ENTITY);
-
+      data = dataContainer.getTeam((String) keys.get("Id"));
     } else if (ENTITYSET_1_3.equals(entitySet.getName())) {
-      for (final Room room : dataContainer.getRooms()) {
-        if (room.getId().equals(keys.get("Id"))) {
-          return room;
-        }
-      }
-      throw new ODataNotFoundException(ODataNotFoundException.ENTITY);
-
+      data = dataContainer.getRoom((String) keys.get("Id"));
     } else if (ENTITYSET_1_4.equals(entitySet.getName())) {
-      for (final Manager manager : dataContainer.getManagers()) {
-        if (manager.getId().equals(keys.get("EmployeeId"))) {
-          return manager;
-        }
-      }
-      throw new ODataNotFoundException(ODataNotFoundException.ENTITY);
-
+      data = dataContainer.getManager((String) keys.get("EmployeeId"));
     } else if (ENTITYSET_1_5.equals(entitySet.getName())) {
-      for (final Building building : dataContainer.getBuildings()) {
-        if (building.getId().equals(keys.get("Id"))) {
-          return building;
-        }
-      }
-      throw new ODataNotFoundException(ODataNotFoundException.ENTITY);
-
+      data = dataContainer.getBuilding((String) keys.get("Id"));
     } else if (ENTITYSET_2_1.equals(entitySet.getName())) {
-      for (final Photo photo : dataContainer.getPhotos()) {
-        if (photo.getId() == (Integer) keys.get("Id")
-            && photo.getType().equals(keys.get("Type"))) {
-          return photo;
-        }
+      final Photo photo = dataContainer.getPhoto((Integer) keys.get("Id"));
+      if (photo != null && photo.getType().equals(keys.get("Type"))) {
+        data = photo;
       }
+    } else {
+      throw new ODataNotImplementedException();
+    }
+
+    if (data == null) {
       throw new ODataNotFoundException(ODataNotFoundException.ENTITY);
     }
+    return data;
+  }
+
+  /*
+   * Returns the employee with the given key if it belongs to the source team,
+   * room, or manager. The key index of the data container and the reference
+   * from the employee to the source are used instead of a search in the
+   * employees of the source.
+   */
+  private Employee getRelatedEmployee(final EdmEntitySet sourceEntitySet, final Object sourceData, final Object key) throws EdmException {
+    Employee employee = dataContainer.getEmployee((String) key);
+    if (employee == null) {
+      employee = dataContainer.getManager((String) key);
+    }
+    if (employee != null
+        && (ENTITYSET_1_2.equals(sourceEntitySet.getName()) && employee.getTeam() == sourceData
+            || ENTITYSET_1_3.equals(sourceEntitySet.getName()) && employee.getRoom() == sourceData
+            || ENTITYSET_1_4.equals(sourceEntitySet.getName()) && employee.getManager() == sourceData)) {
+      return employee;
+    }
+    return null;
+  }
 
-    throw new ODataNotImplementedException();
+  /*
+   * Returns the room with the given key if it belongs to the source building.
+   */
+  private Room getRelatedRoom(final Building building, final Object key) {
+    final Room room = dataContainer.getRoom((String) key);
+    return room != null && room.getBuilding() == building ? room : null;
   }
 
   @Override
@@ -151,10 +151,9 @@ public class ScenarioDataSource implements ListsDataSource {
       if (targetKeys.isEmpty()) {
         return Arrays.asList(data.toArray());
       } else {
-        for (final Object employee : data) {
-          if (((Employee) employee).getId().equals(targetKeys.get("EmployeeId"))) {
-            return employee;
-          }
+        final Employee employee = getRelatedEmployee(sourceEntitySet, sourceData, targetKeys.get("EmployeeId"));
+        if (employee != null) {
+          return employee;
         }
       }
       throw new ODataNotFoundException(ODataNotFoundException.ENTITY);
@@ -181,10 +180,9 @@ public class ScenarioDataSource implements ListsDataSource {
         if (targetKeys.isEmpty()) {
           return Arrays.asList(data.toArray());
         } else {
-          for (final Object room : data) {
-            if (((Room) room).getId().equals(targetKeys.get("Id"))) {
-              return room;
-            }
+          final Room room = getRelatedRoom((Building) sourceData, targetKeys.get("Id"));
+          if (room != null) {
+            return room;
           }
         }
         throw new ODataNotFoundException(ODataNotFoundException.ENTITY);
@@ -255,12 +253,11 @@ public class ScenarioDataSource implements ListsDataSource {
       if (parameters.get("Id") == null) {
         throw new ODataNotFoundException(ODataNotFoundException.ENTITY);
       }
-      for (final Manager manager : dataContainer.getManagers()) {
-        if (manager.getId().equals(parameters.get("Id"))) {
-          return new BinaryData(manager.getImage(), manager.getImageType());
-        }
+      final Manager manager = dataContainer.getManager((String) parameters.get("Id"));
+      if (manager == null) {
+        throw new ODataNotFoundException(ODataNotFoundException.ENTITY);
       }
-      throw new ODataNotFoundException(ODataNotFoundException.ENTITY);
+      return new BinaryData(manager.getImage(), manager.getImageType());
 
     } else if (function.getName().equals("OldestEmployee")) {
       return getOldestEmployee();
@@ -474,30 +471,19 @@ public class ScenarioDataSource implements ListsDataSource {
   @Override
   public void deleteRelation(final EdmEntitySet sourceEntitySet, final Object sourceData, final EdmEntitySet targetEntitySet, final Map<String, Object> targetKeys) throws ODataNotImplementedException, ODataNotFoundException, EdmException, ODataApplicationException {
     if (ENTITYSET_1_1.equals(targetEntitySet.getName())) {
+      final Employee employee = getRelatedEmployee(sourceEntitySet, sourceData, targetKeys.get("EmployeeId"));
+      if (employee == null) {
+        return;
+      }
       if (ENTITYSET_1_2.equals(sourceEntitySet.getName())) {
-        for (Iterator<Employee> iterator = ((Team) sourceData).getEmployees().iterator(); iterator.hasNext();) {
-          final Employee employee = iterator.next();
-          if (employee.getId().equals(targetKeys.get("EmployeeId"))) {
-            employee.setTeam(null);
-            iterator.remove();
-          }
-        }
+        employee.setTeam(null);
+        ((Team) sourceData).getEmployees().remove(employee);
       } else if (ENTITYSET_1_3.equals(sourceEntitySet.getName())) {
-        for (Iterator<Employee> iterator = ((Room) sourceData).getEmployees().iterator(); iterator.hasNext();) {
-          final Employee employee = iterator.next();
-          if (employee.getId().equals(targetKeys.get("EmployeeId"))) {
-            employee.setRoom(null);
-            iterator.remove();
-          }
-        }
+        employee.setRoom(null);
+        ((Room) sourceData).getEmployees().remove(employee);
       } else if (ENTITYSET_1_4.equals(sourceEntitySet.getName())) {
-        for (Iterator<Employee> iterator = ((Manager) sourceData).getEmployees().iterator(); iterator.hasNext();) {
-          final Employee employee = iterator.next();
-          if (employee.getId().equals(targetKeys.get("EmployeeId"))) {
-            employee.setManager(null);
-            iterator.remove();
-          }
-        }
+        employee.setManager(null);
+        ((Manager) sourceData).getEmployees().remove(employee);
       }
 
     } else if (ENTITYSET_1_2.equals(targetEntitySet.getName())) {
@@ -509,12 +495,10 @@ public class ScenarioDataSource implements ListsDataSource {
         ((Employee) sourceData).getRoom().getEmployees().remove(sourceData);
         ((Employee) sourceData).setRoom(null);
       } else if (ENTITYSET_1_5.equals(sourceEntitySet.getName())) {
-        for (Iterator<Room> iterator = ((Building) sourceData).getRooms().iterator(); iterator.hasNext();) {
-          final Room room = iterator.next();
-          if (room.getId().equals(targetKeys.get("Id"))) {
-            room.setBuilding(null);
-            iterator.remove();
-          }
+        final Room room = getRelatedRoom((Building) sourceData, targetKeys.get("Id"));
+        if (room != null) {
+          room.setBuilding(null);
+          ((Building) sourceData).getRooms().remove(room);
         }
       }
 
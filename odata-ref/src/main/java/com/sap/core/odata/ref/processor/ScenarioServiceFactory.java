@@ -19,8 +19,11 @@ import com.sap.core.odata.api.ODataCallback;
 import com.sap.core.odata.api.ODataDebugCallback;
 import com.sap.core.odata.api.ODataService;
 import com.sap.core.odata.api.ODataServiceFactory;
+import com.sap.core.odata.api.batch.BatchParallelCallback;
+import com.sap.core.odata.api.edm.Edm;
 import com.sap.core.odata.api.exception.ODataException;
 import com.sap.core.odata.api.processor.ODataContext;
+import com.sap.core.odata.api.rt.RuntimeDelegate;
 import com.sap.core.odata.ref.edm.ScenarioEdmProvider;
 import com.sap.core.odata.ref.model.DataContainer;
 
@@ -29,13 +32,27 @@ import com.sap.core.odata.ref.model.DataContainer;
  */
 public class ScenarioServiceFactory extends ODataServiceFactory {
 
+  /* query operations of a batch request are executed with up to this number of threads */
+  private static final int BATCH_PARALLELISM = 4;
+
+  private final Edm edm = RuntimeDelegate.createEdm(new ScenarioEdmProvider());
+
   @Override
   public ODataService createService(final ODataContext context) throws ODataException {
+    // Parts of a batch request executed in parallel work on the data of the batch request;
+    // they only read, and change sets are never executed at the same time.
+    final ODataContext batchContext = context == null ? null : context.getBatchParentContext();
+    if (batchContext != null && batchContext.getService().getProcessor() instanceof ListsProcessor) {
+      return createODataSingleProcessorService(
+          edm,
+          new ListsProcessor(((ListsProcessor) batchContext.getService().getProcessor()).getDataSource()));
+    }
+
     DataContainer dataContainer = new DataContainer();
     dataContainer.reset();
 
     return createODataSingleProcessorService(
-        new ScenarioEdmProvider(),
+        edm,
         new ListsProcessor(new ScenarioDataSource(dataContainer)));
   }
 
@@ -44,7 +61,8 @@ public class ScenarioServiceFactory extends ODataServiceFactory {
   public <T extends ODataCallback> T getCallback(final Class<? extends ODataCallback> callbackInterface) {
     return (T) (callbackInterface.isAssignableFrom(ScenarioErrorCallback.class) ?
         new ScenarioErrorCallback() : callbackInterface.isAssignableFrom(ODataDebugCallback.class) ?
-            new ScenarioDebugCallback() : super.getCallback(callbackInterface));
+            new ScenarioDebugCallback() : callbackInterface.isAssignableFrom(BatchParallelCallback.class) ?
+                new ScenarioBatchParallelCallback() : super.getCallback(callbackInterface));
   }
 
   private final class ScenarioDebugCallback implements ODataDebugCallback {
@@ -53,4 +71,11 @@ public class ScenarioServiceFactory extends ODataServiceFactory {
       return true;
     }
   }
+
+  private final class ScenarioBatchParallelCallback implements BatchParallelCallback {
+    @Override
+    public int getMaxParallelism() {
+      return BATCH_PARALLELISM;
+    }
+  }
 }
@@ -18,8 +18,11 @@ package com.sap.core.odata.ref.model;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Iterator;
 import java.util.List;
 
 import org.junit.Test;
@@ -79,4 +82,30 @@ public class DataContainerTest extends BaseTest {
     assertFalse(dataContainer.getPhotos().isEmpty());
   }
 
+  @Test
+  public void keyIndex() {
+    dataContainer.init();
+    final Team team = dataContainer.getTeam("2");
+    assertEquals("2", team.getId());
+    assertNull(dataContainer.getTeam("4"));
+
+    Team team4 = new Team(4, "Testteam 4");
+    dataContainer.getTeams().add(team4);
+    assertSame(team4, dataContainer.getTeam("4"));
+
+    for (Iterator<Team> iterator = dataContainer.getTeams().iterator(); iterator.hasNext();) {
+      if (iterator.next() == team) {
+        iterator.remove();
+      }
+    }
+    assertNull(dataContainer.getTeam("2"));
+    dataContainer.getTeams().remove(team4);
+    assertNull(dataContainer.getTeam("4"));
+
+    dataContainer.reset();
+    assertEquals("2", dataContainer.getTeam("2").getId());
+    assertNull(dataContainer.getTeam("4"));
+    assertEquals("image/png", dataContainer.getPhoto(1).getType());
+  }
+
 }
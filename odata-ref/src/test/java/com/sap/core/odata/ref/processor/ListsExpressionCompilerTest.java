@@ -0,0 +1,227 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.ref.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.sap.core.odata.api.edm.Edm;
+import com.sap.core.odata.api.edm.EdmEntityType;
+import com.sap.core.odata.api.exception.ODataNotImplementedException;
+import com.sap.core.odata.api.rt.RuntimeDelegate;
+import com.sap.core.odata.core.uri.UriParserImpl;
+import com.sap.core.odata.ref.edm.ScenarioEdmProvider;
+import com.sap.core.odata.ref.model.City;
+import com.sap.core.odata.ref.model.Employee;
+import com.sap.core.odata.ref.model.Location;
+import com.sap.core.odata.ref.processor.ListsExpressionCompiler.Evaluator;
+import com.sap.core.odata.testutil.fit.BaseTest;
+
+/**
+ * Tests the semantics of compiled $filter and $orderby expressions.
+ * @author SAP AG
+ */
+public class ListsExpressionCompilerTest extends BaseTest {
+
+  private static Edm edm;
+  private static EdmEntityType employeeType;
+
+  @BeforeClass
+  public static void createEdm() throws Exception {
+    edm = RuntimeDelegate.createEdm(new ScenarioEdmProvider());
+    employeeType = edm.getDefaultEntityContainer().getEntitySet("Employees").getEntityType();
+  }
+
+  private static Employee createEmployee(final String name, final int age) {
+    Employee employee = new Employee(age, name);
+    employee.setAge(age);
+    return employee;
+  }
+
+  private static Evaluator compile(final String filter) throws Exception {
+    return ListsExpressionCompiler.compile(new UriParserImpl(edm).parseFilterString(employeeType, filter).getExpression());
+  }
+
+  private static Object evaluate(final String expression, final Employee employee) throws Exception {
+    return compile(expression).evaluate(employee);
+  }
+
+  private static boolean test(final String filter, final Employee employee) throws Exception {
+    return compile(filter).test(employee);
+  }
+
+  private static List<Integer> order(final List<Employee> employees, final String orderBy) throws Exception {
+    List<Integer> positions = new ArrayList<Integer>();
+    for (int i = 0; i < employees.size(); i++) {
+      positions.add(i);
+    }
+    Collections.sort(positions, ListsExpressionCompiler.compileOrderBy(employees,
+        new UriParserImpl(edm).parseOrderByString(employeeType, orderBy)));
+    return positions;
+  }
+
+  @Test
+  public void numbersComparedAsNumbers() throws Exception {
+    final Employee employee = createEmployee("A", 9);
+    assertTrue(test("Age lt 10", employee));
+    assertTrue(test("Age ge 9", employee));
+    assertFalse(test("Age gt 9", employee));
+    assertTrue(test("Age eq 9", employee));
+    assertTrue(test("Age ne 10", employee));
+  }
+
+  @Test
+  public void typePromotion() throws Exception {
+    final Employee employee = createEmployee("A", 30);
+    assertTrue(test("Age eq 30L", employee));
+    assertTrue(test("Age eq 30.0d", employee));
+    assertTrue(test("Age eq 30M", employee));
+    assertTrue(test("Age lt 30.5M", employee));
+    assertTrue(test("Age gt 29.5d", employee));
+    assertTrue(test("Age gt 29.9f", employee));
+    assertFalse(test("Age lt 29.5M", employee));
+  }
+
+  @Test
+  public void arithmetic() throws Exception {
+    final Employee employee = createEmployee("A", 30);
+    assertEquals(31L, evaluate("Age add 1", employee));
+    assertEquals(-30L, evaluate("-Age", employee));
+    assertEquals(2L, evaluate("Age mod 7", employee));
+    assertEquals(7.5, evaluate("Age div 4", employee));
+    assertEquals(15.0, evaluate("Age div 2", employee));
+    assertEquals(15.0, evaluate("Age mul 0.5d", employee));
+    assertEquals(new BigDecimal("29.5"), evaluate("Age sub 0.5M", employee));
+    assertTrue(test("Age div 2 eq 15", employee));
+    assertTrue(test("Age add 2 mul 3 eq 36", employee));
+    assertTrue(test("(Age add 2) mul 3 eq 96", employee));
+    assertTrue(test("Age sub 0.5M eq 29.50M", employee));
+  }
+
+  @Test
+  public void methods() throws Exception {
+    Employee employee = createEmployee(" Walter Winter ", 52);
+    Calendar entryDate = Calendar.getInstance(TimeZone.getTimeZone("GMT"));
+    entryDate.clear();
+    entryDate.set(1999, Calendar.JANUARY, 1, 10, 20, 30);
+    employee.setEntryDate(entryDate);
+    assertEquals(1999L, evaluate("year(EntryDate)", employee));
+    assertEquals(1L, evaluate("month(EntryDate)", employee));
+    assertEquals(1L, evaluate("day(EntryDate)", employee));
+    assertEquals(10L, evaluate("hour(EntryDate)", employee));
+    assertEquals(20L, evaluate("minute(EntryDate)", employee));
+    assertEquals(30L, evaluate("second(EntryDate)", employee));
+    assertTrue(test("EntryDate gt datetime'1998-12-31T23:59'", employee));
+    assertTrue(test("EntryDate eq datetime'1999-01-01T10:20:30'", employee));
+    assertEquals(15L, evaluate("length(EmployeeName)", employee));
+    assertEquals(8L, evaluate("indexof(EmployeeName,'Winter')", employee));
+    assertEquals("Walter Winter", evaluate("trim(EmployeeName)", employee));
+    assertEquals("Winter ", evaluate("substring(EmployeeName,8)", employee));
+    assertEquals("Walter", evaluate("substring(EmployeeName,1,6)", employee));
+    assertTrue(test("substringof('Walter',EmployeeName)", employee));
+    assertTrue(test("startswith(trim(EmployeeName),'Walter')", employee));
+    assertEquals(26L, evaluate("round(Age div 2)", employee));
+    assertEquals(17L, evaluate("floor(Age div 3)", employee));
+    assertEquals(18L, evaluate("ceiling(Age div 3)", employee));
+  }
+
+  @Test
+  public void nullValues() throws Exception {
+    final Employee employee = createEmployee(null, 30);
+    assertTrue(test("EmployeeName eq Location/Country", employee));
+    assertFalse(test("EmployeeName ne Location/Country", employee));
+    assertTrue(test("EmployeeName ne 'A'", employee));
+    assertFalse(test("EmployeeName eq 'A'", employee));
+    assertFalse(test("EmployeeName lt 'Z'", employee));
+    assertFalse(test("EmployeeName ge 'A'", employee));
+    assertTrue(test("year(EntryDate) eq year(EntryDate)", employee));
+    assertFalse(test("EntryDate lt datetime'2000-01-01T00:00'", employee));
+    assertNull(evaluate("EmployeeName lt 'Z'", employee));
+    assertFalse(test("not (EmployeeName lt 'Z')", employee));
+    assertFalse(test("not (Age ge -hour(EntryDate))", employee));
+    assertTrue(test("Location/City/CityName eq EmployeeName", employee));
+
+    assertNull(evaluate("length(EmployeeName)", employee));
+    assertNull(evaluate("year(EntryDate)", employee));
+    assertNull(evaluate("length(EmployeeName) add 1", employee));
+    assertTrue(test("length(EmployeeName) eq length(Location/Country)", employee));
+
+    assertNull(evaluate("startswith(EmployeeName,'A')", employee));
+    assertNull(evaluate("not startswith(EmployeeName,'A')", employee));
+    assertFalse(test("not startswith(EmployeeName,'A')", employee));
+    assertTrue(test("startswith(EmployeeName,'A') or Age eq 30", employee));
+    assertNull(evaluate("startswith(EmployeeName,'A') and Age eq 30", employee));
+    assertEquals(Boolean.FALSE, evaluate("startswith(EmployeeName,'A') and Age eq 31", employee));
+    assertNull(evaluate("startswith(EmployeeName,'A') or Age eq 31", employee));
+  }
+
+  @Test
+  public void complexProperty() throws Exception {
+    Employee employee = createEmployee("A", 30);
+    employee.setLocation(new Location("Germany", "69124", "Heidelberg"));
+    assertTrue(test("Location/City/CityName eq 'Heidelberg'", employee));
+    employee.getLocation().setCity(new City("69190", null));
+    assertTrue(test("Location/City/CityName ne 'Heidelberg'", employee));
+    assertFalse(test("Location/City/CityName lt 'Z'", employee));
+    assertTrue(test("Location/City/PostalCode gt '69124'", employee));
+  }
+
+  @Test
+  public void orderByTypedValues() throws Exception {
+    final List<Employee> employees = Arrays.asList(
+        createEmployee("B", 10), createEmployee(null, 9), createEmployee("A", 100), createEmployee("A", 9));
+    assertEquals(Arrays.asList(1, 3, 0, 2), order(employees, "Age"));
+    assertEquals(Arrays.asList(2, 0, 1, 3), order(employees, "Age desc"));
+    assertEquals(Arrays.asList(1, 2, 3, 0), order(employees, "EmployeeName"));
+    assertEquals(Arrays.asList(0, 2, 3, 1), order(employees, "EmployeeName desc"));
+    assertEquals(Arrays.asList(1, 3, 2, 0), order(employees, "EmployeeName,Age"));
+    assertEquals(Arrays.asList(0, 1, 3, 2), order(employees, "Age div 3 sub Age mod 3"));
+  }
+
+  @Test
+  public void failureCreatesNewException() throws Exception {
+    final Evaluator evaluator = compile("ne_Manager/EmployeeName eq 'A'");
+    final Employee employee = createEmployee("A", 30);
+    ODataNotImplementedException first = null;
+    try {
+      evaluator.evaluate(employee);
+      fail("Expected an ODataNotImplementedException");
+    } catch (final ODataNotImplementedException e) {
+      first = e;
+    }
+    try {
+      evaluator.test(employee);
+      fail("Expected an ODataNotImplementedException");
+    } catch (final ODataNotImplementedException e) {
+      assertNotSame(first, e);
+    }
+  }
+}
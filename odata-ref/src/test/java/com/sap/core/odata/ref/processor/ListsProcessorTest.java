@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.ref.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.sap.core.odata.api.edm.Edm;
+import com.sap.core.odata.api.edm.EdmEntitySet;
+import com.sap.core.odata.api.processor.ODataContext;
+import com.sap.core.odata.api.rt.RuntimeDelegate;
+import com.sap.core.odata.api.uri.PathInfo;
+import com.sap.core.odata.api.uri.UriInfo;
+import com.sap.core.odata.core.uri.UriParserImpl;
+import com.sap.core.odata.ref.edm.ScenarioEdmProvider;
+import com.sap.core.odata.ref.model.Employee;
+import com.sap.core.odata.testutil.fit.BaseTest;
+import com.sap.core.odata.testutil.helper.StringHelper;
+import com.sap.core.odata.testutil.mock.MockFacade;
+
+/**
+ * Tests ordering and paging of entity sets in the {@link ListsProcessor}.
+ * @author SAP AG
+ */
+public class ListsProcessorTest extends BaseTest {
+
+  private static final int SERVER_PAGING_SIZE = 100;
+  private static final Pattern EMPLOYEE_ID = Pattern.compile("\"EmployeeId\":\"(\\d+)\"");
+  private static final Pattern NEXT_LINK = Pattern.compile("\"__next\":\"([^\"]*)\"");
+
+  private static Edm edm;
+  private String nextLink;
+
+  @BeforeClass
+  public static void createEdm() {
+    edm = RuntimeDelegate.createEdm(new ScenarioEdmProvider());
+  }
+
+  /* employees with the given IDs; employees at even positions are called "B", the others "A" */
+  private static List<Employee> createEmployees(final int... ids) {
+    List<Employee> employees = new ArrayList<Employee>();
+    for (final int id : ids) {
+      Employee employee = new Employee(id, employees.size() % 2 == 0 ? "B" : "A");
+      employee.setAge(id);
+      employees.add(employee);
+    }
+    return employees;
+  }
+
+  private static int[] range(final int count) {
+    int[] ids = new int[count];
+    for (int i = 0; i < count; i++) {
+      ids[i] = count - i;
+    }
+    return ids;
+  }
+
+  private List<String> readEmployees(final List<Employee> employees, final String... queryOptions) throws Exception {
+    ListsDataSource dataSource = mock(ListsDataSource.class);
+    doReturn(employees).when(dataSource).readData(any(EdmEntitySet.class));
+    ListsProcessor processor = new ListsProcessor(dataSource);
+
+    ODataContext context = mock(ODataContext.class);
+    PathInfo pathInfo = mock(PathInfo.class);
+    when(pathInfo.getServiceRoot()).thenReturn(new URI("http://localhost/"));
+    when(pathInfo.getRequestUri()).thenReturn(new URI("http://localhost/Employees"));
+    when(context.getPathInfo()).thenReturn(pathInfo);
+    processor.setContext(context);
+
+    Map<String, String> queryParameters = new HashMap<String, String>();
+    for (final String queryOption : queryOptions) {
+      queryParameters.put(queryOption.substring(0, queryOption.indexOf('=')), queryOption.substring(queryOption.indexOf('=') + 1));
+    }
+    final UriInfo uriInfo = new UriParserImpl(edm).parse(
+        MockFacade.getPathSegmentsAsODataPathSegmentMock(Arrays.asList("Employees")), queryParameters);
+
+    final String content = StringHelper.inputStreamToString(
+        (InputStream) processor.readEntitySet(uriInfo, "application/json").getEntity());
+    List<String> ids = new ArrayList<String>();
+    Matcher matcher = EMPLOYEE_ID.matcher(content);
+    while (matcher.find()) {
+      ids.add(matcher.group(1));
+    }
+    matcher = NEXT_LINK.matcher(content);
+    nextLink = matcher.find() ? matcher.group(1) : null;
+    return ids;
+  }
+
+  @Test
+  public void orderByKeepsOriginalOrderOfTies() throws Exception {
+    final List<Employee> employees = createEmployees(1, 2, 3, 4, 5, 6);
+    assertEquals(Arrays.asList("2", "4", "6", "1", "3", "5"), readEmployees(employees, "$orderby=EmployeeName"));
+    assertEquals(Arrays.asList("1", "3", "5", "2", "4", "6"), readEmployees(employees, "$orderby=EmployeeName desc"));
+    assertEquals(Arrays.asList("2", "4"), readEmployees(employees, "$orderby=EmployeeName", "$top=2"));
+    assertEquals(Arrays.asList("4", "6", "1"), readEmployees(employees, "$orderby=EmployeeName", "$skip=1", "$top=3"));
+    assertEquals(Arrays.asList("6", "4", "2", "5"), readEmployees(employees, "$orderby=EmployeeName,Age desc", "$top=4"));
+  }
+
+  @Test
+  public void skipAndTop() throws Exception {
+    final List<Employee> employees = createEmployees(6, 3, 1, 5, 2, 4);
+    assertEquals(Arrays.asList("1", "2", "3", "4", "5", "6"), readEmployees(employees, "$top=10"));
+    assertEquals(Arrays.asList("1", "2"), readEmployees(employees, "$top=2"));
+    assertEquals(Arrays.asList("3", "4", "5", "6"), readEmployees(employees, "$skip=2"));
+    assertEquals(Arrays.asList("3", "4"), readEmployees(employees, "$skip=2", "$top=2"));
+    assertEquals(Arrays.asList("6"), readEmployees(employees, "$skip=5", "$top=5"));
+    assertEquals(Collections.emptyList(), readEmployees(employees, "$skip=6"));
+    assertEquals(Collections.emptyList(), readEmployees(employees, "$top=0"));
+  }
+
+  @Test
+  public void skipToken() throws Exception {
+    final List<Employee> employees = createEmployees(6, 3, 1, 5, 2, 4);
+    assertEquals(Arrays.asList("1", "2", "3", "4", "5", "6"), readEmployees(employees, "$skiptoken=1"));
+    assertEquals(Arrays.asList("4", "5", "6"), readEmployees(employees, "$skiptoken=4"));
+    assertEquals(Arrays.asList("6"), readEmployees(employees, "$skiptoken=6"));
+    assertEquals(Collections.emptyList(), readEmployees(employees, "$skiptoken=7"));
+    assertEquals(Arrays.asList("5", "6"), readEmployees(employees, "$skiptoken=4", "$skip=1"));
+    assertEquals(Arrays.asList("4", "5"), readEmployees(employees, "$skiptoken=4", "$top=2"));
+  }
+
+  @Test
+  public void skipTokenWithOrderBy() throws Exception {
+    // ordered by name: 3, 2, 4, 6, 1, 5
+    final List<Employee> employees = createEmployees(6, 3, 1, 5, 2, 4);
+    assertEquals(Arrays.asList("3", "5", "4", "6", "1", "2"), readEmployees(employees, "$orderby=EmployeeName", "$skiptoken=3"));
+    assertEquals(Arrays.asList("6", "1", "2"), readEmployees(employees, "$orderby=EmployeeName", "$skiptoken=6"));
+    assertEquals(Arrays.asList("2"), readEmployees(employees, "$orderby=EmployeeName", "$skiptoken=2"));
+  }
+
+  @Test
+  public void serverPagingAtPageSize() throws Exception {
+    final List<String> ids = readEmployees(createEmployees(range(SERVER_PAGING_SIZE)));
+    assertEquals(SERVER_PAGING_SIZE, ids.size());
+    assertEquals(null, nextLink);
+  }
+
+  @Test
+  public void serverPagingAbovePageSize() throws Exception {
+    final List<String> ids = readEmployees(createEmployees(range(SERVER_PAGING_SIZE + 1)));
+    List<String> expected = new ArrayList<String>();
+    for (final int id : range(SERVER_PAGING_SIZE + 1)) {
+      expected.add(Integer.toString(id));
+    }
+    // default order is the order of the key as string
+    Collections.sort(expected);
+    assertEquals(expected.subList(0, SERVER_PAGING_SIZE), ids);
+    assertTrue(nextLink.endsWith("$skiptoken=" + expected.get(SERVER_PAGING_SIZE)));
+    assertFalse(ids.contains(expected.get(SERVER_PAGING_SIZE)));
+  }
+}
@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright 2013 SAP AG
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.sap.core.odata.ref.processor;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
+
+import com.sap.core.odata.api.ODataService;
+import com.sap.core.odata.api.batch.BatchParallelCallback;
+import com.sap.core.odata.api.processor.ODataContext;
+import com.sap.core.odata.testutil.fit.BaseTest;
+
+/**
+ * @author SAP AG
+ */
+public class ScenarioServiceFactoryTest extends BaseTest {
+
+  @Test
+  public void batchPartsShareDataOfBatchRequest() throws Exception {
+    ScenarioServiceFactory factory = new ScenarioServiceFactory();
+    final ODataService batchService = factory.createService(null);
+    ODataContext batchContext = mock(ODataContext.class);
+    when(batchContext.getService()).thenReturn(batchService);
+    ODataContext partContext = mock(ODataContext.class);
+    when(partContext.getBatchParentContext()).thenReturn(batchContext);
+
+    final ODataService partService = factory.createService(partContext);
+    assertNotSame(batchService.getProcessor(), partService.getProcessor());
+    assertSame(((ListsProcessor) batchService.getProcessor()).getDataSource(),
+        ((ListsProcessor) partService.getProcessor()).getDataSource());
+
+    assertNotSame(((ListsProcessor) batchService.getProcessor()).getDataSource(),
+        ((ListsProcessor) factory.createService(batchContext).getProcessor()).getDataSource());
+  }
+
+  @Test
+  public void parallelBatchQueryOperations() {
+    final BatchParallelCallback callback = new ScenarioServiceFactory().getCallback(BatchParallelCallback.class);
+    assertNotNull(callback);
+    assertTrue(callback.getMaxParallelism() > 1);
+  }
+}
@@ -57,11 +57,18 @@ public abstract class AbstractFitTest extends BaseTest {
 
   protected abstract ODataService createService() throws ODataException;
 
+  /**
+   * @return the class of the service factory used by the test server
+   */
+  protected Class<? extends FitStaticServiceFactory> getServiceFactoryClass() {
+    return FitStaticServiceFactory.class;
+  }
+
   @Before
   public void before() {
     try {
       service = createService();
-      server.startServer(service);
+      server.startServer(service, getServiceFactoryClass());
     } catch (final ODataException e) {
       throw new TestUtilRuntimeException(e);
     }
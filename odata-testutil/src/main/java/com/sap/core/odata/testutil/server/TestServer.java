@@ -80,7 +80,7 @@ public class TestServer {
         final CXFNonSpringJaxrsServlet odataServlet = new CXFNonSpringJaxrsServlet();
         final ServletHolder odataServletHolder = new ServletHolder(odataServlet);
         odataServletHolder.setInitParameter("javax.ws.rs.Application", "com.sap.core.odata.core.rest.app.ODataApplication");
-        odataServletHolder.setInitParameter(ODataServiceFactory.FACTORY_LABEL, factoryClass.getCanonicalName());
+        odataServletHolder.setInitParameter(ODataServiceFactory.FACTORY_LABEL, factoryClass.getName());
 
         if (pathSplit > 0) {
           odataServletHolder.setInitParameter(ODataServiceFactory.PATH_SPLIT_LABEL, Integer.toString(pathSplit));
@@ -113,7 +113,15 @@ public class TestServer {
   }
 
   public void startServer(final ODataService service) {
-    startServer(FitStaticServiceFactory.class);
+    startServer(service, FitStaticServiceFactory.class);
+  }
+
+  /**
+   * Starts the server with a service factory that may add callbacks
+   * to the ones of {@link FitStaticServiceFactory}.
+   */
+  public void startServer(final ODataService service, final Class<? extends FitStaticServiceFactory> factoryClass) {
+    startServer(factoryClass);
 
     if ((server != null) && server.isStarted()) {
       FitStaticServiceFactory.bindService(this, service);